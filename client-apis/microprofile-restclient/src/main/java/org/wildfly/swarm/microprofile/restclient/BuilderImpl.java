@@ -22,6 +22,7 @@ import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.security.KeyStore;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,7 +30,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -40,12 +44,14 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.ext.ParamConverterProvider;
 
+import org.apache.http.HttpHost;
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.eclipse.microprofile.rest.client.RestClientBuilder;
 import org.eclipse.microprofile.rest.client.RestClientDefinitionException;
 import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.ext.ResponseExceptionMapper;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
 import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
 import org.jboss.resteasy.specimpl.ResteasyUriBuilder;
 
@@ -56,13 +62,27 @@ class BuilderImpl implements RestClientBuilder {
 
     private static final String DEFAULT_MAPPER_PROP = "microprofile.rest.client.disable.default.mapper";
 
+    private static final String CONNECTION_POOL_SIZE_FORMAT = "%s/mp-rest/connectionPoolSize";
+
+    private static final String MAX_POOLED_PER_ROUTE_FORMAT = "%s/mp-rest/maxPooledPerRoute";
+
+    private static final String CONNECTION_TTL_FORMAT = "%s/mp-rest/connectionTTL";
+
+    private static final String CONNECT_TIMEOUT_FORMAT = "%s/mp-rest/connectTimeout";
+
+    private static final String READ_TIMEOUT_FORMAT = "%s/mp-rest/readTimeout";
+
     BuilderImpl() {
+        this(ConfigProvider.getConfig());
+    }
+
+    BuilderImpl(Config config) {
         ClientBuilder availableBuilder = ClientBuilder.newBuilder();
 
         if (availableBuilder instanceof ResteasyClientBuilder) {
             this.builderDelegate = (ResteasyClientBuilder) availableBuilder;
             this.configurationWrapper = new ConfigurationWrapper(this.builderDelegate.getConfiguration());
-            this.config = ConfigProvider.getConfig();
+            this.config = config;
         } else {
             throw new IllegalStateException("Incompatible client builder found " + availableBuilder.getClass());
         }
@@ -82,6 +102,34 @@ class BuilderImpl implements RestClientBuilder {
         }
     }
 
+    /**
+     * The TLS settings of the client, as in the newer versions of the {@link RestClientBuilder} API. A client with TLS settings of its own does not
+     * share the connection pool of the other clients.
+     */
+    public RestClientBuilder sslContext(SSLContext sslContext) {
+        this.builderDelegate.sslContext(sslContext);
+        this.sharedEngine = false;
+        return this;
+    }
+
+    public RestClientBuilder trustStore(KeyStore trustStore) {
+        this.builderDelegate.trustStore(trustStore);
+        this.sharedEngine = false;
+        return this;
+    }
+
+    public RestClientBuilder keyStore(KeyStore keyStore, String keystorePassword) {
+        this.builderDelegate.keyStore(keyStore, keystorePassword);
+        this.sharedEngine = false;
+        return this;
+    }
+
+    public RestClientBuilder hostnameVerifier(HostnameVerifier hostnameVerifier) {
+        this.builderDelegate.hostnameVerifier(hostnameVerifier);
+        this.sharedEngine = false;
+        return this;
+    }
+
     @Override
     public <T> T build(Class<T> aClass) throws IllegalStateException, RestClientDefinitionException {
 
@@ -107,40 +155,65 @@ class BuilderImpl implements RestClientBuilder {
         List<String> noProxyHosts = Arrays.asList(
                 System.getProperty("http.nonProxyHosts", "localhost|127.*|[::1]").split("|"));
 
-        final T actualClient;
-
         final String proxyHost = System.getProperty("http.proxyHost");
 
+        HttpHost proxy = null;
         if (proxyHost != null && !noProxyHosts.contains(this.baseURI.getHost())) {
             // Use proxy, if defined
-            actualClient = this.builderDelegate.defaultProxy(
-                    proxyHost,
-                    Integer.parseInt(System.getProperty("http.proxyPort", "80")))
-                    .build()
-                    .target(this.baseURI)
-                    .proxyBuilder(aClass)
-                    .classloader(classLoader)
-                    .defaultConsumes(MediaType.TEXT_PLAIN)
-                    .defaultProduces(MediaType.TEXT_PLAIN)
-                    .build();
+            proxy = new HttpHost(proxyHost, Integer.parseInt(System.getProperty("http.proxyPort", "80")));
+        }
+
+        int connectionPoolSize = getIntValue(CONNECTION_POOL_SIZE_FORMAT, aClass, ConnectionPools.DEFAULT_CONNECTION_POOL_SIZE);
+        int maxPooledPerRoute = getIntValue(MAX_POOLED_PER_ROUTE_FORMAT, aClass, connectionPoolSize);
+        int connectionTTL = getIntValue(CONNECTION_TTL_FORMAT, aClass, -1);
+        int connectTimeout = getIntValue(CONNECT_TIMEOUT_FORMAT, aClass, -1);
+        int readTimeout = getIntValue(READ_TIMEOUT_FORMAT, aClass, -1);
+
+        if (this.sharedEngine) {
+            // Share the pooled connections with the other clients of the same host
+            ClientHttpEngine engine = ConnectionPools.engine(
+                    classLoader,
+                    this.baseURI,
+                    proxy,
+                    connectionPoolSize,
+                    maxPooledPerRoute,
+                    connectionTTL,
+                    connectTimeout,
+                    readTimeout);
+            this.builderDelegate.httpEngine(engine);
         } else {
-            actualClient = this.builderDelegate.build()
-                    .target(this.baseURI)
-                    .proxyBuilder(aClass)
-                    .classloader(classLoader)
-                    .defaultConsumes(MediaType.TEXT_PLAIN)
-                    .defaultProduces(MediaType.TEXT_PLAIN)
-                    .build();
+            // The default engine of the delegate applies the TLS settings
+            this.builderDelegate.connectionPoolSize(connectionPoolSize)
+                    .maxPooledPerRoute(maxPooledPerRoute)
+                    .connectionTTL(connectionTTL, TimeUnit.MILLISECONDS)
+                    .establishConnectionTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                    .socketTimeout(readTimeout, TimeUnit.MILLISECONDS);
+            if (proxy != null) {
+                this.builderDelegate.defaultProxy(proxy.getHostName(), proxy.getPort());
+            }
         }
 
+        final T actualClient = this.builderDelegate
+                .build()
+                .target(this.baseURI)
+                .proxyBuilder(aClass)
+                .classloader(classLoader)
+                .defaultConsumes(MediaType.TEXT_PLAIN)
+                .defaultProduces(MediaType.TEXT_PLAIN)
+                .build();
+
         return (T) Proxy.newProxyInstance(
                 classLoader,
                 new Class[] {aClass},
-                new ProxyInvocationHandler(actualClient, getLocalProviderInstances())
+                new ProxyInvocationHandler(actualClient, InvocationPlan.of(aClass, getLocalProviderInstances()))
         );
 
     }
 
+    private int getIntValue(String format, Class<?> aClass, int defaultValue) {
+        return this.config.getOptionalValue(String.format(format, aClass.getName()), Integer.class).orElse(defaultValue);
+    }
+
     private boolean isMapperDisabled() {
         boolean disabled = false;
         Optional<Boolean> defaultMapperProp = this.config.getOptionalValue(DEFAULT_MAPPER_PROP, Boolean.class);
@@ -376,5 +449,7 @@ class BuilderImpl implements RestClientBuilder {
 
     private URI baseURI;
 
+    private boolean sharedEngine = true;
+
     private Set<Object> localProviderInstances = new HashSet<Object>();
 }
@@ -0,0 +1,256 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.restclient;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.CookieStore;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.engines.ApacheHttpClient43Engine;
+
+/**
+ * The HTTP engines of the MicroProfile REST clients. Clients of the same deployment that target the same host, through the same proxy and with the same
+ * settings share one pool of keep-alive connections, instead of opening connections of their own. Each client still has an engine of its own, with its
+ * own cookies, so that clients with different credentials never share a session. The pools of a deployment live until {@link #close(ClassLoader)} is
+ * called for it.
+ */
+public final class ConnectionPools {
+
+    public static final String OBJECT_NAME = "org.wildfly.swarm.microprofile.restclient:type=ConnectionPools,name=total";
+
+    static final int DEFAULT_CONNECTION_POOL_SIZE = 50;
+
+    private static final Map<ClassLoader, Map<Key, Pool>> POOLS = new ConcurrentHashMap<>();
+
+    private ConnectionPools() {
+    }
+
+    /**
+     * Registers the {@link ConnectionPoolsMXBean} with the platform MBean server, unless already registered.
+     */
+    public static void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new Stats(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered already
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Closes the engines of the clients of a deployment, along with their connections.
+     *
+     * @param owner the class loader of the deployment
+     */
+    public static void close(ClassLoader owner) {
+        Map<Key, Pool> pools = POOLS.remove(owner);
+        if (pools != null) {
+            for (Pool pool : pools.values()) {
+                pool.close();
+            }
+        }
+    }
+
+    /**
+     * @param owner                  the class loader of the deployment of the client
+     * @param baseURI                the base URI of the client
+     * @param proxy                  the proxy to go through, or null
+     * @param connectionPoolSize     the maximum number of connections of the pool
+     * @param maxPooledPerRoute      the maximum number of connections to the same route
+     * @param connectionTTL          the maximum lifetime of a connection in milliseconds, or -1 for no limit
+     * @param connectTimeout         the connect timeout in milliseconds, or -1 for the system default
+     * @param readTimeout            the read timeout in milliseconds, or -1 for the system default
+     * @return a new engine of a client, backed by the pool shared by the clients with the same target and settings
+     */
+    static ClientHttpEngine engine(ClassLoader owner, URI baseURI, HttpHost proxy, int connectionPoolSize, int maxPooledPerRoute, long connectionTTL, int connectTimeout,
+            int readTimeout) {
+        Key key = new Key(baseURI.getScheme() + "://" + baseURI.getAuthority(), proxy, connectionPoolSize, maxPooledPerRoute, connectionTTL,
+                connectTimeout, readTimeout);
+        return POOLS.computeIfAbsent(owner, o -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, ConnectionPools::newPool)
+                .newEngine();
+    }
+
+    private static Pool newPool(Key key) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(key.connectionTTL, TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(key.connectionPoolSize);
+        manager.setDefaultMaxPerRoute(key.maxPooledPerRoute);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(key.connectTimeout)
+                .setSocketTimeout(key.readTimeout)
+                .build();
+        HttpClientBuilder builder = HttpClientBuilder.create()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(requestConfig);
+        if (key.proxy != null) {
+            builder.setProxy(key.proxy);
+        }
+        return new Pool(manager, builder.build());
+    }
+
+    private static Iterable<PoolingHttpClientConnectionManager> managers() {
+        return () -> POOLS.values().stream()
+                .flatMap(pools -> pools.values().stream())
+                .map(pool -> pool.manager)
+                .iterator();
+    }
+
+    private static class Stats implements ConnectionPoolsMXBean {
+
+        @Override
+        public int getPoolCount() {
+            int count = 0;
+            for (Map<Key, Pool> pools : POOLS.values()) {
+                count += pools.size();
+            }
+            return count;
+        }
+
+        @Override
+        public int getLeasedConnections() {
+            int leased = 0;
+            for (PoolingHttpClientConnectionManager manager : managers()) {
+                leased += manager.getTotalStats().getLeased();
+            }
+            return leased;
+        }
+
+        @Override
+        public int getAvailableConnections() {
+            int available = 0;
+            for (PoolingHttpClientConnectionManager manager : managers()) {
+                available += manager.getTotalStats().getAvailable();
+            }
+            return available;
+        }
+
+        @Override
+        public int getPendingRequests() {
+            int pending = 0;
+            for (PoolingHttpClientConnectionManager manager : managers()) {
+                pending += manager.getTotalStats().getPending();
+            }
+            return pending;
+        }
+
+        @Override
+        public int getMaxConnections() {
+            int max = 0;
+            for (PoolingHttpClientConnectionManager manager : managers()) {
+                max += manager.getTotalStats().getMax();
+            }
+            return max;
+        }
+    }
+
+    private static final class Pool {
+
+        Pool(PoolingHttpClientConnectionManager manager, CloseableHttpClient client) {
+            this.manager = manager;
+            this.client = client;
+        }
+
+        ClientHttpEngine newEngine() {
+            // Cookies are kept per client, each request gets a context of its own
+            CookieStore cookieStore = new BasicCookieStore();
+            // Closing a client must not close the pool of the other clients
+            return new ApacheHttpClient43Engine(this.client, () -> {
+                HttpClientContext context = HttpClientContext.create();
+                context.setCookieStore(cookieStore);
+                return context;
+            });
+        }
+
+        void close() {
+            try {
+                this.client.close();
+            } catch (IOException e) {
+                // The pool shuts down regardless
+            }
+        }
+
+        private final PoolingHttpClientConnectionManager manager;
+
+        private final CloseableHttpClient client;
+    }
+
+    private static final class Key {
+
+        Key(String target, HttpHost proxy, int connectionPoolSize, int maxPooledPerRoute, long connectionTTL, int connectTimeout, int readTimeout) {
+            this.target = target;
+            this.proxy = proxy;
+            this.connectionPoolSize = connectionPoolSize;
+            this.maxPooledPerRoute = maxPooledPerRoute;
+            this.connectionTTL = connectionTTL;
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return target.equals(other.target) && Objects.equals(proxy, other.proxy) && connectionPoolSize == other.connectionPoolSize
+                    && maxPooledPerRoute == other.maxPooledPerRoute && connectionTTL == other.connectionTTL && connectTimeout == other.connectTimeout
+                    && readTimeout == other.readTimeout;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(target, proxy, connectionPoolSize, maxPooledPerRoute, connectionTTL, connectTimeout, readTimeout);
+        }
+
+        private final String target;
+
+        private final HttpHost proxy;
+
+        private final int connectionPoolSize;
+
+        private final int maxPooledPerRoute;
+
+        private final long connectionTTL;
+
+        private final int connectTimeout;
+
+        private final int readTimeout;
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.restclient;
+
+/**
+ * The utilization of the connection pools shared by the MicroProfile REST clients, summed over all the pools.
+ */
+public interface ConnectionPoolsMXBean {
+
+    int getPoolCount();
+
+    int getLeasedConnections();
+
+    int getAvailableConnections();
+
+    int getPendingRequests();
+
+    int getMaxConnections();
+}
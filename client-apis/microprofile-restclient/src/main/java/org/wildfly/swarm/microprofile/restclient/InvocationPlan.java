@@ -0,0 +1,154 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.restclient;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.ws.rs.ext.ParamConverter;
+import javax.ws.rs.ext.ParamConverterProvider;
+
+/**
+ * The argument conversions of a client interface method, computed once when the client is built so that an invocation only walks an array of converters.
+ */
+final class InvocationPlan {
+
+    /**
+     * @param aClass            the client interface
+     * @param providerInstances the local provider instances
+     * @return the plans of the methods with at least one parameter to convert
+     */
+    static Map<Method, InvocationPlan> of(Class<?> aClass, Set<Object> providerInstances) {
+        List<ParamConverterProvider> converterProviders = new ArrayList<>();
+        for (Object p : providerInstances) {
+            if (p instanceof ParamConverterProvider) {
+                converterProviders.add((ParamConverterProvider) p);
+            }
+        }
+        if (converterProviders.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Method, InvocationPlan> plans = new HashMap<>();
+        for (Method method : aClass.getMethods()) {
+            InvocationPlan plan = of(method, converterProviders);
+            if (plan != null) {
+                plans.put(method, plan);
+            }
+        }
+        return Collections.unmodifiableMap(plans);
+    }
+
+    private static InvocationPlan of(Method method, List<ParamConverterProvider> converterProviders) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        Type[] genericParameterTypes = method.getGenericParameterTypes();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        ParamConverter<?>[] converters = new ParamConverter<?>[parameterTypes.length];
+        boolean conversionNeeded = false;
+
+        for (int index = 0; index < parameterTypes.length; index++) {
+            if (parameterAnnotations[index].length == 0) { // a parameter converter only applies to annotated parameters
+                continue;
+            }
+            if (!parameterTypes[index].isAssignableFrom(String.class)) {
+                // the converted String could not be passed in place of the argument, the client converts it on its own
+                continue;
+            }
+            for (ParamConverterProvider p : converterProviders) {
+                ParamConverter<?> converter = p.getConverter(parameterTypes[index], genericParameterTypes[index], parameterAnnotations[index]);
+                if (converter != null && converts(converter, parameterTypes[index])) {
+                    converters[index] = converter;
+                    conversionNeeded = true;
+                    break;
+                }
+            }
+        }
+        return conversionNeeded ? new InvocationPlan(converters) : null;
+    }
+
+    private InvocationPlan(ParamConverter<?>[] converters) {
+        this.converters = converters;
+    }
+
+    /**
+     * @param args the arguments of the invocation
+     * @return the arguments to pass to the client, converted where a converter applies
+     */
+    @SuppressWarnings("unchecked")
+    Object[] apply(Object[] args) {
+        Object[] argsReplacement = new Object[args.length];
+        for (int index = 0; index < args.length; index++) {
+            ParamConverter<Object> converter = (ParamConverter<Object>) converters[index];
+            Object arg = args[index];
+            argsReplacement[index] = converter != null && arg != null ? converter.toString(arg) : arg;
+        }
+        return argsReplacement;
+    }
+
+    /**
+     * A converter applies if the type it converts, as far as it can be told from its class, accepts the parameter.
+     */
+    private static boolean converts(ParamConverter<?> converter, Class<?> parameterType) {
+        Type convertedType = getConvertedType(converter.getClass());
+        if (!(convertedType instanceof Class)) {
+            return true;
+        }
+        return ((Class<?>) convertedType).isAssignableFrom(box(parameterType));
+    }
+
+    private static Type getConvertedType(Class<?> aClass) {
+        for (Class<?> current = aClass; current != null; current = current.getSuperclass()) {
+            for (Type genericInterface : current.getGenericInterfaces()) {
+                if (genericInterface instanceof ParameterizedType && ((ParameterizedType) genericInterface).getRawType() == ParamConverter.class) {
+                    return ((ParameterizedType) genericInterface).getActualTypeArguments()[0];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+
+    // Indexed by parameter, null where no conversion applies
+    private final ParamConverter<?>[] converters;
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.restclient;
+
+import java.net.SocketTimeoutException;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+
+import org.eclipse.microprofile.config.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.wildfly.swarm.microprofile.restclient.ConnectionPoolsTest.attribute;
+import static org.wildfly.swarm.microprofile.restclient.ConnectionPoolsTest.awaitAttribute;
+
+public class BuilderImplTest {
+
+    @Before
+    public void setUp() throws Exception {
+        ConnectionPools.registerMBean();
+        this.server = new BlockingServer();
+        this.executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        this.executor.shutdownNow();
+        this.server.close();
+        ConnectionPools.close(Greeting.class.getClassLoader());
+    }
+
+    @Test
+    public void testSharesEngineBetweenClients() throws Exception {
+        Greeting first = builder().build(Greeting.class);
+        Greeting second = builder().build(Greeting.class);
+
+        assertThat(attribute("PoolCount")).isEqualTo(1);
+        assertThat(attribute("MaxConnections")).isEqualTo(ConnectionPools.DEFAULT_CONNECTION_POOL_SIZE);
+
+        this.server.release();
+        assertThat(first.get()).isEqualTo("ok");
+        assertThat(second.get()).isEqualTo("ok");
+        assertThat(attribute("AvailableConnections")).isEqualTo(1);
+    }
+
+    @Test
+    public void testAppliesConnectionPoolSize() throws Exception {
+        setting("connectionPoolSize", 1);
+        assertQueuesSecondCall(builder().build(Greeting.class));
+    }
+
+    @Test
+    public void testAppliesMaxPooledPerRoute() throws Exception {
+        setting("maxPooledPerRoute", 1);
+        Greeting client = builder().build(Greeting.class);
+
+        assertThat(attribute("MaxConnections")).isEqualTo(ConnectionPools.DEFAULT_CONNECTION_POOL_SIZE);
+        assertQueuesSecondCall(client);
+    }
+
+    @Test
+    public void testAppliesReadTimeout() throws Exception {
+        setting("readTimeout", 200);
+        Greeting client = builder().build(Greeting.class);
+
+        try {
+            client.get();
+            fail("Expected a read timeout");
+        } catch (RuntimeException e) {
+            Throwable cause = e;
+            while (cause != null && !(cause instanceof SocketTimeoutException)) {
+                cause = cause.getCause();
+            }
+            assertThat(cause).isNotNull();
+        }
+    }
+
+    @Test
+    public void testDoesNotShareEngineWithTlsSettings() throws Exception {
+        BuilderImpl builder = builder();
+        builder.sslContext(SSLContext.getDefault());
+        Greeting client = builder.build(Greeting.class);
+
+        assertThat(attribute("PoolCount")).isEqualTo(0);
+
+        this.server.release();
+        assertThat(client.get()).isEqualTo("ok");
+    }
+
+    private void assertQueuesSecondCall(Greeting client) throws Exception {
+        Future<String> first = this.executor.submit(client::get);
+        Future<String> second = this.executor.submit(client::get);
+
+        awaitAttribute("PendingRequests", 1);
+        assertThat(attribute("LeasedConnections")).isEqualTo(1);
+
+        this.server.release();
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("ok");
+    }
+
+    private void setting(String name, int value) {
+        when(this.config.getOptionalValue(Greeting.class.getName() + "/mp-rest/" + name, Integer.class)).thenReturn(Optional.of(value));
+    }
+
+    private BuilderImpl builder() throws Exception {
+        BuilderImpl builder = new BuilderImpl(this.config);
+        builder.baseUrl(this.server.uri().toURL());
+        return builder;
+    }
+
+    private final Config config = mock(Config.class);
+
+    private BlockingServer server;
+
+    private ExecutorService executor;
+
+    @Path("/")
+    public interface Greeting {
+        @GET
+        String get();
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.restclient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+import javax.ws.rs.client.Client;
+
+import org.apache.http.HttpHost;
+import org.jboss.resteasy.client.jaxrs.ClientHttpEngine;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ConnectionPoolsTest {
+
+    private static final ClassLoader DEPLOYMENT = new URLClassLoader(new URL[0]);
+
+    private static final ClassLoader OTHER_DEPLOYMENT = new URLClassLoader(new URL[0]);
+
+    @After
+    public void closePools() {
+        ConnectionPools.close(DEPLOYMENT);
+        ConnectionPools.close(OTHER_DEPLOYMENT);
+    }
+
+    @Test
+    public void testSharesPoolPerHost() throws Exception {
+        ConnectionPools.registerMBean();
+        engine(DEPLOYMENT, "http://example.com:8080/one", null, 50);
+        engine(DEPLOYMENT, "http://example.com:8080/two", null, 50);
+        assertThat(attribute("PoolCount")).isEqualTo(1);
+
+        engine(DEPLOYMENT, "http://example.com:8081/one", null, 50);
+        engine(DEPLOYMENT, "https://example.com:8080/one", null, 50);
+        engine(DEPLOYMENT, "http://example.org:8080/one", null, 50);
+        assertThat(attribute("PoolCount")).isEqualTo(4);
+    }
+
+    @Test
+    public void testSeparatesPoolsBySettings() throws Exception {
+        ConnectionPools.registerMBean();
+        engine(DEPLOYMENT, "http://example.com/", null, 50);
+        engine(DEPLOYMENT, "http://example.com/", null, 10);
+        engine(DEPLOYMENT, "http://example.com/", new HttpHost("proxy", 3128), 50);
+        engine(OTHER_DEPLOYMENT, "http://example.com/", null, 50);
+
+        assertThat(attribute("PoolCount")).isEqualTo(4);
+    }
+
+    @Test
+    public void testClientsOfTheSameHostDoNotShareCookies() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/login", exchange -> {
+            exchange.getResponseHeaders().add("Set-Cookie", "session=" + exchange.getRequestURI().getPath().substring("/login/".length()) + "; Path=/");
+            respond(exchange, "ok");
+        });
+        server.createContext("/whoami", exchange -> {
+            String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+            respond(exchange, cookie == null ? "anonymous" : cookie);
+        });
+        server.start();
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + "/");
+        Client alice = new ResteasyClientBuilder().httpEngine(engine(DEPLOYMENT, uri.toString(), null, 50)).build();
+        Client bob = new ResteasyClientBuilder().httpEngine(engine(DEPLOYMENT, uri.toString(), null, 50)).build();
+        try {
+            assertThat(alice.target(uri).path("login/alice").request().get(String.class)).isEqualTo("ok");
+
+            assertThat(alice.target(uri).path("whoami").request().get(String.class)).isEqualTo("session=alice");
+            assertThat(bob.target(uri).path("whoami").request().get(String.class)).isEqualTo("anonymous");
+        } finally {
+            alice.close();
+            bob.close();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testCloseReleasesThePoolsOfADeployment() throws Exception {
+        ConnectionPools.registerMBean();
+        engine(DEPLOYMENT, "http://example.com/", null, 10);
+        engine(DEPLOYMENT, "http://example.org/", null, 20);
+        engine(OTHER_DEPLOYMENT, "http://example.com/", null, 30);
+
+        assertThat(attribute("PoolCount")).isEqualTo(3);
+        assertThat(attribute("MaxConnections")).isEqualTo(60);
+
+        ConnectionPools.close(DEPLOYMENT);
+
+        assertThat(attribute("PoolCount")).isEqualTo(1);
+        assertThat(attribute("MaxConnections")).isEqualTo(30);
+    }
+
+    @Test
+    public void testReportsConnectionUsage() throws Exception {
+        ConnectionPools.registerMBean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (BlockingServer server = new BlockingServer()) {
+            ClientHttpEngine engine = engine(DEPLOYMENT, server.uri().toString(), null, 50);
+            Client client = new ResteasyClientBuilder().httpEngine(engine).build();
+
+            Future<String> response = executor.submit(() -> client.target(server.uri()).request().get(String.class));
+            awaitAttribute("LeasedConnections", 1);
+            assertThat(attribute("AvailableConnections")).isEqualTo(0);
+            assertThat(attribute("PendingRequests")).isEqualTo(0);
+
+            server.release();
+            assertThat(response.get(10, TimeUnit.SECONDS)).isEqualTo("ok");
+            assertThat(attribute("LeasedConnections")).isEqualTo(0);
+            assertThat(attribute("AvailableConnections")).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    static Object attribute(String name) throws Exception {
+        return ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(ConnectionPools.OBJECT_NAME), name);
+    }
+
+    static void awaitAttribute(String name, int expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!attribute(name).equals(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(attribute(name)).isEqualTo(expected);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ClientHttpEngine engine(ClassLoader owner, String uri, HttpHost proxy, int connectionPoolSize) {
+        return ConnectionPools.engine(owner, URI.create(uri), proxy, connectionPoolSize, connectionPoolSize, -1, -1, -1);
+    }
+}
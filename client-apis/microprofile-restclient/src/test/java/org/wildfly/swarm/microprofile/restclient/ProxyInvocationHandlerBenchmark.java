@@ -0,0 +1,129 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.restclient;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.ext.ParamConverter;
+import javax.ws.rs.ext.ParamConverterProvider;
+
+import io.undertow.Undertow;
+import io.undertow.util.Headers;
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+
+/**
+ * Times the overhead of the REST client proxy over the RESTEasy client it delegates to.
+ *
+ * <p>Not a unit test, run it with {@code main}. A method with two annotated parameters, one of them converted, is invoked once on a no-op target,
+ * where the proxy is all there is to measure, and once against a local Undertow server, where the HTTP round trip dominates.</p>
+ */
+public class ProxyInvocationHandlerBenchmark {
+
+    private static final int LOCAL_CALLS = 2000000;
+
+    private static final int REMOTE_CALLS = 20000;
+
+    public static void main(String... args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int port = freePort();
+        Undertow server = Undertow.builder()
+                .addHttpListener(port, "localhost")
+                .setHandler(exchange -> {
+                    exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, "text/plain");
+                    exchange.getResponseSender().send(exchange.getQueryParameters().get("value").getFirst());
+                })
+                .build();
+        server.start();
+        ResteasyClient client = new ResteasyClientBuilder().connectionPoolSize(4).build();
+        try {
+            Set<Object> providers = new HashSet<>(Arrays.asList(new UpperCaseConverterProvider(), new Object()));
+            Echo noop = (value, count) -> value;
+            Echo remote = client.target("http://localhost:" + port).proxyBuilder(Echo.class).build();
+
+            for (int i = 0; i < rounds; i++) {
+                report("no-op target", noop, providers, LOCAL_CALLS);
+                report("undertow", remote, providers, REMOTE_CALLS);
+            }
+        } finally {
+            client.close();
+            server.stop();
+        }
+    }
+
+    private static void report(String name, Echo target, Set<Object> providers, int calls) {
+        Echo proxy = (Echo) Proxy.newProxyInstance(Echo.class.getClassLoader(), new Class<?>[] {Echo.class},
+                new ProxyInvocationHandler(target, InvocationPlan.of(Echo.class, providers)));
+        if (!"ABC".equals(proxy.echo("abc", 1))) {
+            throw new IllegalStateException("Argument was not converted");
+        }
+        long direct = time(target, calls);
+        long proxied = time(proxy, calls);
+        System.out.printf("%-12s: direct %8.3f us/op, proxy %8.3f us/op%n", name, direct / 1e3 / calls, proxied / 1e3 / calls);
+    }
+
+    private static long time(Echo echo, int calls) {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            echo.echo("abc", i);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Path("/echo")
+    public interface Echo {
+        @GET
+        String echo(@QueryParam("value") String value, @QueryParam("count") Integer count);
+    }
+
+    public static class UpperCaseConverterProvider implements ParamConverterProvider {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> ParamConverter<T> getConverter(Class<T> rawType, Type genericType, Annotation[] annotations) {
+            if (rawType != String.class) {
+                return null;
+            }
+            return (ParamConverter<T>) new ParamConverter<String>() {
+                @Override
+                public String fromString(String value) {
+                    return value;
+                }
+
+                @Override
+                public String toString(String value) {
+                    return value.toUpperCase();
+                }
+            };
+        }
+    }
+}
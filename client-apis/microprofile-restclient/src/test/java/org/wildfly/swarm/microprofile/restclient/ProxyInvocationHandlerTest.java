@@ -0,0 +1,160 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.restclient;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.ext.ParamConverter;
+import javax.ws.rs.ext.ParamConverterProvider;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ProxyInvocationHandlerTest {
+
+    @Test
+    public void testInvokesMethodWithoutArguments() {
+        Recorder target = new Recorder();
+
+        assertThat(proxy(target).none()).isEqualTo("none");
+        assertThat(target.args).isEmpty();
+    }
+
+    @Test
+    public void testPassesNullArguments() {
+        Recorder target = new Recorder();
+
+        proxy(target).convertedAndPlain(null, null);
+
+        assertThat(target.args).isEqualTo(Arrays.asList(null, null));
+    }
+
+    @Test
+    public void testKeepsArgumentsWithoutConverter() {
+        Recorder target = new Recorder();
+
+        proxy(target).convertedAndPlain("duke", 42);
+
+        assertThat(target.args).isEqualTo(Arrays.asList("DUKE", 42));
+    }
+
+    @Test
+    public void testPassesArgumentsThatCannotBeReplacedByString() {
+        Recorder target = new Recorder();
+        Name name = new Name("duke");
+
+        proxy(target).notReplaceable(name);
+
+        assertThat(target.args).isEqualTo(Arrays.asList(name));
+    }
+
+    private static Api proxy(Api target) {
+        return (Api) Proxy.newProxyInstance(Api.class.getClassLoader(), new Class<?>[] {Api.class},
+                new ProxyInvocationHandler(target, InvocationPlan.of(Api.class, new HashSet<>(Arrays.asList(new ConverterProvider(), new Object())))));
+    }
+
+    public interface Api {
+
+        @GET
+        String none();
+
+        @GET
+        String convertedAndPlain(@QueryParam("name") String name, @QueryParam("count") Integer count);
+
+        @GET
+        String notReplaceable(@QueryParam("name") Name name);
+    }
+
+    public static final class Name {
+
+        Name(String value) {
+            this.value = value;
+        }
+
+        private final String value;
+    }
+
+    public static class UpperCaseConverter implements ParamConverter<String> {
+
+        @Override
+        public String fromString(String value) {
+            return value;
+        }
+
+        @Override
+        public String toString(String value) {
+            return value.toUpperCase();
+        }
+    }
+
+    public static class NameConverter implements ParamConverter<Name> {
+
+        @Override
+        public Name fromString(String value) {
+            return new Name(value.substring("name:".length()));
+        }
+
+        @Override
+        public String toString(Name value) {
+            return "name:" + value.value;
+        }
+    }
+
+    public static class ConverterProvider implements ParamConverterProvider {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> ParamConverter<T> getConverter(Class<T> rawType, Type genericType, Annotation[] annotations) {
+            if (rawType == String.class) {
+                return (ParamConverter<T>) new UpperCaseConverter();
+            } else if (rawType == Name.class) {
+                return (ParamConverter<T>) new NameConverter();
+            }
+            return null;
+        }
+    }
+
+    private static class Recorder implements Api {
+
+        @Override
+        public String none() {
+            this.args = Arrays.asList();
+            return "none";
+        }
+
+        @Override
+        public String convertedAndPlain(String name, Integer count) {
+            this.args = Arrays.<Object>asList(name, count);
+            return "converted";
+        }
+
+        @Override
+        public String notReplaceable(Name name) {
+            this.args = Arrays.<Object>asList(name);
+            return "not replaceable";
+        }
+
+        private List<Object> args;
+    }
+}
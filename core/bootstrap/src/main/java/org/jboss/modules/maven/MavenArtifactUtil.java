@@ -15,20 +15,30 @@
  */
 package org.jboss.modules.maven;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.security.AccessControlContext;
 import java.security.AccessController;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -42,6 +52,7 @@ import org.jboss.modules.Module;
 import org.jboss.modules.ResourceLoader;
 import org.jboss.modules.ResourceLoaders;
 import org.wildfly.swarm.bootstrap.logging.BootstrapLogger;
+import org.wildfly.swarm.bootstrap.modules.MultiMavenResolver;
 import org.wildfly.swarm.bootstrap.util.JarFileManager;
 import org.xml.sax.InputSource;
 
@@ -56,7 +67,11 @@ public final class MavenArtifactUtil {
 
     private static BootstrapLogger LOGGER = BootstrapLogger.logger("org.wildfly.swarm.bootstrap");
 
-    static final Object artifactLock = new Object();
+    private static final ConcurrentMap<String, ArtifactLock> artifactLocks = new ConcurrentHashMap<>();
+
+    private static final int CHECKSUM_TIMEOUT_MILLIS = 10000;
+
+    private static final Semaphore downloadPermits = new Semaphore(Integer.getInteger("maven.download.threads", 4));
 
     private static final XPath xpath = XPathFactory.newInstance().newXPath();
 
@@ -111,91 +126,71 @@ public final class MavenArtifactUtil {
 
         final String pomPath = artifactRelativePath + ".pom";
 
-        // serialize artifact lookup because we want to prevent parallel download
-        synchronized (artifactLock) {
-            if ("pom".equals(packaging)) {
-                // ignore classifier
-                Path fp = localRepository.resolve(pomPath);
-                if (Files.exists(fp)) {
-                    return fp.toFile();
-                }
-                List<String> remoteRepos = settings.getRemoteRepositories();
-                if (remoteRepos.isEmpty()) {
-                    return null;
-                }
-                final File pomFile = new File(localRepositoryFile, pomPath);
-                for (String remoteRepository : remoteRepos) {
-                    try {
-                        String remotePomPath = remoteRepository + artifactRelativeHttpPath + ".pom";
-                        downloadFile(coordinates + ":" + packaging, remotePomPath, pomFile);
-                        if (pomFile.exists()) { //download successful
-                            return pomFile;
-                        }
-                    } catch (IOException e) {
-                        Module.getModuleLogger().trace(e, "Could not download '%s' from '%s' repository", artifactRelativePath, remoteRepository);
-                        // try next one
+        // serialize the lookup of each artifact because we want to prevent parallel download of the same files
+        ArtifactLock lock = artifactLocks.compute(artifactRelativePath, (path, current) -> (current != null ? current : new ArtifactLock()).acquire());
+        try {
+            synchronized (lock) {
+                if ("pom".equals(packaging)) {
+                    // ignore classifier
+                    Path fp = localRepository.resolve(pomPath);
+                    if (Files.exists(fp)) {
+                        return fp.toFile();
                     }
-                }
-                if (coordinates.isSnapshot()) {
-                    // Check repositories for timestamp snapshots
-                    String timestampedArtifactRelativePath;
+                    List<String> remoteRepos = settings.getRemoteRepositories();
+                    if (remoteRepos.isEmpty()) {
+                        return null;
+                    }
+                    final File pomFile = new File(localRepositoryFile, pomPath);
                     for (String remoteRepository : remoteRepos) {
                         try {
-                            String remoteMetadataPath = remoteRepository + artifactRelativeMetadataHttpPath;
-                            timestampedArtifactRelativePath = coordinates.relativeArtifactPath('/', downloadTimestampVersion(coordinates + ":" + packaging, remoteMetadataPath));
-                            String remotePomPath = remoteRepository + timestampedArtifactRelativePath + ".pom";
+                            String remotePomPath = remoteRepository + artifactRelativeHttpPath + ".pom";
                             downloadFile(coordinates + ":" + packaging, remotePomPath, pomFile);
                             if (pomFile.exists()) { //download successful
                                 return pomFile;
                             }
-                        } catch (IOException | XPathExpressionException e) {
+                        } catch (IOException e) {
                             Module.getModuleLogger().trace(e, "Could not download '%s' from '%s' repository", artifactRelativePath, remoteRepository);
                             // try next one
                         }
                     }
-                }
-            } else {
-                final String coordinatesClassifier = coordinates.getClassifier();
-                String classifier = coordinatesClassifier.isEmpty() ? "" : "-" + coordinatesClassifier;
-                String artifactPath = artifactRelativePath + classifier + "." + packaging;
-                Path fp = localRepository.resolve(artifactPath);
-                if (Files.exists(fp)) {
-                    return fp.toFile();
-                }
-
-                List<String> remoteRepos = settings.getRemoteRepositories();
-                if (remoteRepos.isEmpty()) {
-                    return null;
-                }
-
-                final File artifactFile = new File(localRepositoryFile, artifactPath);
-                final File pomFile = new File(localRepositoryFile, pomPath);
-                for (String remoteRepository : remoteRepos) {
-                    try {
-                        String remotePomPath = remoteRepository + artifactRelativeHttpPath + ".pom";
-                        String remoteArtifactPath = remoteRepository + artifactRelativeHttpPath + classifier + "." + packaging;
-                        downloadFile(coordinates + ":pom", remotePomPath, pomFile);
-                        if (!pomFile.exists()) {
-                            // no POM; skip it
-                            continue;
-                        }
-                        downloadFile(coordinates + ":" + packaging, remoteArtifactPath, artifactFile);
-                        if (artifactFile.exists()) { //download successful
-                            return artifactFile;
+                    if (coordinates.isSnapshot()) {
+                        // Check repositories for timestamp snapshots
+                        String timestampedArtifactRelativePath;
+                        for (String remoteRepository : remoteRepos) {
+                            try {
+                                String remoteMetadataPath = remoteRepository + artifactRelativeMetadataHttpPath;
+                                timestampedArtifactRelativePath = coordinates.relativeArtifactPath('/', downloadTimestampVersion(coordinates + ":" + packaging, remoteMetadataPath));
+                                String remotePomPath = remoteRepository + timestampedArtifactRelativePath + ".pom";
+                                downloadFile(coordinates + ":" + packaging, remotePomPath, pomFile);
+                                if (pomFile.exists()) { //download successful
+                                    return pomFile;
+                                }
+                            } catch (IOException | XPathExpressionException e) {
+                                Module.getModuleLogger().trace(e, "Could not download '%s' from '%s' repository", artifactRelativePath, remoteRepository);
+                                // try next one
+                            }
                         }
-                    } catch (IOException e) {
-                        Module.getModuleLogger().trace(e, "Could not download '%s' from '%s' repository", artifactRelativePath, remoteRepository);
-                        //
                     }
-                }
-                if (coordinates.isSnapshot()) {
-                    String timestampedArtifactRelativePath;
+                } else {
+                    final String coordinatesClassifier = coordinates.getClassifier();
+                    String classifier = coordinatesClassifier.isEmpty() ? "" : "-" + coordinatesClassifier;
+                    String artifactPath = artifactRelativePath + classifier + "." + packaging;
+                    Path fp = localRepository.resolve(artifactPath);
+                    if (Files.exists(fp)) {
+                        return fp.toFile();
+                    }
+
+                    List<String> remoteRepos = settings.getRemoteRepositories();
+                    if (remoteRepos.isEmpty()) {
+                        return null;
+                    }
+
+                    final File artifactFile = new File(localRepositoryFile, artifactPath);
+                    final File pomFile = new File(localRepositoryFile, pomPath);
                     for (String remoteRepository : remoteRepos) {
                         try {
-                            String remoteMetadataPath = remoteRepository + artifactRelativeMetadataHttpPath;
-                            timestampedArtifactRelativePath = coordinates.relativeArtifactPath('/', downloadTimestampVersion(coordinates + ":" + packaging, remoteMetadataPath));
-                            String remotePomPath = remoteRepository + timestampedArtifactRelativePath + ".pom";
-                            String remoteArtifactPath = remoteRepository + timestampedArtifactRelativePath + classifier + "." + packaging;
+                            String remotePomPath = remoteRepository + artifactRelativeHttpPath + ".pom";
+                            String remoteArtifactPath = remoteRepository + artifactRelativeHttpPath + classifier + "." + packaging;
                             downloadFile(coordinates + ":pom", remotePomPath, pomFile);
                             if (!pomFile.exists()) {
                                 // no POM; skip it
@@ -205,19 +200,57 @@ public final class MavenArtifactUtil {
                             if (artifactFile.exists()) { //download successful
                                 return artifactFile;
                             }
-                        } catch (IOException | XPathExpressionException e) {
+                        } catch (IOException e) {
                             Module.getModuleLogger().trace(e, "Could not download '%s' from '%s' repository", artifactRelativePath, remoteRepository);
-                            // try next one
+                            //
+                        }
+                    }
+                    if (coordinates.isSnapshot()) {
+                        String timestampedArtifactRelativePath;
+                        for (String remoteRepository : remoteRepos) {
+                            try {
+                                String remoteMetadataPath = remoteRepository + artifactRelativeMetadataHttpPath;
+                                timestampedArtifactRelativePath = coordinates.relativeArtifactPath('/', downloadTimestampVersion(coordinates + ":" + packaging, remoteMetadataPath));
+                                String remotePomPath = remoteRepository + timestampedArtifactRelativePath + ".pom";
+                                String remoteArtifactPath = remoteRepository + timestampedArtifactRelativePath + classifier + "." + packaging;
+                                downloadFile(coordinates + ":pom", remotePomPath, pomFile);
+                                if (!pomFile.exists()) {
+                                    // no POM; skip it
+                                    continue;
+                                }
+                                downloadFile(coordinates + ":" + packaging, remoteArtifactPath, artifactFile);
+                                if (artifactFile.exists()) { //download successful
+                                    return artifactFile;
+                                }
+                            } catch (IOException | XPathExpressionException e) {
+                                Module.getModuleLogger().trace(e, "Could not download '%s' from '%s' repository", artifactRelativePath, remoteRepository);
+                                // try next one
+                            }
                         }
                     }
                 }
+                //could not find it in remote
+                Module.getModuleLogger().trace("Could not find in any remote repository");
+                return null;
             }
-            //could not find it in remote
-            Module.getModuleLogger().trace("Could not find in any remote repository");
-            return null;
+        } finally {
+            // drop the lock once no other lookup of the artifact holds or waits for it
+            artifactLocks.computeIfPresent(artifactRelativePath, (path, current) -> current.release() ? null : current);
         }
     }
 
+    /**
+     * Download a file into the local repository.
+     *
+     * <p>The file is downloaded next to its destination, checked against the SHA-1 checksum published
+     * by the repository, if any, and then atomically moved into place, so that concurrent readers never
+     * see a partial file. At most {@code "maven.download.threads"} downloads (4 by default) run at once.</p>
+     *
+     * @param artifact the artifact, for messages
+     * @param src      the remote location of the file
+     * @param dest     the destination in the local repository
+     * @throws IOException if the download failed or the checksum does not match
+     */
     public static void downloadFile(String artifact, String src, File dest) throws IOException {
         if (dest.exists()) {
             return;
@@ -226,12 +259,67 @@ public final class MavenArtifactUtil {
         final URLConnection connection = url.openConnection();
         boolean message = Boolean.getBoolean("maven.download.message");
 
-        try (InputStream bis = connection.getInputStream()) {
-            dest.getParentFile().mkdirs();
-            if (message) {
-                LOGGER.trace("Downloading " + artifact);
+        downloadPermits.acquireUninterruptibly();
+        try {
+            final MessageDigest digest = sha1();
+            try (InputStream bis = new DigestInputStream(connection.getInputStream(), digest)) {
+                dest.getParentFile().mkdirs();
+                if (message) {
+                    LOGGER.trace("Downloading " + artifact);
+                }
+                Path part = Files.createTempFile(dest.getParentFile().toPath(), dest.getName(), ".part");
+                try {
+                    Files.copy(bis, part, StandardCopyOption.REPLACE_EXISTING);
+                    verifyChecksum(artifact, src, digest.digest());
+                    try {
+                        Files.move(part, dest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(part, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                } finally {
+                    Files.deleteIfExists(part);
+                }
+            }
+        } finally {
+            downloadPermits.release();
+        }
+    }
+
+    private static void verifyChecksum(String artifact, String src, byte[] actual) throws IOException {
+        String expected = null;
+        try {
+            URLConnection connection = new URL(src + ".sha1").openConnection();
+            connection.setConnectTimeout(CHECKSUM_TIMEOUT_MILLIS);
+            connection.setReadTimeout(CHECKSUM_TIMEOUT_MILLIS);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII))) {
+                String line = reader.readLine();
+                if (line != null && !line.trim().isEmpty()) {
+                    // some repositories append the file name to the checksum
+                    expected = line.trim().split("\\s+")[0];
+                }
             }
-            Files.copy(bis, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // missing or unreachable, the download is kept as it was before checksums were verified
+            LOGGER.debug("Could not fetch the checksum of " + src + ", it is not verified: " + e);
+        }
+        if (expected == null) {
+            return;
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : actual) {
+            hex.append(String.format("%02x", b));
+        }
+        if (!hex.toString().equalsIgnoreCase(expected)) {
+            throw new IOException("Checksum mismatch for " + artifact + " downloaded from " + src + ": expected " + expected + " but was " + hex);
+        }
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -268,6 +356,9 @@ public final class MavenArtifactUtil {
      * @throws IOException if the artifact could not be resolved
      */
     public static ResourceLoader createMavenArtifactLoader(final MavenResolver mavenResolver, final String name) throws IOException {
+        if (mavenResolver instanceof MultiMavenResolver) {
+            return ((MultiMavenResolver) mavenResolver).resolveJarArtifactLoader(ArtifactCoordinates.fromString(name), name);
+        }
         File fp = mavenResolver.resolveJarArtifact(ArtifactCoordinates.fromString(name));
         if (fp == null) return null;
         Matcher matcher = tempFilePattern.matcher(fp.getName());
@@ -307,4 +398,25 @@ public final class MavenArtifactUtil {
             }
         }
     }
+
+    /**
+     * The lock of an artifact, counting the lookups using it. It is only updated within the lock map, atomically.
+     */
+    private static final class ArtifactLock {
+
+        ArtifactLock acquire() {
+            this.users++;
+            return this;
+        }
+
+        /**
+         * @return {@code true} if no lookup uses the lock anymore
+         */
+        boolean release() {
+            return --this.users == 0;
+        }
+
+        private int users;
+
+    }
 }
@@ -19,6 +19,7 @@ import org.jboss.modules.ModuleFinder;
 import org.jboss.modules.ModuleLoadException;
 import org.jboss.modules.ModuleLoader;
 import org.jboss.modules.ModuleSpec;
+import org.wildfly.swarm.bootstrap.performance.Performance;
 
 /**
  * @author Bob McWhirter
@@ -40,7 +41,13 @@ public abstract class AbstractSingleModuleFinder implements ModuleFinder {
         }
 
         ModuleSpec.Builder builder = ModuleSpec.build(identifier);
-        buildModule(builder, delegateLoader);
+        try (AutoCloseable handle = Performance.time("build module " + identifier)) {
+            buildModule(builder, delegateLoader);
+        } catch (ModuleLoadException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ModuleLoadException(e);
+        }
         return builder.create();
     }
 
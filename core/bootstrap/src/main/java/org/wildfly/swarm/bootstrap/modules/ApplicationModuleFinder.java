@@ -35,7 +35,7 @@ import org.jboss.modules.maven.ArtifactCoordinates;
 import org.wildfly.swarm.bootstrap.env.ApplicationEnvironment;
 import org.wildfly.swarm.bootstrap.logging.BootstrapLogger;
 import org.wildfly.swarm.bootstrap.util.BootstrapUtil;
-import org.wildfly.swarm.bootstrap.util.JarFileManager;
+import org.wildfly.swarm.bootstrap.util.ExtractionCache;
 import org.wildfly.swarm.bootstrap.util.TempFileManager;
 
 /**
@@ -129,22 +129,30 @@ public class ApplicationModuleFinder extends AbstractSingleModuleFinder {
             name = name.substring(0, dotLoc);
         }
 
-        File tmp = TempFileManager.INSTANCE.newTempFile(name, ext);
+        final String jarName;
+        final File tmpDir;
 
-        try (InputStream artifactIn = getClass().getClassLoader().getResourceAsStream(path)) {
-            Files.copy(artifactIn, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
-        }
+        if (ExtractionCache.INSTANCE.isEnabled()) {
+            jarName = name + ext;
+            tmpDir = ExtractionCache.INSTANCE.explode(() -> getClass().getClassLoader().getResourceAsStream(path));
+        } else {
+            File tmp = TempFileManager.INSTANCE.newTempFile(name, ext);
+
+            try (InputStream artifactIn = getClass().getClassLoader().getResourceAsStream(path)) {
+                Files.copy(artifactIn, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
 
-        final String jarName = tmp.getName().toString();
-        final JarFile jarFile = new JarFile(tmp);
+            jarName = tmp.getName().toString();
+            final JarFile jarFile = new JarFile(tmp);
 
-        File tmpDir = TempFileManager.INSTANCE.newTempDirectory(name, ext);
+            tmpDir = TempFileManager.INSTANCE.newTempDirectory(name, ext);
 
-        //Explode jar due to some issues in Windows on stopping (JarFiles cannot be deleted)
-        BootstrapUtil.explodeJar(jarFile, tmpDir.getAbsolutePath());
+            //Explode jar due to some issues in Windows on stopping (JarFiles cannot be deleted)
+            BootstrapUtil.explodeJar(jarFile, tmpDir.getAbsolutePath());
 
-        jarFile.close();
-        tmp.delete();
+            jarFile.close();
+            tmp.delete();
+        }
 
         final ResourceLoader jarLoader = ResourceLoaders.createFileResourceLoader(jarName, tmpDir);
         builder.addResourceRoot(ResourceLoaderSpec.createResourceLoaderSpec(jarLoader));
@@ -173,18 +181,13 @@ public class ApplicationModuleFinder extends AbstractSingleModuleFinder {
                         coords = new ArtifactCoordinates(parts[0], parts[1], parts[4], parts[3]);
                     }
                     try {
-                        File artifact = MavenResolvers.get().resolveJarArtifact(coords);
-                        if (artifact == null) {
+                        ResourceLoader loader = MavenResolvers.get().resolveJarArtifactLoader(coords, coords.getArtifactId() + "-" + coords.getVersion() + ".jar");
+                        if (loader == null) {
                             LOG.error("Unable to find artifact for " + coords);
                             return;
                         }
-                        JarFile jar = JarFileManager.INSTANCE.addJarFile(artifact);
 
-                        builder.addResourceRoot(
-                                ResourceLoaderSpec.createResourceLoaderSpec(
-                                        ResourceLoaders.createJarResourceLoader(artifact.getName(), jar)
-                                )
-                        );
+                        builder.addResourceRoot(ResourceLoaderSpec.createResourceLoaderSpec(loader));
                     } catch (IOException e) {
                         throw new RuntimeException(e);
                     }
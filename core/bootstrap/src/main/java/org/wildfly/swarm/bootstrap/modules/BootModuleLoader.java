@@ -16,9 +16,18 @@
 package org.wildfly.swarm.bootstrap.modules;
 
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
+import org.jboss.modules.ConcreteModuleSpec;
+import org.jboss.modules.DependencySpec;
+import org.jboss.modules.ModuleDependencySpec;
 import org.jboss.modules.ModuleFinder;
+import org.jboss.modules.ModuleLoadException;
 import org.jboss.modules.ModuleLoader;
+import org.jboss.modules.ModuleSpec;
+import org.wildfly.swarm.bootstrap.logging.BootstrapLogger;
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
 
 /**
  * @author Bob McWhirter
@@ -34,5 +43,72 @@ public class BootModuleLoader extends ModuleLoader {
                 new ApplicationModuleFinder(),
                 new DynamicModuleFinder(),
         });
+
+        if (BootstrapProperties.flagIsSet(BootstrapProperties.CONCURRENT_MODULE_LOADING)) {
+            int parallelism = Integer.getInteger(BootstrapProperties.MODULE_LOADING_PARALLELISM, Runtime.getRuntime().availableProcessors());
+            this.pool = new ForkJoinPool(Math.max(1, parallelism), (pool) -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("swarm-module-loader-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        } else {
+            this.pool = null;
+        }
+    }
+
+    /**
+     * Start loading modules, and everything they depend upon, in the background.
+     *
+     * <p>This is a no-op unless concurrent module loading is enabled through
+     * {@link BootstrapProperties#CONCURRENT_MODULE_LOADING}. Modules are still
+     * defined exactly once by the underlying loader, so the resulting module graph is
+     * the same whichever thread happens to find a given module first.</p>
+     *
+     * @param names The names of the modules to load.
+     */
+    public void preload(String... names) {
+        if (this.pool == null) {
+            return;
+        }
+        for (String name : names) {
+            prefetch(name);
+        }
+    }
+
+    @Override
+    protected ModuleSpec findModule(String name) throws ModuleLoadException {
+        ModuleSpec spec = super.findModule(name);
+        if (this.pool != null && spec instanceof ConcreteModuleSpec) {
+            for (DependencySpec each : ((ConcreteModuleSpec) spec).getDependencies()) {
+                if (each instanceof ModuleDependencySpec) {
+                    ModuleDependencySpec dependency = (ModuleDependencySpec) each;
+                    if (dependency.getModuleLoader() == null || dependency.getModuleLoader() == this) {
+                        prefetch(dependency.getName());
+                    }
+                }
+            }
+        }
+        return spec;
     }
+
+    private void prefetch(String name) {
+        if (findLoadedModuleLocal(name) != null) {
+            return;
+        }
+        this.pool.execute(() -> {
+            try {
+                loadModule(name);
+            } catch (ModuleLoadException | RuntimeException e) {
+                // the thread that actually needs the module reports the failure
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("Unable to preload " + name + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static final BootstrapLogger LOG = BootstrapLogger.logger("org.wildfly.swarm.modules");
+
+    private final ForkJoinPool pool;
 }
@@ -46,7 +46,7 @@ public class BootstrapClasspathModuleFinder implements ModuleFinder {
             identifier = identifier + ":main";
         }
 
-        try (AutoCloseable handle = Performance.accumulate("module: BootstrapClassPath")) {
+        try (AutoCloseable handle = Performance.accumulate("module: BootstrapClassPath", identifier)) {
             final String[] nameAndSlot = identifier.split("\\:", 2);
             final String path = "modules/" + nameAndSlot[0].replace('.', MODULE_SEPARATOR) + MODULE_SEPARATOR + nameAndSlot[1] + "/module.xml";
 
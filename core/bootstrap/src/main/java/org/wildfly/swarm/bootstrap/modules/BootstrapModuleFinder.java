@@ -15,10 +15,8 @@
  */
 package org.wildfly.swarm.bootstrap.modules;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.jar.JarFile;
 
 import org.jboss.modules.DependencySpec;
 import org.jboss.modules.ModuleLoadException;
@@ -31,7 +29,6 @@ import org.jboss.modules.filter.PathFilter;
 import org.wildfly.swarm.bootstrap.env.ApplicationEnvironment;
 import org.wildfly.swarm.bootstrap.logging.BootstrapLogger;
 import org.wildfly.swarm.bootstrap.performance.Performance;
-import org.wildfly.swarm.bootstrap.util.JarFileManager;
 
 /**
  * Module-finder used only for loading the first set of jars when run in an fat-jar scenario.
@@ -66,12 +63,10 @@ public class BootstrapModuleFinder extends AbstractSingleModuleFinder {
             env.bootstrapArtifactsAsCoordinates()
                     .forEach((coords) -> {
                         try {
-                            File artifact = MavenResolvers.get().resolveJarArtifact(coords);
-                            if (artifact == null) {
+                            ResourceLoader originaloader = MavenResolvers.get().resolveJarArtifactLoader(coords, coords.getArtifactId() + "-" + coords.getVersion() + ".jar");
+                            if (originaloader == null) {
                                 throw new RuntimeException("Unable to resolve artifact from coordinates: " + coords);
                             }
-                            JarFile jar = JarFileManager.INSTANCE.addJarFile(artifact);
-                            ResourceLoader originaloader = ResourceLoaders.createJarResourceLoader(artifact.getName(), jar);
 
                             builder.addResourceRoot(
                                     ResourceLoaderSpec.createResourceLoaderSpec(
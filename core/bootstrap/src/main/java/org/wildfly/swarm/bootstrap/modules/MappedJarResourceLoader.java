@@ -0,0 +1,252 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.modules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Manifest;
+
+import org.jboss.modules.AbstractResourceLoader;
+import org.jboss.modules.ClassSpec;
+import org.jboss.modules.IterableResourceLoader;
+import org.jboss.modules.PackageSpec;
+import org.jboss.modules.Resource;
+import org.wildfly.swarm.bootstrap.util.MappedZip;
+
+/**
+ * Resource loader serving a jar that is stored, uncompressed, inside the uberjar.
+ *
+ * <p>Classes and resources are read directly from a memory-mapped view of the
+ * uberjar, so the nested jar never has to be copied to a temporary file.</p>
+ */
+public class MappedJarResourceLoader extends AbstractResourceLoader implements IterableResourceLoader {
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    public MappedJarResourceLoader(String rootName, MappedZip zip, URL rootUrl) {
+        this.rootName = rootName;
+        this.zip = zip;
+        this.rootUrl = rootUrl;
+        this.codeSource = new CodeSource(rootUrl, (CodeSigner[]) null);
+        this.handler = new NestedURLStreamHandler(zip);
+        this.manifest = readManifest();
+        this.paths = collectPaths();
+    }
+
+    @Override
+    public String getRootName() {
+        return this.rootName;
+    }
+
+    @Override
+    public ClassSpec getClassSpec(String fileName) throws IOException {
+        MappedZip.Entry entry = this.zip.getEntry(canonicalize(fileName));
+        if (entry == null) {
+            return null;
+        }
+        ClassSpec spec = new ClassSpec();
+        spec.setCodeSource(this.codeSource);
+        spec.setBytes(this.zip.getBytes(entry));
+        return spec;
+    }
+
+    @Override
+    public PackageSpec getPackageSpec(String name) throws IOException {
+        return getPackageSpec(name, this.manifest, this.rootUrl);
+    }
+
+    @Override
+    public Resource getResource(String name) {
+        MappedZip.Entry entry = this.zip.getEntry(canonicalize(name));
+        if (entry == null) {
+            return null;
+        }
+        return new MappedResource(entry);
+    }
+
+    @Override
+    public Collection<String> getPaths() {
+        return this.paths;
+    }
+
+    @Override
+    public Iterator<Resource> iterateResources(String startPath, boolean recursive) {
+        String start = canonicalize(startPath);
+        if (!start.isEmpty() && !start.endsWith("/")) {
+            start = start + "/";
+        }
+        List<Resource> resources = new ArrayList<>();
+        for (MappedZip.Entry each : this.zip.getEntries()) {
+            String name = each.getName();
+            if (each.isDirectory() || !name.startsWith(start)) {
+                continue;
+            }
+            if (!recursive && name.indexOf('/', start.length()) >= 0) {
+                continue;
+            }
+            resources.add(new MappedResource(each));
+        }
+        return resources.iterator();
+    }
+
+    @Override
+    public URI getLocation() {
+        try {
+            return this.rootUrl.toURI();
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private Manifest readManifest() {
+        MappedZip.Entry entry = this.zip.getEntry(MANIFEST);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = this.zip.openStream(entry)) {
+            return new Manifest(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Collection<String> collectPaths() {
+        Set<String> paths = new HashSet<>();
+        for (MappedZip.Entry each : this.zip.getEntries()) {
+            String name = each.getName();
+            int slash = name.lastIndexOf('/');
+            while (slash > 0) {
+                name = name.substring(0, slash);
+                if (!paths.add(name)) {
+                    break;
+                }
+                slash = name.lastIndexOf('/');
+            }
+        }
+        paths.add("");
+        return Collections.unmodifiableSet(paths);
+    }
+
+    private static String canonicalize(String name) {
+        String canonical = name;
+        while (canonical.startsWith("/")) {
+            canonical = canonical.substring(1);
+        }
+        return canonical;
+    }
+
+    private final String rootName;
+
+    private final MappedZip zip;
+
+    private final URL rootUrl;
+
+    private final CodeSource codeSource;
+
+    private final URLStreamHandler handler;
+
+    private final Manifest manifest;
+
+    private final Collection<String> paths;
+
+    private class MappedResource implements Resource {
+
+        MappedResource(MappedZip.Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String getName() {
+            return this.entry.getName();
+        }
+
+        @Override
+        public URL getURL() {
+            try {
+                return new URL(rootUrl.getProtocol(), rootUrl.getHost(), rootUrl.getPort(),
+                               rootUrl.getFile() + "!/" + this.entry.getName(), handler);
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return zip.openStream(this.entry);
+        }
+
+        @Override
+        public long getSize() {
+            return this.entry.getSize();
+        }
+
+        private final MappedZip.Entry entry;
+    }
+
+    /**
+     * Resolves {@code jar:file:uber.jar!/m2repo/nested.jar!/path} URLs against the mapped nested jar,
+     * which the JDK's own jar handler cannot open.
+     */
+    private static class NestedURLStreamHandler extends URLStreamHandler {
+
+        NestedURLStreamHandler(MappedZip zip) {
+            this.zip = zip;
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException {
+            String file = url.getFile();
+            String name = file.substring(file.lastIndexOf("!/") + 2);
+            MappedZip.Entry entry = this.zip.getEntry(name);
+            if (entry == null) {
+                throw new IOException("Not found: " + url);
+            }
+            return new URLConnection(url) {
+                @Override
+                public void connect() {
+                    this.connected = true;
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return zip.openStream(entry);
+                }
+
+                @Override
+                public long getContentLengthLong() {
+                    return entry.getSize();
+                }
+            };
+        }
+
+        private final MappedZip zip;
+    }
+}
@@ -31,7 +31,7 @@ public class MavenResolvers {
 
     private static BootstrapLogger LOGGER = BootstrapLogger.logger("org.wildfly.swarm.bootstrap");
 
-    public static synchronized MavenResolver get() {
+    public static synchronized MultiMavenResolver get() {
         return INSTANCE;
     }
 
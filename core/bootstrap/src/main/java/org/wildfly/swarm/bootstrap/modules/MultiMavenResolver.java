@@ -20,10 +20,14 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.jar.JarFile;
 
+import org.jboss.modules.ResourceLoader;
+import org.jboss.modules.ResourceLoaders;
 import org.jboss.modules.maven.ArtifactCoordinates;
 import org.jboss.modules.maven.MavenResolver;
 import org.wildfly.swarm.bootstrap.performance.Performance;
+import org.wildfly.swarm.bootstrap.util.JarFileManager;
 
 /**
  * @author Bob McWhirter
@@ -42,7 +46,7 @@ public class MultiMavenResolver implements MavenResolver, Closeable {
     @Override
     public File resolveArtifact(ArtifactCoordinates coordinates, String packaging) throws IOException {
 
-        try (AutoCloseable handle = Performance.accumulate("artifact-resolver")) {
+        try (AutoCloseable handle = Performance.accumulate("artifact-resolver", coordinates.toString())) {
             for (MavenResolver resolver : this.resolvers) {
                 File result = resolver.resolveArtifact(coordinates, packaging);
                 if (result != null) {
@@ -56,6 +60,39 @@ public class MultiMavenResolver implements MavenResolver, Closeable {
         }
     }
 
+    /**
+     * Create a resource loader for a jar artifact.
+     *
+     * <p>Artifacts stored uncompressed in the uberjar are served from a memory-mapped
+     * view of it; anything else is resolved to a file and opened as a jar.</p>
+     *
+     * @param coordinates The artifact coordinates.
+     * @param name        The name of the resource loader.
+     * @return The resource loader, or {@code null} if the artifact cannot be resolved.
+     * @throws IOException If the artifact cannot be opened.
+     */
+    public ResourceLoader resolveJarArtifactLoader(ArtifactCoordinates coordinates, String name) throws IOException {
+        try (AutoCloseable handle = Performance.accumulate("artifact-loader", coordinates.toString())) {
+            for (MavenResolver resolver : this.resolvers) {
+                if (resolver instanceof UberJarMavenResolver) {
+                    ResourceLoader loader = ((UberJarMavenResolver) resolver).resolveArtifactLoader(coordinates, "jar");
+                    if (loader != null) {
+                        return loader;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        File artifact = resolveJarArtifact(coordinates);
+        if (artifact == null) {
+            return null;
+        }
+        JarFile jar = JarFileManager.INSTANCE.addJarFile(artifact);
+        return ResourceLoaders.createJarResourceLoader(name, jar);
+    }
+
     public void close() throws IOException {
         for (MavenResolver resolver : this.resolvers) {
             if (resolver instanceof Closeable) {
@@ -25,10 +25,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
@@ -37,6 +36,7 @@ import org.jboss.modules.ResourceLoader;
 import org.jboss.modules.ResourceLoaders;
 import org.wildfly.swarm.bootstrap.performance.Performance;
 import org.wildfly.swarm.bootstrap.util.BootstrapUtil;
+import org.wildfly.swarm.bootstrap.util.ExtractionCache;
 import org.wildfly.swarm.bootstrap.util.TempFileManager;
 
 /**
@@ -49,7 +49,7 @@ public class NestedJarResourceLoader {
     private NestedJarResourceLoader() {
     }
 
-    public static synchronized boolean requiresExplosion(URL base) throws IOException {
+    public static boolean requiresExplosion(URL base) throws IOException {
         try (AutoCloseable locateHandle = Performance.accumulate("Is explosion needed?")) {
             String urlString = base.toExternalForm();
             if (urlString.startsWith("jar:file:")) {
@@ -87,7 +87,7 @@ public class NestedJarResourceLoader {
         return false;
     }
 
-    public static synchronized Path explodedJar(URL base) throws IOException {
+    public static Path explodedJar(URL base) throws IOException {
         if (!requiresExplosion(base)) {
             return null;
         }
@@ -100,26 +100,7 @@ public class NestedJarResourceLoader {
                     //if it has spaces or other characters that would be URL encoded we need to decode them
                     jarPath = URLDecoder.decode(jarPath, StandardCharsets.UTF_8.name());
 
-                    File exp = exploded.get(jarPath);
-                    if (exp == null) {
-                        try (AutoCloseable explodingHandle = Performance.accumulate("Exploding JAR")) {
-                            exp = TempFileManager.INSTANCE.newTempDirectory("module-jar", ".jar_d");
-                            try (JarFile jarFile = new JarFile(jarPath)) {
-                                Enumeration<JarEntry> entries = jarFile.entries();
-                                while (entries.hasMoreElements()) {
-                                    JarEntry each = entries.nextElement();
-                                    if (!each.isDirectory()) {
-                                        File out = new File(exp, each.getName());
-                                        out.getParentFile().mkdirs();
-                                        InputStream in = jarFile.getInputStream(each);
-                                        Files.copy(in, out.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                                        in.close();
-                                    }
-                                }
-                            }
-                            exploded.put(jarPath, exp);
-                        }
-                    }
+                    File exp = exploded.computeIfAbsent(jarPath, NestedJarResourceLoader::explode);
 
                     String remainder = urlString.substring(endLoc + JAR_SUFFIX.length());
                     if (remainder.startsWith("/") || remainder.startsWith("\\")) {
@@ -146,16 +127,7 @@ public class NestedJarResourceLoader {
             if (endLoc > 0) {
                 Path resourceRoot = exp.resolve(loaderPath);
                 if (!Files.isDirectory(resourceRoot) && (resourceRoot.getFileName().toString().endsWith(".jar") || resourceRoot.getFileName().toString().endsWith(".war"))) {
-                    final File file = resourceRoot.toFile();
-                    final JarFile jarFile = new JarFile(file);
-
-                    File tmpDir = TempFileManager.INSTANCE.newTempDirectory("nestedjarloader", null);
-                    //Explode jar due to some issues in Windows on stopping (JarFiles cannot be deleted)
-                    BootstrapUtil.explodeJar(jarFile, tmpDir.getAbsolutePath());
-
-                    jarFile.close();
-
-                    return ResourceLoaders.createFileResourceLoader(loaderName, tmpDir);
+                    return ResourceLoaders.createFileResourceLoader(loaderName, explodeNestedJar(resourceRoot.toFile()));
                 } else {
                     return ResourceLoaders.createFileResourceLoader(loaderName, resourceRoot.toFile());
                 }
@@ -163,15 +135,7 @@ public class NestedJarResourceLoader {
         } else if (urlString.startsWith("file:")) {
             if (loaderName.endsWith(".jar") || loaderName.endsWith(".war")) {
                 final File file = new File(urlString.substring(5), loaderPath);
-                final JarFile jarFile = new JarFile(file);
-
-                File tmpDir = TempFileManager.INSTANCE.newTempDirectory("nestedjarloader", null);
-                //Explode jar due to some issues in Windows on stopping (JarFiles cannot be deleted)
-                BootstrapUtil.explodeJar(jarFile, tmpDir.getAbsolutePath());
-
-                jarFile.close();
-
-                return ResourceLoaders.createFileResourceLoader(loaderName, tmpDir);
+                return ResourceLoaders.createFileResourceLoader(loaderName, explodeNestedJar(file));
             }
 
             return ResourceLoaders.createFileResourceLoader(
@@ -186,8 +150,51 @@ public class NestedJarResourceLoader {
         throw new IllegalArgumentException("Illegal module loader base: " + base + " // " + loaderPath + " // " + loaderName);
     }
 
-    private static Map<String, File> exploded = new HashMap<>();
+    private static File explode(String jarPath) {
+        if (ExtractionCache.INSTANCE.isEnabled()) {
+            try (AutoCloseable explodingHandle = Performance.accumulate("Exploding JAR (cached)")) {
+                return ExtractionCache.INSTANCE.explode(new File(jarPath));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        try (AutoCloseable explodingHandle = Performance.accumulate("Exploding JAR")) {
+            File exp = TempFileManager.INSTANCE.newTempDirectory("module-jar", ".jar_d");
+            try (JarFile jarFile = new JarFile(jarPath)) {
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry each = entries.nextElement();
+                    if (!each.isDirectory()) {
+                        File out = new File(exp, each.getName());
+                        out.getParentFile().mkdirs();
+                        try (InputStream in = jarFile.getInputStream(each)) {
+                            Files.copy(in, out.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                        }
+                    }
+                }
+            }
+            return exp;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static File explodeNestedJar(File file) throws IOException {
+        if (ExtractionCache.INSTANCE.isEnabled()) {
+            return ExtractionCache.INSTANCE.explode(file);
+        }
+
+        File tmpDir = TempFileManager.INSTANCE.newTempDirectory("nestedjarloader", null);
+        //Explode jar due to some issues in Windows on stopping (JarFiles cannot be deleted)
+        try (JarFile jarFile = new JarFile(file)) {
+            BootstrapUtil.explodeJar(jarFile, tmpDir.getAbsolutePath());
+        }
+        return tmpDir;
+    }
+
+    // module loading may run on several threads; each jar is exploded at most once
+    private static Map<String, File> exploded = new ConcurrentHashMap<>();
 
-    private static Set<String> explosionNotRequired = new HashSet<>();
+    private static Set<String> explosionNotRequired = ConcurrentHashMap.newKeySet();
 
 }
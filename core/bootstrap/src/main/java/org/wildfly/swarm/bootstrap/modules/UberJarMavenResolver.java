@@ -19,8 +19,11 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -28,9 +31,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.jboss.modules.ResourceLoader;
 import org.jboss.modules.maven.ArtifactCoordinates;
 
 import org.jboss.modules.maven.MavenResolver;
+import org.wildfly.swarm.bootstrap.logging.BootstrapLogger;
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
+import org.wildfly.swarm.bootstrap.util.MappedZip;
 import org.wildfly.swarm.bootstrap.util.TempFileManager;
 
 /**
@@ -50,33 +57,83 @@ public class UberJarMavenResolver implements MavenResolver, Closeable {
         return tmp;
     }
 
-    @Override
-    public File resolveArtifact(ArtifactCoordinates coordinates, String packaging) throws IOException {
+    /**
+     * Create a resource loader serving the artifact straight out of the uberjar.
+     *
+     * <p>This only succeeds when the artifact was stored uncompressed in the uberjar,
+     * in which case it is read through a memory-mapped view instead of being copied
+     * to a temporary file.</p>
+     *
+     * @param coordinates The artifact coordinates.
+     * @param packaging   The artifact packaging.
+     * @return The resource loader, or {@code null} if the artifact cannot be served this way.
+     */
+    public ResourceLoader resolveArtifactLoader(ArtifactCoordinates coordinates, String packaging) {
+        MappedZip uberJar = uberJar();
+        if (uberJar == null) {
+            return null;
+        }
 
-        File resolved = this.resolutionCache.get(coordinates);
-        if (resolved == null) {
+        String jarPath = artifactPath(coordinates, packaging);
+        MappedZip.Entry entry = uberJar.getEntry(jarPath);
+        if (entry == null || !entry.isStored()) {
+            return null;
+        }
 
-            String artifactRelativePath = "m2repo/" + relativeArtifactPath('/', coordinates.getGroupId(), coordinates.getArtifactId(), coordinates.getVersion());
-            String classifier = "";
-            if (coordinates.getClassifier() != null && !coordinates.getClassifier().trim().isEmpty()) {
-                classifier = HYPHEN + coordinates.getClassifier();
-            }
+        try {
+            URL rootUrl = new URL("jar:" + this.uberJarFile.toURI().toURL().toExternalForm() + "!/" + jarPath);
+            return new MappedJarResourceLoader(coordinates.toString(), uberJar.nested(entry), rootUrl);
+        } catch (IOException e) {
+            LOG.debug("Unable to map " + jarPath + ", falling back to extraction: " + e.getMessage());
+            return null;
+        }
+    }
 
-            String jarPath = artifactRelativePath + classifier + DOT + packaging;
+    private synchronized MappedZip uberJar() {
+        if (this.uberJarMapped) {
+            return this.uberJar;
+        }
+        this.uberJarMapped = true;
 
-            InputStream stream = UberJarMavenResolver.class.getClassLoader().getResourceAsStream(jarPath);
+        if (!BootstrapProperties.flagIsSet(BootstrapProperties.MAPPED_NESTED_JARS, true)) {
+            return null;
+        }
 
-            if (stream != null) {
-                try {
-                    resolved = copyTempJar(coordinates.getArtifactId() + HYPHEN + coordinates.getVersion(), stream, packaging);
-                    this.resolutionCache.put(coordinates, resolved);
-                } finally {
-                    stream.close();
-                }
+        try {
+            CodeSource codeSource = UberJarMavenResolver.class.getProtectionDomain().getCodeSource();
+            if (codeSource == null || codeSource.getLocation() == null) {
+                return null;
+            }
+            File file = new File(codeSource.getLocation().toURI());
+            if (!file.isFile()) {
+                return null;
             }
+            this.uberJar = MappedZip.map(file);
+            this.uberJarFile = file;
+        } catch (Exception e) {
+            LOG.debug("Unable to map uberjar, nested jars will be extracted: " + e.getMessage());
         }
+        return this.uberJar;
+    }
 
-        return resolved;
+    @Override
+    public File resolveArtifact(ArtifactCoordinates coordinates, String packaging) throws IOException {
+        // computeIfAbsent keeps concurrent module loads from copying the same artifact twice
+        try {
+            return this.resolutionCache.computeIfAbsent(coordinates, c -> {
+                String jarPath = artifactPath(c, packaging);
+                try (InputStream stream = UberJarMavenResolver.class.getClassLoader().getResourceAsStream(jarPath)) {
+                    if (stream == null) {
+                        return null;
+                    }
+                    return copyTempJar(c.getArtifactId() + HYPHEN + c.getVersion(), stream, packaging);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
     @Override
@@ -86,6 +143,16 @@ public class UberJarMavenResolver implements MavenResolver, Closeable {
         });
     }
 
+    static String artifactPath(ArtifactCoordinates coordinates, String packaging) {
+        String artifactRelativePath = "m2repo/" + relativeArtifactPath('/', coordinates.getGroupId(), coordinates.getArtifactId(), coordinates.getVersion());
+        String classifier = "";
+        if (coordinates.getClassifier() != null && !coordinates.getClassifier().trim().isEmpty()) {
+            classifier = HYPHEN + coordinates.getClassifier();
+        }
+
+        return artifactRelativePath + classifier + DOT + packaging;
+    }
+
     static String relativeArtifactPath(char separator, String groupId, String artifactId, String version) {
         StringBuilder builder = new StringBuilder(groupId.replace('.', separator));
         builder.append(separator).append(artifactId).append(separator);
@@ -103,4 +170,12 @@ public class UberJarMavenResolver implements MavenResolver, Closeable {
 
     private static final Pattern snapshotPattern = Pattern.compile("-\\d{8}\\.\\d{6}-\\d+$");
 
+    private static final BootstrapLogger LOG = BootstrapLogger.logger("org.wildfly.swarm.bootstrap");
+
+    private boolean uberJarMapped;
+
+    private MappedZip uberJar;
+
+    private File uberJarFile;
+
 }
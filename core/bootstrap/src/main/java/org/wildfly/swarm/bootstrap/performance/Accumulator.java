@@ -15,9 +15,8 @@
  */
 package org.wildfly.swarm.bootstrap.performance;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author Bob McWhirter
@@ -26,21 +25,29 @@ public class Accumulator {
 
     private final String description;
 
-    private List<TimedEvent> children = new ArrayList<>();
+    private final LongAdder nanos = new LongAdder();
+
+    private final LongAdder count = new LongAdder();
 
     Accumulator(String description) {
         this.description = description;
     }
 
-    TimedEvent newChild() {
-        TimedEvent event = new TimedEvent();
-        this.children.add(event);
-        return event;
+    void add(long durationNanos) {
+        this.nanos.add(durationNanos);
+        this.count.increment();
+    }
+
+    long count() {
+        return this.count.sum();
+    }
+
+    long durationNanos() {
+        return this.nanos.sum();
     }
 
     public void dump(long l, StringBuilder str) {
-        long ms = this.children.stream()
-                .collect(Collectors.summingLong(e -> e.durationMs()));
+        long ms = TimeUnit.NANOSECONDS.toMillis(this.nanos.sum());
 
         str.append(String.format("%-80s...%s", this.description, Performance.formatTime(ms)));
         str.append("\n");
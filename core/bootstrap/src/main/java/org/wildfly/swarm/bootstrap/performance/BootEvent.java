@@ -0,0 +1,150 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.performance;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Flight Recorder event emitted for each {@link Span}.
+ *
+ * <p>The event type is defined through {@code jdk.jfr.EventFactory}, looked up reflectively, so
+ * this class loads on every JVM. Without {@code jdk.jfr}, {@link #AVAILABLE} is {@code false}
+ * and no event is created.</p>
+ */
+final class BootEvent {
+
+    static final boolean AVAILABLE;
+
+    private static final int DESCRIPTION = 0;
+
+    private static final int DETAIL = 1;
+
+    private static final int DEPTH = 2;
+
+    private static final int ACCUMULATED = 3;
+
+    private static final MethodHandle NEW_EVENT;
+
+    private static final MethodHandle BEGIN;
+
+    private static final MethodHandle END;
+
+    private static final MethodHandle SHOULD_COMMIT;
+
+    private static final MethodHandle COMMIT;
+
+    private static final MethodHandle SET;
+
+    static {
+        MethodHandle newEvent = null;
+        MethodHandle begin = null;
+        MethodHandle end = null;
+        MethodHandle shouldCommit = null;
+        MethodHandle commit = null;
+        MethodHandle set = null;
+        try {
+            ClassLoader loader = BootEvent.class.getClassLoader();
+            Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory", false, loader);
+            Class<?> event = Class.forName("jdk.jfr.Event", false, loader);
+            Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement", false, loader);
+            Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor", false, loader);
+
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodHandle annotation = lookup.findConstructor(annotationElement,
+                    MethodType.methodType(void.class, Class.class, Object.class));
+            MethodHandle field = lookup.findConstructor(valueDescriptor,
+                    MethodType.methodType(void.class, Class.class, String.class, List.class));
+            Class<?> label = Class.forName("jdk.jfr.Label", false, loader);
+
+            List<Object> annotations = Arrays.<Object>asList(
+                    annotation.invoke(Class.forName("jdk.jfr.Name", false, loader), "org.wildfly.swarm.Boot"),
+                    annotation.invoke(label, "Boot"),
+                    annotation.invoke(Class.forName("jdk.jfr.Description", false, loader),
+                                      "A timed section of the WildFly Swarm boot"),
+                    annotation.invoke(Class.forName("jdk.jfr.Category", false, loader),
+                                      new String[]{"WildFly Swarm", "Boot"}),
+                    annotation.invoke(Class.forName("jdk.jfr.StackTrace", false, loader), false));
+            // In the order of the field indexes above
+            List<Object> fields = Arrays.<Object>asList(
+                    field.invoke(String.class, "description", labelled(annotation, label, "Description")),
+                    field.invoke(String.class, "detail", labelled(annotation, label, "Detail")),
+                    field.invoke(int.class, "depth", labelled(annotation, label, "Depth")),
+                    field.invoke(boolean.class, "accumulated", labelled(annotation, label, "Accumulated")));
+
+            Object factory = lookup.findStatic(eventFactory, "create",
+                                               MethodType.methodType(eventFactory, List.class, List.class))
+                    .invoke(annotations, fields);
+
+            newEvent = lookup.findVirtual(eventFactory, "newEvent", MethodType.methodType(event)).bindTo(factory);
+            begin = lookup.findVirtual(event, "begin", MethodType.methodType(void.class));
+            end = lookup.findVirtual(event, "end", MethodType.methodType(void.class));
+            shouldCommit = lookup.findVirtual(event, "shouldCommit", MethodType.methodType(boolean.class));
+            commit = lookup.findVirtual(event, "commit", MethodType.methodType(void.class));
+            set = lookup.findVirtual(event, "set", MethodType.methodType(void.class, int.class, Object.class));
+        } catch (Throwable t) {
+            // No Flight Recorder, or one without EventFactory (JDK 8 before 8u262)
+            newEvent = null;
+        }
+        AVAILABLE = newEvent != null;
+        NEW_EVENT = newEvent;
+        BEGIN = begin;
+        END = end;
+        SHOULD_COMMIT = shouldCommit;
+        COMMIT = commit;
+        SET = set;
+    }
+
+    private BootEvent() {
+    }
+
+    static Object start() {
+        if (!AVAILABLE) {
+            return null;
+        }
+        try {
+            Object event = NEW_EVENT.invoke();
+            BEGIN.invoke(event);
+            return event;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    static void complete(Object event, Span span) {
+        try {
+            END.invoke(event);
+            if ((boolean) SHOULD_COMMIT.invoke(event)) {
+                SET.invoke(event, DESCRIPTION, span.description());
+                SET.invoke(event, DETAIL, span.detail());
+                SET.invoke(event, DEPTH, span.depth());
+                SET.invoke(event, ACCUMULATED, span.accumulator() != null);
+                COMMIT.invoke(event);
+            }
+        } catch (Throwable t) {
+            // The recording is best effort, the boot must not fail because of it
+        }
+    }
+
+    private static List<Object> labelled(MethodHandle annotation, Class<?> label, String value) throws Throwable {
+        return Collections.singletonList(annotation.invoke(label, value));
+    }
+
+}
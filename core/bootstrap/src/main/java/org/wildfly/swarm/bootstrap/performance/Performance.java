@@ -15,33 +15,78 @@
  */
 package org.wildfly.swarm.bootstrap.performance;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
+
 /**
+ * Times the boot.
+ *
+ * <p>{@link #time(String)} opens a span nested within the innermost open span of the calling
+ * thread, so it may be used from parallel threads. {@link #accumulate(String, String)} sums up
+ * the spans of frequent operations, such as finding modules.</p>
+ *
+ * <p>Each span is also emitted as a Flight Recorder event, if the JVM supports it. With
+ * <code>-Dswarm.boot.trace=&lt;file&gt;</code>, completed spans are kept, and {@link #exportTrace()}
+ * writes them in the Chrome trace event format. Without it, only the tree of {@link #time(String)}
+ * spans and the accumulators are kept. A tree is only held while its root span is open, and once
+ * closed until the next {@link #dump()} reports it.</p>
+ *
  * @author Bob McWhirter
  */
 public class Performance {
 
-    private static long START_TIME = -1;
+    static final boolean FLIGHT_RECORDER = BootEvent.AVAILABLE;
+
+    private static final String TRACE_HEADER = "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[";
+
+    private static final String TRACE_TRAILER = "\n]}\n";
+
+    private static final long ORIGIN = System.nanoTime();
+
+    private static volatile long START_TIME = -1;
+
+    static final Map<String, Accumulator> ACCUMULATORS = new ConcurrentHashMap<>();
+
+    static final Queue<Span> ROOT_CONTEXTS = new ConcurrentLinkedQueue<>();
+
+    static final Queue<Span> CLOSED_ROOT_CONTEXTS = new ConcurrentLinkedQueue<>();
+
+    static final Queue<Span> COMPLETED = new ConcurrentLinkedQueue<>();
 
-    static Map<String, Accumulator> ACCUMULATORS = new HashMap<>();
+    static final AtomicLong TOTAL_MEASURED_TIME = new AtomicLong();
 
-    static Stack<ContextualizedEvent> CONTEXT_STACK = new Stack<>();
+    private static final ThreadLocal<Deque<Span>> CONTEXT_STACK = ThreadLocal.withInitial(ArrayDeque::new);
 
-    static List<ContextualizedEvent> ROOT_CONTEXTS = new ArrayList<>();
+    // The trace file written by the last export, and whether it holds any event
+    private static Path exportedTrace;
 
-    static AtomicLong TOTAL_MEASURED_TIME = new AtomicLong();
+    private static boolean exportedEvents;
 
     private Performance() {
     }
 
     public static void start() {
-        START_TIME = System.currentTimeMillis();
+        START_TIME = System.nanoTime();
     }
 
     static String formatTime(long ms) {
@@ -58,34 +103,68 @@ public class Performance {
         return String.format("%02d:%02d.%03d", m, s, ms);
     }
 
-    public static synchronized AutoCloseable time(String description) {
-        ContextualizedEvent event = null;
+    public static AutoCloseable time(String description) {
+        Deque<Span> stack = CONTEXT_STACK.get();
+        Span parent = stack.peek();
+        Span span = new Span(description, null, parent, null, stack.size());
 
-        if (CONTEXT_STACK.isEmpty()) {
-            event = new ContextualizedEvent(description);
-            ROOT_CONTEXTS.add(event);
+        if (parent == null) {
+            ROOT_CONTEXTS.add(span);
         } else {
-            event = CONTEXT_STACK.peek().newChild(description);
+            parent.addChild(span);
         }
 
-        CONTEXT_STACK.push(event);
-        return event;
+        stack.push(span);
+        return span;
     }
 
-    public static synchronized AutoCloseable accumulate(String description) {
-        Accumulator accumulator = ACCUMULATORS.get(description);
-        if (accumulator == null) {
-            accumulator = new Accumulator(description);
-            ACCUMULATORS.put(description, accumulator);
-        }
+    public static AutoCloseable accumulate(String description) {
+        return accumulate(description, null);
+    }
+
+    /**
+     * Time an operation which is summed up with all others of the same description.
+     *
+     * @param description The description, shared by all such operations.
+     * @param detail      The operation, e.g. the name of a module, or {@code null}.
+     * @return The span to close once the operation completes.
+     */
+    public static AutoCloseable accumulate(String description, String detail) {
+        Accumulator accumulator = ACCUMULATORS.computeIfAbsent(description, Accumulator::new);
+        return new Span(description, detail, null, accumulator, CONTEXT_STACK.get().size());
+    }
 
-        return accumulator.newChild();
+    static void closed(Span span) {
+        if (span.accumulator() != null) {
+            span.accumulator().add(span.durationNanos());
+        } else {
+            Deque<Span> stack = CONTEXT_STACK.get();
+            if (stack.peek() == span) {
+                stack.pop();
+            } else {
+                // Closed out of order
+                stack.remove(span);
+            }
+            if (span.parent() == null) {
+                TOTAL_MEASURED_TIME.addAndGet(span.durationNanos());
+                ROOT_CONTEXTS.remove(span);
+                CLOSED_ROOT_CONTEXTS.add(span);
+            }
+        }
+        if (isTracing()) {
+            COMPLETED.add(span);
+        }
     }
 
     public static String dump() {
         StringBuilder str = new StringBuilder();
 
-        long totalTime = (START_TIME > 0 ? System.currentTimeMillis() - START_TIME : TOTAL_MEASURED_TIME.get());
+        long totalTime = TimeUnit.NANOSECONDS.toMillis(START_TIME > 0 ? System.nanoTime() - START_TIME : TOTAL_MEASURED_TIME.get());
+
+        // Each closed tree is reported once
+        for (Span span = CLOSED_ROOT_CONTEXTS.poll(); span != null; span = CLOSED_ROOT_CONTEXTS.poll()) {
+            span.dump("", totalTime, str);
+        }
 
         ROOT_CONTEXTS.forEach(e -> {
             e.dump("", totalTime, str);
@@ -99,4 +178,137 @@ public class Performance {
 
         return str.toString().trim();
     }
+
+    /**
+     * Write the spans completed since the previous export to the file given by
+     * <code>swarm.boot.trace</code>, if set. The spans of later exports are added to the same file.
+     *
+     * @return The file written, or {@code null}.
+     * @throws IOException If the file cannot be written.
+     */
+    public static synchronized Path exportTrace() throws IOException {
+        if (!isTracing()) {
+            return null;
+        }
+
+        Path file = Paths.get(System.getProperty(BootstrapProperties.BOOT_TRACE));
+        List<Span> spans = new ArrayList<>();
+        for (Span span = COMPLETED.poll(); span != null; span = COMPLETED.poll()) {
+            spans.add(span);
+        }
+
+        if (file.equals(exportedTrace) && Files.isRegularFile(file)) {
+            // Replace the trailer of the previous export with the new events
+            StringWriter events = new StringWriter();
+            exportedEvents |= writeEvents(events, spans, exportedEvents ? ",\n" : "\n");
+            events.write(TRACE_TRAILER);
+            try (RandomAccessFile out = new RandomAccessFile(file.toFile(), "rw")) {
+                out.setLength(Math.max(0, out.length() - TRACE_TRAILER.length()));
+                out.seek(out.length());
+                out.write(events.toString().getBytes(StandardCharsets.UTF_8));
+            }
+        } else {
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                exportedEvents = writeTrace(writer, spans);
+            }
+            exportedTrace = file;
+        }
+        return file;
+    }
+
+    /**
+     * Write the completed spans in the Chrome trace event format, which can be loaded
+     * in <code>chrome://tracing</code> or diffed between builds.
+     *
+     * @param writer The writer.
+     * @throws IOException If writing fails.
+     */
+    public static void writeTrace(Writer writer) throws IOException {
+        writeTrace(writer, new ArrayList<>(COMPLETED));
+    }
+
+    private static boolean writeTrace(Writer writer, List<Span> spans) throws IOException {
+        writer.write(TRACE_HEADER);
+        boolean written = writeEvents(writer, spans, "\n");
+        writer.write(TRACE_TRAILER);
+        return written;
+    }
+
+    private static boolean writeEvents(Writer writer, List<Span> spans, String first) throws IOException {
+        spans.sort(Comparator.comparingLong(Span::startNanos));
+
+        Map<Long, String> threads = new HashMap<>();
+        String separator = first;
+        for (Span span : spans) {
+            threads.putIfAbsent(span.threadId(), span.threadName());
+            writer.write(separator);
+            writer.write("{\"name\":");
+            writeString(writer, span.description());
+            writer.write(",\"cat\":\"");
+            writer.write(span.accumulator() != null ? "accumulate" : "boot");
+            writer.write("\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+            writer.write(Long.toString(span.threadId()));
+            writer.write(",\"ts\":");
+            writer.write(micros(span.startNanos() - ORIGIN));
+            writer.write(",\"dur\":");
+            writer.write(micros(span.durationNanos()));
+            writer.write(",\"args\":{\"depth\":");
+            writer.write(Integer.toString(span.depth()));
+            if (span.detail() != null) {
+                writer.write(",\"detail\":");
+                writeString(writer, span.detail());
+            }
+            writer.write("}}");
+            separator = ",\n";
+        }
+        for (Map.Entry<Long, String> thread : threads.entrySet()) {
+            writer.write(separator);
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+            writer.write(Long.toString(thread.getKey()));
+            writer.write(",\"args\":{\"name\":");
+            writeString(writer, thread.getValue());
+            writer.write("}}");
+            separator = ",\n";
+        }
+        return !spans.isEmpty();
+    }
+
+    static void reset() {
+        START_TIME = -1;
+        ACCUMULATORS.clear();
+        ROOT_CONTEXTS.clear();
+        CLOSED_ROOT_CONTEXTS.clear();
+        COMPLETED.clear();
+        TOTAL_MEASURED_TIME.set(0);
+        CONTEXT_STACK.remove();
+        synchronized (Performance.class) {
+            exportedTrace = null;
+            exportedEvents = false;
+        }
+    }
+
+    private static boolean isTracing() {
+        String location = System.getProperty(BootstrapProperties.BOOT_TRACE);
+        return location != null && !location.isEmpty();
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%d.%03d", nanos / 1000, nanos % 1000);
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
 }
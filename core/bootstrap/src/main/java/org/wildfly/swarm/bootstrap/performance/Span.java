@@ -0,0 +1,140 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.performance;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timed section of the boot, on a single thread.
+ *
+ * <p>Spans opened by {@link Performance#time(String)} nest within the innermost open span of the
+ * same thread. Spans opened by {@link Performance#accumulate(String, String)} are only summed up
+ * by their {@link Accumulator}.</p>
+ */
+final class Span implements AutoCloseable {
+
+    Span(String description, String detail, Span parent, Accumulator accumulator, int depth) {
+        this.description = description;
+        this.detail = detail;
+        this.parent = parent;
+        this.accumulator = accumulator;
+        this.depth = depth;
+        Thread thread = Thread.currentThread();
+        this.threadId = thread.getId();
+        this.threadName = thread.getName();
+        this.event = Performance.FLIGHT_RECORDER ? BootEvent.start() : null;
+        this.start = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+        if (this.end >= 0) {
+            return;
+        }
+        this.end = System.nanoTime();
+        if (this.event != null) {
+            BootEvent.complete(this.event, this);
+        }
+        Performance.closed(this);
+    }
+
+    void addChild(Span child) {
+        this.children.add(child);
+    }
+
+    boolean isOpen() {
+        return this.end < 0;
+    }
+
+    long startNanos() {
+        return this.start;
+    }
+
+    long durationNanos() {
+        long end = this.end;
+        return (end < 0 ? System.nanoTime() : end) - this.start;
+    }
+
+    long durationMs() {
+        return TimeUnit.NANOSECONDS.toMillis(durationNanos());
+    }
+
+    String description() {
+        return this.description;
+    }
+
+    String detail() {
+        return this.detail;
+    }
+
+    Span parent() {
+        return this.parent;
+    }
+
+    Accumulator accumulator() {
+        return this.accumulator;
+    }
+
+    int depth() {
+        return this.depth;
+    }
+
+    long threadId() {
+        return this.threadId;
+    }
+
+    String threadName() {
+        return this.threadName;
+    }
+
+    void dump(String indent, long totalTime, StringBuilder str) {
+        long ms = durationMs();
+        double percentage = (((double) ms / (double) totalTime) * 100);
+        String descFormat = "%-" + (80 - indent.length()) + "s";
+        str.append(indent);
+        str.append(String.format(descFormat + "...%s (%6.2f%%)", this.description, Performance.formatTime(ms), percentage));
+        str.append("\n");
+
+        this.children.forEach(e -> {
+            e.dump(indent + "  ", totalTime, str);
+        });
+    }
+
+    private final String description;
+
+    private final String detail;
+
+    private final Span parent;
+
+    private final Accumulator accumulator;
+
+    private final int depth;
+
+    private final long threadId;
+
+    private final String threadName;
+
+    private final Object event;
+
+    private final long start;
+
+    private volatile long end = -1;
+
+    private final Queue<Span> children = new ConcurrentLinkedQueue<>();
+
+}
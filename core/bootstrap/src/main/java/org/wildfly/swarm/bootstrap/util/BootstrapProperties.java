@@ -29,6 +29,20 @@ public class BootstrapProperties {
 
     public static final String IS_UBERJAR = "swarm.isuberjar";
 
+    public static final String MAPPED_NESTED_JARS = "swarm.nested.jars.mapped";
+
+    public static final String CONCURRENT_MODULE_LOADING = "swarm.modules.concurrent";
+
+    public static final String MODULE_LOADING_PARALLELISM = "swarm.modules.parallelism";
+
+    public static final String BOOT_SNAPSHOT = "swarm.boot.snapshot";
+
+    public static final String BOOT_TRACE = "swarm.boot.trace";
+
+    public static final String BOOT_SNAPSHOT_RECORD = "swarm.boot.snapshot.record";
+
+    public static final String BOOT_SNAPSHOT_LOCATION = "META-INF/wildfly-swarm-boot-operations.dmr";
+
     private BootstrapProperties() {
     }
 
@@ -0,0 +1,381 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Opt-in on-disk cache of exploded archives, shared across restarts.
+ *
+ * <p>Entries are keyed by the SHA-1 of the archive content. An archive is
+ * exploded into a private temporary directory inside the cache and then
+ * atomically renamed to its key, so concurrent JVMs sharing the cache never
+ * observe a partially written entry. Entries are touched on every use, and
+ * the least-recently-used ones are evicted once the cache grows past
+ * {@link #MAX_SIZE_PROPERTY} bytes.</p>
+ *
+ * <p>Every entry a JVM uses is protected by a shared lock on its lease file,
+ * held until the JVM exits, and eviction only removes entries it can lock
+ * exclusively. A JVM therefore never evicts what another one is still
+ * loading classes from.</p>
+ *
+ * <p>The cache is enabled by setting {@link #CACHE_DIR_PROPERTY}.</p>
+ */
+public class ExtractionCache {
+
+    public static final String CACHE_DIR_PROPERTY = "swarm.extraction.cache.dir";
+
+    public static final String MAX_SIZE_PROPERTY = "swarm.extraction.cache.max.size";
+
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024L * 1024L;
+
+    public static final ExtractionCache INSTANCE = new ExtractionCache();
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{40}");
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final long ABANDONED_AFTER_MILLIS = 60L * 60L * 1000L;
+
+    private static final String LEASE_DIR = ".leases";
+
+    // file locks belong to the whole JVM, so every instance shares them
+    private static final Map<Path, Lease> LEASES = new HashMap<>();
+
+    private ExtractionCache() {
+        this(System.getProperty(CACHE_DIR_PROPERTY), Long.getLong(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+    }
+
+    ExtractionCache(String cacheDir, long maxSize) {
+        this.cacheDir = (cacheDir == null || cacheDir.trim().isEmpty()) ? null : new File(cacheDir).toPath();
+        this.maxSize = maxSize;
+    }
+
+    public boolean isEnabled() {
+        return this.cacheDir != null;
+    }
+
+    /**
+     * Explode an archive file, reusing a previous explosion of the same content.
+     *
+     * @param archive The archive to explode.
+     * @return The directory holding the exploded content.
+     * @throws IOException If the archive cannot be read or exploded.
+     */
+    public File explode(File archive) throws IOException {
+        return explode(() -> new FileInputStream(archive));
+    }
+
+    /**
+     * Explode an archive, reusing a previous explosion of the same content.
+     *
+     * <p>The source is read once to compute its key, and a second time only if
+     * the cache does not hold it yet.</p>
+     *
+     * @param source The source of the archive content.
+     * @return The directory holding the exploded content.
+     * @throws IOException If the archive cannot be read or exploded.
+     */
+    public File explode(ArchiveSource source) throws IOException {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Extraction cache is not enabled");
+        }
+
+        String key = digest(source);
+        Path entry = this.cacheDir.resolve(key);
+
+        Files.createDirectories(this.cacheDir.resolve(LEASE_DIR));
+        lease(key);
+
+        if (Files.isDirectory(entry)) {
+            touch(entry);
+            return entry.toFile();
+        }
+
+        Path tmp = Files.createTempDirectory(this.cacheDir, key + TMP_SUFFIX);
+        long size;
+        try (InputStream in = source.open()) {
+            size = explode(in, tmp);
+        } catch (IOException e) {
+            TempFileManager.deleteRecursively(tmp.toFile());
+            throw e;
+        }
+
+        try {
+            move(tmp, entry);
+            added(key, size);
+        } catch (FileAlreadyExistsException e) {
+            // another JVM exploded the same archive first
+            TempFileManager.deleteRecursively(tmp.toFile());
+            touch(entry);
+        }
+
+        return entry.toFile();
+    }
+
+    /**
+     * Release the leases this instance holds, letting other JVMs evict the
+     * entries it used. Leases are otherwise held until the JVM exits.
+     */
+    void release() {
+        synchronized (LEASES) {
+            for (String each : this.leased) {
+                Path file = leaseFile(each);
+                Lease lease = LEASES.get(file);
+                if (lease != null && --lease.holders == 0) {
+                    LEASES.remove(file);
+                    try {
+                        lease.channel.close();
+                    } catch (IOException e) {
+                        // the lock goes away with the channel regardless
+                    }
+                }
+            }
+            this.leased.clear();
+        }
+    }
+
+    private void lease(String key) throws IOException {
+        Path file = leaseFile(key);
+        synchronized (LEASES) {
+            if (!this.leased.add(key)) {
+                return;
+            }
+            Lease lease = LEASES.get(file);
+            if (lease == null) {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    // waits for a JVM currently evicting this entry
+                    channel.lock(0, Long.MAX_VALUE, true);
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    this.leased.remove(key);
+                    throw e;
+                }
+                lease = new Lease(channel);
+                LEASES.put(file, lease);
+            }
+            ++lease.holders;
+        }
+    }
+
+    private Path leaseFile(String key) {
+        return this.cacheDir.resolve(LEASE_DIR).resolve(key);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        if (Files.exists(target)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        } catch (IOException e) {
+            if (Files.isDirectory(target)) {
+                throw new FileAlreadyExistsException(target.toString());
+            }
+            throw e;
+        }
+    }
+
+    private static long explode(InputStream in, Path dir) throws IOException {
+        long size = 0;
+        Path root = dir.toAbsolutePath().normalize();
+        try (ZipInputStream zip = new ZipInputStream(in)) {
+            ZipEntry each;
+            while ((each = zip.getNextEntry()) != null) {
+                if (each.isDirectory()) {
+                    continue;
+                }
+                Path out = root.resolve(each.getName()).normalize();
+                if (!out.startsWith(root)) {
+                    throw new IOException("Archive entry outside of target directory: " + each.getName());
+                }
+                Files.createDirectories(out.getParent());
+                size += Files.copy(zip, out, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return size;
+    }
+
+    private static String digest(ArchiveSource source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = source.open()) {
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                digest.update(buf, 0, len);
+            }
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b & 0xFF));
+        }
+        return key.toString();
+    }
+
+    private static void touch(Path entry) {
+        // best effort; the timestamp only drives eviction order
+        entry.toFile().setLastModified(System.currentTimeMillis());
+    }
+
+    private synchronized void added(String key, long size) {
+        if (this.sizes == null) {
+            this.sizes = scan();
+        }
+        this.sizes.put(key, size);
+        evict();
+    }
+
+    private Map<String, Long> scan() {
+        Map<String, Long> sizes = new HashMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.cacheDir)) {
+            for (Path each : entries) {
+                String name = each.getFileName().toString();
+                if (KEY_PATTERN.matcher(name).matches() && Files.isDirectory(each)) {
+                    sizes.put(name, sizeOf(each));
+                } else if (name.contains(TMP_SUFFIX) && isAbandoned(each)) {
+                    TempFileManager.deleteRecursively(each.toFile());
+                }
+            }
+        } catch (IOException e) {
+            // an unreadable cache simply starts out empty
+        }
+        return sizes;
+    }
+
+    private void evict() {
+        long total = 0;
+        for (long size : this.sizes.values()) {
+            total += size;
+        }
+        if (total <= this.maxSize) {
+            return;
+        }
+
+        List<String> candidates = new ArrayList<>(this.sizes.keySet());
+        Map<String, Long> lastUsed = new HashMap<>();
+        for (String each : candidates) {
+            lastUsed.put(each, this.cacheDir.resolve(each).toFile().lastModified());
+        }
+        candidates.sort((l, r) -> Long.compare(lastUsed.get(l), lastUsed.get(r)));
+
+        for (String each : candidates) {
+            if (total <= this.maxSize) {
+                break;
+            }
+            if (evict(each)) {
+                total -= this.sizes.remove(each);
+            }
+        }
+    }
+
+    private boolean evict(String key) {
+        Path file = leaseFile(key);
+        Path doomed;
+        synchronized (LEASES) {
+            if (LEASES.containsKey(file)) {
+                return false;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.tryLock() == null) {
+                    // still in use by another JVM
+                    return false;
+                }
+                // rename first so no JVM ever resolves a half-deleted entry
+                doomed = Files.createTempDirectory(this.cacheDir, key + TMP_SUFFIX);
+                Files.delete(doomed);
+                Files.move(this.cacheDir.resolve(key), doomed, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // already evicted by another JVM
+                return true;
+            }
+        }
+        TempFileManager.deleteRecursively(doomed.toFile());
+        return true;
+    }
+
+    private static boolean isAbandoned(Path tmp) {
+        return System.currentTimeMillis() - tmp.toFile().lastModified() > ABANDONED_AFTER_MILLIS;
+    }
+
+    private static long sizeOf(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .mapToLong(p -> p.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private final Path cacheDir;
+
+    private final long maxSize;
+
+    private final Set<String> leased = new HashSet<>();
+
+    private Map<String, Long> sizes;
+
+    private static final class Lease {
+
+        Lease(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private final FileChannel channel;
+
+        private int holders;
+    }
+
+    /**
+     * Source of archive content that can be opened more than once.
+     */
+    public interface ArchiveSource {
+        InputStream open() throws IOException;
+    }
+}
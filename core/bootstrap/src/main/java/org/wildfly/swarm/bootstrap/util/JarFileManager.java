@@ -31,7 +31,7 @@ public class JarFileManager {
     private JarFileManager() {
     }
 
-    public JarFile addJarFile(File file) throws IOException {
+    public synchronized JarFile addJarFile(File file) throws IOException {
 
         JarFile jarFile = jarFileToClose.get(file);
         if (jarFile == null) {
@@ -42,7 +42,7 @@ public class JarFileManager {
         return jarFile;
     }
 
-    public void close() throws IOException {
+    public synchronized void close() throws IOException {
         IOException ex = null;
         for (JarFile jarFile : jarFileToClose.values()) {
             try {
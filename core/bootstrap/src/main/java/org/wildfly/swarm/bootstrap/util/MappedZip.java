@@ -0,0 +1,388 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * Read-only view of a ZIP archive backed by a {@link ByteBuffer}.
+ *
+ * <p>The buffer is usually a memory-mapped view of the uberjar, or a slice of
+ * it covering a nested archive that was stored (not deflated). Entries are
+ * served straight from the buffer, so nested jars do not need to be copied
+ * out to temporary files before they can be read.</p>
+ */
+public class MappedZip {
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+
+    private static final int END_SIG = 0x06054b50;
+
+    private static final int ZIP64_END_SIG = 0x06064b50;
+
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+
+    private static final int END_HEADER_SIZE = 22;
+
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+
+    private static final int ZIP64_END_SIZE = 56;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int CENTRAL_HEADER_SIZE = 46;
+
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+    private static final int UNSIGNED_SHORT_MASK = 0xFFFF;
+
+    private MappedZip(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        readCentralDirectory();
+    }
+
+    /**
+     * Map a ZIP file into memory.
+     *
+     * @param file The file to map.
+     * @return The mapped archive.
+     * @throws IOException If the file cannot be mapped or is not a supported ZIP archive.
+     */
+    public static MappedZip map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large to map: " + file);
+            }
+            return new MappedZip(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Open an archive held by a buffer.
+     *
+     * @param buffer The buffer holding the whole archive.
+     * @return The archive.
+     * @throws IOException If the buffer does not hold a supported ZIP archive.
+     */
+    public static MappedZip of(ByteBuffer buffer) throws IOException {
+        return new MappedZip(buffer);
+    }
+
+    /**
+     * Open a stored entry of this archive as a nested archive without copying it.
+     *
+     * @param entry The stored entry.
+     * @return The nested archive.
+     * @throws IOException If the entry is compressed or not a ZIP archive.
+     */
+    public MappedZip nested(Entry entry) throws IOException {
+        if (!entry.isStored()) {
+            throw new IOException("Nested archive is compressed: " + entry.getName());
+        }
+        return new MappedZip(slice(entry));
+    }
+
+    public Entry getEntry(String name) {
+        return this.entries.get(name);
+    }
+
+    public Collection<Entry> getEntries() {
+        return Collections.unmodifiableCollection(this.entries.values());
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Read the whole (uncompressed) content of an entry.
+     *
+     * @param entry The entry to read.
+     * @return The content.
+     * @throws IOException If the entry cannot be read.
+     */
+    public byte[] getBytes(Entry entry) throws IOException {
+        if (entry.isStored()) {
+            byte[] bytes = new byte[(int) entry.getSize()];
+            slice(entry).get(bytes);
+            return bytes;
+        }
+
+        byte[] bytes = new byte[(int) entry.getSize()];
+        try (InputStream in = openStream(entry)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    throw new IOException("Truncated entry: " + entry.getName());
+                }
+                offset += read;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Open a stream over the (uncompressed) content of an entry.
+     *
+     * @param entry The entry to read.
+     * @return The stream.
+     * @throws IOException If the entry uses an unsupported compression method.
+     */
+    public InputStream openStream(Entry entry) throws IOException {
+        InputStream raw = new ByteBufferInputStream(slice(entry));
+        if (entry.isStored()) {
+            return raw;
+        }
+        if (entry.method != ZipEntry.DEFLATED) {
+            throw new IOException("Unsupported compression method " + entry.method + " for " + entry.getName());
+        }
+        Inflater inflater = new Inflater(true);
+        return new InflaterInputStream(raw, inflater, 8192) {
+            private boolean closed;
+
+            @Override
+            public int available() throws IOException {
+                return closed || inflater.finished() ? 0 : 1;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    inflater.end();
+                    super.close();
+                }
+            }
+        };
+    }
+
+    private ByteBuffer slice(Entry entry) throws IOException {
+        int dataOffset = dataOffset(entry);
+        ByteBuffer dup = this.buffer.duplicate();
+        dup.limit(dataOffset + (int) entry.compressedSize);
+        dup.position(dataOffset);
+        return dup.slice();
+    }
+
+    private int dataOffset(Entry entry) throws IOException {
+        int offset = entry.dataOffset;
+        if (offset < 0) {
+            int header = entry.headerOffset;
+            if (this.buffer.getInt(header) != LOCAL_HEADER_SIG) {
+                throw new IOException("Invalid local header for " + entry.getName());
+            }
+            int nameLength = this.buffer.getShort(header + 26) & UNSIGNED_SHORT_MASK;
+            int extraLength = this.buffer.getShort(header + 28) & UNSIGNED_SHORT_MASK;
+            offset = header + LOCAL_HEADER_SIZE + nameLength + extraLength;
+            // benign race; every thread computes the same value
+            entry.dataOffset = offset;
+        }
+        return offset;
+    }
+
+    private void readCentralDirectory() throws IOException {
+        int end = findEndOfCentralDirectory();
+
+        long count = this.buffer.getShort(end + 10) & UNSIGNED_SHORT_MASK;
+        long centralSize = this.buffer.getInt(end + 12) & UNSIGNED_INT_MASK;
+        long centralOffset = this.buffer.getInt(end + 16) & UNSIGNED_INT_MASK;
+        long centralEnd = end;
+
+        int locator = end - ZIP64_LOCATOR_SIZE;
+        if (locator >= 0 && this.buffer.getInt(locator) == ZIP64_LOCATOR_SIG) {
+            long zip64EndOffset = this.buffer.getLong(locator + 8);
+            int zip64End = findZip64End(locator, zip64EndOffset);
+            if (zip64End >= 0) {
+                count = this.buffer.getLong(zip64End + 32);
+                centralSize = this.buffer.getLong(zip64End + 40);
+                centralOffset = this.buffer.getLong(zip64End + 48);
+                centralEnd = zip64End;
+            }
+        }
+
+        // Any bytes prepended to the archive (such as a launch script) shift
+        // every recorded offset by the same amount.
+        long base = centralEnd - centralSize - centralOffset;
+        if (base < 0 || centralEnd - centralSize < 0) {
+            throw new IOException("Invalid central directory");
+        }
+
+        this.entries = new LinkedHashMap<>((int) Math.min(count * 2, Integer.MAX_VALUE));
+
+        int pos = (int) (centralEnd - centralSize);
+        for (long i = 0; i < count; ++i) {
+            if (this.buffer.getInt(pos) != CENTRAL_HEADER_SIG) {
+                throw new IOException("Invalid central directory entry at " + pos);
+            }
+            int method = this.buffer.getShort(pos + 10) & UNSIGNED_SHORT_MASK;
+            long compressedSize = this.buffer.getInt(pos + 20) & UNSIGNED_INT_MASK;
+            long size = this.buffer.getInt(pos + 24) & UNSIGNED_INT_MASK;
+            int nameLength = this.buffer.getShort(pos + 28) & UNSIGNED_SHORT_MASK;
+            int extraLength = this.buffer.getShort(pos + 30) & UNSIGNED_SHORT_MASK;
+            int commentLength = this.buffer.getShort(pos + 32) & UNSIGNED_SHORT_MASK;
+            long headerOffset = this.buffer.getInt(pos + 42) & UNSIGNED_INT_MASK;
+
+            if (compressedSize == UNSIGNED_INT_MASK || size == UNSIGNED_INT_MASK || headerOffset == UNSIGNED_INT_MASK) {
+                throw new IOException("ZIP64 entries are not supported");
+            }
+
+            byte[] nameBytes = new byte[nameLength];
+            ByteBuffer dup = this.buffer.duplicate();
+            dup.position(pos + CENTRAL_HEADER_SIZE);
+            dup.get(nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            this.entries.put(name, new Entry(name, method, compressedSize, size, (int) (base + headerOffset)));
+
+            pos += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        int limit = this.buffer.limit();
+        int stop = Math.max(0, limit - END_HEADER_SIZE - MAX_COMMENT);
+        for (int pos = limit - END_HEADER_SIZE; pos >= stop; --pos) {
+            if (this.buffer.getInt(pos) == END_SIG) {
+                return pos;
+            }
+        }
+        throw new IOException("Not a ZIP archive");
+    }
+
+    private int findZip64End(int locator, long recordedOffset) {
+        if (recordedOffset >= 0 && recordedOffset < locator && this.buffer.getInt((int) recordedOffset) == ZIP64_END_SIG) {
+            return (int) recordedOffset;
+        }
+        // a prefix shifts the recorded offset, so scan back from the locator
+        for (int pos = locator - ZIP64_END_SIZE; pos >= 0 && pos >= locator - ZIP64_END_SIZE - MAX_COMMENT; --pos) {
+            if (this.buffer.getInt(pos) == ZIP64_END_SIG) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private final ByteBuffer buffer;
+
+    private Map<String, Entry> entries;
+
+    /**
+     * An entry of a {@link MappedZip}.
+     */
+    public static class Entry {
+
+        Entry(String name, int method, long compressedSize, long size, int headerOffset) {
+            this.name = name;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.headerOffset = headerOffset;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public boolean isDirectory() {
+            return this.name.endsWith("/");
+        }
+
+        public boolean isStored() {
+            return this.method == ZipEntry.STORED;
+        }
+
+        public String toString() {
+            return this.name;
+        }
+
+        private final String name;
+
+        private final int method;
+
+        private final long compressedSize;
+
+        private final long size;
+
+        private final int headerOffset;
+
+        private volatile int dataOffset = -1;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            return this.buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, this.buffer.remaining());
+            this.buffer.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+            this.buffer.position(this.buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+
+        private final ByteBuffer buffer;
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jboss.modules.maven;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Resolution of artifacts from a file-based stand-in for a remote repository.
+ */
+public class MavenArtifactUtilTest {
+
+    @Rule
+    public TemporaryFolder tmpdir = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        this.remote = tmpdir.newFolder("remote").toPath();
+        this.local = tmpdir.newFolder("local").toPath();
+
+        MavenSettings settings = new MavenSettings();
+        settings.setLocalRepository(this.local);
+        settings.getRemoteRepositories().clear();
+        settings.getRemoteRepositories().add(this.remote.toUri().toString());
+        setCachedSettings(settings);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        setCachedSettings(null);
+    }
+
+    @Test
+    public void testConcurrentResolution() throws Exception {
+        List<ArtifactCoordinates> artifacts = new ArrayList<>();
+        for (int i = 0; i < 8; ++i) {
+            ArtifactCoordinates coordinates = ArtifactCoordinates.fromString("org.example:artifact-" + i + ":1.0");
+            publish(coordinates, "content of " + i, true);
+            artifacts.add(coordinates);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<File>> resolved = new ArrayList<>();
+            // every artifact is requested by several threads at once
+            for (int i = 0; i < 4; ++i) {
+                for (ArtifactCoordinates each : artifacts) {
+                    resolved.add(executor.submit(() -> MavenArtifactUtil.resolveJarArtifact(each)));
+                }
+            }
+            for (int i = 0; i < resolved.size(); ++i) {
+                File file = resolved.get(i).get();
+                assertThat(file).isNotNull();
+                assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8))
+                        .isEqualTo("content of " + (i % artifacts.size()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(partialFiles()).isEmpty();
+        // the locks are discarded once the lookups are done
+        assertThat(artifactLocks()).isEmpty();
+    }
+
+    @Test
+    public void testWithoutChecksum() throws Exception {
+        ArtifactCoordinates coordinates = ArtifactCoordinates.fromString("org.example:unchecked:1.0");
+        publish(coordinates, "unchecked", false);
+
+        File file = MavenArtifactUtil.resolveJarArtifact(coordinates);
+        assertThat(file).isNotNull();
+        assertThat(file.toPath().startsWith(this.local)).isTrue();
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        ArtifactCoordinates coordinates = ArtifactCoordinates.fromString("org.example:corrupted:1.0");
+        Path jar = publish(coordinates, "original", true);
+        Files.write(jar, "corrupted".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(MavenArtifactUtil.resolveJarArtifact(coordinates)).isNull();
+        assertThat(this.local.resolve(coordinates.relativeArtifactPath(File.separatorChar) + ".jar").toFile().exists()).isFalse();
+        assertThat(partialFiles()).isEmpty();
+    }
+
+    @Test
+    public void testUnavailableChecksum() throws Exception {
+        ArtifactCoordinates coordinates = ArtifactCoordinates.fromString("org.example:unavailable:1.0");
+        publish(coordinates, "content", true);
+
+        // serves the remote repository, except for the checksums
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            Path file = this.remote.resolve(exchange.getRequestURI().getPath().substring(1));
+            if (file.toString().endsWith(".sha1") || !Files.exists(file)) {
+                exchange.sendResponseHeaders(file.toString().endsWith(".sha1") ? 503 : 404, -1);
+            } else {
+                exchange.sendResponseHeaders(200, Files.size(file));
+                try (OutputStream out = exchange.getResponseBody()) {
+                    Files.copy(file, out);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            MavenSettings settings = MavenSettings.getSettings();
+            settings.getRemoteRepositories().clear();
+            settings.getRemoteRepositories().add("http://localhost:" + server.getAddress().getPort() + "/");
+
+            File file = MavenArtifactUtil.resolveJarArtifact(coordinates);
+            assertThat(file).isNotNull();
+            assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).isEqualTo("content");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private Path publish(ArtifactCoordinates coordinates, String content, boolean checksum) throws Exception {
+        String path = coordinates.relativeArtifactPath(File.separatorChar);
+        Path pom = this.remote.resolve(path + ".pom");
+        Path jar = this.remote.resolve(path + ".jar");
+        Files.createDirectories(jar.getParent());
+        write(pom, "<project/>", checksum);
+        write(jar, content, checksum);
+        return jar;
+    }
+
+    private static void write(Path file, String content, boolean checksum) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Files.write(file, bytes);
+        if (checksum) {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(bytes)) {
+                hex.append(String.format("%02x", b));
+            }
+            Files.write(file.resolveSibling(file.getFileName() + ".sha1"),
+                        (hex + "  " + file.getFileName()).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    private List<Path> partialFiles() throws Exception {
+        try (Stream<Path> files = Files.walk(this.local)) {
+            return files.filter(e -> e.toString().endsWith(".part")).collect(Collectors.toList());
+        }
+    }
+
+    private static Map<?, ?> artifactLocks() throws Exception {
+        Field artifactLocks = MavenArtifactUtil.class.getDeclaredField("artifactLocks");
+        artifactLocks.setAccessible(true);
+        return (Map<?, ?>) artifactLocks.get(null);
+    }
+
+    private static void setCachedSettings(MavenSettings settings) throws Exception {
+        Field mavenSettings = MavenSettings.class.getDeclaredField("mavenSettings");
+        mavenSettings.setAccessible(true);
+        mavenSettings.set(null, settings);
+    }
+
+    private Path remote;
+
+    private Path local;
+}
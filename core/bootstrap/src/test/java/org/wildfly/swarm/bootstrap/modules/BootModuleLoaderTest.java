@@ -0,0 +1,150 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.modules;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jboss.modules.DependencySpec;
+import org.jboss.modules.Module;
+import org.jboss.modules.ModuleSpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BootModuleLoaderTest {
+
+    private static final int LAYERS = 4;
+
+    private static final int WIDTH = 8;
+
+    private static final int THREADS = 8;
+
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
+    @Before
+    public void enableConcurrentLoading() {
+        System.setProperty(BootstrapProperties.CONCURRENT_MODULE_LOADING, "true");
+        System.setProperty(BootstrapProperties.MODULE_LOADING_PARALLELISM, "4");
+    }
+
+    @After
+    public void disableConcurrentLoading() {
+        System.clearProperty(BootstrapProperties.CONCURRENT_MODULE_LOADING);
+        System.clearProperty(BootstrapProperties.MODULE_LOADING_PARALLELISM);
+    }
+
+    @Test
+    public void testOverlappingGraphIsDefinedOnceFromSeveralThreads() throws Exception {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        for (int attempt = 0; attempt < 5; attempt++) {
+            loadGraph("test.boot.concurrent.run" + RUNS.incrementAndGet(), threads);
+        }
+        // The dependencies were prefetched by the loader while the callers linked their modules
+        assertThat(threads.stream().anyMatch(name -> name.startsWith("swarm-module-loader-"))).as(threads.toString()).isTrue();
+    }
+
+    /**
+     * Register a graph of {@link #LAYERS} layers of {@link #WIDTH} modules. Each module depends on three modules of the next layer, so that the
+     * graphs of the top modules overlap, and the modules of the last layer depend on each other in a ring. Then load every top module from several
+     * threads at once, while the loader prefetches their dependencies.
+     */
+    private void loadGraph(String prefix, Set<String> threads) throws Exception {
+        Map<String, AtomicInteger> definitions = new ConcurrentHashMap<>();
+        for (int layer = 0; layer < LAYERS; layer++) {
+            for (int index = 0; index < WIDTH; index++) {
+                String name = prefix + "." + layer + "." + index;
+                List<String> dependencies = new ArrayList<>();
+                if (layer < LAYERS - 1) {
+                    for (int i = 0; i < 3; i++) {
+                        dependencies.add(prefix + "." + (layer + 1) + "." + ((index + i) % WIDTH));
+                    }
+                } else {
+                    dependencies.add(prefix + "." + layer + "." + ((index + 1) % WIDTH));
+                }
+                definitions.put(name, new AtomicInteger());
+                DynamicModuleFinder.register(name, (identifier, delegateLoader) -> {
+                    definitions.get(identifier).incrementAndGet();
+                    threads.add(Thread.currentThread().getName());
+                    // Widens the window in which other threads ask for the same module
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    ModuleSpec.Builder builder = ModuleSpec.build(identifier);
+                    builder.addDependency(DependencySpec.createLocalDependencySpec());
+                    for (String dependency : dependencies) {
+                        builder.addDependency(DependencySpec.createModuleDependencySpec(dependency, true));
+                    }
+                    return builder.create();
+                });
+            }
+        }
+
+        BootModuleLoader loader = new BootModuleLoader();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Module>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            String top = prefix + ".0." + (i % (WIDTH / 2));
+            tasks.add(() -> {
+                start.await();
+                if (top.endsWith(".0")) {
+                    loader.preload(top);
+                }
+                return loader.loadModule(top);
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Module>> results = new ArrayList<>();
+            for (Callable<Module> task : tasks) {
+                results.add(executor.submit(task));
+            }
+            start.countDown();
+            for (int i = 0; i < THREADS; i++) {
+                // A deadlock shows as a timeout
+                Module module = results.get(i).get(30, TimeUnit.SECONDS);
+                assertThat(module.getName()).isEqualTo(prefix + ".0." + (i % (WIDTH / 2)));
+                assertThat(module).isSameAs(loader.loadModule(module.getName()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Every module below the top ones was reached, and each was defined once, whichever thread found it first
+        for (int layer = 1; layer < LAYERS; layer++) {
+            for (int index = 0; index < WIDTH; index++) {
+                loader.loadModule(prefix + "." + layer + "." + index);
+            }
+        }
+        for (Map.Entry<String, AtomicInteger> definition : definitions.entrySet()) {
+            String name = definition.getKey();
+            boolean requested = !name.startsWith(prefix + ".0.") || Integer.parseInt(name.substring(name.lastIndexOf('.') + 1)) < WIDTH / 2;
+            assertThat(definition.getValue().get()).as(name).isEqualTo(requested ? 1 : 0);
+        }
+    }
+}
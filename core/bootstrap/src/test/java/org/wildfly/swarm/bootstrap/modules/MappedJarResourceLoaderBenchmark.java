@@ -0,0 +1,166 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.modules;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.modules.ClassSpec;
+import org.jboss.modules.ResourceLoader;
+import org.jboss.modules.ResourceLoaders;
+import org.wildfly.swarm.bootstrap.util.MappedZip;
+
+/**
+ * Times loading classes from the jars nested in an uberjar, extracted to a temp file first as {@link UberJarMavenResolver} does for deflated
+ * entries, against served from the mapped uberjar by {@link MappedJarResourceLoader}.
+ *
+ * <p>Not a unit test, run it with {@code main}. The synthetic uberjar holds {@value #JARS} stored jars of {@value #CLASSES} classes each, and
+ * {@value #LOADED} classes are read from every jar, as a boot reads a few classes from most of its dependencies.</p>
+ */
+public class MappedJarResourceLoaderBenchmark {
+
+    private static final int JARS = 220;
+
+    private static final int CLASSES = 100;
+
+    private static final int LOADED = 10;
+
+    private static final int CLASS_SIZE = 2048;
+
+    public static void main(String... args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        File uberJar = createUberJar();
+        try {
+            for (int i = 0; i < rounds; i++) {
+                long begin = System.nanoTime();
+                long bytes = extracted(uberJar);
+                report("extract-to-temp + JarFile", begin, bytes);
+                begin = System.nanoTime();
+                bytes = mapped(uberJar);
+                report("mapped stored nested jars", begin, bytes);
+            }
+        } finally {
+            Files.delete(uberJar.toPath());
+        }
+    }
+
+    private static long extracted(File uberJar) throws IOException {
+        long bytes = 0;
+        List<File> extracted = new ArrayList<>();
+        try (JarFile outer = new JarFile(uberJar)) {
+            for (int jar = 0; jar < JARS; jar++) {
+                File tmp = File.createTempFile("nested", ".jar");
+                extracted.add(tmp);
+                try (InputStream in = outer.getInputStream(outer.getEntry(nestedName(jar)))) {
+                    Files.copy(in, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                ResourceLoader loader = ResourceLoaders.createJarResourceLoader(tmp.getName(), new JarFile(tmp));
+                try {
+                    bytes += loadClasses(loader);
+                } finally {
+                    loader.close();
+                }
+            }
+        } finally {
+            for (File each : extracted) {
+                Files.delete(each.toPath());
+            }
+        }
+        return bytes;
+    }
+
+    private static long mapped(File uberJar) throws IOException {
+        long bytes = 0;
+        MappedZip outer = MappedZip.map(uberJar);
+        String root = "jar:" + uberJar.toURI().toURL().toExternalForm() + "!/";
+        for (int jar = 0; jar < JARS; jar++) {
+            MappedZip.Entry entry = outer.getEntry(nestedName(jar));
+            ResourceLoader loader = new MappedJarResourceLoader(entry.getName(), outer.nested(entry), new URL(root + entry.getName()));
+            bytes += loadClasses(loader);
+        }
+        return bytes;
+    }
+
+    private static long loadClasses(ResourceLoader loader) throws IOException {
+        long bytes = 0;
+        for (int i = 0; i < LOADED; i++) {
+            ClassSpec spec = loader.getClassSpec(className(i * (CLASSES / LOADED)));
+            bytes += spec.getBytes().length;
+        }
+        return bytes;
+    }
+
+    private static void report(String name, long begin, long bytes) {
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("%-26s %,8.0f ms (%,d bytes)%n", name, elapsed / 1e6, bytes);
+    }
+
+    private static File createUberJar() throws IOException {
+        File file = File.createTempFile("uber", ".jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (int jar = 0; jar < JARS; jar++) {
+                byte[] nested = createNestedJar(jar);
+                CRC32 crc = new CRC32();
+                crc.update(nested);
+                ZipEntry entry = new ZipEntry(nestedName(jar));
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(nested.length);
+                entry.setCompressedSize(nested.length);
+                entry.setCrc(crc.getValue());
+                out.putNextEntry(entry);
+                out.write(nested);
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static byte[] createNestedJar(int jar) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            byte[] content = new byte[CLASS_SIZE];
+            for (int i = 0; i < CLASSES; i++) {
+                for (int b = 0; b < content.length; b++) {
+                    content[b] = (byte) (jar + i + b % 31);
+                }
+                out.putNextEntry(new ZipEntry(className(i)));
+                out.write(content);
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String nestedName(int jar) {
+        return "m2repo/org/example/nested" + jar + "/1.0/nested" + jar + "-1.0.jar";
+    }
+
+    private static String className(int i) {
+        return "org/example/Thing" + i + ".class";
+    }
+}
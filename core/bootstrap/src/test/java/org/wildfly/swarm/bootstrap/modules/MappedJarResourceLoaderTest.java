@@ -0,0 +1,170 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.modules;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.modules.ClassSpec;
+import org.jboss.modules.Resource;
+import org.junit.Test;
+import org.wildfly.swarm.bootstrap.util.MappedZip;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * Test {@link MappedJarResourceLoader}
+ */
+public class MappedJarResourceLoaderTest {
+
+    @Test
+    public void testServesStoredNestedJar() throws Exception {
+        File uberJar = createUberJar(true, "#!/bin/sh\nexec java -jar $0 \"$@\"\n");
+
+        MappedZip outer = MappedZip.map(uberJar);
+        MappedZip.Entry nestedEntry = outer.getEntry("m2repo/org/example/nested/1.0/nested-1.0.jar");
+        assertThat(nestedEntry).isNotNull();
+        assertThat(nestedEntry.isStored()).isTrue();
+
+        URL rootUrl = new URL("jar:" + uberJar.toURI().toURL().toExternalForm() + "!/" + nestedEntry.getName());
+        MappedJarResourceLoader loader = new MappedJarResourceLoader("nested", outer.nested(nestedEntry), rootUrl);
+
+        ClassSpec spec = loader.getClassSpec("org/example/Thing.class");
+        assertThat(spec).isNotNull();
+        assertThat(new String(spec.getBytes(), StandardCharsets.UTF_8)).isEqualTo(repeat("class-bytes", 100));
+        assertThat(spec.getCodeSource().getLocation()).isEqualTo(rootUrl);
+        assertThat(loader.getClassSpec("/org/example/Thing.class")).isNotNull();
+
+        Resource resource = loader.getResource("/org/example/thing.properties");
+        assertThat(resource).isNotNull();
+        assertThat(resource.getSize()).isEqualTo(9);
+        assertThat(read(resource.openStream())).isEqualTo("thing=one");
+        assertThat(read(resource.getURL().openStream())).isEqualTo("thing=one");
+
+        assertThat(loader.getResource("org/example/missing.properties")).isNull();
+        assertThat(loader.getClassSpec("org/example/Missing.class")).isNull();
+
+        assertThat(loader.getPaths()).contains("org", "org/example", "META-INF");
+        assertThat(loader.getPackageSpec("org.example").getImplTitle()).isEqualTo("nested");
+
+        List<String> names = new ArrayList<>();
+        Iterator<Resource> resources = loader.iterateResources("org/example", false);
+        resources.forEachRemaining(r -> names.add(r.getName()));
+        assertThat(names).containsOnly("org/example/Thing.class", "org/example/thing.properties");
+    }
+
+    @Test
+    public void testDeflatedNestedJarIsNotMapped() throws Exception {
+        File uberJar = createUberJar(false, null);
+
+        MappedZip outer = MappedZip.map(uberJar);
+        MappedZip.Entry nestedEntry = outer.getEntry("m2repo/org/example/nested/1.0/nested-1.0.jar");
+        assertThat(nestedEntry.isStored()).isFalse();
+
+        try {
+            outer.nested(nestedEntry);
+            org.junit.Assert.fail("compressed nested archive should not be mappable");
+        } catch (IOException e) {
+            // expected
+        }
+
+        assertThat(read(outer.openStream(outer.getEntry("README")))).isEqualTo("uberjar");
+    }
+
+    private static File createUberJar(boolean storeNested, String prefix) throws IOException {
+        byte[] nested = createNestedJar();
+
+        File file = File.createTempFile("mapped", ".jar");
+        file.deleteOnExit();
+
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            if (prefix != null) {
+                fos.write(prefix.getBytes(StandardCharsets.UTF_8));
+            }
+            try (ZipOutputStream out = new ZipOutputStream(fos)) {
+                out.putNextEntry(new ZipEntry("README"));
+                out.write("uberjar".getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+
+                ZipEntry entry = new ZipEntry("m2repo/org/example/nested/1.0/nested-1.0.jar");
+                if (storeNested) {
+                    CRC32 crc = new CRC32();
+                    crc.update(nested);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(nested.length);
+                    entry.setCompressedSize(nested.length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                out.write(nested);
+                out.closeEntry();
+            }
+        }
+        return file;
+    }
+
+    private static byte[] createNestedJar() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            out.write("Manifest-Version: 1.0\r\nImplementation-Title: nested\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("org/example/"));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("org/example/Thing.class"));
+            out.write(repeat("class-bytes", 100).getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("org/example/thing.properties"));
+            out.write("thing=one".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("org/example/impl/Other.class"));
+            out.write("other".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int len;
+            while ((len = stream.read(buf)) >= 0) {
+                out.write(buf, 0, len);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.performance;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class PerformanceTest {
+
+    @Before
+    @After
+    public void reset() {
+        Performance.reset();
+        System.clearProperty(BootstrapProperties.BOOT_TRACE);
+    }
+
+    @Test
+    public void testSpansNestPerThread() throws Exception {
+        System.setProperty(BootstrapProperties.BOOT_TRACE, "boot-trace.json");
+        CountDownLatch opened = new CountDownLatch(2);
+        CountDownLatch close = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            String name = "outer-" + i;
+            Thread thread = new Thread(() -> {
+                try (AutoCloseable outer = Performance.time(name)) {
+                    try (AutoCloseable inner = Performance.time("inner")) {
+                        opened.countDown();
+                        close.await(5, TimeUnit.SECONDS);
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        assertThat(opened.await(5, TimeUnit.SECONDS)).isTrue();
+        close.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(Performance.ROOT_CONTEXTS).isEmpty();
+        assertThat(Performance.CLOSED_ROOT_CONTEXTS).hasSize(2);
+        for (Span root : Performance.CLOSED_ROOT_CONTEXTS) {
+            assertThat(root.description()).startsWith("outer-");
+            assertThat(root.isOpen()).isFalse();
+        }
+        assertThat(Performance.COMPLETED).hasSize(4);
+        for (Span span : Performance.COMPLETED) {
+            if (span.description().equals("inner")) {
+                assertThat(span.depth()).isEqualTo(1);
+                assertThat(span.parent().threadId()).isEqualTo(span.threadId());
+            }
+        }
+
+        String dump = Performance.dump();
+        assertThat(dump).contains("outer-0");
+        assertThat(dump).contains("  inner");
+    }
+
+    @Test
+    public void testAccumulate() throws Exception {
+        try (AutoCloseable root = Performance.time("root")) {
+            for (int i = 0; i < 3; i++) {
+                try (AutoCloseable handle = Performance.accumulate("module: Test", "module-" + i)) {
+                    TimeUnit.MILLISECONDS.sleep(1);
+                }
+            }
+        }
+
+        Accumulator accumulator = Performance.ACCUMULATORS.get("module: Test");
+        assertThat(accumulator.count()).isEqualTo(3);
+        assertThat(accumulator.durationNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(3));
+        // Accumulated spans are not part of the tree
+        assertThat(Performance.CLOSED_ROOT_CONTEXTS).hasSize(1);
+        assertThat(Performance.dump()).contains("module: Test");
+    }
+
+    @Test
+    public void testClosedTreesAreOnlyKeptUntilDumped() throws Exception {
+        try (AutoCloseable outer = Performance.time("outer")) {
+            try (AutoCloseable inner = Performance.time("inner")) {
+                // Not a root
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            try (AutoCloseable root = Performance.time("closed-" + i)) {
+                // nothing
+            }
+        }
+        try (AutoCloseable root = Performance.time("still open")) {
+            assertThat(Performance.ROOT_CONTEXTS).hasSize(1);
+            assertThat(Performance.CLOSED_ROOT_CONTEXTS).hasSize(4);
+
+            String dump = Performance.dump();
+            assertThat(dump).contains("closed-2");
+            assertThat(dump).contains("  inner");
+            assertThat(dump).contains("still open");
+            assertThat(Performance.CLOSED_ROOT_CONTEXTS).isEmpty();
+
+            dump = Performance.dump();
+            assertThat(dump).excludes("closed-2");
+            assertThat(dump).contains("still open");
+        }
+        assertThat(Performance.ROOT_CONTEXTS).isEmpty();
+    }
+
+    @Test
+    public void testTrace() throws Exception {
+        System.setProperty(BootstrapProperties.BOOT_TRACE, "boot-trace.json");
+        try (AutoCloseable root = Performance.time("marshal \"XML\"")) {
+            try (AutoCloseable handle = Performance.accumulate("module: Test", "org.example:main")) {
+                // nothing
+            }
+        }
+
+        StringWriter writer = new StringWriter();
+        Performance.writeTrace(writer);
+        String trace = writer.toString();
+
+        assertThat(trace).startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        assertThat(trace).contains("{\"name\":\"marshal \\\"XML\\\"\",\"cat\":\"boot\",\"ph\":\"X\",\"pid\":1,\"tid\":" + Thread.currentThread().getId());
+        assertThat(trace).contains("\"cat\":\"accumulate\"");
+        assertThat(trace).contains("\"args\":{\"depth\":1,\"detail\":\"org.example:main\"}");
+        assertThat(trace).contains("{\"name\":\"thread_name\",\"ph\":\"M\"");
+        assertThat(trace.trim()).endsWith("]}");
+    }
+
+    @Test
+    public void testSpansAreOnlyKeptWhenTracing() throws Exception {
+        try (AutoCloseable root = Performance.time("root")) {
+            try (AutoCloseable handle = Performance.accumulate("module: Test", "org.example:main")) {
+                // nothing
+            }
+        }
+
+        assertThat(Performance.COMPLETED).isEmpty();
+        assertThat(Performance.CLOSED_ROOT_CONTEXTS).hasSize(1);
+        assertThat(Performance.ACCUMULATORS.get("module: Test").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testExportTrace() throws Exception {
+        assertThat(Performance.exportTrace()).isNull();
+
+        Path file = Files.createTempFile("boot-trace", ".json");
+        try {
+            System.setProperty(BootstrapProperties.BOOT_TRACE, file.toString());
+            try (AutoCloseable root = Performance.time("root")) {
+                // nothing
+            }
+            assertThat(file.equals(Performance.exportTrace())).isTrue();
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).contains("\"name\":\"root\"");
+            assertThat(Performance.COMPLETED).isEmpty();
+
+            // A later export adds its spans to the same trace
+            try (AutoCloseable deployment = Performance.time("deployment")) {
+                // nothing
+            }
+            assertThat(file.equals(Performance.exportTrace())).isTrue();
+            String trace = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            assertThat(trace).startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n{");
+            assertThat(trace).contains("\"name\":\"root\"");
+            assertThat(trace).contains("}},\n{\"name\":\"deployment\"");
+            assertThat(trace).endsWith("}}\n]}\n");
+            assertThat(trace.indexOf("]}")).isEqualTo(trace.length() - 3);
+            assertThat(Performance.COMPLETED).isEmpty();
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.bootstrap.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ExtractionCacheTest {
+
+    @Test
+    public void testDisabledByDefault() {
+        assertThat(new ExtractionCache(null, ExtractionCache.DEFAULT_MAX_SIZE).isEnabled()).isFalse();
+        assertThat(new ExtractionCache("  ", ExtractionCache.DEFAULT_MAX_SIZE).isEnabled()).isFalse();
+    }
+
+    @Test
+    public void testReusesEntryAcrossInstances() throws Exception {
+        File dir = Files.createTempDirectory("extraction-cache").toFile();
+        try {
+            byte[] archive = archive("one", 16);
+
+            AtomicInteger opened = new AtomicInteger();
+            File first = new ExtractionCache(dir.getAbsolutePath(), ExtractionCache.DEFAULT_MAX_SIZE)
+                    .explode(() -> {
+                        opened.incrementAndGet();
+                        return new ByteArrayInputStream(archive);
+                    });
+
+            assertThat(opened.get()).isEqualTo(2);
+            assertThat(new String(Files.readAllBytes(new File(first, "org/example/one.txt").toPath()), StandardCharsets.UTF_8))
+                    .isEqualTo("one");
+
+            // a fresh instance stands in for a restarted JVM
+            opened.set(0);
+            File second = new ExtractionCache(dir.getAbsolutePath(), ExtractionCache.DEFAULT_MAX_SIZE)
+                    .explode(() -> {
+                        opened.incrementAndGet();
+                        return new ByteArrayInputStream(archive);
+                    });
+
+            assertThat(second).isEqualTo(first);
+            assertThat(opened.get()).isEqualTo(1);
+            assertThat(dir.list((d, name) -> !name.startsWith("."))).hasSize(1);
+        } finally {
+            TempFileManager.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        File dir = Files.createTempDirectory("extraction-cache").toFile();
+        try {
+            ExtractionCache previous = new ExtractionCache(dir.getAbsolutePath(), 2500);
+            File oldest = previous.explode(() -> new ByteArrayInputStream(archive("oldest", 1000)));
+            File recent = previous.explode(() -> new ByteArrayInputStream(archive("recent", 1000)));
+            oldest.setLastModified(System.currentTimeMillis() - 60000);
+            previous.release();
+
+            ExtractionCache cache = new ExtractionCache(dir.getAbsolutePath(), 2500);
+            File current = cache.explode(() -> new ByteArrayInputStream(archive("current", 1000)));
+
+            assertThat(oldest.exists()).isFalse();
+            assertThat(recent.exists()).isTrue();
+            assertThat(current.exists()).isTrue();
+        } finally {
+            TempFileManager.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testKeepsEntriesLeasedByAnotherInstance() throws Exception {
+        File dir = Files.createTempDirectory("extraction-cache").toFile();
+        try {
+            ExtractionCache other = new ExtractionCache(dir.getAbsolutePath(), ExtractionCache.DEFAULT_MAX_SIZE);
+            File held = other.explode(() -> new ByteArrayInputStream(archive("held", 1000)));
+            held.setLastModified(System.currentTimeMillis() - 60000);
+
+            ExtractionCache cache = new ExtractionCache(dir.getAbsolutePath(), 1500);
+            cache.explode(() -> new ByteArrayInputStream(archive("current", 1000)));
+            assertThat(held.exists()).isTrue();
+
+            other.release();
+            cache.explode(() -> new ByteArrayInputStream(archive("next", 1000)));
+            assertThat(held.exists()).isFalse();
+        } finally {
+            TempFileManager.deleteRecursively(dir);
+        }
+    }
+
+    @Test
+    public void testKeepsEntriesLeasedByAnotherProcess() throws Exception {
+        File dir = Files.createTempDirectory("extraction-cache").toFile();
+        File archive = File.createTempFile("held", ".jar");
+        try {
+            Files.write(archive.toPath(), archive("held", 1000));
+            Process other = new ProcessBuilder(
+                    Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"),
+                    ExtractionCacheTest.class.getName(),
+                    dir.getAbsolutePath(), archive.getAbsolutePath())
+                    .redirectErrorStream(true)
+                    .start();
+            File held;
+            try {
+                BufferedReader out = new BufferedReader(new InputStreamReader(other.getInputStream(), StandardCharsets.UTF_8));
+                held = new File(out.readLine());
+                assertThat(held.exists()).isTrue();
+                held.setLastModified(System.currentTimeMillis() - 60000);
+
+                ExtractionCache cache = new ExtractionCache(dir.getAbsolutePath(), 1500);
+                cache.explode(() -> new ByteArrayInputStream(archive("current", 1000)));
+                assertThat(held.exists()).isTrue();
+
+                other.getOutputStream().close();
+                assertThat(other.waitFor()).isEqualTo(0);
+
+                cache.explode(() -> new ByteArrayInputStream(archive("next", 1000)));
+            } finally {
+                other.destroy();
+            }
+            assertThat(held.exists()).isFalse();
+        } finally {
+            archive.delete();
+            TempFileManager.deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Stands in for another JVM sharing the cache: leases an entry and holds
+     * it until its standard input is closed.
+     */
+    public static void main(String... args) throws Exception {
+        File entry = new ExtractionCache(args[0], ExtractionCache.DEFAULT_MAX_SIZE).explode(new File(args[1]));
+        System.out.println(entry.getAbsolutePath());
+        System.out.flush();
+        while (System.in.read() >= 0) {
+            // hold the lease
+        }
+    }
+
+    private static byte[] archive(String name, int size) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.putNextEntry(new ZipEntry("org/example/" + name + ".txt"));
+            out.write(name.getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+            out.putNextEntry(new ZipEntry("org/example/" + name + ".bin"));
+            out.write(new byte[size]);
+            out.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+}
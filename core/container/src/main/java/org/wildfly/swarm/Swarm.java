@@ -215,6 +215,12 @@ public class Swarm {
         setArgs(args);
         this.debugBootstrap = debugBootstrap;
 
+        ModuleLoader bootModuleLoader = Module.getBootModuleLoader();
+        if (bootModuleLoader instanceof BootModuleLoader) {
+            // no-op unless swarm.modules.concurrent is set
+            ((BootModuleLoader) bootModuleLoader).preload(CONTAINER_MODULE_NAME);
+        }
+
         // Need to setup Logging here so that Weld doesn't default to JUL.
         try {
             Module loggingModule = Module.getBootModuleLoader().loadModule("org.wildfly.swarm.logging:runtime");
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+import org.wildfly.swarm.spi.api.config.ConfigKey;
+import org.wildfly.swarm.spi.api.config.SimpleKey;
+
+/**
+ * A flattened view of an ordered list of {@link ConfigNode} trees.
+ *
+ * <p>Every node of every tree is indexed once by its key, together with the values it holds in each tree and the union of its
+ * children keys. Values are filtered on their first lookup and cached. The index does not see changes made to the trees after it has been built.</p>
+ */
+final class ConfigIndex {
+
+    ConfigIndex(List<ConfigNode> nodes, BiFunction<ConfigKey, Object, Object> filter) {
+        this.filter = filter;
+        for (ConfigNode node : nodes) {
+            index(ConfigKey.EMPTY, null, node);
+        }
+    }
+
+    /**
+     * @param path The property name of the key, built along the way as {@link ConfigKey#propertyName()} is costly.
+     */
+    private void index(ConfigKey key, String path, ConfigNode node) {
+        Entry entry = this.entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key, key instanceof SimpleKey ? key.name() : path);
+            this.entries.put(key, entry);
+        }
+        Object value = node.valueOf(ConfigKey.EMPTY);
+        if (value != node && !entry.leaf) {
+            entry.leaf = true;
+            this.leaves.add(entry);
+        }
+        entry.values.add(value);
+        Set<SimpleKey> childrenKeys = node.childrenKeys();
+        entry.subkeys.addAll(childrenKeys);
+        for (SimpleKey childKey : childrenKeys) {
+            String childPath = path == null ? childKey.propertyName() : path + "." + childKey.propertyName();
+            index(key.append(childKey), childPath, node.child(childKey));
+        }
+    }
+
+    /**
+     * Retrieve the first value for a key which is not filtered out.
+     *
+     * @param key The possibly complex key.
+     * @return The value, otherwise {@code null}.
+     */
+    Object valueOf(ConfigKey key) {
+        Entry entry = this.entries.get(normalize(key));
+        if (entry == null) {
+            return null;
+        }
+        return entry.value(this.filter);
+    }
+
+    boolean hasKeyOrSubkeys(ConfigKey prefix) {
+        return this.entries.containsKey(normalize(prefix));
+    }
+
+    List<SimpleKey> simpleSubkeysOf(ConfigKey prefix) {
+        Entry entry = this.entries.get(normalize(prefix));
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(entry.subkeys);
+    }
+
+    /**
+     * Visit the keys holding a direct value in at least one tree, in the order they were found, with their value if it is not filtered out.
+     *
+     * @param action The action receiving the {@link ConfigKey#name() name} of each key and its value.
+     */
+    void forEachValue(BiConsumer<String, Object> action) {
+        for (Entry each : this.leaves) {
+            Object value = each.value(this.filter);
+            if (value != null) {
+                action.accept(each.name, value);
+            }
+        }
+    }
+
+    /**
+     * Keys are indexed as built by {@link ConfigKey#append(ConfigKey)}: a single segment is a {@link SimpleKey}, which is not equal to a
+     * {@link org.wildfly.swarm.spi.api.config.CompositeKey} of that segment.
+     */
+    private static ConfigKey normalize(ConfigKey key) {
+        if (key instanceof SimpleKey) {
+            return key;
+        }
+        if (key.head() == ConfigKey.EMPTY || key.subkey(1) == ConfigKey.EMPTY) {
+            return key.head();
+        }
+        return key;
+    }
+
+    private static final Object NONE = new Object();
+
+    private final BiFunction<ConfigKey, Object, Object> filter;
+
+    private final Map<ConfigKey, Entry> entries = new HashMap<>();
+
+    private final List<Entry> leaves = new ArrayList<>();
+
+    private class Entry {
+
+        Entry(ConfigKey key, String name) {
+            this.key = key;
+            this.name = name;
+        }
+
+        Object value(BiFunction<ConfigKey, Object, Object> filter) {
+            Object resolved = this.resolved;
+            if (resolved == null) {
+                resolved = NONE;
+                for (Object each : this.values) {
+                    Object filtered = filter.apply(this.key, each);
+                    if (filtered != null) {
+                        resolved = filtered;
+                        break;
+                    }
+                }
+                this.resolved = resolved;
+            }
+            return resolved == NONE ? null : resolved;
+        }
+
+        private final ConfigKey key;
+
+        private final String name;
+
+        private final List<Object> values = new ArrayList<>(1);
+
+        private final Set<SimpleKey> subkeys = new LinkedHashSet<>();
+
+        private boolean leaf;
+
+        private volatile Object resolved;
+    }
+
+}
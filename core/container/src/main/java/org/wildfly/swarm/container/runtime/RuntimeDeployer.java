@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -42,7 +43,6 @@ import org.jboss.shrinkwrap.api.Filters;
 import org.jboss.shrinkwrap.api.GenericArchive;
 import org.jboss.shrinkwrap.api.Node;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
-import org.jboss.shrinkwrap.api.exporter.ZipExporter;
 import org.jboss.shrinkwrap.api.importer.ExplodedImporter;
 import org.jboss.shrinkwrap.api.importer.ZipImporter;
 import org.jboss.shrinkwrap.api.spec.JavaArchive;
@@ -54,6 +54,7 @@ import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
 import org.wildfly.swarm.container.DeploymentException;
 import org.wildfly.swarm.container.internal.Deployer;
 import org.wildfly.swarm.container.runtime.cdi.DeploymentContext;
+import org.wildfly.swarm.container.runtime.cdi.ProxyUtils;
 import org.wildfly.swarm.container.runtime.deployments.DefaultDeploymentCreator;
 import org.wildfly.swarm.container.runtime.wildfly.SwarmContentRepository;
 import org.wildfly.swarm.internal.DeployerMessages;
@@ -230,7 +231,9 @@ public class RuntimeDeployer implements Deployer {
 
             // 2. give fractions a chance to handle the deployment
             for (DeploymentProcessor processor : this.deploymentProcessors) {
-                processor.process();
+                try (AutoCloseable processorTimer = Performance.time("deployment processor " + ProxyUtils.simpleName(processor))) {
+                    processor.process();
+                }
             }
 
 
@@ -244,6 +247,8 @@ public class RuntimeDeployer implements Deployer {
                 }
             }
 
+            byte[] hash = this.contentRepository.addContent(deployment);
+
             if (BootstrapProperties.flagIsSet(SwarmProperties.EXPORT_DEPLOYMENT)) {
                 String exportLocation = System.getProperty(SwarmProperties.EXPORT_DEPLOYMENT);
                 if (exportLocation != null) {
@@ -257,12 +262,12 @@ public class RuntimeDeployer implements Deployer {
                     }
                     final File out = archivePath.toFile();
                     DeployerMessages.MESSAGES.exportingDeployment(out.getAbsolutePath());
-                    deployment.as(ZipExporter.class).exportTo(out, true);
+                    // Copy the archive zipped by the content repository instead of exporting it again
+                    File exported = this.contentRepository.getContent(hash).getPhysicalFile();
+                    Files.copy(exported.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING);
                 }
             }
 
-            byte[] hash = this.contentRepository.addContent(deployment);
-
             final ModelNode deploymentAdd = new ModelNode();
 
             deploymentAdd.get(OP).set(ADD);
@@ -299,6 +304,16 @@ public class RuntimeDeployer implements Deployer {
             }
         } catch (Exception e) {
             throw new DeploymentException(deployment, e);
+        } finally {
+            exportBootTrace();
+        }
+    }
+
+    private void exportBootTrace() {
+        try {
+            Performance.exportTrace();
+        } catch (IOException e) {
+            SwarmMessages.MESSAGES.errorExportingBootTrace(e);
         }
     }
 
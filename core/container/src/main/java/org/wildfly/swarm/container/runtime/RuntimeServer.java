@@ -52,10 +52,12 @@ import org.jboss.msc.value.ImmediateValue;
 import org.jboss.shrinkwrap.api.Archive;
 import org.wildfly.swarm.bootstrap.modules.MavenResolvers;
 import org.wildfly.swarm.bootstrap.performance.Performance;
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
 import org.wildfly.swarm.bootstrap.util.JarFileManager;
 import org.wildfly.swarm.bootstrap.util.TempFileManager;
 import org.wildfly.swarm.container.internal.Deployer;
 import org.wildfly.swarm.container.internal.Server;
+import org.wildfly.swarm.container.runtime.cdi.ProxyUtils;
 import org.wildfly.swarm.container.runtime.deployments.DefaultDeploymentCreator;
 import org.wildfly.swarm.container.runtime.marshal.DMRMarshaller;
 import org.wildfly.swarm.container.runtime.usage.UsageCreator;
@@ -162,14 +164,18 @@ public class RuntimeServer implements Server {
         try (AutoCloseable handle = Performance.time("pre-customizers")) {
             for (Customizer each : this.preCustomizers) {
                 SwarmMessages.MESSAGES.callingPreCustomizer(each);
-                each.customize();
+                try (AutoCloseable customizerHandle = Performance.time("customizer " + ProxyUtils.simpleName(each))) {
+                    each.customize();
+                }
             }
         }
 
         try (AutoCloseable handle = Performance.time("post-customizers")) {
             for (Customizer each : this.postCustomizers) {
                 SwarmMessages.MESSAGES.callingPostCustomizer(each);
-                each.customize();
+                try (AutoCloseable customizerHandle = Performance.time("customizer " + ProxyUtils.simpleName(each))) {
+                    each.customize();
+                }
             }
         }
 
@@ -194,6 +200,11 @@ public class RuntimeServer implements Server {
             this.dmrMarshaller.marshal(bootstrapOperations);
         }
 
+        if (System.getProperty(BootstrapProperties.BOOT_SNAPSHOT_RECORD) != null) {
+            // Recording the boot operations at build-time, there is nothing to start
+            System.exit(0);
+        }
+
         SwarmMessages.MESSAGES.wildflyBootstrap(bootstrapOperations.toString());
 
         Thread.currentThread().setContextClassLoader(RuntimeServer.class.getClassLoader());
@@ -162,6 +162,11 @@ public class ServerBootstrapImpl implements ServerBootstrap {
             });
         } finally {
             SwarmMetricsMessages.MESSAGES.bootPerformance(Performance.dump());
+            try {
+                Performance.exportTrace();
+            } catch (IOException e) {
+                SwarmMessages.MESSAGES.errorExportingBootTrace(e);
+            }
         }
     }
 
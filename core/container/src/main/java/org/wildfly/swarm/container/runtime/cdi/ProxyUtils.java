@@ -0,0 +1,39 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.runtime.cdi;
+
+public final class ProxyUtils {
+
+    private static final String PROXY_SUFFIX = "$Proxy$";
+
+    private ProxyUtils() {
+    }
+
+    /**
+     * The simple name of the class of a bean, without the suffix of a Weld client proxy.
+     *
+     * @param bean The bean, possibly a client proxy.
+     * @return The simple name of the bean class.
+     */
+    public static String simpleName(Object bean) {
+        String name = bean.getClass().getName();
+        int proxy = name.indexOf(PROXY_SUFFIX);
+        if (proxy > 0) {
+            name = name.substring(0, proxy);
+        }
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.runtime.marshal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.jboss.dmr.ModelNode;
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
+
+/**
+ * The boot operations of an application, recorded when the uberjar is built.
+ *
+ * <p>The operations are split around the system properties of the config view, which are
+ * always marshalled at boot. The head holds the XML and extension operations, the tail
+ * the subsystem, custom, interface and socket-binding operations.</p>
+ *
+ * <p>A snapshot is only valid for the fingerprint it was recorded with, which covers the
+ * fractions, the <code>swarm.*</code> properties and the XML configuration.</p>
+ */
+public class BootOperationSnapshot {
+
+    private static final String FINGERPRINT = "fingerprint";
+
+    private static final String HEAD = "head";
+
+    private static final String TAIL = "tail";
+
+    // Properties which differ between the recording and the actual boot without
+    // affecting the boot operations.
+    private static final Collection<String> VOLATILE_PROPERTIES = Collections.unmodifiableList(Arrays.asList(
+            BootstrapProperties.BOOT_SNAPSHOT,
+            BootstrapProperties.BOOT_SNAPSHOT_RECORD,
+            BootstrapProperties.APP_PATH
+    ));
+
+    public BootOperationSnapshot(String fingerprint, List<ModelNode> head, List<ModelNode> tail) {
+        this.fingerprint = fingerprint;
+        this.head = head;
+        this.tail = tail;
+    }
+
+    public String getFingerprint() {
+        return this.fingerprint;
+    }
+
+    public List<ModelNode> getHead() {
+        return this.head;
+    }
+
+    public List<ModelNode> getTail() {
+        return this.tail;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        ModelNode node = new ModelNode();
+        node.get(FINGERPRINT).set(this.fingerprint);
+        node.get(HEAD).setEmptyList();
+        this.head.forEach(node.get(HEAD)::add);
+        node.get(TAIL).setEmptyList();
+        this.tail.forEach(node.get(TAIL)::add);
+        node.writeExternal(out);
+    }
+
+    public static BootOperationSnapshot readFrom(InputStream in) throws IOException {
+        ModelNode node = new ModelNode();
+        node.readExternal(in);
+        return new BootOperationSnapshot(node.get(FINGERPRINT).asString(),
+                                         new ArrayList<>(node.get(HEAD).asList()),
+                                         new ArrayList<>(node.get(TAIL).asList()));
+    }
+
+    /**
+     * Fingerprint the inputs of the boot operations.
+     *
+     * @param fractions  The coordinates of the installed fractions.
+     * @param properties The resolved configuration properties.
+     * @param xmlConfigs The XML configurations, if any.
+     * @return The hex-encoded SHA-1 of the inputs.
+     * @throws IOException If an XML configuration cannot be read.
+     */
+    public static String fingerprint(Collection<String> fractions, Properties properties, Collection<URL> xmlConfigs) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        for (String each : new TreeSet<>(fractions)) {
+            update(digest, each);
+        }
+
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            if (name.startsWith("swarm.") && !VOLATILE_PROPERTIES.contains(name)) {
+                update(digest, name);
+                update(digest, properties.getProperty(name));
+            }
+        }
+
+        byte[] buffer = new byte[8192];
+        for (URL each : xmlConfigs) {
+            // Only the content, the location depends on where the uberjar lives
+            try (InputStream in = each.openStream()) {
+                int len;
+                while ((len = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, len);
+                }
+            }
+            digest.update((byte) 0);
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private final String fingerprint;
+
+    private final List<ModelNode> head;
+
+    private final List<ModelNode> tail;
+}
@@ -15,6 +15,16 @@
  */
 package org.wildfly.swarm.container.runtime.marshal;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -22,17 +32,32 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 
 import org.jboss.dmr.ModelNode;
+import org.wildfly.swarm.bootstrap.env.ApplicationEnvironment;
+import org.wildfly.swarm.bootstrap.env.FractionManifest;
 import org.wildfly.swarm.bootstrap.performance.Performance;
-
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
+import org.wildfly.swarm.container.runtime.cdi.ProxyUtils;
+import org.wildfly.swarm.container.runtime.xmlconfig.XMLConfig;
+import org.wildfly.swarm.internal.SwarmMessages;
+import org.wildfly.swarm.spi.api.config.ConfigView;
 import org.wildfly.swarm.spi.runtime.ConfigurationMarshaller;
 import org.wildfly.swarm.spi.runtime.CustomMarshaller;
+import org.wildfly.swarm.spi.runtime.MarshalledOperations;
 
 /**
+ * Marshals the boot operations of the server.
+ *
+ * <p>If the uberjar contains a {@link BootOperationSnapshot} matching the current fractions and
+ * configuration, its operations are used instead of marshalling the XML, extensions, subsystems,
+ * interfaces and socket-bindings again.</p>
+ *
  * @author Bob McWhirter
  */
 @ApplicationScoped
 public class DMRMarshaller implements ConfigurationMarshaller {
 
+    private static final int INITIAL_CAPACITY = 512;
+
     @Inject
     private XMLMarshaller xmlMarshaller;
 
@@ -54,32 +79,137 @@ public class DMRMarshaller implements ConfigurationMarshaller {
     @Inject
     private SocketBindingGroupMarshaller socketBindingGroupMarshaller;
 
+    @Inject
+    @XMLConfig
+    private Instance<URL> xmlConfig;
+
+    @Inject
+    private ConfigView configView;
+
 
     public void marshal(List<ModelNode> list) {
+        if (list instanceof MarshalledOperations) {
+            marshalOperations(list);
+            return;
+        }
+
+        // Share the index of the addresses between all marshallers
+        MarshalledOperations operations = new MarshalledOperations(Math.max(list.size(), INITIAL_CAPACITY));
+        operations.addAll(list);
+        marshalOperations(operations);
+        list.clear();
+        list.addAll(operations);
+    }
+
+    private void marshalOperations(List<ModelNode> list) {
         try {
-            try (AutoCloseable handle = Performance.time("marshal XML")) {
-                this.xmlMarshaller.marshal(list);
+            String recordTo = System.getProperty(BootstrapProperties.BOOT_SNAPSHOT_RECORD);
+            if (recordTo != null) {
+                record(list, Paths.get(recordTo));
+                return;
             }
-            try (AutoCloseable handle = Performance.time("marshal extensions")) {
-                this.extensionMarshaller.marshal(list);
-            }
-            try (AutoCloseable handle = Performance.time("marshal config-view properties")) {
-                this.configViewPropertyMarshaller.marshal(list);
+
+            URL snapshotUrl = null;
+            if (BootstrapProperties.flagIsSet(BootstrapProperties.BOOT_SNAPSHOT, true)) {
+                snapshotUrl = ClassLoader.getSystemClassLoader().getResource(BootstrapProperties.BOOT_SNAPSHOT_LOCATION);
             }
-            try (AutoCloseable handle = Performance.time("marshal subsystems")) {
-                this.subsystemMarshaller.marshal(list);
+            if (snapshotUrl != null && marshalFromSnapshot(list, snapshotUrl)) {
+                return;
             }
-            try (AutoCloseable handle = Performance.time("marshal custom")) {
-                this.customMarshallers.forEach(e -> e.marshal(list));
+
+            marshalHead(list);
+            marshalConfigViewProperties(list);
+            marshalTail(list);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean marshalFromSnapshot(List<ModelNode> list, URL snapshotUrl) throws Exception {
+        BootOperationSnapshot snapshot;
+        try (AutoCloseable handle = Performance.time("read boot operations snapshot");
+             InputStream in = new BufferedInputStream(snapshotUrl.openStream())) {
+            snapshot = BootOperationSnapshot.readFrom(in);
+        } catch (IOException e) {
+            SwarmMessages.MESSAGES.errorReadingBootSnapshot(e);
+            return false;
+        }
+
+        String fingerprint = fingerprint();
+        if (!snapshot.getFingerprint().equals(fingerprint)) {
+            SwarmMessages.MESSAGES.staleBootSnapshot(snapshot.getFingerprint(), fingerprint);
+            return false;
+        }
+
+        SwarmMessages.MESSAGES.usingBootSnapshot(fingerprint);
+        list.addAll(snapshot.getHead());
+        marshalConfigViewProperties(list);
+        list.addAll(snapshot.getTail());
+        return true;
+    }
+
+    private void record(List<ModelNode> list, Path file) throws Exception {
+        marshalHead(list);
+        int headEnd = list.size();
+        marshalConfigViewProperties(list);
+        int tailStart = list.size();
+        marshalTail(list);
+
+        String fingerprint = fingerprint();
+        BootOperationSnapshot snapshot = new BootOperationSnapshot(fingerprint,
+                                                                   list.subList(0, headEnd),
+                                                                   list.subList(tailStart, list.size()));
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+            snapshot.writeTo(out);
+        }
+        SwarmMessages.MESSAGES.recordedBootSnapshot(fingerprint, file.toString());
+    }
+
+    private String fingerprint() throws Exception {
+        try (AutoCloseable handle = Performance.time("fingerprint boot operations")) {
+            List<String> fractions = new ArrayList<>();
+            for (FractionManifest each : ApplicationEnvironment.get().fractionManifests()) {
+                fractions.add(each.getGroupId() + ":" + each.getArtifactId() + ":" + each.getVersion());
             }
-            try (AutoCloseable handle = Performance.time("marshal interfaces")) {
-                this.interfaceMarshaller.marshal(list);
+            List<URL> xmlConfigs = new ArrayList<>();
+            if (!this.xmlConfig.isUnsatisfied()) {
+                this.xmlConfig.forEach(xmlConfigs::add);
             }
-            try (AutoCloseable handle = Performance.time("marshal socket-bindings")) {
-                this.socketBindingGroupMarshaller.marshal(list);
+            return BootOperationSnapshot.fingerprint(fractions, this.configView.asProperties(), xmlConfigs);
+        }
+    }
+
+    private void marshalHead(List<ModelNode> list) throws Exception {
+        try (AutoCloseable handle = Performance.time("marshal XML")) {
+            this.xmlMarshaller.marshal(list);
+        }
+        try (AutoCloseable handle = Performance.time("marshal extensions")) {
+            this.extensionMarshaller.marshal(list);
+        }
+    }
+
+    private void marshalConfigViewProperties(List<ModelNode> list) throws Exception {
+        try (AutoCloseable handle = Performance.time("marshal config-view properties")) {
+            this.configViewPropertyMarshaller.marshal(list);
+        }
+    }
+
+    private void marshalTail(List<ModelNode> list) throws Exception {
+        try (AutoCloseable handle = Performance.time("marshal subsystems")) {
+            this.subsystemMarshaller.marshal(list);
+        }
+        try (AutoCloseable handle = Performance.time("marshal custom")) {
+            for (CustomMarshaller each : this.customMarshallers) {
+                try (AutoCloseable customHandle = Performance.time("marshal " + ProxyUtils.simpleName(each))) {
+                    each.marshal(list);
+                }
             }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        }
+        try (AutoCloseable handle = Performance.time("marshal interfaces")) {
+            this.interfaceMarshaller.marshal(list);
+        }
+        try (AutoCloseable handle = Performance.time("marshal socket-bindings")) {
+            this.socketBindingGroupMarshaller.marshal(list);
         }
     }
 }
@@ -1,12 +1,18 @@
 package org.wildfly.swarm.container.runtime.wildfly;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.security.CodeSigner;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -25,11 +31,18 @@ import org.jboss.vfs.VirtualFile;
 import org.jboss.vfs.spi.FileSystem;
 
 /**
+ * Serves deployment archives to VFS.
+ *
+ * <p>Each archive is zipped once, when it is added, into a file of a temporary directory. Its SHA-1 is computed while it is being written. Sizes,
+ * streams and physical files are then all served from that file.</p>
+ *
  * Created by bob on 1/3/18.
  */
 @ApplicationScoped
 public class ShrinkWrapFileSystem implements FileSystem {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public ShrinkWrapFileSystem() {
 
     }
@@ -39,33 +52,46 @@ public class ShrinkWrapFileSystem implements FileSystem {
         this.tempDir = this.tempFileProvider.createTempDir("wildfly-swarm-deployments.tmp");
     }
 
-    public void addArchive(String name, Archive<?> archive) {
-        this.archives.put(name, new Entry(archive));
+    /**
+     * Exports the archive and makes it available under the given name.
+     *
+     * @return the SHA-1 hash of the exported archive
+     */
+    public byte[] addArchive(String name, Archive<?> archive) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        File file = this.tempDir.getFile(name);
+        try (OutputStream out = new BufferedOutputStream(new DigestOutputStream(Files.newOutputStream(file.toPath()), messageDigest), BUFFER_SIZE)) {
+            archive.as(ZipExporter.class).exportTo(out);
+        } catch (IOException | RuntimeException e) {
+            file.delete();
+            throw e;
+        }
+        Entry previous = this.archives.put(name, new Entry(file, file.length()));
+        if (previous != null && !previous.file.equals(file)) {
+            previous.close();
+        }
+        return messageDigest.digest();
     }
 
     @Override
     public File getFile(VirtualFile mountPoint, VirtualFile target) throws IOException {
         return getEntry(mountPoint, target)
-                .map(e -> getFile(e))
+                .map(e -> e.file)
                 .orElse(null);
     }
 
-    File getFile(Entry entry) {
-        if (entry.file == null) {
-            try {
-                entry.file = this.tempDir.createFile(entry.archive.getName(), entry.archive.as(ZipExporter.class).exportAsInputStream());
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
-
-        return entry.file;
-    }
-
     @Override
     public InputStream openInputStream(VirtualFile mountPoint, VirtualFile target) throws IOException {
-        return getEntry(mountPoint, target)
-                .map(e -> e.archive.as(ZipExporter.class).exportAsInputStream()).orElse(null);
+        Optional<Entry> entry = getEntry(mountPoint, target);
+        if (entry.isPresent()) {
+            return Files.newInputStream(entry.get().file.toPath());
+        }
+        return null;
     }
 
     Optional<Entry> getEntry(VirtualFile mountPoint, VirtualFile target) {
@@ -95,19 +121,10 @@ public class ShrinkWrapFileSystem implements FileSystem {
     @Override
     public long getSize(VirtualFile mountPoint, VirtualFile target) {
         return getEntry(mountPoint, target)
-                .map(e -> sizeof(e))
+                .map(e -> e.size)
                 .orElse(0L);
     }
 
-    long sizeof(Entry entry) {
-        if (entry.size == null) {
-            SizingOutputStream sizingOutputStream = new SizingOutputStream();
-            entry.archive.as(ZipExporter.class).exportTo(sizingOutputStream);
-            entry.size = sizingOutputStream.getSize();
-        }
-        return entry.size;
-    }
-
     @Override
     public long getLastModified(VirtualFile mountPoint, VirtualFile target) {
         return 0;
@@ -165,22 +182,19 @@ public class ShrinkWrapFileSystem implements FileSystem {
     private TempFileProvider tempFileProvider;
 
     private static class Entry implements Closeable {
-        Entry(Archive<?> archive) {
-            this.archive = archive;
+        Entry(File file, long size) {
+            this.file = file;
+            this.size = size;
         }
 
         @Override
         public void close() throws IOException {
-            if (this.file != null) {
-                this.file.delete();
-            }
+            this.file.delete();
         }
 
-        final Archive<?> archive;
-
-        Long size;
+        final File file;
 
-        File file;
+        final long size;
     }
 
 
@@ -153,6 +153,26 @@ public interface SwarmMessages extends BasicLogger {
     @Message(id = 31, value = "Registered archive-preparer: %s")
     void registeredArchivePreparer(String preparer);
 
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 32, value = "Using boot operations snapshot %s")
+    void usingBootSnapshot(String fingerprint);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 33, value = "Boot operations snapshot %s does not match the current fractions and configuration (%s), marshalling boot operations")
+    void staleBootSnapshot(String recorded, String current);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 34, value = "Unable to read boot operations snapshot, marshalling boot operations")
+    void errorReadingBootSnapshot(@Cause Throwable cause);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 35, value = "Recorded boot operations snapshot %s to %s")
+    void recordedBootSnapshot(String fingerprint, String file);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 36, value = "Unable to export the boot trace")
+    void errorExportingBootTrace(@Cause Throwable cause);
+
 
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.config;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.wildfly.swarm.spi.api.config.ConfigKey;
+import org.wildfly.swarm.spi.api.config.SimpleKey;
+
+/**
+ * Times the configuration lookups made during boot against a YAML profile of 5,000 keys.
+ *
+ * <p>Not a unit test, run it with {@code main}. Each round activates a fresh strategy, then looks up every key and lists the subkeys of every
+ * prefix, as {@code ConfigurableManager} does for the fields of the fractions. The same lookups are also timed by walking the {@link ConfigNode}
+ * trees for every call, which is how {@link ConfigResolutionStrategy} resolved keys before it used a {@link ConfigIndex}.</p>
+ */
+public class ConfigResolutionBenchmark {
+
+    private static final int FRACTIONS = 50;
+
+    private static final int GROUPS = 10;
+
+    private static final int KEYS = 10;
+
+    public static void main(String... args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        ConfigNode profile = MapConfigNodeFactory.load(ConfigViewFactory.loadYaml(
+                new ByteArrayInputStream(yaml().getBytes(StandardCharsets.UTF_8)), Collections.emptyMap()));
+
+        List<ConfigKey> keys = new ArrayList<>();
+        List<ConfigKey> prefixes = new ArrayList<>();
+        for (int f = 0; f < FRACTIONS; f++) {
+            for (int g = 0; g < GROUPS; g++) {
+                prefixes.add(ConfigKey.of("swarm", "fraction" + f, "group" + g));
+                for (int k = 0; k < KEYS; k++) {
+                    keys.add(ConfigKey.of("swarm", "fraction" + f, "group" + g, "key" + k));
+                }
+            }
+        }
+
+        for (int i = 0; i < rounds; i++) {
+            long indexed = time(() -> lookups(strategy(profile), keys, prefixes, false));
+            long walked = time(() -> lookups(strategy(profile), keys, prefixes, true));
+            System.out.printf("round %2d: %d keys, index %6.1f ms, tree walk %8.1f ms%n", i, keys.size(), indexed / 1e6, walked / 1e6);
+        }
+    }
+
+    private static ConfigResolutionStrategy strategy(ConfigNode profile) {
+        Properties properties = new Properties();
+        properties.putAll(System.getProperties());
+        ConfigResolutionStrategy strategy = new ConfigResolutionStrategy(properties);
+        strategy.withEnvironment(System.getenv());
+        strategy.add(profile);
+        strategy.defaults(new ConfigNode() {{
+                recursiveChild("swarm.http.port", "8080");
+                recursiveChild("swarm.bind.address", "0.0.0.0");
+            }});
+        return strategy;
+    }
+
+    private static void lookups(ConfigResolutionStrategy strategy, List<ConfigKey> keys, List<ConfigKey> prefixes, boolean walk) {
+        int found = 0;
+        if (walk) {
+            strategy.nodes().flatMap(ConfigNode::allKeysRecursively).distinct()
+                    .forEach(key -> walkValueOf(strategy, key).ifPresent(v -> strategy.asProperties().setProperty(key.name(), v.toString())));
+            for (ConfigKey prefix : prefixes) {
+                if (walkHasKeyOrSubkeys(strategy, prefix)) {
+                    found += walkSimpleSubkeysOf(strategy, prefix).size();
+                }
+            }
+            for (ConfigKey key : keys) {
+                found += walkValueOf(strategy, key).isPresent() ? 1 : 0;
+            }
+        } else {
+            strategy.activate();
+            for (ConfigKey prefix : prefixes) {
+                if (strategy.hasKeyOrSubkeys(prefix)) {
+                    found += strategy.simpleSubkeysOf(prefix).size();
+                }
+            }
+            for (ConfigKey key : keys) {
+                found += strategy.optionalValueOf(key).isPresent() ? 1 : 0;
+            }
+        }
+        if (found != keys.size() * 2) {
+            throw new IllegalStateException("Found " + found);
+        }
+    }
+
+    private static Optional<Object> walkValueOf(ConfigResolutionStrategy strategy, ConfigKey key) {
+        return strategy.nodes()
+                .map(e -> e.valueOf(key))
+                .filter(Objects::nonNull)
+                .map(v -> strategy.filter(key, v))
+                .filter(Objects::nonNull)
+                .findFirst();
+    }
+
+    private static List<SimpleKey> walkSimpleSubkeysOf(ConfigResolutionStrategy strategy, ConfigKey prefix) {
+        return strategy.nodes()
+                .map(e -> e.descendant(prefix))
+                .filter(Objects::nonNull)
+                .flatMap(e -> e.childrenKeys().stream())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static boolean walkHasKeyOrSubkeys(ConfigResolutionStrategy strategy, ConfigKey prefix) {
+        return strategy.nodes()
+                .map(e -> e.descendant(prefix))
+                .anyMatch(Objects::nonNull);
+    }
+
+    private static String yaml() {
+        StringBuilder yaml = new StringBuilder("swarm:\n");
+        for (int f = 0; f < FRACTIONS; f++) {
+            yaml.append("  fraction").append(f).append(":\n");
+            for (int g = 0; g < GROUPS; g++) {
+                yaml.append("    group").append(g).append(":\n");
+                for (int k = 0; k < KEYS; k++) {
+                    yaml.append("      key").append(k).append(": value-").append(f).append('-').append(g).append('-').append(k).append('\n');
+                }
+            }
+        }
+        return yaml.toString();
+    }
+
+    private static long time(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+}
@@ -16,9 +16,12 @@
 package org.wildfly.swarm.container.config;
 
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
+import org.wildfly.swarm.spi.api.ConfigurationFilter;
 import org.wildfly.swarm.spi.api.config.ConfigKey;
+import org.wildfly.swarm.spi.api.config.SimpleKey;
 
 import static org.fest.assertions.Assertions.assertThat;
 
@@ -122,5 +125,76 @@ public class ConfigResolutionStrategyTest {
         assertThat(props.getProperty("swarm.data-sources.ExampleDS.driver-name")).isEqualTo("cooper");
     }
 
+    @Test
+    public void testNodesAddedAfterActivation() {
+        Properties props = new Properties();
+
+        ConfigResolutionStrategy strategy = new ConfigResolutionStrategy(props);
+        strategy.add(new ConfigNode() {{
+            recursiveChild("swarm.http.port", "8080");
+        }});
+        strategy.activate();
+        assertThat(strategy.hasKeyOrSubkeys(ConfigKey.parse("swarm.https"))).isFalse();
+
+        strategy.add(new ConfigNode() {{
+            recursiveChild("swarm.http.port", "9090");
+            recursiveChild("swarm.https.port", "8443");
+        }});
+        strategy.withProperty("swarm.bind.address", "127.0.0.1");
+
+        assertThat(strategy.valueOf(ConfigKey.parse("swarm.http.port"))).isEqualTo("8080");
+        assertThat(strategy.valueOf(ConfigKey.parse("swarm.https.port"))).isEqualTo("8443");
+        assertThat(strategy.valueOf(ConfigKey.parse("swarm.bind.address"))).isEqualTo("127.0.0.1");
+        assertThat(strategy.hasKeyOrSubkeys(ConfigKey.parse("swarm.https"))).isTrue();
+        assertThat(strategy.simpleSubkeysOf(ConfigKey.parse("swarm")))
+                .containsExactly(new SimpleKey("bind"), new SimpleKey("http"), new SimpleKey("https"));
+    }
+
+    @Test
+    public void testSubkeysOfDottedNames() {
+        Properties props = new Properties();
+
+        ConfigNode config = new ConfigNode() {{
+            recursiveChild(ConfigKey.of("swarm", "deployment", "myapp.war", "context"), "/myapp");
+            recursiveChild(ConfigKey.of("swarm", "deployment", "other.war", "context"), "/other");
+        }};
+
+        ConfigResolutionStrategy strategy = new ConfigResolutionStrategy(props);
+        strategy.add(config);
+        strategy.activate();
+
+        assertThat(strategy.simpleSubkeysOf(ConfigKey.parse("swarm.deployment")))
+                .containsExactly(new SimpleKey("myapp.war"), new SimpleKey("other.war"));
+        assertThat(strategy.valueOf(ConfigKey.parse("swarm.deployment.[myapp.war].context"))).isEqualTo("/myapp");
+        assertThat(strategy.valueOf(ConfigKey.parse("swarm.deployment.myapp.war.context"))).isNull();
+        assertThat(props.getProperty("swarm.deployment.[other.war].context")).isEqualTo("/other");
+    }
+
+    @Test
+    public void testFilteredValuesFallThrough() {
+        Properties props = new Properties();
+        AtomicInteger calls = new AtomicInteger();
+
+        ConfigResolutionStrategy strategy = new ConfigResolutionStrategy(props);
+        strategy.add(new ConfigNode() {{
+            recursiveChild("swarm.http.port", "hidden");
+        }});
+        strategy.add(new ConfigNode() {{
+            recursiveChild("swarm.http.port", "8080");
+        }});
+        strategy.withFilter(new ConfigurationFilter() {
+            @Override
+            public <T> T filter(String key, T value) {
+                calls.incrementAndGet();
+                return "hidden".equals(value) ? null : value;
+            }
+        });
+        strategy.activate();
+
+        assertThat(strategy.valueOf(ConfigKey.parse("swarm.http.port"))).isEqualTo("8080");
+        assertThat(props.getProperty("swarm.http.port")).isEqualTo("8080");
+        // Filtered once, when activated
+        assertThat(calls.get()).isEqualTo(2);
+    }
 
 }
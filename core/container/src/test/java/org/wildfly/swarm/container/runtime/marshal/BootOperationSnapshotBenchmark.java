@@ -0,0 +1,112 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.runtime.marshal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jboss.dmr.ModelNode;
+import org.wildfly.swarm.config.Datasources;
+import org.wildfly.swarm.config.EE;
+import org.wildfly.swarm.config.Elytron;
+import org.wildfly.swarm.config.IO;
+import org.wildfly.swarm.config.JMX;
+import org.wildfly.swarm.config.Logging;
+import org.wildfly.swarm.config.Naming;
+import org.wildfly.swarm.config.RequestController;
+import org.wildfly.swarm.config.Security;
+import org.wildfly.swarm.config.Transactions;
+import org.wildfly.swarm.config.Undertow;
+import org.wildfly.swarm.config.runtime.invocation.Marshaller;
+
+/**
+ * Times the subsystem marshalling done at boot against reading the same operations from a {@link BootOperationSnapshot}.
+ *
+ * <p>Not a unit test, run it with {@code main}. Each round marshals a set of typical subsystems with the config-api {@link Marshaller}, as
+ * {@link SubsystemMarshaller} does for the fractions, then reads the resulting operations back from a snapshot. The first round runs on a cold
+ * JVM, which is what an application pays for on each start.</p>
+ */
+public class BootOperationSnapshotBenchmark {
+
+    private static final int SERVERS = 10;
+
+    public static void main(String... args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        for (int i = 0; i < rounds; i++) {
+            List<ModelNode> marshalled = new ArrayList<>();
+            long marshal = time(() -> {
+                for (Object each : subsystems()) {
+                    marshalled.addAll(Marshaller.marshal(each));
+                }
+            });
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new BootOperationSnapshot("", Collections.emptyList(), marshalled).writeTo(out);
+            byte[] bytes = out.toByteArray();
+
+            List<ModelNode> restored = new ArrayList<>();
+            long snapshot = time(() -> restored.addAll(BootOperationSnapshot.readFrom(new ByteArrayInputStream(bytes)).getTail()));
+
+            if (!restored.equals(marshalled)) {
+                throw new IllegalStateException("Snapshot differs from the marshalled operations");
+            }
+            System.out.printf("round %2d: %d operations (%d bytes), marshal %7.2f ms, snapshot %6.2f ms%n",
+                              i, marshalled.size(), bytes.length, marshal / 1e6, snapshot / 1e6);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Object> subsystems() {
+        Undertow undertow = new Undertow();
+        for (int i = 0; i < SERVERS; i++) {
+            undertow.server("server-" + i, server -> ((org.wildfly.swarm.config.undertow.Server) server)
+                    .httpListener("default")
+                    .host("default-host"));
+        }
+        undertow.servletContainer("default");
+        undertow.bufferCache("default");
+
+        return Arrays.asList(
+                undertow,
+                new Logging().consoleHandler("CONSOLE").logger("org.wildfly.swarm"),
+                new IO().worker("default").bufferPool("default"),
+                new EE(),
+                new Naming(),
+                new JMX(),
+                new Transactions(),
+                new Datasources(),
+                new Elytron(),
+                new Security(),
+                new RequestController()
+        );
+    }
+
+    private static long time(Task task) throws Exception {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+}
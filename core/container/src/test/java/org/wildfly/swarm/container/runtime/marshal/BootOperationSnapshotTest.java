@@ -0,0 +1,102 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.runtime.marshal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+import org.wildfly.swarm.bootstrap.util.BootstrapProperties;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BootOperationSnapshotTest {
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        BootOperationSnapshot snapshot = new BootOperationSnapshot("abc",
+                                                                   Arrays.asList(op("extension", "org.wildfly.extension.undertow")),
+                                                                   Arrays.asList(op("subsystem", "undertow"), op("interface", "public")));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.writeTo(out);
+        BootOperationSnapshot read = BootOperationSnapshot.readFrom(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(read.getFingerprint()).isEqualTo("abc");
+        assertThat(read.getHead()).isEqualTo(snapshot.getHead());
+        assertThat(read.getTail()).isEqualTo(snapshot.getTail());
+    }
+
+    @Test
+    public void testFingerprintCoversSwarmProperties() throws Exception {
+        List<String> fractions = Arrays.asList("org.wildfly.swarm:undertow:1.0", "org.wildfly.swarm:logging:1.0");
+        Properties properties = new Properties();
+        properties.setProperty("swarm.http.port", "8080");
+        properties.setProperty("java.version", "1.8");
+
+        String fingerprint = BootOperationSnapshot.fingerprint(fractions, properties, Collections.emptyList());
+
+        Properties other = new Properties();
+        other.putAll(properties);
+        other.setProperty("java.version", "9");
+        other.setProperty(BootstrapProperties.BOOT_SNAPSHOT_RECORD, "/tmp/boot.dmr");
+        other.setProperty(BootstrapProperties.APP_PATH, "/tmp/app.jar");
+        assertThat(BootOperationSnapshot.fingerprint(fractions, other, Collections.emptyList())).isEqualTo(fingerprint);
+
+        List<String> reordered = Arrays.asList("org.wildfly.swarm:logging:1.0", "org.wildfly.swarm:undertow:1.0");
+        assertThat(BootOperationSnapshot.fingerprint(reordered, properties, Collections.emptyList())).isEqualTo(fingerprint);
+
+        other.setProperty("swarm.http.port", "8081");
+        assertThat(BootOperationSnapshot.fingerprint(fractions, other, Collections.emptyList())).isNotEqualTo(fingerprint);
+
+        List<String> upgraded = Arrays.asList("org.wildfly.swarm:undertow:1.1", "org.wildfly.swarm:logging:1.0");
+        assertThat(BootOperationSnapshot.fingerprint(upgraded, properties, Collections.emptyList())).isNotEqualTo(fingerprint);
+    }
+
+    @Test
+    public void testFingerprintCoversXmlContent() throws Exception {
+        Path xml = Files.createTempFile("standalone", ".xml");
+        try {
+            Files.write(xml, "<server/>".getBytes(StandardCharsets.UTF_8));
+            List<URL> xmlConfigs = Collections.singletonList(xml.toUri().toURL());
+            String fingerprint = BootOperationSnapshot.fingerprint(Collections.emptyList(), new Properties(), xmlConfigs);
+
+            assertThat(BootOperationSnapshot.fingerprint(Collections.emptyList(), new Properties(), Collections.emptyList())).isNotEqualTo(fingerprint);
+
+            Files.write(xml, "<server><profile/></server>".getBytes(StandardCharsets.UTF_8));
+            assertThat(BootOperationSnapshot.fingerprint(Collections.emptyList(), new Properties(), xmlConfigs)).isNotEqualTo(fingerprint);
+        } finally {
+            Files.delete(xml);
+        }
+    }
+
+    private static ModelNode op(String type, String name) {
+        ModelNode node = new ModelNode();
+        node.get("operation").set("add");
+        node.get("address").set(type, name);
+        return node;
+    }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.container.runtime.wildfly;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.jboss.vfs.TempFileProvider;
+import org.jboss.vfs.VFS;
+import org.jboss.vfs.VirtualFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ShrinkWrapFileSystemTest {
+
+    @Before
+    public void mount() throws Exception {
+        this.executor = Executors.newSingleThreadScheduledExecutor();
+        this.fs = new ShrinkWrapFileSystem();
+        Field provider = ShrinkWrapFileSystem.class.getDeclaredField("tempFileProvider");
+        provider.setAccessible(true);
+        provider.set(this.fs, TempFileProvider.create("swfs-test", this.executor, true));
+        this.fs.postConstruct();
+        this.mountPoint = VFS.getChild("shrinkwrap-fs-test");
+        this.mount = VFS.mount(this.mountPoint, this.fs);
+    }
+
+    @After
+    public void unmount() throws Exception {
+        this.mount.close();
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void testServesTheArchiveExportedOnce() throws Exception {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "myapp.jar")
+                .addAsResource(new StringAsset("hello"), "hello.txt");
+
+        byte[] hash = this.fs.addArchive(archive.getName(), archive);
+        VirtualFile content = this.mountPoint.getChild(archive.getName());
+
+        File file = content.getPhysicalFile();
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertThat(hash).isEqualTo(MessageDigest.getInstance("SHA-1").digest(bytes));
+        assertThat(content.getSize()).isEqualTo(bytes.length);
+        assertThat(content.getPhysicalFile()).isEqualTo(file);
+        try (InputStream in = content.openStream()) {
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int count;
+            while ((count = in.read(buffer)) > -1) {
+                read.write(buffer, 0, count);
+            }
+            assertThat(Arrays.equals(read.toByteArray(), bytes)).isTrue();
+        }
+
+        // Later changes to the archive are not seen
+        archive.addAsResource(new StringAsset("world"), "world.txt");
+        assertThat(content.getSize()).isEqualTo(bytes.length);
+    }
+
+    @Test
+    public void testDeleteRemovesTheExportedFile() throws Exception {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class, "other.jar")
+                .addAsResource(new StringAsset("hello"), "hello.txt");
+        this.fs.addArchive(archive.getName(), archive);
+        VirtualFile content = this.mountPoint.getChild(archive.getName());
+        File file = content.getPhysicalFile();
+        assertThat(file.exists()).isTrue();
+
+        content.delete();
+        assertThat(file.exists()).isFalse();
+    }
+
+    private ScheduledExecutorService executor;
+
+    private ShrinkWrapFileSystem fs;
+
+    private VirtualFile mountPoint;
+
+    private Closeable mount;
+
+}
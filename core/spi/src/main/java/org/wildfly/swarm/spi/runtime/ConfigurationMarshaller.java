@@ -39,6 +39,9 @@ public interface ConfigurationMarshaller {
     }
 
     default boolean isAlreadyConfigured(ModelNode addr, List<ModelNode> list) {
+        if (list instanceof MarshalledOperations) {
+            return ((MarshalledOperations) list).isConfigured(addr);
+        }
         return list.stream().anyMatch(e -> e.get(OP_ADDR).equals(addr));
     }
 }
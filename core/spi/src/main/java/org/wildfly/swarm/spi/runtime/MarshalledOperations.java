@@ -0,0 +1,137 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.spi.runtime;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.jboss.dmr.ModelNode;
+
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
+
+/**
+ * The list of boot operations shared by the marshallers, indexed by the address of each operation.
+ *
+ * <p>{@link ConfigurationMarshaller#isAlreadyConfigured(ModelNode, List)} looks addresses up in the
+ * index instead of scanning the whole list, which otherwise makes marshalling quadratic in the
+ * number of operations.</p>
+ *
+ * <p>Operations must not change their address once they have been added.</p>
+ */
+public class MarshalledOperations extends AbstractList<ModelNode> implements RandomAccess {
+
+    private static final ModelNode UNDEFINED = new ModelNode();
+
+    public MarshalledOperations() {
+        this.operations = new ArrayList<>();
+    }
+
+    public MarshalledOperations(int initialCapacity) {
+        this.operations = new ArrayList<>(initialCapacity);
+    }
+
+    /**
+     * Determine whether an operation has been added for an address.
+     *
+     * @param address The address.
+     * @return {@code true} if at least one operation targets the address.
+     */
+    public boolean isConfigured(ModelNode address) {
+        return this.addresses.containsKey(address);
+    }
+
+    @Override
+    public ModelNode get(int index) {
+        return this.operations.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.operations.size();
+    }
+
+    @Override
+    public boolean add(ModelNode operation) {
+        this.modCount++;
+        index(operation);
+        return this.operations.add(operation);
+    }
+
+    @Override
+    public void add(int index, ModelNode operation) {
+        this.modCount++;
+        this.operations.add(index, operation);
+        index(operation);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends ModelNode> added) {
+        return addAll(size(), added);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends ModelNode> added) {
+        this.modCount++;
+        this.operations.addAll(index, added);
+        added.forEach(this::index);
+        return !added.isEmpty();
+    }
+
+    @Override
+    public ModelNode set(int index, ModelNode operation) {
+        ModelNode previous = this.operations.set(index, operation);
+        unindex(previous);
+        index(operation);
+        return previous;
+    }
+
+    @Override
+    public ModelNode remove(int index) {
+        this.modCount++;
+        ModelNode previous = this.operations.remove(index);
+        unindex(previous);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        this.modCount++;
+        this.operations.clear();
+        this.addresses.clear();
+    }
+
+    private void index(ModelNode operation) {
+        this.addresses.merge(addressOf(operation), 1, Integer::sum);
+    }
+
+    private void unindex(ModelNode operation) {
+        this.addresses.computeIfPresent(addressOf(operation), (address, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static ModelNode addressOf(ModelNode operation) {
+        // Unlike get(), has() does not add an undefined address to the operation
+        return operation.has(OP_ADDR) ? operation.get(OP_ADDR) : UNDEFINED;
+    }
+
+    private final List<ModelNode> operations;
+
+    private final Map<ModelNode, Integer> addresses = new HashMap<>();
+}
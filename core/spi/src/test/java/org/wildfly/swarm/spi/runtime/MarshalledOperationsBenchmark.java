@@ -0,0 +1,75 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.spi.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Times the duplicate-address checks of the marshallers against a large set of boot operations.
+ *
+ * <p>Not a unit test, run it with {@code main}. Each round starts with the operations of a large XML configuration, then marshals the
+ * subsystems of a number of fractions, checking each one with {@link ConfigurationMarshaller#isAlreadyConfigured(List, List)} as
+ * {@code SubsystemMarshaller} does. This is done once on a plain list and once on {@link MarshalledOperations}.</p>
+ */
+public class MarshalledOperationsBenchmark {
+
+    private static final int XML_OPERATIONS = 5000;
+
+    private static final int FRACTIONS = 500;
+
+    private static final int OPERATIONS_PER_FRACTION = 8;
+
+    public static void main(String... args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        ConfigurationMarshaller marshaller = list -> {
+        };
+
+        for (int i = 0; i < rounds; i++) {
+            long scanned = time(() -> marshal(marshaller, new ArrayList<>()));
+            long indexed = time(() -> marshal(marshaller, new MarshalledOperations()));
+            System.out.printf("round %2d: %d operations, list scan %8.2f ms, index %6.2f ms%n",
+                              i, XML_OPERATIONS + FRACTIONS * OPERATIONS_PER_FRACTION / 2, scanned / 1e6, indexed / 1e6);
+        }
+    }
+
+    private static void marshal(ConfigurationMarshaller marshaller, List<ModelNode> list) {
+        for (int i = 0; i < XML_OPERATIONS; i++) {
+            list.add(MarshalledOperationsTest.add("subsystem", "xml-" + (i / 10)));
+        }
+        for (int f = 0; f < FRACTIONS; f++) {
+            // Every other fraction is already configured by the XML
+            String name = f % 2 == 0 ? "xml-" + f : "fraction-" + f;
+            List<ModelNode> subList = new ArrayList<>();
+            for (int i = 0; i < OPERATIONS_PER_FRACTION; i++) {
+                subList.add(MarshalledOperationsTest.add("subsystem", name));
+            }
+            if (!marshaller.isAlreadyConfigured(subList, list)) {
+                list.addAll(subList);
+            }
+        }
+    }
+
+    private static long time(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+}
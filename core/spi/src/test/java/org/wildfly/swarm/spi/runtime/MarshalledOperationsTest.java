@@ -0,0 +1,94 @@
+/**
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.spi.runtime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class MarshalledOperationsTest {
+
+    private final ConfigurationMarshaller marshaller = list -> {
+    };
+
+    @Test
+    public void testIndexFollowsTheList() {
+        MarshalledOperations operations = new MarshalledOperations();
+        operations.add(add("subsystem", "undertow"));
+        operations.addAll(0, Arrays.asList(add("extension", "org.wildfly.extension.undertow"), add("extension", "org.jboss.as.logging")));
+        operations.add(writeAttribute("subsystem", "undertow"));
+
+        assertThat(operations).hasSize(4);
+        assertThat(operations.get(0)).isEqualTo(add("extension", "org.wildfly.extension.undertow"));
+        assertThat(operations.isConfigured(address("extension", "org.jboss.as.logging"))).isTrue();
+        assertThat(operations.isConfigured(address("subsystem", "logging"))).isFalse();
+
+        // Two operations target the undertow subsystem
+        operations.remove(add("subsystem", "undertow"));
+        assertThat(operations.isConfigured(address("subsystem", "undertow"))).isTrue();
+        operations.set(2, add("subsystem", "logging"));
+        assertThat(operations.isConfigured(address("subsystem", "undertow"))).isFalse();
+        assertThat(operations.isConfigured(address("subsystem", "logging"))).isTrue();
+
+        operations.clear();
+        assertThat(operations.isConfigured(address("extension", "org.jboss.as.logging"))).isFalse();
+    }
+
+    @Test
+    public void testIsAlreadyConfiguredMatchesScan() {
+        List<ModelNode> scanned = new ArrayList<>();
+        MarshalledOperations indexed = new MarshalledOperations();
+        for (List<ModelNode> each : Arrays.asList(scanned, indexed)) {
+            each.add(add("subsystem", "undertow"));
+            each.add(add("interface", "public"));
+            each.add(new ModelNode());
+        }
+
+        for (ModelNode address : Arrays.asList(address("subsystem", "undertow"), address("subsystem", "io"),
+                                               address("interface", "public"), new ModelNode())) {
+            assertThat(this.marshaller.isAlreadyConfigured(address, indexed))
+                    .isEqualTo(this.marshaller.isAlreadyConfigured(address, scanned));
+        }
+        assertThat(this.marshaller.isAlreadyConfigured(Arrays.asList(add("subsystem", "undertow")), indexed)).isTrue();
+        // The lookup does not add an address to the operations
+        assertThat(indexed.get(2).isDefined()).isFalse();
+    }
+
+    static ModelNode address(String type, String name) {
+        ModelNode address = new ModelNode();
+        address.add(type, name);
+        return address;
+    }
+
+    static ModelNode add(String type, String name) {
+        ModelNode operation = new ModelNode();
+        operation.get("operation").set("add");
+        operation.get("address").set(address(type, name));
+        return operation;
+    }
+
+    private static ModelNode writeAttribute(String type, String name) {
+        ModelNode operation = add(type, name);
+        operation.get("operation").set("write-attribute");
+        return operation;
+    }
+
+}
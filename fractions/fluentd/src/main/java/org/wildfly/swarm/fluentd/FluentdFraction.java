@@ -28,6 +28,9 @@ public class FluentdFraction implements Fraction<FluentdFraction> {
         this.hostname = "localhost";
         this.port = 24224;
         this.level = Level.INFO;
+        this.queueSize = 8192;
+        this.batchSize = 256;
+        this.overflowPolicy = OverflowPolicy.DROP;
     }
 
     public static Fraction createDefaultFluentdFraction() {
@@ -61,6 +64,42 @@ public class FluentdFraction implements Fraction<FluentdFraction> {
         return this.port;
     }
 
+    public FluentdFraction async(boolean async) {
+        this.async = async;
+        return this;
+    }
+
+    public boolean async() {
+        return this.async;
+    }
+
+    public FluentdFraction queueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    public int queueSize() {
+        return this.queueSize;
+    }
+
+    public FluentdFraction batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public int batchSize() {
+        return this.batchSize;
+    }
+
+    public FluentdFraction overflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return this.overflowPolicy;
+    }
+
     public String getTag() {
         return tag;
     }
@@ -77,4 +116,16 @@ public class FluentdFraction implements Fraction<FluentdFraction> {
     @AttributeDocumentation("Logging tag")
     private String tag = "local";
 
+    @AttributeDocumentation("Send records from a background thread instead of the logging thread")
+    private boolean async;
+
+    @AttributeDocumentation("Maximum number of records waiting to be sent in async mode")
+    private int queueSize;
+
+    @AttributeDocumentation("Maximum number of records sent in one message in async mode")
+    private int batchSize;
+
+    @AttributeDocumentation("What to do with a record while the async queue is full: drop, block or sample")
+    private OverflowPolicy overflowPolicy;
+
 }
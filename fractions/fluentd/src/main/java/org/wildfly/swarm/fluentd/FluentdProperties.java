@@ -22,4 +22,16 @@ public interface FluentdProperties {
     //public
     String PORT = "swarm.fluentd.port";
 
+    //public
+    String ASYNC = "swarm.fluentd.async";
+
+    //public
+    String QUEUE_SIZE = "swarm.fluentd.queue-size";
+
+    //public
+    String BATCH_SIZE = "swarm.fluentd.batch-size";
+
+    //public
+    String OVERFLOW_POLICY = "swarm.fluentd.overflow-policy";
+
 }
@@ -0,0 +1,37 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.fluentd;
+
+/**
+ * What an asynchronous fluentd handler does with a record while its buffer is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Discard the record.
+     */
+    DROP,
+
+    /**
+     * Wait until the background thread made room for the record.
+     */
+    BLOCK,
+
+    /**
+     * Start sampling records below {@code WARN} once the buffer is three quarters full, and discard any record once it is full.
+     */
+    SAMPLE
+}
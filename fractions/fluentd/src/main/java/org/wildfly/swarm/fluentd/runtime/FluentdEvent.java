@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.msgpack.packer.Packer;
+
+/**
+ * The part of a log record sent to fluentd, captured on the logging thread.
+ */
+final class FluentdEvent {
+
+    static FluentdEvent of(ExtLogRecord record) {
+        return new FluentdEvent(record);
+    }
+
+    private FluentdEvent(ExtLogRecord record) {
+        this.time = TimeUnit.MILLISECONDS.toSeconds(record.getMillis());
+        this.sequence = record.getSequenceNumber();
+        this.level = record.getLevel();
+        this.threadName = record.getThreadName();
+        this.message = record.getFormattedMessage();
+        this.threadId = record.getThreadID();
+        this.mdc = record.getMdcCopy();
+        this.ndc = record.getNdc();
+    }
+
+    /**
+     * @return the event time in seconds since the epoch
+     */
+    long time() {
+        return this.time;
+    }
+
+    Level level() {
+        return this.level;
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> entries = new HashMap<>();
+        entries.put(FluentdHandler.Key.SEQUENCE.getKey(), this.sequence);
+        entries.put(FluentdHandler.Key.LEVEL.getKey(), this.level.getName());
+        entries.put(FluentdHandler.Key.THREAD_NAME.getKey(), this.threadName);
+        entries.put(FluentdHandler.Key.MESSAGE.getKey(), this.message);
+        entries.put(FluentdHandler.Key.THREAD_ID.getKey(), this.threadId);
+        entries.put(FluentdHandler.Key.MDC.getKey(), this.mdc);
+        entries.put(FluentdHandler.Key.NDC.getKey(), this.ndc);
+        return entries;
+    }
+
+    /**
+     * Writes the {@code [time, record]} pair of a {@code Forward} mode message.
+     */
+    void writeTo(Packer packer) throws IOException {
+        packer.writeArrayBegin(2);
+        packer.write(this.time);
+        packer.writeMapBegin(7);
+        packer.write(FluentdHandler.Key.SEQUENCE.getKey()).write(this.sequence);
+        packer.write(FluentdHandler.Key.LEVEL.getKey()).write(this.level.getName());
+        write(packer.write(FluentdHandler.Key.THREAD_NAME.getKey()), this.threadName);
+        write(packer.write(FluentdHandler.Key.MESSAGE.getKey()), this.message);
+        packer.write(FluentdHandler.Key.THREAD_ID.getKey()).write(this.threadId);
+        packer.write(FluentdHandler.Key.MDC.getKey());
+        if (this.mdc == null) {
+            packer.writeNil();
+        } else {
+            packer.writeMapBegin(this.mdc.size());
+            for (Map.Entry<String, String> entry : this.mdc.entrySet()) {
+                write(packer.write(entry.getKey()), entry.getValue());
+            }
+            packer.writeMapEnd();
+        }
+        write(packer.write(FluentdHandler.Key.NDC.getKey()), this.ndc);
+        packer.writeMapEnd();
+        packer.writeArrayEnd();
+    }
+
+    private static void write(Packer packer, String value) throws IOException {
+        if (value == null) {
+            packer.writeNil();
+        } else {
+            packer.write(value);
+        }
+    }
+
+    private final long time;
+
+    private final long sequence;
+
+    private final Level level;
+
+    private final String threadName;
+
+    private final String message;
+
+    private final int threadId;
+
+    private final Map<String, String> mdc;
+
+    private final String ndc;
+
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+
+import org.msgpack.MessagePack;
+import org.msgpack.packer.Packer;
+import org.wildfly.swarm.fluentd.OverflowPolicy;
+
+/**
+ * Ships the records of an asynchronous {@link FluentdHandler}.
+ * <p>
+ * Logging threads only put records into a bounded {@link RecordBuffer}. A single background thread drains it and writes each batch as one MessagePack
+ * {@code Forward} mode message, {@code [tag, [[time, record], ...]]}, so a stalled fluentd never blocks a logging thread unless the
+ * {@link OverflowPolicy#BLOCK} policy asks for it. Records are only taken out of the buffer once fluentd is connected, and a batch that cannot be
+ * written is kept and sent again, so that while fluentd is down the records wait in the buffer and the overflow policy only applies once it is full.
+ * The connection is retried every {@link #RECONNECT_DELAY_MILLIS}.
+ * </p>
+ */
+class FluentdForwarder implements FluentdForwarderMXBean, Runnable {
+
+    static final int DEFAULT_QUEUE_SIZE = 8192;
+
+    static final int DEFAULT_BATCH_SIZE = 256;
+
+    static final int DEFAULT_SAMPLE_RATE = 10;
+
+    static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final long BLOCK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    FluentdForwarder(FluentdHandler handler, String hostname, int port, String tag, int queueSize, int batchSize, OverflowPolicy overflowPolicy,
+            int sampleRate) {
+        this.handler = handler;
+        this.address = new InetSocketAddress(hostname, port);
+        this.tag = tag;
+        this.buffer = new RecordBuffer<>(queueSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.sampleThreshold = this.buffer.capacity() - this.buffer.capacity() / 4;
+    }
+
+    void start() {
+        this.thread = new Thread(this, "fluentd-forwarder");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues the event according to the overflow policy.
+     *
+     * @return {@code false} if the event was dropped
+     */
+    boolean offer(FluentdEvent event) {
+        if (this.overflowPolicy == OverflowPolicy.SAMPLE && event.level().intValue() < Level.WARNING.intValue()
+                && this.buffer.size() >= this.sampleThreshold && this.sampled.incrementAndGet() % this.sampleRate != 0) {
+            this.dropped.increment();
+            return false;
+        }
+        while (!this.buffer.offer(event)) {
+            if (this.overflowPolicy != OverflowPolicy.BLOCK || this.closed) {
+                this.dropped.increment();
+                return false;
+            }
+            LockSupport.parkNanos(this, BLOCK_NANOS);
+        }
+        this.queued.increment();
+        return true;
+    }
+
+    /**
+     * Stops the background thread once the buffer has been drained or the timeout elapsed.
+     */
+    void close(long timeout, TimeUnit unit) throws InterruptedException {
+        this.closed = true;
+        Thread thread = this.thread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(unit.toMillis(timeout));
+        } else {
+            closeConnection();
+        }
+    }
+
+    @Override
+    public void run() {
+        List<FluentdEvent> batch = new ArrayList<>(this.batchSize);
+        while (true) {
+            if (batch.isEmpty() && this.buffer.size() == 0) {
+                if (this.closed) {
+                    break;
+                }
+                LockSupport.parkNanos(this, IDLE_NANOS);
+                continue;
+            }
+            Packer packer = connection();
+            if (packer == null) {
+                if (this.closed) {
+                    dropRemaining(batch);
+                    break;
+                }
+                long delay = this.nextConnectAttempt - System.currentTimeMillis();
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(Math.max(1, delay)));
+                continue;
+            }
+            if (batch.isEmpty()) {
+                this.buffer.drainTo(batch, this.batchSize);
+            }
+            if (send(packer, batch)) {
+                batch.clear();
+            }
+            this.unsent = batch.size();
+        }
+        closeConnection();
+    }
+
+    /**
+     * @return {@code false} if the batch could not be written and has to be sent again
+     */
+    private boolean send(Packer packer, List<FluentdEvent> batch) {
+        try {
+            packer.writeArrayBegin(2);
+            packer.write(this.tag);
+            packer.writeArrayBegin(batch.size());
+            for (FluentdEvent event : batch) {
+                event.writeTo(packer);
+            }
+            packer.writeArrayEnd();
+            packer.writeArrayEnd();
+            this.out.flush();
+            this.sent.add(batch.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            closeConnection();
+            this.nextConnectAttempt = System.currentTimeMillis() + RECONNECT_DELAY_MILLIS;
+            this.handler.reportFailure("Error sending records to fluentd", e, ErrorManager.WRITE_FAILURE);
+            return false;
+        }
+    }
+
+    /**
+     * Gives up on the records left when closing while fluentd is down.
+     */
+    private void dropRemaining(List<FluentdEvent> batch) {
+        long count = batch.size();
+        batch.clear();
+        while (this.buffer.poll() != null) {
+            count++;
+        }
+        this.dropped.add(count);
+        this.unsent = 0;
+    }
+
+    private Packer connection() {
+        if (this.packer == null) {
+            if (System.currentTimeMillis() < this.nextConnectAttempt) {
+                return null;
+            }
+            Socket socket = new Socket();
+            try {
+                socket.connect(this.address, CONNECT_TIMEOUT_MILLIS);
+                this.socket = socket;
+                this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+                this.packer = this.msgpack.createPacker(this.out);
+            } catch (IOException e) {
+                closeQuietly(socket);
+                this.nextConnectAttempt = System.currentTimeMillis() + RECONNECT_DELAY_MILLIS;
+                this.handler.reportFailure("Error connecting to fluentd at " + this.address, e, ErrorManager.OPEN_FAILURE);
+                return null;
+            }
+        }
+        return this.packer;
+    }
+
+    private void closeConnection() {
+        closeQuietly(this.socket);
+        this.socket = null;
+        this.out = null;
+        this.packer = null;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public long getQueuedRecords() {
+        return this.queued.sum();
+    }
+
+    @Override
+    public int getPendingRecords() {
+        return this.buffer.size() + this.unsent;
+    }
+
+    @Override
+    public long getDroppedRecords() {
+        return this.dropped.sum();
+    }
+
+    @Override
+    public long getSentRecords() {
+        return this.sent.sum();
+    }
+
+    @Override
+    public int getCapacity() {
+        return this.buffer.capacity();
+    }
+
+    private final FluentdHandler handler;
+
+    private final InetSocketAddress address;
+
+    private final String tag;
+
+    private final RecordBuffer<FluentdEvent> buffer;
+
+    private final int batchSize;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final int sampleRate;
+
+    private final int sampleThreshold;
+
+    private final AtomicInteger sampled = new AtomicInteger();
+
+    private final LongAdder queued = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final LongAdder sent = new LongAdder();
+
+    private final MessagePack msgpack = new MessagePack();
+
+    private volatile boolean closed;
+
+    private Thread thread;
+
+    private volatile int unsent;
+
+    // Only used by the background thread
+
+    private Socket socket;
+
+    private OutputStream out;
+
+    private Packer packer;
+
+    private long nextConnectAttempt;
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.fluentd.runtime;
+
+/**
+ * Counters of an asynchronous fluentd handler.
+ */
+public interface FluentdForwarderMXBean {
+
+    /**
+     * @return the number of records accepted into the buffer
+     */
+    long getQueuedRecords();
+
+    /**
+     * @return the number of records waiting to be sent
+     */
+    int getPendingRecords();
+
+    /**
+     * @return the number of records discarded because the buffer was full, sampled out, or left unsent when closing
+     */
+    long getDroppedRecords();
+
+    /**
+     * @return the number of records written to fluentd
+     */
+    long getSentRecords();
+
+    /**
+     * @return the capacity of the buffer
+     */
+    int getCapacity();
+
+}
@@ -1,15 +1,27 @@
 package org.wildfly.swarm.fluentd.runtime;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.ErrorManager;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.fluentd.logger.sender.RawSocketSender;
 import org.jboss.logmanager.ExtHandler;
 import org.jboss.logmanager.ExtLogRecord;
+import org.wildfly.swarm.fluentd.OverflowPolicy;
 
 /**
+ * Sends log records to fluentd.
+ * <p>
+ * By default every record is emitted on the logging thread. In asynchronous mode records are queued in a bounded buffer and sent in batches by a
+ * {@link FluentdForwarder}, whose counters are registered as an MBean named {@code org.wildfly.swarm.fluentd:type=FluentdHandler,name="<tag>"}.
+ * </p>
+ *
  * @author Heiko Braun
  * @since 14/11/2016
  */
@@ -61,9 +73,36 @@ public class FluentdHandler extends ExtHandler {
         this.tag = tag;
     }
 
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase(Locale.ENGLISH));
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
     @Override
     protected void doPublish(ExtLogRecord record) {
 
+        FluentdForwarder forwarder = this.forwarder;
+        if (forwarder != null) {
+            // Async mode does not take the handler lock once initialized
+            forwarder.offer(FluentdEvent.of(record));
+            return;
+        }
+
         synchronized (this) {
             if (!initialized) {
                 try {
@@ -76,24 +115,26 @@ public class FluentdHandler extends ExtHandler {
         }
 
         if (initialized) {
-            Map<String, Object> entries = new HashMap<>();
-
-            entries.put(Key.SEQUENCE.getKey(), record.getSequenceNumber());
-            entries.put(Key.LEVEL.getKey(), record.getLevel().getName());
-            entries.put(Key.THREAD_NAME.getKey(), record.getThreadName());
-            entries.put(Key.MESSAGE.getKey(), record.getFormattedMessage());
-            entries.put(Key.THREAD_ID.getKey(), record.getThreadID());
-            entries.put(Key.MDC.getKey(), record.getMdcCopy());
-            entries.put(Key.NDC.getKey(), record.getNdc());
-
-            this.sender.emit(this.tag, record.getMillis(), entries);
+            FluentdEvent event = FluentdEvent.of(record);
+            forwarder = this.forwarder;
+            if (forwarder != null) {
+                forwarder.offer(event);
+            } else {
+                this.sender.emit(this.tag, event.time(), event.toMap());
+            }
         }
 
     }
 
     private void initialize() {
         try {
-            this.sender = new RawSocketSender(hostname, port);
+            if (async) {
+                this.forwarder = new FluentdForwarder(this, hostname, port, tag, queueSize, batchSize, overflowPolicy, sampleRate);
+                this.forwarder.start();
+                registerMBean();
+            } else {
+                this.sender = new RawSocketSender(hostname, port);
+            }
             this.initialized = true;
             log.info("Connected to fluentd daemon");
         } catch (Throwable t) {
@@ -101,6 +142,32 @@ public class FluentdHandler extends ExtHandler {
         }
     }
 
+    private void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("org.wildfly.swarm.fluentd:type=FluentdHandler,name=" + ObjectName.quote(tag));
+            server.registerMBean(this.forwarder, name);
+            this.objectName = name;
+        } catch (JMException e) {
+            reportError("Error registering the fluentd handler MBean", e, ErrorManager.GENERIC_FAILURE);
+        }
+    }
+
+    private void unregisterMBean() {
+        if (this.objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(this.objectName);
+            } catch (JMException e) {
+                reportError("Error unregistering the fluentd handler MBean", e, ErrorManager.GENERIC_FAILURE);
+            }
+            this.objectName = null;
+        }
+    }
+
+    void reportFailure(String msg, Exception e, int code) {
+        reportError(msg, e, code);
+    }
+
     @Override
     public void flush() {
         // should not happen
@@ -113,6 +180,15 @@ public class FluentdHandler extends ExtHandler {
         synchronized (this) {
             safeClose(this.sender);
             this.sender = null;
+            if (this.forwarder != null) {
+                try {
+                    this.forwarder.close(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                unregisterMBean();
+                this.forwarder = null;
+            }
             this.initialized = false;
         }
     }
@@ -130,6 +206,8 @@ public class FluentdHandler extends ExtHandler {
 
     private static final java.util.logging.Logger log = Logger.getLogger("org.wildfly.swarm.fluentd");
 
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
     private String hostname;
 
     private int port;
@@ -140,4 +218,18 @@ public class FluentdHandler extends ExtHandler {
 
     private String tag;
 
+    private boolean async;
+
+    private int queueSize = FluentdForwarder.DEFAULT_QUEUE_SIZE;
+
+    private int batchSize = FluentdForwarder.DEFAULT_BATCH_SIZE;
+
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+    private int sampleRate = FluentdForwarder.DEFAULT_SAMPLE_RATE;
+
+    private volatile FluentdForwarder forwarder;
+
+    private ObjectName objectName;
+
 }
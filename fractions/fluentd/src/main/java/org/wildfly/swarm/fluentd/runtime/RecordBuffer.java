@@ -0,0 +1,124 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer.
+ * <p>
+ * Every slot carries a sequence number telling producers and consumers whose turn it is, so that neither side ever takes a lock: a producer claims a
+ * slot by moving the tail with a CAS, fills it and publishes it by advancing the slot's sequence. The capacity is rounded up to a power of two.
+ * </p>
+ */
+final class RecordBuffer<E> {
+
+    RecordBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return {@code false} if the buffer is full
+     */
+    boolean offer(E element) {
+        while (true) {
+            long tail = this.tail.get();
+            int index = (int) tail & this.mask;
+            long diff = this.sequences.get(index) - tail;
+            if (diff == 0) {
+                if (this.tail.compareAndSet(tail, tail + 1)) {
+                    this.elements.lazySet(index, element);
+                    this.sequences.set(index, tail + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            // Another producer claimed the slot first
+        }
+    }
+
+    /**
+     * @return the oldest element or {@code null} if the buffer is empty
+     */
+    E poll() {
+        while (true) {
+            long head = this.head.get();
+            int index = (int) head & this.mask;
+            long diff = this.sequences.get(index) - (head + 1);
+            if (diff == 0) {
+                if (this.head.compareAndSet(head, head + 1)) {
+                    E element = this.elements.get(index);
+                    this.elements.lazySet(index, null);
+                    this.sequences.set(index, head + this.mask + 1);
+                    return element;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code max} elements to the given list.
+     *
+     * @return the number of elements moved
+     */
+    int drainTo(List<? super E> target, int max) {
+        int count = 0;
+        E element;
+        while (count < max && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    int size() {
+        long size = this.tail.get() - this.head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    int capacity() {
+        return this.mask + 1;
+    }
+
+    private final int mask;
+
+    private final AtomicReferenceArray<E> elements;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final AtomicLong tail = new AtomicLong();
+
+}
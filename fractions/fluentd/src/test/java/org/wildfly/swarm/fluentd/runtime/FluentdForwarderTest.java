@@ -0,0 +1,226 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.fluentd.runtime;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.jboss.logmanager.ExtLogRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.msgpack.MessagePack;
+import org.msgpack.type.ArrayValue;
+import org.msgpack.type.MapValue;
+import org.msgpack.type.Value;
+import org.msgpack.type.ValueFactory;
+import org.msgpack.unpacker.Unpacker;
+import org.wildfly.swarm.fluentd.OverflowPolicy;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class FluentdForwarderTest {
+
+    @Before
+    public void startFluentd() throws IOException {
+        listen(new ServerSocket(0));
+    }
+
+    private void listen(ServerSocket fluentd) {
+        this.fluentd = fluentd;
+        Thread acceptor = new Thread(() -> {
+            try (Socket socket = this.fluentd.accept()) {
+                Unpacker unpacker = new MessagePack().createUnpacker(socket.getInputStream());
+                while (true) {
+                    this.messages.add(unpacker.readValue().asArrayValue());
+                }
+            } catch (IOException ignored) {
+                // Closed
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void stopFluentd() throws IOException {
+        this.fluentd.close();
+    }
+
+    @Test
+    public void testSendsForwardModeBatches() throws Exception {
+        FluentdForwarder forwarder = forwarder(16, 4, OverflowPolicy.DROP);
+        for (int i = 0; i < 10; i++) {
+            assertThat(forwarder.offer(event(Level.INFO, "message " + i))).isTrue();
+        }
+        forwarder.start();
+
+        List<Value> entries = receive(10);
+        assertThat(entries).hasSize(10);
+        ArrayValue first = entries.get(0).asArrayValue();
+        assertThat(first.get(0).asIntegerValue().getLong()).isGreaterThan(0L);
+        MapValue record = first.get(1).asMapValue();
+        assertThat(record.get(ValueFactory.createRawValue("message")).asRawValue().getString()).isEqualTo("message 0");
+        assertThat(record.get(ValueFactory.createRawValue("level")).asRawValue().getString()).isEqualTo("INFO");
+
+        forwarder.close(5, TimeUnit.SECONDS);
+        assertThat(forwarder.getQueuedRecords()).isEqualTo(10);
+        assertThat(forwarder.getSentRecords()).isEqualTo(10);
+        assertThat(forwarder.getDroppedRecords()).isEqualTo(0);
+    }
+
+    @Test
+    public void testDropPolicyCountsDroppedRecords() throws Exception {
+        FluentdForwarder forwarder = forwarder(4, 256, OverflowPolicy.DROP);
+        for (int i = 0; i < 6; i++) {
+            forwarder.offer(event(Level.INFO, "message " + i));
+        }
+        assertThat(forwarder.getPendingRecords()).isEqualTo(4);
+        assertThat(forwarder.getQueuedRecords()).isEqualTo(4);
+        assertThat(forwarder.getDroppedRecords()).isEqualTo(2);
+
+        forwarder.start();
+        List<Value> entries = receive(4);
+        assertThat(entries).hasSize(4);
+        assertThat(entries.get(3).asArrayValue().get(1).asMapValue().get(ValueFactory.createRawValue("message")).asRawValue().getString())
+                .isEqualTo("message 3");
+        forwarder.close(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSamplePolicyKeepsWarnings() throws Exception {
+        FluentdForwarder forwarder = forwarder(8, 256, OverflowPolicy.SAMPLE);
+        for (int i = 0; i < 26; i++) {
+            forwarder.offer(event(Level.INFO, "message " + i));
+        }
+        // 6 queued until the buffer is three quarters full, then 1 out of 10
+        assertThat(forwarder.getQueuedRecords()).isEqualTo(8);
+        assertThat(forwarder.getDroppedRecords()).isEqualTo(18);
+        forwarder.close(5, TimeUnit.SECONDS);
+
+        forwarder = forwarder(8, 256, OverflowPolicy.SAMPLE);
+        for (int i = 0; i < 10; i++) {
+            forwarder.offer(event(Level.WARNING, "warning " + i));
+        }
+        assertThat(forwarder.getQueuedRecords()).isEqualTo(8);
+        assertThat(forwarder.getDroppedRecords()).isEqualTo(2);
+        forwarder.close(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testBlockPolicyWaitsForRoom() throws Exception {
+        FluentdForwarder forwarder = forwarder(2, 256, OverflowPolicy.BLOCK);
+        forwarder.offer(event(Level.INFO, "message 0"));
+        forwarder.offer(event(Level.INFO, "message 1"));
+
+        CountDownLatch offered = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            forwarder.offer(event(Level.INFO, "message 2"));
+            offered.countDown();
+        });
+        producer.start();
+        assertThat(offered.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        forwarder.start();
+        assertThat(offered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(receive(3)).hasSize(3);
+        forwarder.close(5, TimeUnit.SECONDS);
+        assertThat(forwarder.getDroppedRecords()).isEqualTo(0);
+    }
+
+    @Test
+    public void testKeepsRecordsWhileFluentdIsDown() throws Exception {
+        int port = this.fluentd.getLocalPort();
+        this.fluentd.close();
+        FluentdForwarder forwarder = forwarder(4, 256, OverflowPolicy.DROP);
+        forwarder.start();
+        for (int i = 0; i < 6; i++) {
+            forwarder.offer(event(Level.INFO, "message " + i));
+        }
+        // Only the records that did not fit in the buffer are dropped
+        Thread.sleep(200);
+        assertThat(forwarder.getPendingRecords()).isEqualTo(4);
+        assertThat(forwarder.getDroppedRecords()).isEqualTo(2);
+
+        ServerSocket fluentd = new ServerSocket();
+        fluentd.setReuseAddress(true);
+        fluentd.bind(new InetSocketAddress("localhost", port));
+        listen(fluentd);
+        List<Value> entries = receive(4);
+        assertThat(entries).hasSize(4);
+        assertThat(entries.get(0).asArrayValue().get(1).asMapValue().get(ValueFactory.createRawValue("message")).asRawValue().getString())
+                .isEqualTo("message 0");
+        forwarder.close(5, TimeUnit.SECONDS);
+        assertThat(forwarder.getSentRecords()).isEqualTo(4);
+        assertThat(forwarder.getDroppedRecords()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRecordBufferWrapsAround() {
+        RecordBuffer<Integer> buffer = new RecordBuffer<>(3);
+        assertThat(buffer.capacity()).isEqualTo(4);
+        List<Integer> drained = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+            assertThat(buffer.offer(100 + i)).isTrue();
+            buffer.drainTo(drained, 2);
+        }
+        assertThat(buffer.size()).isEqualTo(0);
+        assertThat(buffer.poll()).isNull();
+        assertThat(drained).hasSize(20);
+        assertThat(drained.get(19)).isEqualTo(109);
+    }
+
+    private FluentdForwarder forwarder(int queueSize, int batchSize, OverflowPolicy policy) {
+        return new FluentdForwarder(new FluentdHandler(), "localhost", this.fluentd.getLocalPort(), "test", queueSize, batchSize, policy,
+                FluentdForwarder.DEFAULT_SAMPLE_RATE);
+    }
+
+    private static FluentdEvent event(Level level, String message) {
+        ExtLogRecord record = new ExtLogRecord(level, message, FluentdForwarderTest.class.getName());
+        record.setThreadName(Thread.currentThread().getName());
+        return FluentdEvent.of(record);
+    }
+
+    /**
+     * @return the {@code [time, record]} entries of the received {@code Forward} mode messages
+     */
+    private List<Value> receive(int count) throws InterruptedException {
+        List<Value> entries = new ArrayList<>();
+        while (entries.size() < count) {
+            ArrayValue message = this.messages.poll(5, TimeUnit.SECONDS);
+            if (message == null) {
+                break;
+            }
+            assertThat(message.get(0).asRawValue().getString()).isEqualTo("test");
+            entries.addAll(message.get(1).asArrayValue());
+        }
+        return entries;
+    }
+
+    private ServerSocket fluentd;
+
+    private final LinkedBlockingQueue<ArrayValue> messages = new LinkedBlockingQueue<>();
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.jboss.logging.Logger;
+
+/**
+ * Retries an {@link org.eclipse.microprofile.faulttolerance.Asynchronous} operation without blocking a thread between the attempts.
+ * <p>
+ * Each attempt is started by the given supplier and must not block the caller. After a failed attempt, the shared {@link FaultToleranceTimer} hands the
+ * next one over to the executor once the retry delay elapses. The returned future completes with the result of the first successful attempt, or with
+ * the outcome of the recovery once no more retries are allowed. The recovery runs on the executor too, so that a blocking fallback never holds the timer
+ * thread or the thread which completed the last attempt. Cancelling the returned future prevents further attempts.
+ * </p>
+ */
+class AsyncRetry {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncRetry.class);
+
+    static CompletableFuture<Object> execute(RetryContext retryContext, FaultToleranceTimer timer, Executor executor,
+            Supplier<CompletionStage<Object>> attempt, Recovery recovery) {
+        AsyncRetry retry = new AsyncRetry(retryContext, timer, executor, attempt, recovery);
+        retry.run();
+        return retry.result;
+    }
+
+    /**
+     * Complete the given future with the outcome of a result of an {@link org.eclipse.microprofile.faulttolerance.Asynchronous} method without blocking
+     * the calling thread. A {@link CompletionStage} is chained, any other {@link Future} is awaited on the executor.
+     */
+    @SuppressWarnings("unchecked")
+    static void completeWith(CompletableFuture<Object> future, Object result, Executor executor) {
+        if (result instanceof CompletionStage) {
+            ((CompletionStage<Object>) result).whenComplete((value, failure) -> {
+                if (failure == null) {
+                    future.complete(value);
+                } else {
+                    future.completeExceptionally(unwrap(failure));
+                }
+            });
+        } else if (result instanceof Future) {
+            if (((Future<?>) result).isDone()) {
+                await(future, (Future<Object>) result);
+                return;
+            }
+            try {
+                executor.execute(() -> await(future, (Future<Object>) result));
+            } catch (RejectedExecutionException e) {
+                // The application is shutting down
+                future.completeExceptionally(e);
+            }
+        } else {
+            future.completeExceptionally(new IllegalStateException("A result of an @Asynchronous call must be Future: " + result));
+        }
+    }
+
+    private static void await(CompletableFuture<Object> future, Future<Object> result) {
+        try {
+            future.complete(result.get());
+        } catch (ExecutionException e) {
+            future.completeExceptionally(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private AsyncRetry(RetryContext retryContext, FaultToleranceTimer timer, Executor executor, Supplier<CompletionStage<Object>> attempt,
+            Recovery recovery) {
+        this.retryContext = retryContext;
+        this.timer = timer;
+        this.executor = executor;
+        this.attempt = attempt;
+        this.recovery = recovery;
+        this.result = new CompletableFuture<>();
+    }
+
+    private void run() {
+        if (result.isDone()) {
+            // Cancelled
+            return;
+        }
+        CompletionStage<Object> stage;
+        try {
+            stage = attempt.get();
+        } catch (RuntimeException e) {
+            stage = failed(e);
+        }
+        stage.whenComplete(this::onAttemptCompleted);
+    }
+
+    private void onAttemptCompleted(Object value, Throwable failure) {
+        if (failure == null) {
+            result.complete(value);
+            return;
+        }
+        Throwable cause = unwrap(failure);
+        if (!(cause instanceof Exception)) {
+            result.completeExceptionally(cause);
+            return;
+        }
+        Exception exception = (Exception) cause;
+        if (!(exception instanceof CircuitBreakerOpenException) && retryContext.shouldRetry()) {
+            // Decrement the retry count for this attempt
+            retryContext.doRetry();
+            if (retryContext.shouldRetryOn(exception, System.nanoTime())) {
+                long delay = retryContext.nextDelay();
+                LOGGER.tracef("Retrying async operation in %s ms after %s", delay, exception);
+                if (delay <= 0) {
+                    run();
+                    return;
+                }
+                try {
+                    timer.schedule(() -> runOnExecutor(exception), delay, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // The application is shutting down
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        recover(exception);
+    }
+
+    private void runOnExecutor(Exception previous) {
+        try {
+            executor.execute(this::run);
+        } catch (RejectedExecutionException e) {
+            // The application is shutting down
+            previous.addSuppressed(e);
+            result.completeExceptionally(previous);
+        }
+    }
+
+    private void recover(Exception exception) {
+        try {
+            executor.execute(() -> {
+                try {
+                    recovery.recover(exception).whenComplete((value, failure) -> {
+                        if (failure == null) {
+                            result.complete(value);
+                        } else {
+                            result.completeExceptionally(unwrap(failure));
+                        }
+                    });
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The application is shutting down
+            exception.addSuppressed(e);
+            result.completeExceptionally(exception);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        if ((failure instanceof CompletionException || failure instanceof ExecutionException) && failure.getCause() != null) {
+            return failure.getCause();
+        }
+        return failure;
+    }
+
+    static CompletionStage<Object> failed(Throwable failure) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    private final RetryContext retryContext;
+
+    private final FaultToleranceTimer timer;
+
+    private final Executor executor;
+
+    private final Supplier<CompletionStage<Object>> attempt;
+
+    private final Recovery recovery;
+
+    private final CompletableFuture<Object> result;
+
+    interface Recovery {
+
+        /**
+         *
+         * @param failure the failure of the last attempt
+         * @return the stage completed with the result, e.g. of a fallback
+         * @throws Exception
+         */
+        CompletionStage<Object> recover(Exception failure) throws Exception;
+
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.security.PrivilegedActionException;
+
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.Unmanaged;
+
+import org.eclipse.microprofile.faulttolerance.Fallback;
+import org.eclipse.microprofile.faulttolerance.FallbackHandler;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.FallbackConfig;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.FaultToleranceOperation;
+
+/**
+ * Invokes the fallback of a fault tolerance operation, either a {@link FallbackHandler} or a fallback method.
+ */
+class FallbackInvoker {
+
+    /**
+     *
+     * @param beanManager
+     * @param method
+     * @param operation
+     * @return the invoker or {@code null} if the operation does not define a fallback
+     */
+    static FallbackInvoker of(BeanManager beanManager, Method method, FaultToleranceOperation operation) {
+        if (!operation.hasFallback()) {
+            return null;
+        }
+        FallbackConfig fallbackConfig = operation.getFallback();
+        if (!fallbackConfig.get(FallbackConfig.VALUE).equals(Fallback.DEFAULT.class)) {
+            Unmanaged<FallbackHandler<?>> unmanaged = new Unmanaged<>(beanManager, fallbackConfig.get(FallbackConfig.VALUE));
+            return new FallbackInvoker(unmanaged, null);
+        }
+        String fallbackMethodName = fallbackConfig.get(FallbackConfig.FALLBACK_METHOD);
+        if ("".equals(fallbackMethodName)) {
+            return null;
+        }
+        try {
+            Method fallbackMethod = SecurityActions.getDeclaredMethod(method.getDeclaringClass(), fallbackMethodName, method.getParameterTypes());
+            SecurityActions.setAccessible(fallbackMethod);
+            return new FallbackInvoker(null, fallbackMethod);
+        } catch (NoSuchMethodException | PrivilegedActionException e) {
+            throw new FaultToleranceException("Could not obtain fallback method", e);
+        }
+    }
+
+    private FallbackInvoker(Unmanaged<FallbackHandler<?>> unmanaged, Method fallbackMethod) {
+        this.unmanaged = unmanaged;
+        this.fallbackMethod = fallbackMethod;
+    }
+
+    Object invoke(ExecutionContextWithInvocationContext ctx) {
+        if (unmanaged != null) {
+            Unmanaged.UnmanagedInstance<FallbackHandler<?>> unmanagedInstance = unmanaged.newInstance();
+            FallbackHandler<?> handler = unmanagedInstance.produce().inject().postConstruct().get();
+            try {
+                return handler.handle(ctx);
+            } finally {
+                // The instance exists to service a single invocation only
+                unmanagedInstance.preDestroy().dispose();
+            }
+        }
+        try {
+            return fallbackMethod.invoke(ctx.getTarget(), ctx.getParameters());
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new FaultToleranceException("Error during fallback method invocation", e);
+        }
+    }
+
+    private final Unmanaged<FallbackHandler<?>> unmanaged;
+
+    private final Method fallbackMethod;
+
+}
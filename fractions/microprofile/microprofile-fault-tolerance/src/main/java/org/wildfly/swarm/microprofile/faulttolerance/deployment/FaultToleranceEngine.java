@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import javax.interceptor.InvocationContext;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.FaultToleranceOperation;
+
+/**
+ * Executes fault tolerance operations without Hystrix. Used instead of Hystrix commands if {@link HystrixCommandInterceptor#ENGINE_KEY} is set to
+ * {@value HystrixCommandInterceptor#NATIVE_ENGINE}.
+ *
+ * @see GuardedOperation
+ */
+@ApplicationScoped
+class FaultToleranceEngine {
+
+    private static final Logger LOGGER = Logger.getLogger(FaultToleranceEngine.class);
+
+    @Inject
+    BeanManager beanManager;
+
+    @Inject
+    FaultToleranceTimer timer;
+
+    @Inject
+    FaultToleranceExecutor executor;
+
+    @Inject
+    @ConfigProperty(name = "MP_Fault_Tolerance_NonFallback_Enabled", defaultValue = "true")
+    Boolean nonFallbackEnabled;
+
+    @PostConstruct
+    void init() {
+        LOGGER.info("MicroProfile: Fault Tolerance native engine used");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        operations.values().forEach(GuardedOperation::shutdown);
+        operations.clear();
+    }
+
+    Object execute(InvocationContext ic) throws Exception {
+        Method method = ic.getMethod();
+        GuardedOperation operation = operations.get(method);
+        if (operation == null) {
+            operation = operations.computeIfAbsent(method, this::createOperation);
+        }
+        return operation.invoke(ic);
+    }
+
+    private GuardedOperation createOperation(Method method) {
+        HystrixExtension extension = beanManager.getExtension(HystrixExtension.class);
+        FaultToleranceOperation operation = HystrixExtension.getFaultToleranceOperation(extension, method);
+        LOGGER.debugf("Create guarded operation for %s", operation);
+        return new GuardedOperation(method, operation, FallbackInvoker.of(beanManager, method, operation), nonFallbackEnabled, timer,
+                executor.getExecutorService(), executor.getThreadFactory());
+    }
+
+    private final ConcurrentMap<Method, GuardedOperation> operations = new ConcurrentHashMap<>();
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A thread pool shared by all asynchronous fault tolerance operations of a deployment. It runs the attempts of native engine operations without a
+ * bulkhead, and the fallbacks of asynchronous retries, which may block and therefore never run on the {@link FaultToleranceTimer} thread.
+ */
+@ApplicationScoped
+class FaultToleranceExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger(FaultToleranceExecutor.class);
+
+    @Resource(lookup = "java:comp/DefaultManagedThreadFactory")
+    ThreadFactory threadFactory;
+
+    @PostConstruct
+    void init() {
+        if (threadFactory == null) {
+            // Not running in an EE container
+            LOGGER.debug("No managed thread factory available, using the default thread factory");
+            threadFactory = Executors.defaultThreadFactory();
+        }
+        executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 1, TimeUnit.MINUTES, new SynchronousQueue<>(), threadFactory);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    ExecutorService getExecutorService() {
+        return executor;
+    }
+
+    ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    private ThreadPoolExecutor executor;
+
+}
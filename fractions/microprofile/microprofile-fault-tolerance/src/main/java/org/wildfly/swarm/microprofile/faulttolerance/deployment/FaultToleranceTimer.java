@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+
+/**
+ * A single timer thread shared by all fault tolerance operations of a deployment. Scheduled tasks must be short - they only interrupt a timed out
+ * invocation or hand the next retry attempt over to an executor.
+ */
+@ApplicationScoped
+class FaultToleranceTimer {
+
+    @PostConstruct
+    void init() {
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "fault-tolerance-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most timeouts are cancelled, do not let them pile up in the queue
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return executor.schedule(task, delay, unit);
+    }
+
+    private ScheduledThreadPoolExecutor executor;
+
+}
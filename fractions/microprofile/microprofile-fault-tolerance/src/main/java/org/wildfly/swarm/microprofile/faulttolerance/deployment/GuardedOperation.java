@@ -0,0 +1,336 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.interceptor.InvocationContext;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.jboss.logging.Logger;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.BulkheadConfig;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.FaultToleranceOperation;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.RetryConfig;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.TimeoutConfig;
+
+/**
+ * A fault tolerance operation executed by the {@link FaultToleranceEngine}. An instance is shared by all invocations of a method and holds its circuit
+ * breaker and bulkhead.
+ * <p>
+ * The policies are applied in the following order: fallback, retry, circuit breaker, bulkhead, timeout. Synchronous invocations never leave the calling
+ * thread - a timeout interrupts the caller from the shared {@link FaultToleranceTimer}. {@link org.eclipse.microprofile.faulttolerance.Asynchronous}
+ * invocations run on the thread pool of their bulkhead, or on the shared pool if there is none. Their retries are scheduled by {@link AsyncRetry}.
+ * </p>
+ */
+class GuardedOperation {
+
+    private static final Logger LOGGER = Logger.getLogger(GuardedOperation.class);
+
+    GuardedOperation(Method method, FaultToleranceOperation operation, FallbackInvoker fallback, boolean nonFallbackEnabled,
+            FaultToleranceTimer timer, ExecutorService asyncExecutor, ThreadFactory threadFactory) {
+        this.name = method.getName();
+        this.async = operation.isAsync();
+        this.fallback = fallback;
+        this.timer = timer;
+        this.asyncExecutor = asyncExecutor;
+
+        if (nonFallbackEnabled && operation.hasRetry()) {
+            this.retry = operation.getRetry();
+        } else {
+            this.retry = null;
+        }
+        if (nonFallbackEnabled && operation.hasCircuitBreaker()) {
+            this.circuitBreaker = LockFreeCircuitBreaker.of(operation.getCircuitBreaker());
+        } else {
+            this.circuitBreaker = null;
+        }
+        if (nonFallbackEnabled && operation.hasTimeout()) {
+            this.timeoutNanos = Duration.of(operation.getTimeout().get(TimeoutConfig.VALUE), operation.getTimeout().get(TimeoutConfig.UNIT)).toNanos();
+        } else {
+            this.timeoutNanos = 0;
+        }
+
+        if (nonFallbackEnabled && operation.hasBulkhead()) {
+            int value = operation.getBulkhead().get(BulkheadConfig.VALUE);
+            if (async) {
+                // Each bulkhead policy needs a dedicated thread pool
+                int waitingTaskQueue = operation.getBulkhead().get(BulkheadConfig.WAITING_TASK_QUEUE);
+                BlockingQueue<Runnable> queue = waitingTaskQueue > 0 ? new ArrayBlockingQueue<>(waitingTaskQueue) : new SynchronousQueue<>();
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(value, value, 1, TimeUnit.MINUTES, queue, threadFactory);
+                pool.allowCoreThreadTimeOut(true);
+                this.executor = pool;
+                this.ownsExecutor = true;
+                this.bulkhead = null;
+            } else {
+                this.executor = asyncExecutor;
+                this.ownsExecutor = false;
+                this.bulkhead = new Semaphore(value);
+            }
+        } else {
+            this.executor = asyncExecutor;
+            this.ownsExecutor = false;
+            this.bulkhead = null;
+        }
+    }
+
+    Object invoke(InvocationContext ic) throws Exception {
+        if (!async) {
+            return execute(ic);
+        }
+        if (retry != null) {
+            return AsyncRetry.execute(new RetryContext(retry), timer, asyncExecutor, () -> submit(ic), e -> fallbackAsync(ic, e));
+        }
+        FutureTask<Object> task = new FutureTask<>(() -> execute(ic));
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOGGER.tracef("Bulkhead rejected async execution of %s", name);
+            return CompletableFuture.completedFuture(fallbackOrThrow(ic, new BulkheadException(e)));
+        }
+        return task;
+    }
+
+    void shutdown() {
+        if (ownsExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    LockFreeCircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Submit a single attempt of an asynchronous invocation.
+     */
+    private CompletionStage<Object> submit(InvocationContext ic) {
+        CompletableFuture<Object> attempt = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    attempt.complete(attempt(ic));
+                } catch (Throwable t) {
+                    attempt.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.tracef("Bulkhead rejected async execution of %s", name);
+            attempt.completeExceptionally(new BulkheadException(e));
+        }
+        return attempt;
+    }
+
+    private Object execute(InvocationContext ic) throws Exception {
+        RetryContext retryContext = retry != null ? new RetryContext(retry) : null;
+        while (true) {
+            try {
+                return attempt(ic);
+            } catch (CircuitBreakerOpenException e) {
+                return fallbackOrThrow(ic, e);
+            } catch (Exception e) {
+                if (retryContext != null && retryContext.shouldRetry()) {
+                    // Decrement the retry count for this attempt
+                    retryContext.doRetry();
+                    if (retryContext.shouldRetryOn(e, System.nanoTime())) {
+                        LOGGER.tracef("Retrying %s after %s", name, e);
+                        retryContext.delayIfNeeded();
+                        continue;
+                    }
+                }
+                return fallbackOrThrow(ic, e);
+            }
+        }
+    }
+
+    private Object attempt(InvocationContext ic) throws Exception {
+        if (circuitBreaker == null) {
+            return guard(ic);
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            throw new CircuitBreakerOpenException(name);
+        }
+        try {
+            Object result = guard(ic);
+            circuitBreaker.recordSuccess();
+            return result;
+        } catch (Throwable t) {
+            circuitBreaker.recordFailure(t);
+            throw t;
+        }
+    }
+
+    private Object guard(InvocationContext ic) throws Exception {
+        if (bulkhead == null) {
+            return proceed(ic);
+        }
+        if (!bulkhead.tryAcquire()) {
+            throw new BulkheadException("Bulkhead of " + name + " is full");
+        }
+        try {
+            return proceed(ic);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private Object proceed(InvocationContext ic) throws Exception {
+        if (timeoutNanos <= 0) {
+            return call(ic);
+        }
+        Interruption interruption = new Interruption(Thread.currentThread());
+        ScheduledFuture<?> interrupt = timer.schedule(interruption, timeoutNanos, TimeUnit.NANOSECONDS);
+        Object result = null;
+        Exception failure = null;
+        boolean completed;
+        try {
+            result = call(ic);
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            completed = interruption.complete();
+            interrupt.cancel(false);
+        }
+        if (!completed) {
+            throw new TimeoutException(name + " timed out", failure);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    private Object call(InvocationContext ic) throws Exception {
+        Object result = ic.proceed();
+        return async ? unwrap(result) : result;
+    }
+
+    private Object fallbackOrThrow(InvocationContext ic, Exception e) throws Exception {
+        if (fallback == null) {
+            throw e;
+        }
+        LOGGER.tracef("Invoking fallback of %s after %s", name, e);
+        Object result = fallback.invoke(new ExecutionContextWithInvocationContext(ic));
+        return async ? unwrap(result) : result;
+    }
+
+    private CompletionStage<Object> fallbackAsync(InvocationContext ic, Exception e) throws Exception {
+        if (fallback == null) {
+            throw e;
+        }
+        LOGGER.tracef("Invoking fallback of %s after %s", name, e);
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        AsyncRetry.completeWith(result, fallback.invoke(new ExecutionContextWithInvocationContext(ic)), asyncExecutor);
+        return result;
+    }
+
+    private static Object unwrap(Object result) throws Exception {
+        if (!(result instanceof Future)) {
+            throw new IllegalStateException("A result of an @Asynchronous call must be Future: " + result);
+        }
+        try {
+            return ((Future<?>) result).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private final String name;
+
+    private final boolean async;
+
+    private final FallbackInvoker fallback;
+
+    private final RetryConfig retry;
+
+    private final LockFreeCircuitBreaker circuitBreaker;
+
+    private final Semaphore bulkhead;
+
+    private final long timeoutNanos;
+
+    private final FaultToleranceTimer timer;
+
+    private final ExecutorService executor;
+
+    private final ExecutorService asyncExecutor;
+
+    private final boolean ownsExecutor;
+
+    /**
+     * Interrupts the invoking thread unless the invocation completes first.
+     */
+    private static final class Interruption extends AtomicInteger implements Runnable {
+
+        private static final int RUNNING = 0;
+
+        private static final int INTERRUPTING = 1;
+
+        private static final int INTERRUPTED = 2;
+
+        private static final int COMPLETED = 3;
+
+        private final Thread thread;
+
+        Interruption(Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public void run() {
+            if (compareAndSet(RUNNING, INTERRUPTING)) {
+                thread.interrupt();
+                set(INTERRUPTED);
+            }
+        }
+
+        /**
+         *
+         * @return {@code true} if the invocation completed in time, {@code false} if the thread was interrupted
+         */
+        boolean complete() {
+            if (compareAndSet(RUNNING, COMPLETED)) {
+                return true;
+            }
+            while (get() != INTERRUPTED) {
+                Thread.yield();
+            }
+            // Clear the interrupt we raised
+            Thread.interrupted();
+            return false;
+        }
+    }
+
+}
@@ -17,20 +17,20 @@
 package org.wildfly.swarm.microprofile.faulttolerance.deployment;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.security.PrivilegedActionException;
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import javax.annotation.Priority;
 import javax.enterprise.inject.spi.BeanManager;
-import javax.enterprise.inject.spi.Unmanaged;
 import javax.inject.Inject;
 import javax.interceptor.AroundInvoke;
 import javax.interceptor.Interceptor;
@@ -38,16 +38,12 @@ import javax.interceptor.InvocationContext;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
-import org.eclipse.microprofile.faulttolerance.Fallback;
-import org.eclipse.microprofile.faulttolerance.FallbackHandler;
 import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
 import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
-import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
 import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
 import org.jboss.logging.Logger;
 import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.BulkheadConfig;
 import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.CircuitBreakerConfig;
-import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.FallbackConfig;
 import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.FaultToleranceOperation;
 import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.TimeoutConfig;
 
@@ -81,16 +77,37 @@ public class HystrixCommandInterceptor {
      */
     public static final String SYNC_CIRCUIT_BREAKER_KEY = "org_wildfly_swarm_microprofile_faulttolerance_syncCircuitBreaker";
 
+    /**
+     * This config property key can be used to select the engine executing fault tolerance operations. By default, each invocation is executed as a Hystrix
+     * command. If set to {@value #NATIVE_ENGINE}, the operations are executed by a built-in engine instead: synchronous invocations stay on the calling
+     * thread, bulkheads are semaphores and circuit breakers are lock-free. Hystrix specific configuration does not apply in that case.
+     *
+     * @see FaultToleranceEngine
+     */
+    public static final String ENGINE_KEY = "org_wildfly_swarm_microprofile_faulttolerance_engine";
+
+    public static final String NATIVE_ENGINE = "native";
+
     private static final Logger LOGGER = Logger.getLogger(HystrixCommandInterceptor.class);
 
     @SuppressWarnings("unchecked")
     @Inject
-    public HystrixCommandInterceptor(@ConfigProperty(name = "MP_Fault_Tolerance_NonFallback_Enabled", defaultValue = "true") Boolean nonFallBackEnable,  @ConfigProperty(name = SYNC_CIRCUIT_BREAKER_KEY, defaultValue = "true") Boolean syncCircuitBreakerEnabled, BeanManager beanManager) {
+    public HystrixCommandInterceptor(@ConfigProperty(name = "MP_Fault_Tolerance_NonFallback_Enabled", defaultValue = "true") Boolean nonFallBackEnable,  @ConfigProperty(name = SYNC_CIRCUIT_BREAKER_KEY, defaultValue = "true") Boolean syncCircuitBreakerEnabled,
+            @ConfigProperty(name = ENGINE_KEY, defaultValue = "hystrix") String engine, BeanManager beanManager, FaultToleranceEngine nativeEngine,
+            FaultToleranceTimer timer, FaultToleranceExecutor executor) {
         this.nonFallBackEnable = nonFallBackEnable;
+        this.timer = timer;
+        this.executor = executor;
         this.syncCircuitBreakerEnabled = syncCircuitBreakerEnabled;
         this.beanManager = beanManager;
         this.extension = beanManager.getExtension(HystrixExtension.class);
         this.commandMetadataMap = new ConcurrentHashMap<>();
+        if (NATIVE_ENGINE.equalsIgnoreCase(engine)) {
+            this.nativeEngine = nativeEngine;
+            this.circuitBreakers = null;
+            return;
+        }
+        this.nativeEngine = null;
         // WORKAROUND: Hystrix does not allow to use custom HystrixCircuitBreaker impl
         // See also https://github.com/Netflix/Hystrix/issues/9
         try {
@@ -105,6 +122,10 @@ public class HystrixCommandInterceptor {
     @AroundInvoke
     public Object interceptCommand(InvocationContext ic) throws Exception {
 
+        if (nativeEngine != null) {
+            return nativeEngine.execute(ic);
+        }
+
         Method method = ic.getMethod();
         ExecutionContextWithInvocationContext ctx = new ExecutionContextWithInvocationContext(ic);
         boolean shouldRunCommand = true;
@@ -116,6 +137,10 @@ public class HystrixCommandInterceptor {
         RetryContext retryContext =  nonFallBackEnable && metadata.operation.hasRetry() ? new RetryContext(metadata.operation.getRetry()) : null;
         SynchronousCircuitBreaker syncCircuitBreaker = null;
 
+        if (retryContext != null && metadata.operation.isAsync()) {
+            return retryAsync(ctx, metadata, retryContext);
+        }
+
         while (shouldRunCommand) {
             shouldRunCommand = false;
 
@@ -181,6 +206,62 @@ public class HystrixCommandInterceptor {
         return res;
     }
 
+    /**
+     * Execute an asynchronous operation with retries. Each attempt is a Hystrix command observed without blocking. Failed attempts are rescheduled on the
+     * {@link FaultToleranceTimer} so that no thread sleeps through the retry delay, the fallback and the results which are not a
+     * {@link CompletionStage} are awaited on the {@link FaultToleranceExecutor}.
+     */
+    private Future<Object> retryAsync(ExecutionContextWithInvocationContext ctx, CommandMetadata metadata, RetryContext retryContext) {
+        Method method = ctx.getMethod();
+        SynchronousCircuitBreaker syncCircuitBreaker = nonFallBackEnable && syncCircuitBreakerEnabled && metadata.hasCircuitBreaker()
+                ? getSynchronousCircuitBreaker(metadata.commandKey, metadata.operation.getCircuitBreaker()) : null;
+        Supplier<Object> fallback = metadata.getFallback(ctx);
+        ExecutorService asyncExecutor = executor.getExecutorService();
+
+        return AsyncRetry.execute(retryContext, timer, asyncExecutor, () -> {
+            LOGGER.debugf("Queue up command for async execution: %s", metadata.operation);
+            CompletableFuture<Object> attempt = new CompletableFuture<>();
+            // The fallback is only applied once there are no more retries
+            new DefaultCommand(metadata.setter, ctx, null).toObservable().subscribe(result -> AsyncRetry.completeWith(attempt, result, asyncExecutor),
+                    failure -> {
+                        attempt.completeExceptionally(
+                                failure instanceof HystrixRuntimeException ? toFaultToleranceException(method, (HystrixRuntimeException) failure) : failure);
+                    });
+            if (syncCircuitBreaker != null) {
+                attempt.whenComplete((result, failure) -> {
+                    if (failure == null) {
+                        syncCircuitBreaker.executionSucceeded();
+                    } else {
+                        syncCircuitBreaker.executionFailed();
+                    }
+                });
+            }
+            return attempt;
+        }, failure -> {
+            if (fallback == null) {
+                throw failure;
+            }
+            CompletableFuture<Object> result = new CompletableFuture<>();
+            AsyncRetry.completeWith(result, fallback.get(), asyncExecutor);
+            return result;
+        });
+    }
+
+    private Exception toFaultToleranceException(Method method, HystrixRuntimeException e) {
+        switch (e.getFailureType()) {
+            case TIMEOUT:
+                return new TimeoutException(e);
+            case SHORTCIRCUIT:
+                return new CircuitBreakerOpenException(method.getName());
+            case REJECTED_THREAD_EXECUTION:
+            case REJECTED_SEMAPHORE_EXECUTION:
+            case REJECTED_SEMAPHORE_FALLBACK:
+                return new BulkheadException(e);
+            default:
+                return getCause(e);
+        }
+    }
+
     private Exception getCause(HystrixRuntimeException e) {
         return (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
     }
@@ -193,13 +274,6 @@ public class HystrixCommandInterceptor {
         throw new IllegalStateException("Cached circuit breaker does not extend SynchronousCircuitBreaker");
     }
 
-    private Unmanaged<FallbackHandler<?>> initUnmanaged(FaultToleranceOperation operation) {
-        if (operation.hasFallback()) {
-            return new Unmanaged<>(beanManager, operation.getFallback().get(FallbackConfig.VALUE));
-        }
-        return null;
-    }
-
     private Setter initSetter(HystrixCommandKey commandKey, Method method, FaultToleranceOperation operation) {
         HystrixCommandProperties.Setter propertiesSetter = HystrixCommandProperties.Setter();
 
@@ -283,54 +357,26 @@ public class HystrixCommandInterceptor {
 
     private final HystrixExtension extension;
 
-    private class CommandMetadata {
+    private final FaultToleranceEngine nativeEngine;
 
-        public CommandMetadata(Method method) {
+    private final FaultToleranceTimer timer;
 
-            String methodKey = method.toGenericString();
+    private final FaultToleranceExecutor executor;
 
-            FaultToleranceOperation operation = null;
-            if (extension != null) {
-                operation = extension.getFaultToleranceOperation(methodKey);
-            }
-            if (operation == null) {
-                // This is not a bean method - create metadata on the fly
-                operation = FaultToleranceOperation.of(method);
-                operation.validate();
-            }
-            this.operation = operation;
+    private class CommandMetadata {
+
+        public CommandMetadata(Method method) {
+            this.operation = HystrixExtension.getFaultToleranceOperation(extension, method);
 
             // Initialize Hystrix command setter
-            commandKey = HystrixCommandKey.Factory.asKey(methodKey);
+            commandKey = HystrixCommandKey.Factory.asKey(method.toGenericString());
             setter = initSetter(commandKey, method, operation);
 
-            if (operation.hasFallback()) {
-                FallbackConfig fallbackConfig = operation.getFallback();
-                if (!fallbackConfig.get(FallbackConfig.VALUE).equals(Fallback.DEFAULT.class)) {
-                    unmanaged = initUnmanaged(operation);
-                    fallbackMethod = null;
-                } else {
-                    unmanaged = null;
-                    String fallbackMethodName = fallbackConfig.get(FallbackConfig.FALLBACK_METHOD);
-                    if (!"".equals(fallbackMethodName)) {
-                        try {
-                            fallbackMethod = SecurityActions.getDeclaredMethod(method.getDeclaringClass(), fallbackMethodName, method.getParameterTypes());
-                            SecurityActions.setAccessible(fallbackMethod);
-                        } catch (NoSuchMethodException | PrivilegedActionException e) {
-                            throw new FaultToleranceException("Could not obtain fallback method", e);
-                        }
-                    } else {
-                        fallbackMethod = null;
-                    }
-                }
-            } else {
-                unmanaged = null;
-                fallbackMethod = null;
-            }
+            fallback = FallbackInvoker.of(beanManager, method, operation);
         }
 
         boolean hasFallback() {
-            return unmanaged != null || fallbackMethod != null;
+            return fallback != null;
         }
 
         boolean hasCircuitBreaker() {
@@ -338,37 +384,14 @@ public class HystrixCommandInterceptor {
         }
 
         Supplier<Object> getFallback(ExecutionContextWithInvocationContext ctx) {
-            if (!hasFallback()) {
-                return null;
-            } else if (unmanaged != null) {
-                return () -> {
-                    Unmanaged.UnmanagedInstance<FallbackHandler<?>> unmanagedInstance = unmanaged.newInstance();
-                    FallbackHandler<?> handler = unmanagedInstance.produce().inject().postConstruct().get();
-                    try {
-                        return handler.handle(ctx);
-                    } finally {
-                        // The instance exists to service a single invocation only
-                        unmanagedInstance.preDestroy().dispose();
-                    }
-                };
-            } else {
-                return () -> {
-                    try {
-                        return fallbackMethod.invoke(ctx.getTarget(), ctx.getParameters());
-                    } catch (IllegalAccessException | InvocationTargetException e) {
-                        throw new FaultToleranceException("Error during fallback method invocation", e);
-                    }
-                };
-            }
+            return hasFallback() ? () -> fallback.invoke(ctx) : null;
         }
 
         private final Setter setter;
 
         private final HystrixCommandKey commandKey;
 
-        private final Unmanaged<FallbackHandler<?>> unmanaged;
-
-        private final Method fallbackMethod;
+        private final FallbackInvoker fallback;
 
         private final FaultToleranceOperation operation;
 
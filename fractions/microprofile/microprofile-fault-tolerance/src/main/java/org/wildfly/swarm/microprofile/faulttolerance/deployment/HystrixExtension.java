@@ -17,6 +17,7 @@
 package org.wildfly.swarm.microprofile.faulttolerance.deployment;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.HashSet;
 import java.util.Set;
@@ -68,6 +69,9 @@ public class HystrixExtension implements Extension {
         bbd.addAnnotatedType(bm.createAnnotatedType(HystrixCommandInterceptor.class), HystrixCommandInterceptor.class.getName());
         bbd.addAnnotatedType(bm.createAnnotatedType(HystrixInitializer.class), HystrixInitializer.class.getName());
         bbd.addAnnotatedType(bm.createAnnotatedType(DefaultHystrixConcurrencyStrategy.class), DefaultHystrixConcurrencyStrategy.class.getName());
+        bbd.addAnnotatedType(bm.createAnnotatedType(FaultToleranceEngine.class), FaultToleranceEngine.class.getName());
+        bbd.addAnnotatedType(bm.createAnnotatedType(FaultToleranceTimer.class), FaultToleranceTimer.class.getName());
+        bbd.addAnnotatedType(bm.createAnnotatedType(FaultToleranceExecutor.class), FaultToleranceExecutor.class.getName());
     }
 
     /**
@@ -95,6 +99,25 @@ public class HystrixExtension implements Extension {
         return faultToleranceOperations.get(methodKey);
     }
 
+    /**
+     *
+     * @param extension may be {@code null}
+     * @param method
+     * @return the operation collected for the given method, or a validated operation created on the fly if the method does not belong to a bean
+     */
+    static FaultToleranceOperation getFaultToleranceOperation(HystrixExtension extension, Method method) {
+        FaultToleranceOperation operation = null;
+        if (extension != null) {
+            operation = extension.getFaultToleranceOperation(method.toGenericString());
+        }
+        if (operation == null) {
+            // This is not a bean method - create metadata on the fly
+            operation = FaultToleranceOperation.of(method);
+            operation.validate();
+        }
+        return operation;
+    }
+
     public static class HystrixInterceptorBindingAnnotatedType<T extends Annotation> implements AnnotatedType<T> {
 
         public HystrixInterceptorBindingAnnotatedType(AnnotatedType<T> delegate) {
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.CircuitBreakerConfig;
+
+/**
+ * Circuit breaker used by the {@link FaultToleranceEngine}. The state is an immutable snapshot swapped with compare-and-set, so neither admitting an
+ * invocation nor recording its result ever blocks.
+ * <p>
+ * While CLOSED, the outcomes of the last {@code requestVolumeThreshold} invocations are kept in a rolling window and the circuit opens once the window is
+ * full and the ratio of failures in it reaches {@code failureRatio}. After the delay, up to {@code successThreshold} trial invocations are admitted
+ * (HALF_OPEN). The circuit closes once all of them succeed and opens again on the first failure.
+ * </p>
+ */
+class LockFreeCircuitBreaker {
+
+    enum Status {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    static LockFreeCircuitBreaker of(CircuitBreakerConfig config) {
+        return new LockFreeCircuitBreaker(Duration.of(config.get(CircuitBreakerConfig.DELAY), config.get(CircuitBreakerConfig.DELAY_UNIT)).toNanos(),
+                config.get(CircuitBreakerConfig.REQUEST_VOLUME_THRESHOLD), config.get(CircuitBreakerConfig.FAILURE_RATIO),
+                config.get(CircuitBreakerConfig.SUCCESS_THRESHOLD), config.get(CircuitBreakerConfig.FAIL_ON));
+    }
+
+    LockFreeCircuitBreaker(long delayNanos, int requestVolumeThreshold, double failureRatio, int successThreshold, Class<?>[] failOn) {
+        this.delayNanos = delayNanos;
+        this.requestVolumeThreshold = requestVolumeThreshold;
+        this.failureRatio = failureRatio;
+        this.successThreshold = successThreshold;
+        this.failOn = failOn;
+        this.state = new AtomicReference<>(State.closed(requestVolumeThreshold));
+    }
+
+    /**
+     *
+     * @return {@code true} if an invocation may proceed, {@code false} if the circuit is open
+     */
+    boolean tryAcquire() {
+        while (true) {
+            State current = state.get();
+            switch (current.status) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (System.nanoTime() - current.openedAt < delayNanos) {
+                        return false;
+                    }
+                    if (state.compareAndSet(current, State.halfOpen(1, 0))) {
+                        return true;
+                    }
+                    break;
+                case HALF_OPEN:
+                    if (current.trials >= successThreshold) {
+                        return false;
+                    }
+                    if (state.compareAndSet(current, State.halfOpen(current.trials + 1, current.successes))) {
+                        return true;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown status: " + current.status);
+            }
+        }
+    }
+
+    void recordSuccess() {
+        while (true) {
+            State current = state.get();
+            State next;
+            switch (current.status) {
+                case CLOSED:
+                    next = current.record(false, requestVolumeThreshold);
+                    break;
+                case HALF_OPEN:
+                    next = current.successes + 1 >= successThreshold ? State.closed(requestVolumeThreshold)
+                            : State.halfOpen(current.trials, current.successes + 1);
+                    break;
+                default:
+                    // The invocation was admitted before the circuit opened
+                    return;
+            }
+            if (next == current || state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    void recordFailure(Throwable failure) {
+        if (!isFailure(failure)) {
+            recordSuccess();
+            return;
+        }
+        while (true) {
+            State current = state.get();
+            State next;
+            switch (current.status) {
+                case CLOSED:
+                    next = current.record(true, requestVolumeThreshold);
+                    if (next.size == requestVolumeThreshold && next.failures >= failureRatio * requestVolumeThreshold) {
+                        next = State.open(System.nanoTime());
+                    }
+                    break;
+                case HALF_OPEN:
+                    next = State.open(System.nanoTime());
+                    break;
+                default:
+                    return;
+            }
+            if (state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    Status getStatus() {
+        return state.get().status;
+    }
+
+    private boolean isFailure(Throwable failure) {
+        for (Class<?> type : failOn) {
+            if (type.isAssignableFrom(failure.getClass())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final long delayNanos;
+
+    private final int requestVolumeThreshold;
+
+    private final double failureRatio;
+
+    private final int successThreshold;
+
+    private final Class<?>[] failOn;
+
+    private final AtomicReference<State> state;
+
+    private static final class State {
+
+        static State closed(int requestVolumeThreshold) {
+            return new State(Status.CLOSED, 0L, new long[(requestVolumeThreshold + 63) >>> 6], 0, 0, 0, 0, 0);
+        }
+
+        static State open(long openedAt) {
+            return new State(Status.OPEN, openedAt, null, 0, 0, 0, 0, 0);
+        }
+
+        static State halfOpen(int trials, int successes) {
+            return new State(Status.HALF_OPEN, 0L, null, 0, 0, 0, trials, successes);
+        }
+
+        private State(Status status, long openedAt, long[] window, int size, int next, int failures, int trials, int successes) {
+            this.status = status;
+            this.openedAt = openedAt;
+            this.window = window;
+            this.size = size;
+            this.next = next;
+            this.failures = failures;
+            this.trials = trials;
+            this.successes = successes;
+        }
+
+        /**
+         * Record an outcome in the rolling window, replacing the oldest one once the window is full.
+         */
+        State record(boolean failure, int requestVolumeThreshold) {
+            if (!failure && failures == 0 && size == requestVolumeThreshold) {
+                // A full window of successes stays the same
+                return this;
+            }
+            long[] window = this.window.clone();
+            int word = next >>> 6;
+            long bit = 1L << next;
+            int failures = this.failures;
+            if (size == requestVolumeThreshold && (window[word] & bit) != 0) {
+                failures--;
+            }
+            if (failure) {
+                window[word] |= bit;
+                failures++;
+            } else {
+                window[word] &= ~bit;
+            }
+            return new State(Status.CLOSED, 0L, window, Math.min(size + 1, requestVolumeThreshold), next + 1 == requestVolumeThreshold ? 0 : next + 1,
+                    failures, 0, 0);
+        }
+
+        private final Status status;
+
+        private final long openedAt;
+
+        private final long[] window;
+
+        private final int size;
+
+        private final int next;
+
+        private final int failures;
+
+        private final int trials;
+
+        private final int successes;
+
+    }
+
+}
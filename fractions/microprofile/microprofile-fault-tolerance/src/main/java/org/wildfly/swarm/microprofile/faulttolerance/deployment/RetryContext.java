@@ -83,13 +83,25 @@ class RetryContext {
     }
 
     void delayIfNeeded() throws InterruptedException {
-        if (delay > 0) {
-            long jitterBase = config.getJitter();
-            long jitter = (long) (Math.random() * ((jitterBase * 2) + 1)) - jitterBase; // random number between -jitter and +jitter
-            TimeUnit.MILLISECONDS.sleep(delay + Duration.of(jitter, config.getJitterDelayUnit()).toMillis());
+        long nextDelay = nextDelay();
+        if (nextDelay > 0) {
+            TimeUnit.MILLISECONDS.sleep(nextDelay);
         }
     }
 
+    /**
+     *
+     * @return the delay before the next attempt in milliseconds, including jitter
+     */
+    long nextDelay() {
+        if (delay <= 0) {
+            return 0;
+        }
+        long jitterBase = config.getJitter();
+        long jitter = (long) (Math.random() * ((jitterBase * 2) + 1)) - jitterBase; // random number between -jitter and +jitter
+        return delay + Duration.of(jitter, config.getJitterDelayUnit()).toMillis();
+    }
+
     @Override
     public String toString() {
         return "RetryContext [remainingAttempts=" + remainingAttempts + ", start=" + start + "]";
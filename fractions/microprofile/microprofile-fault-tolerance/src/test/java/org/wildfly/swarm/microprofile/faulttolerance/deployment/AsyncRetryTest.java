@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.config.spi.ConfigProviderResolver;
+import org.eclipse.microprofile.faulttolerance.Retry;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.RetryConfig;
+
+public class AsyncRetryTest {
+
+    @BeforeClass
+    public static void installConfig() {
+        ConfigProviderResolver.setInstance(new EmptyConfigProviderResolver());
+    }
+
+    @AfterClass
+    public static void uninstallConfig() {
+        ConfigProviderResolver.setInstance(null);
+    }
+
+    @Before
+    public void start() {
+        timer = new FaultToleranceTimer();
+        timer.init();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void stop() {
+        timer.shutdown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBlockingFallbackDoesNotStallPendingRetries() throws Exception {
+        RetryConfig config = new RetryConfig(AsyncRetryTest.class.getMethod("retried"));
+        CountDownLatch fallbackStarted = new CountDownLatch(1);
+        CountDownLatch fallbackReleased = new CountDownLatch(1);
+        // Both attempts fail right away, the second one is started by the timer
+        CompletableFuture<Object> recovered = AsyncRetry.execute(new RetryContext(config), timer, executor,
+                () -> AsyncRetry.failed(new IllegalStateException()), failure -> {
+                    fallbackStarted.countDown();
+                    fallbackReleased.await();
+                    return CompletableFuture.completedFuture("fallback");
+                });
+        assertTrue(fallbackStarted.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Object> retried = AsyncRetry.execute(new RetryContext(config), timer, executor,
+                () -> attempts.incrementAndGet() == 1 ? AsyncRetry.failed(new IllegalStateException()) : CompletableFuture.completedFuture("retried"),
+                failure -> {
+                    throw failure;
+                });
+        assertEquals("retried", retried.get(5, TimeUnit.SECONDS));
+        assertFalse(recovered.isDone());
+
+        fallbackReleased.countDown();
+        assertEquals("fallback", recovered.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFutureIsAwaitedOnTheExecutor() throws Exception {
+        FutureTask<Object> result = new FutureTask<>(() -> "done");
+        CompletableFuture<Object> future = new CompletableFuture<>();
+
+        AsyncRetry.completeWith(future, result, executor);
+        assertFalse(future.isDone());
+
+        result.run();
+        assertEquals("done", future.get(5, TimeUnit.SECONDS));
+    }
+
+    @Retry(maxRetries = 1, delay = 20, jitter = 0)
+    public void retried() {
+    }
+
+    private FaultToleranceTimer timer;
+
+    private ExecutorService executor;
+
+}
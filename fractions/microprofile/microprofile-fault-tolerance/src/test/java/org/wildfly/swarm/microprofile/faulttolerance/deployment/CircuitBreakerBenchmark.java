@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.microprofile.config.spi.ConfigProviderResolver;
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.config.CircuitBreakerConfig;
+
+/**
+ * Times the circuit breaker of the native engine against the synchronous one of the Hystrix engine, both configured from the same
+ * {@code @CircuitBreaker} method, from one and from several threads.
+ *
+ * <p>Not a unit test, run it with {@code main}. Each call is admitted, then one in fifty fails, which leaves both circuits closed. No MicroProfile
+ * Config implementation is needed, an empty one is installed so that the annotation values apply.</p>
+ */
+public class CircuitBreakerBenchmark {
+
+    private static final int CALLS = 2000000;
+
+    private static final int FAILURE_EVERY = 50;
+
+    private static final int[] THREADS = {1, 4};
+
+    public static void main(String... args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        ConfigProviderResolver.setInstance(new EmptyConfigProviderResolver());
+        CircuitBreakerConfig config = new CircuitBreakerConfig(CircuitBreakerBenchmark.class.getMethod("guarded"));
+        IllegalStateException failure = new IllegalStateException();
+
+        for (int i = 0; i < rounds; i++) {
+            for (int threads : THREADS) {
+                LockFreeCircuitBreaker lockFree = LockFreeCircuitBreaker.of(config);
+                report("lock-free", threads, call -> {
+                    if (lockFree.tryAcquire()) {
+                        if (call % FAILURE_EVERY == 0) {
+                            lockFree.recordFailure(failure);
+                        } else {
+                            lockFree.recordSuccess();
+                        }
+                    }
+                });
+                SynchronousCircuitBreaker synchronous = new SynchronousCircuitBreaker(config);
+                report("synchronous", threads, call -> {
+                    if (synchronous.attemptExecution()) {
+                        if (call % FAILURE_EVERY == 0) {
+                            synchronous.executionFailed();
+                        } else {
+                            synchronous.executionSucceeded();
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    @CircuitBreaker(requestVolumeThreshold = 20)
+    public void guarded() {
+    }
+
+    private static void report(String name, int threads, Call call) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 1; i <= CALLS; i++) {
+                    call.run(i);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("%-11s %d thread(s): %,12.0f calls/s%n", name, threads, (double) CALLS * threads / elapsed * 1e9);
+    }
+
+    private interface Call {
+        void run(int call);
+    }
+}
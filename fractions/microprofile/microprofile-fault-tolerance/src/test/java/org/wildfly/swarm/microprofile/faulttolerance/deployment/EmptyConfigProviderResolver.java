@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.spi.ConfigBuilder;
+import org.eclipse.microprofile.config.spi.ConfigProviderResolver;
+import org.eclipse.microprofile.config.spi.ConfigSource;
+
+/**
+ * A MicroProfile Config without any property, so that the values of the fault tolerance annotations apply outside of a deployment.
+ */
+class EmptyConfigProviderResolver extends ConfigProviderResolver {
+
+    private static final Config EMPTY = new Config() {
+        @Override
+        public <T> T getValue(String propertyName, Class<T> propertyType) {
+            throw new NoSuchElementException(propertyName);
+        }
+
+        @Override
+        public <T> Optional<T> getOptionalValue(String propertyName, Class<T> propertyType) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Iterable<String> getPropertyNames() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Iterable<ConfigSource> getConfigSources() {
+            return Collections.emptyList();
+        }
+    };
+
+    @Override
+    public Config getConfig() {
+        return EMPTY;
+    }
+
+    @Override
+    public Config getConfig(ClassLoader loader) {
+        return EMPTY;
+    }
+
+    @Override
+    public ConfigBuilder getBuilder() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void registerConfig(Config config, ClassLoader classLoader) {
+    }
+
+    @Override
+    public void releaseConfig(Config config) {
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.LockFreeCircuitBreaker.Status;
+
+public class LockFreeCircuitBreakerTest {
+
+    @Test
+    public void testOpensOnceWindowReachesFailureRatio() {
+        LockFreeCircuitBreaker breaker = new LockFreeCircuitBreaker(TimeUnit.MINUTES.toNanos(1), 4, 0.5, 1, new Class<?>[] { Throwable.class });
+
+        breaker.recordFailure(new IllegalStateException());
+        breaker.recordSuccess();
+        breaker.recordFailure(new IllegalStateException());
+        // The window is not full yet
+        assertEquals(Status.CLOSED, breaker.getStatus());
+
+        breaker.recordSuccess();
+        assertEquals(Status.CLOSED, breaker.getStatus());
+        // The oldest failure rolls out of the window, 2 of the last 4 failed
+        breaker.recordFailure(new IllegalStateException());
+        assertEquals(Status.OPEN, breaker.getStatus());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testRollingWindowForgetsOldFailures() {
+        LockFreeCircuitBreaker breaker = new LockFreeCircuitBreaker(TimeUnit.MINUTES.toNanos(1), 3, 1.0, 1, new Class<?>[] { Throwable.class });
+
+        breaker.recordFailure(new IllegalStateException());
+        breaker.recordFailure(new IllegalStateException());
+        breaker.recordSuccess();
+        breaker.recordFailure(new IllegalStateException());
+        breaker.recordFailure(new IllegalStateException());
+        assertEquals(Status.CLOSED, breaker.getStatus());
+        breaker.recordFailure(new IllegalStateException());
+        assertEquals(Status.OPEN, breaker.getStatus());
+    }
+
+    @Test
+    public void testIgnoresFailuresNotListedInFailOn() {
+        LockFreeCircuitBreaker breaker = new LockFreeCircuitBreaker(TimeUnit.MINUTES.toNanos(1), 2, 0.5, 1, new Class<?>[] { IllegalStateException.class });
+
+        breaker.recordFailure(new IllegalArgumentException());
+        breaker.recordFailure(new IllegalArgumentException());
+        assertEquals(Status.CLOSED, breaker.getStatus());
+    }
+
+    @Test
+    public void testHalfOpenAdmitsSuccessThresholdTrials() throws InterruptedException {
+        LockFreeCircuitBreaker breaker = new LockFreeCircuitBreaker(TimeUnit.MILLISECONDS.toNanos(50), 1, 1.0, 2, new Class<?>[] { Throwable.class });
+
+        breaker.recordFailure(new IllegalStateException());
+        assertEquals(Status.OPEN, breaker.getStatus());
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(Status.HALF_OPEN, breaker.getStatus());
+
+        breaker.recordSuccess();
+        assertEquals(Status.HALF_OPEN, breaker.getStatus());
+        breaker.recordSuccess();
+        assertEquals(Status.CLOSED, breaker.getStatus());
+    }
+
+    @Test
+    public void testHalfOpenFailureOpensAgain() throws InterruptedException {
+        LockFreeCircuitBreaker breaker = new LockFreeCircuitBreaker(TimeUnit.MILLISECONDS.toNanos(50), 1, 1.0, 2, new Class<?>[] { Throwable.class });
+
+        breaker.recordFailure(new IllegalStateException());
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertTrue(breaker.tryAcquire());
+        breaker.recordFailure(new IllegalStateException());
+        assertEquals(Status.OPEN, breaker.getStatus());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testConcurrentTrialsAreBounded() throws InterruptedException {
+        LockFreeCircuitBreaker breaker = new LockFreeCircuitBreaker(TimeUnit.MILLISECONDS.toNanos(10), 1, 1.0, 3, new Class<?>[] { Throwable.class });
+        breaker.recordFailure(new IllegalStateException());
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger admitted = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < 100; j++) {
+                        if (breaker.tryAcquire()) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, admitted.get());
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment.asynchronous.retry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.TestArchive;
+
+/**
+ * Retries of asynchronous operations are chained by the returned future, nobody waits for the retry delay.
+ */
+@RunWith(Arquillian.class)
+public class AsynchronousRetryTest {
+
+    @Deployment
+    public static JavaArchive createTestArchive() {
+        return TestArchive.createBase("AsynchronousRetryTest.jar").addPackage(AsynchronousRetryTest.class.getPackage());
+    }
+
+    @Inject
+    FlakyService service;
+
+    @Test
+    public void testRetriedAttemptsAreChained() throws Exception {
+        FlakyService.ATTEMPTS.set(0);
+        long start = System.nanoTime();
+        Future<String> future = service.ping();
+        // Two retries with a delay each are pending
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < FlakyService.DELAY);
+        assertFalse(future.isDone());
+        assertEquals("pong", future.get(5, TimeUnit.SECONDS));
+        assertEquals(3, FlakyService.ATTEMPTS.get());
+    }
+
+    @Test
+    public void testFallbackAfterLastAttempt() throws Exception {
+        FlakyService.ATTEMPTS.set(0);
+        assertEquals("fallback", service.failing().get(5, TimeUnit.SECONDS));
+        assertEquals(2, FlakyService.ATTEMPTS.get());
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment.asynchronous.retry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.faulttolerance.Asynchronous;
+import org.eclipse.microprofile.faulttolerance.Fallback;
+import org.eclipse.microprofile.faulttolerance.Retry;
+
+@ApplicationScoped
+public class FlakyService {
+
+    static final long DELAY = 300;
+
+    static final AtomicInteger ATTEMPTS = new AtomicInteger();
+
+    @Asynchronous
+    @Retry(maxRetries = 3, delay = DELAY, jitter = 0)
+    public Future<String> ping() {
+        if (ATTEMPTS.incrementAndGet() < 3) {
+            throw new IllegalStateException("Service call failed!");
+        }
+        return CompletableFuture.completedFuture("pong");
+    }
+
+    @Asynchronous
+    @Retry(maxRetries = 1, delay = DELAY, jitter = 0)
+    @Fallback(fallbackMethod = "fallback")
+    public Future<String> failing() {
+        ATTEMPTS.incrementAndGet();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        result.completeExceptionally(new IllegalStateException("Service call failed!"));
+        return result;
+    }
+
+    Future<String> fallback() {
+        return CompletableFuture.completedFuture("fallback");
+    }
+
+}
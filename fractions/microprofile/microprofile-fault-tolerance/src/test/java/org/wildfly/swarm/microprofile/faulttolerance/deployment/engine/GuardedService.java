@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.faulttolerance.Asynchronous;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.eclipse.microprofile.faulttolerance.Fallback;
+import org.eclipse.microprofile.faulttolerance.Retry;
+import org.eclipse.microprofile.faulttolerance.Timeout;
+
+@ApplicationScoped
+public class GuardedService {
+
+    static final int REQUEST_THRESHOLD = 2;
+
+    static final long DELAY = 400;
+
+    static final AtomicInteger ATTEMPTS = new AtomicInteger();
+
+    static final AtomicReference<Thread> INVOKED_ON = new AtomicReference<>();
+
+    @Timeout(200)
+    public String slow(long timeToSleep) throws InterruptedException {
+        INVOKED_ON.set(Thread.currentThread());
+        TimeUnit.MILLISECONDS.sleep(timeToSleep);
+        return "done";
+    }
+
+    @Retry(maxRetries = 2)
+    @Fallback(fallbackMethod = "fallback")
+    public String failing() {
+        ATTEMPTS.incrementAndGet();
+        throw new IllegalStateException("Service call failed!");
+    }
+
+    String fallback() {
+        return "fallback";
+    }
+
+    @CircuitBreaker(requestVolumeThreshold = REQUEST_THRESHOLD, delay = DELAY)
+    public void shaky() {
+        throw new IllegalStateException("Service call failed!");
+    }
+
+    @Bulkhead(1)
+    public String blocking(CountDownLatch entered, CountDownLatch release) throws InterruptedException {
+        entered.countDown();
+        release.await();
+        return "released";
+    }
+
+    @Asynchronous
+    public Future<Thread> async() {
+        return CompletableFuture.completedFuture(Thread.currentThread());
+    }
+
+}
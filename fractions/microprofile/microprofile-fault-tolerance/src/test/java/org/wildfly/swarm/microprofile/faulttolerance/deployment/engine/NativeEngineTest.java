@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.faulttolerance.deployment.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.HystrixCommandInterceptor;
+import org.wildfly.swarm.microprofile.faulttolerance.deployment.TestArchive;
+
+/**
+ * Fault tolerance operations executed by the native engine instead of Hystrix.
+ */
+@RunWith(Arquillian.class)
+public class NativeEngineTest {
+
+    @Deployment
+    public static JavaArchive createTestArchive() {
+        return TestArchive.createBase("NativeEngineTest.jar")
+                .addPackage(NativeEngineTest.class.getPackage())
+                .addAsManifestResource(new StringAsset(HystrixCommandInterceptor.ENGINE_KEY + "=" + HystrixCommandInterceptor.NATIVE_ENGINE),
+                        "microprofile-config.properties");
+    }
+
+    @Inject
+    GuardedService service;
+
+    @Test
+    public void testTimeoutInterruptsCallingThread() throws InterruptedException {
+        try {
+            service.slow(2000);
+            fail("No timeout");
+        } catch (TimeoutException expected) {
+        }
+        // The operation is not handed off to another thread
+        assertSame(Thread.currentThread(), GuardedService.INVOKED_ON.get());
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertEquals("done", service.slow(10));
+    }
+
+    @Test
+    public void testRetryThenFallback() {
+        GuardedService.ATTEMPTS.set(0);
+        assertEquals("fallback", service.failing());
+        assertEquals(3, GuardedService.ATTEMPTS.get());
+    }
+
+    @Test
+    public void testCircuitBreaker() throws InterruptedException {
+        for (int i = 0; i < GuardedService.REQUEST_THRESHOLD; i++) {
+            assertShaky(false);
+        }
+        assertShaky(true);
+        TimeUnit.MILLISECONDS.sleep(GuardedService.DELAY);
+        // HALF_OPEN admits a single trial
+        assertShaky(false);
+        assertShaky(true);
+    }
+
+    @Test
+    public void testBulkhead() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.blocking(entered, release);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        try {
+            service.blocking(new CountDownLatch(1), new CountDownLatch(0));
+            fail("Bulkhead should be full");
+        } catch (BulkheadException expected) {
+        } finally {
+            release.countDown();
+        }
+        assertEquals("released", first.get(5, TimeUnit.SECONDS));
+        assertEquals("released", service.blocking(new CountDownLatch(1), new CountDownLatch(0)));
+    }
+
+    @Test
+    public void testAsynchronous() throws Exception {
+        Thread thread = service.async().get(5, TimeUnit.SECONDS);
+        assertNotEquals(Thread.currentThread(), thread);
+    }
+
+    private void assertShaky(boolean open) {
+        try {
+            service.shaky();
+            fail("Invocation should always fail!");
+        } catch (Exception e) {
+            if (open) {
+                assertTrue("Circuit breaker must be open: " + e, e instanceof CircuitBreakerOpenException);
+            } else {
+                assertTrue("IllegalStateException expected: " + e, e instanceof IllegalStateException);
+            }
+        }
+    }
+
+}
@@ -15,12 +15,17 @@
  */
 package org.wildfly.swarm.microprofile.health;
 
+import org.wildfly.swarm.config.runtime.AttributeDocumentation;
+import org.wildfly.swarm.spi.api.Defaultable;
 import org.wildfly.swarm.spi.api.Fraction;
 import org.wildfly.swarm.spi.api.Module;
+import org.wildfly.swarm.spi.api.annotations.Configurable;
 import org.wildfly.swarm.spi.api.annotations.DeploymentModule;
 
 import java.util.Optional;
 
+import static org.wildfly.swarm.spi.api.Defaultable.longInteger;
+
 /**
  * @author Heiko Braun
  */
@@ -33,6 +38,14 @@ public class HealthFraction implements Fraction<HealthFraction> {
 
     private Optional<String> securityRealm = Optional.empty();
 
+    @AttributeDocumentation("The time in seconds after which a health check that has not responded is reported as DOWN")
+    @Configurable("swarm.microprofile.health.probeTimeout")
+    private Defaultable<Long> probeTimeout = longInteger(2);
+
+    @AttributeDocumentation("The time in milliseconds for which a health check response is reused, 0 to invoke the checks on every request")
+    @Configurable("swarm.microprofile.health.cacheTtl")
+    private Defaultable<Long> cacheTtl = longInteger(0);
+
     public HealthFraction securityRealm(String realmName) {
         this.securityRealm = Optional.of(realmName);
         return this;
@@ -41,4 +54,22 @@ public class HealthFraction implements Fraction<HealthFraction> {
     public Optional<String> securityRealm() {
         return this.securityRealm;
     }
+
+    public HealthFraction probeTimeout(long seconds) {
+        this.probeTimeout.set(seconds);
+        return this;
+    }
+
+    public long probeTimeout() {
+        return this.probeTimeout.get();
+    }
+
+    public HealthFraction cacheTtl(long millis) {
+        this.cacheTtl.set(millis);
+        return this;
+    }
+
+    public long cacheTtl() {
+        return this.cacheTtl.get();
+    }
 }
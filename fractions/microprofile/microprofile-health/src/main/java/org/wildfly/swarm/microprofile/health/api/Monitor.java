@@ -22,6 +22,7 @@ import java.util.Set;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 
+import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.jboss.as.domain.management.SecurityRealm;
 import org.jboss.dmr.ModelNode;
 import org.wildfly.swarm.microprofile.health.HealthMetaData;
@@ -57,6 +58,13 @@ public interface Monitor {
 
     Set<Object> getHealthDelegates();
 
+    /**
+     * Invoke the health delegates, reporting the ones that do not respond within
+     * the probe timeout as DOWN.
+     * @return the responses of all delegates
+     */
+    List<HealthCheckResponse> checkHealth();
+
     Optional<SecurityRealm> getSecurityRealm();
 
     /**
@@ -0,0 +1,195 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.inject.Vetoed;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.jboss.logging.Logger;
+
+/**
+ * Invokes the health checks in parallel, reporting the ones that do not respond within
+ * the probe timeout as DOWN.
+ *
+ * <p>A check that is still running when the next probe comes in is not invoked again;
+ * the probe waits on the pending invocation instead, so a hanging backend ties up at most
+ * one thread per check. Completed responses can optionally be reused for a while.</p>
+ *
+ * @see MonitorService
+ */
+@Vetoed
+public class HealthCheckRunner {
+
+    private static Logger LOG = Logger.getLogger("org.wildfly.swarm.microprofile.health");
+
+    public HealthCheckRunner(long timeoutMillis, long cacheTtlMillis) {
+        this(timeoutMillis, cacheTtlMillis, Executors.newCachedThreadPool(new HealthCheckThreadFactory()));
+    }
+
+    HealthCheckRunner(long timeoutMillis, long cacheTtlMillis, ExecutorService executor) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(cacheTtlMillis);
+        this.executor = executor;
+    }
+
+    /**
+     * Invoke the given health checks, waiting no longer than the probe timeout overall.
+     *
+     * @param procedures The {@link HealthCheck} instances to invoke.
+     * @return The responses, in the order of the checks.
+     */
+    public List<HealthCheckResponse> call(Collection<Object> procedures) {
+        long now = System.nanoTime();
+        long deadline = now + this.timeoutNanos;
+
+        List<Object> checks = new ArrayList<>(procedures);
+        List<CompletableFuture<HealthCheckResponse>> pending = new ArrayList<>(checks.size());
+        for (Object each : checks) {
+            pending.add(invoke(each, now));
+        }
+
+        List<HealthCheckResponse> responses = new ArrayList<>(checks.size());
+        for (int i = 0; i < checks.size(); i++) {
+            responses.add(await(checks.get(i), pending.get(i), deadline));
+        }
+        return responses;
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+        this.cache.clear();
+    }
+
+    private CompletableFuture<HealthCheckResponse> invoke(Object procedure, long now) {
+        if (this.cacheTtlNanos > 0) {
+            CachedResponse cached = this.cache.get(procedure);
+            if (cached != null && now - cached.expires < 0) {
+                return CompletableFuture.completedFuture(cached.response);
+            }
+        }
+
+        CompletableFuture<HealthCheckResponse> future = new CompletableFuture<>();
+        CompletableFuture<HealthCheckResponse> running = this.inFlight.putIfAbsent(procedure, future);
+        if (running != null) {
+            return running;
+        }
+
+        try {
+            this.executor.execute(() -> {
+                try {
+                    HealthCheckResponse response = callSafely(procedure);
+                    if (this.cacheTtlNanos > 0) {
+                        this.cache.put(procedure, new CachedResponse(response, System.nanoTime() + this.cacheTtlNanos));
+                    }
+                    future.complete(response);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    this.inFlight.remove(procedure, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.inFlight.remove(procedure, future);
+            future.complete(down(procedure, "Health checks are no longer accepted"));
+        }
+        return future;
+    }
+
+    private static HealthCheckResponse await(Object procedure, CompletableFuture<HealthCheckResponse> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            LOG.warnf("Health check %s did not respond in time", nameOf(procedure));
+            return down(procedure, "Timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return down(procedure, "Interrupted");
+        } catch (ExecutionException e) {
+            return down(procedure, String.valueOf(e.getCause()));
+        }
+    }
+
+    private static HealthCheckResponse callSafely(Object procedure) {
+        try {
+            return ((HealthCheck) procedure).call();
+        } catch (RuntimeException e) {
+            LOG.warnf(e, "Health check %s failed", nameOf(procedure));
+            return down(procedure, String.valueOf(e));
+        }
+    }
+
+    private static HealthCheckResponse down(Object procedure, String error) {
+        return HealthCheckResponse.named(nameOf(procedure))
+                .down()
+                .withData("error", error)
+                .build();
+    }
+
+    private static String nameOf(Object procedure) {
+        Class<?> type = procedure.getClass();
+        // CDI client proxies subclass the actual bean
+        if (type.getName().contains("$Proxy$")) {
+            type = type.getSuperclass();
+        }
+        return type.getName();
+    }
+
+    private final long timeoutNanos;
+
+    private final long cacheTtlNanos;
+
+    private final ExecutorService executor;
+
+    private final ConcurrentHashMap<Object, CompletableFuture<HealthCheckResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Object, CachedResponse> cache = new ConcurrentHashMap<>();
+
+    private static final class CachedResponse {
+        private final HealthCheckResponse response;
+        private final long expires;
+
+        CachedResponse(HealthCheckResponse response, long expires) {
+            this.response = response;
+            this.expires = expires;
+        }
+    }
+
+    private static final class HealthCheckThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "health-check-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
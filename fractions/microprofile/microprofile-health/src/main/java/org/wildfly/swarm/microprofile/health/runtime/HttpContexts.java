@@ -15,11 +15,10 @@
  */
 package org.wildfly.swarm.microprofile.health.runtime;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
 
 import javax.enterprise.inject.Vetoed;
@@ -30,7 +29,6 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.util.AttachmentKey;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
-import org.eclipse.microprofile.health.HealthCheck;
 import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.jboss.logging.Logger;
 import org.wildfly.swarm.microprofile.health.api.Monitor;
@@ -70,6 +68,11 @@ public class HttpContexts implements HttpHandler {
             threads(exchange);
             return;
         } else if (HEALTH.equals(exchange.getRequestPath())) {
+            // health checks may block, keep them off the I/O thread
+            if (exchange.isInIoThread()) {
+                exchange.dispatch(this);
+                return;
+            }
             proxyRequestsCDI(exchange);
             return;
         }
@@ -79,19 +82,12 @@ public class HttpContexts implements HttpHandler {
 
     private void proxyRequestsCDI(HttpServerExchange exchange) {
 
-        Set<Object> procedures = monitor.getHealthDelegates();
-
-        if (procedures.isEmpty()) {
+        if (monitor.getHealthDelegates().isEmpty()) {
             noHealthEndpoints(exchange);
             return;
         }
 
-        List<org.eclipse.microprofile.health.HealthCheckResponse> responses = new ArrayList<>();
-
-        for (Object procedure : procedures) {
-            org.eclipse.microprofile.health.HealthCheckResponse status = ((HealthCheck)procedure).call();
-            responses.add(status);
-        }
+        List<org.eclipse.microprofile.health.HealthCheckResponse> responses = monitor.checkHealth();
 
         StringBuilder sb = new StringBuilder(LCURL);
         sb.append("\"checks\": [\n");
@@ -150,14 +146,18 @@ public class HttpContexts implements HttpHandler {
         exchange.getResponseSender().send(monitor.getNodeInfo().toJSONString(false));
     }
 
-    private void heap(HttpServerExchange exchange) {
+    private void heap(HttpServerExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder(PROBE_SIZE);
+        JvmProbe.writeHeap(sb);
         responseHeaders(exchange);
-        exchange.getResponseSender().send(monitor.heap().toJSONString(false));
+        exchange.getResponseSender().send(sb.toString());
     }
 
-    private void threads(HttpServerExchange exchange) {
+    private void threads(HttpServerExchange exchange) throws IOException {
+        StringBuilder sb = new StringBuilder(PROBE_SIZE);
+        JvmProbe.writeThreads(sb);
         responseHeaders(exchange);
-        exchange.getResponseSender().send(monitor.threads().toJSONString(false));
+        exchange.getResponseSender().send(sb.toString());
     }
 
     public static String toJson(HealthCheckResponse status) {
@@ -218,6 +218,8 @@ public class HttpContexts implements HttpHandler {
 
     private static final String DATA = "data";
 
+    private static final int PROBE_SIZE = 256;
+
     public static final String QUOTE = "\"";
 
 }
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+
+import javax.enterprise.inject.Vetoed;
+
+import org.jboss.dmr.ModelNode;
+
+/**
+ * Reads heap and thread figures straight from the platform MXBeans, the same ones
+ * backing {@code /core-service=platform-mbean}, without a round-trip through the
+ * management model. The MXBeans are thread-safe, so concurrent probes never queue.
+ *
+ * @see HttpContexts
+ */
+@Vetoed
+public class JvmProbe {
+
+    static final String HEAP_MEMORY_USAGE = "heap-memory-usage";
+
+    static final String NON_HEAP_MEMORY_USAGE = "non-heap-memory-usage";
+
+    static final String THREAD_COUNT = "thread-count";
+
+    static final String PEAK_THREAD_COUNT = "peak-thread-count";
+
+    static final String TOTAL_STARTED_THREAD_COUNT = "total-started-thread-count";
+
+    static final String CURRENT_THREAD_CPU_TIME = "current-thread-cpu-time";
+
+    static final String CURRENT_THREAD_USER_TIME = "current-thread-user-time";
+
+    private JvmProbe() {
+    }
+
+    public static ModelNode heap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ModelNode node = new ModelNode();
+        usage(node.get(HEAP_MEMORY_USAGE), memory.getHeapMemoryUsage());
+        usage(node.get(NON_HEAP_MEMORY_USAGE), memory.getNonHeapMemoryUsage());
+        return node;
+    }
+
+    public static ModelNode threads() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        ModelNode node = new ModelNode();
+        node.get(THREAD_COUNT).set(threads.getThreadCount());
+        node.get(PEAK_THREAD_COUNT).set(threads.getPeakThreadCount());
+        node.get(TOTAL_STARTED_THREAD_COUNT).set(threads.getTotalStartedThreadCount());
+        node.get(CURRENT_THREAD_CPU_TIME).set(cpuTime(threads));
+        node.get(CURRENT_THREAD_USER_TIME).set(userTime(threads));
+        return node;
+    }
+
+    public static void writeHeap(Appendable out) throws IOException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        out.append('{');
+        writeUsage(out, HEAP_MEMORY_USAGE, memory.getHeapMemoryUsage());
+        out.append(',');
+        writeUsage(out, NON_HEAP_MEMORY_USAGE, memory.getNonHeapMemoryUsage());
+        out.append('}');
+    }
+
+    public static void writeThreads(Appendable out) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        out.append('{');
+        writeField(out, THREAD_COUNT, threads.getThreadCount()).append(',');
+        writeField(out, PEAK_THREAD_COUNT, threads.getPeakThreadCount()).append(',');
+        writeField(out, TOTAL_STARTED_THREAD_COUNT, threads.getTotalStartedThreadCount()).append(',');
+        writeField(out, CURRENT_THREAD_CPU_TIME, cpuTime(threads)).append(',');
+        writeField(out, CURRENT_THREAD_USER_TIME, userTime(threads));
+        out.append('}');
+    }
+
+    private static void usage(ModelNode node, MemoryUsage usage) {
+        node.get("init").set(usage.getInit());
+        node.get("used").set(usage.getUsed());
+        node.get("committed").set(usage.getCommitted());
+        node.get("max").set(usage.getMax());
+    }
+
+    private static void writeUsage(Appendable out, String name, MemoryUsage usage) throws IOException {
+        out.append('"').append(name).append("\":{");
+        writeField(out, "init", usage.getInit()).append(',');
+        writeField(out, "used", usage.getUsed()).append(',');
+        writeField(out, "committed", usage.getCommitted()).append(',');
+        writeField(out, "max", usage.getMax());
+        out.append('}');
+    }
+
+    private static Appendable writeField(Appendable out, String name, long value) throws IOException {
+        return out.append('"').append(name).append("\":").append(Long.toString(value));
+    }
+
+    private static long cpuTime(ThreadMXBean threads) {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long userTime(ThreadMXBean threads) {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadUserTime() : -1;
+    }
+}
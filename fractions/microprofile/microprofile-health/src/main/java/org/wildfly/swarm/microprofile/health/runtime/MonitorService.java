@@ -15,22 +15,21 @@
  */
 package org.wildfly.swarm.microprofile.health.runtime;
 
-import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import javax.enterprise.inject.Vetoed;
 
-import org.jboss.as.controller.ModelController;
-import org.jboss.as.controller.client.ModelControllerClient;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.jboss.as.controller.ControlledProcessStateService;
 import org.jboss.as.domain.management.SecurityRealm;
 import org.jboss.as.server.ServerEnvironment;
+import org.jboss.as.server.suspend.SuspendController;
 import org.jboss.dmr.ModelNode;
 import org.jboss.logging.Logger;
 import org.jboss.msc.inject.Injector;
@@ -44,12 +43,10 @@ import org.wildfly.swarm.SwarmInfo;
 import org.wildfly.swarm.microprofile.health.api.Monitor;
 import org.wildfly.swarm.microprofile.health.HealthMetaData;
 
-import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADDRESS;
-import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.FAILURE_DESCRIPTION;
-import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
-import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OUTCOME;
-import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RESULT;
-import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUCCESS;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAME;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.RUNNING_MODE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUSPEND_STATE;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.UUID;
 
 /**
  * @author Heiko Braun
@@ -60,24 +57,34 @@ public class MonitorService implements Monitor, Service<MonitorService> {
 
     private static Logger LOG = Logger.getLogger("org.wildfly.swarm.microprofile.health");
 
-    private static final String SELECT = "select";
+    private static final String SERVER_STATE = "server-state";
 
     public static final ServiceName SERVICE_NAME = ServiceName.of("swarm", "health");
 
     public MonitorService(Optional<String> securityRealm) {
+        this(securityRealm, DEFAULT_PROBE_TIMEOUT_SECONDS, 0);
+    }
+
+    public MonitorService(Optional<String> securityRealm, long probeTimeoutSeconds, long cacheTtlMillis) {
         this.securityRealm = securityRealm;
+        this.probeTimeoutSeconds = probeTimeoutSeconds;
+        this.cacheTtlMillis = cacheTtlMillis;
     }
 
     @Override
     public long getProbeTimeoutSeconds() {
-        return DEFAULT_PROBE_TIMEOUT_SECONDS;
+        return this.probeTimeoutSeconds;
+    }
+
+    @Override
+    public List<HealthCheckResponse> checkHealth() {
+        return this.healthCheckRunner.call(this.beans);
     }
 
     @Override
     public void start(StartContext startContext) throws StartException {
-        executorService = Executors.newSingleThreadExecutor();
         serverEnvironment = serverEnvironmentValue.getValue();
-        controllerClient = modelControllerValue.getValue().createClient(executorService);
+        healthCheckRunner = new HealthCheckRunner(TimeUnit.SECONDS.toMillis(probeTimeoutSeconds), cacheTtlMillis);
 
         if (!securityRealm.isPresent()) {
             LOG.warn("You are running the monitoring endpoints without any security realm configuration!");
@@ -86,8 +93,8 @@ public class MonitorService implements Monitor, Service<MonitorService> {
 
     @Override
     public void stop(StopContext stopContext) {
-        if (executorService != null) {
-            executorService.shutdownNow();
+        if (healthCheckRunner != null) {
+            healthCheckRunner.shutdown();
         }
     }
 
@@ -99,67 +106,26 @@ public class MonitorService implements Monitor, Service<MonitorService> {
     @Override
     public ModelNode getNodeInfo() {
 
-        ModelNode op = new ModelNode();
-        op.get(ADDRESS).setEmptyList();
-        op.get(OP).set("query");
-        op.get(SELECT).add("name");
-        op.get(SELECT).add("server-state");
-        op.get(SELECT).add("suspend-state");
-        op.get(SELECT).add("running-mode");
-        op.get(SELECT).add("uuid");
-
-        try {
-            ModelNode response = controllerClient.execute(op);
-            ModelNode unwrapped = unwrap(response);
-            unwrapped.get("swarm-version").set(SwarmInfo.VERSION);
-            return unwrapped;
-        } catch (IOException e) {
-            return new ModelNode().get(FAILURE_DESCRIPTION).set(e.getMessage());
-        }
+        // the root resource attributes, read from the services backing them
 
+        ModelNode node = new ModelNode();
+        node.get(NAME).set(serverEnvironment.getServerName());
+        node.get(SERVER_STATE).set(processStateValue.getValue().getCurrentState().toString());
+        node.get(SUSPEND_STATE).set(suspendControllerValue.getValue().getState().name());
+        node.get(RUNNING_MODE).set(serverEnvironment.getRunningModeControl().getRunningMode().name());
+        node.get(UUID).set(serverEnvironment.getInstanceUuid().toString());
+        node.get("swarm-version").set(SwarmInfo.VERSION);
+        return node;
     }
 
     @Override
     public ModelNode heap() {
-
-        // /core-service=platform-mbean/type=memory:read-resource(include-runtime=true)
-
-        ModelNode op = new ModelNode();
-        op.get(ADDRESS).add("core-service", "platform-mbean");
-        op.get(ADDRESS).add("type", "memory");
-        op.get(OP).set("query");
-        op.get(SELECT).add("heap-memory-usage");
-        op.get(SELECT).add("non-heap-memory-usage");
-
-        try {
-            ModelNode response = controllerClient.execute(op);
-            return unwrap(response);
-        } catch (IOException e) {
-            return new ModelNode().get(FAILURE_DESCRIPTION).set(e.getMessage());
-        }
+        return JvmProbe.heap();
     }
 
     @Override
     public ModelNode threads() {
-
-        // /core-service=platform-mbean/type=threading:read-resource(include-runtime=true)
-
-        ModelNode op = new ModelNode();
-        op.get(ADDRESS).add("core-service", "platform-mbean");
-        op.get(ADDRESS).add("type", "threading");
-        op.get(OP).set("query");
-        op.get(SELECT).add("thread-count");
-        op.get(SELECT).add("peak-thread-count");
-        op.get(SELECT).add("total-started-thread-count");
-        op.get(SELECT).add("current-thread-cpu-time");
-        op.get(SELECT).add("current-thread-user-time");
-
-        try {
-            ModelNode response = controllerClient.execute(op);
-            return unwrap(response);
-        } catch (IOException e) {
-            return new ModelNode().get(FAILURE_DESCRIPTION).set(e.getMessage());
-        }
+        return JvmProbe.threads();
     }
 
     @Override
@@ -203,41 +169,41 @@ public class MonitorService implements Monitor, Service<MonitorService> {
 
     }
 
-    private static ModelNode unwrap(ModelNode response) {
-        if (response.get(OUTCOME).asString().equals(SUCCESS)) {
-            return response.get(RESULT);
-        } else {
-            return response;
-        }
-    }
-
     public Injector<ServerEnvironment> getServerEnvironmentInjector() {
         return this.serverEnvironmentValue;
     }
 
-    public Injector<ModelController> getModelControllerInjector() {
-        return this.modelControllerValue;
+    public Injector<ControlledProcessStateService> getProcessStateInjector() {
+        return this.processStateValue;
+    }
+
+    public Injector<SuspendController> getSuspendControllerInjector() {
+        return this.suspendControllerValue;
     }
 
     public Injector<SecurityRealm> getSecurityRealmInjector() {
         return this.securityRealmServiceValue;
     }
 
-    private static final long DEFAULT_PROBE_TIMEOUT_SECONDS = 2;
+    static final long DEFAULT_PROBE_TIMEOUT_SECONDS = 2;
 
     private final InjectedValue<ServerEnvironment> serverEnvironmentValue = new InjectedValue<ServerEnvironment>();
 
-    private final InjectedValue<ModelController> modelControllerValue = new InjectedValue<ModelController>();
+    private final InjectedValue<ControlledProcessStateService> processStateValue = new InjectedValue<ControlledProcessStateService>();
+
+    private final InjectedValue<SuspendController> suspendControllerValue = new InjectedValue<SuspendController>();
 
     private final InjectedValue<SecurityRealm> securityRealmServiceValue = new InjectedValue<SecurityRealm>();
 
     private final Optional<String> securityRealm;
 
-    private ExecutorService executorService;
+    private final long probeTimeoutSeconds;
 
-    private ServerEnvironment serverEnvironment;
+    private final long cacheTtlMillis;
 
-    private ModelControllerClient controllerClient;
+    private HealthCheckRunner healthCheckRunner;
+
+    private ServerEnvironment serverEnvironment;
 
     private CopyOnWriteArrayList<HealthMetaData> endpoints = new CopyOnWriteArrayList<HealthMetaData>();
 
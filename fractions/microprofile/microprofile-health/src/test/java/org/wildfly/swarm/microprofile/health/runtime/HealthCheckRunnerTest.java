@@ -0,0 +1,153 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HealthCheckRunnerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void releaseBlockedChecks() {
+        release.countDown();
+    }
+
+    @Test
+    public void testSlowCheckReportsDown() {
+        HealthCheckRunner runner = new HealthCheckRunner(200, 0, Executors.newCachedThreadPool());
+        try {
+            long start = System.nanoTime();
+            List<HealthCheckResponse> responses = runner.call(Arrays.asList(up("fast"), blocking()));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Assert.assertEquals(2, responses.size());
+            Assert.assertEquals("fast", responses.get(0).getName());
+            Assert.assertEquals(HealthCheckResponse.State.UP, responses.get(0).getState());
+            Assert.assertEquals(HealthCheckResponse.State.DOWN, responses.get(1).getState());
+            Assert.assertTrue("Took " + elapsed + "ms", elapsed < 2000);
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    @Test
+    public void testChecksRunInParallel() {
+        CountDownLatch both = new CountDownLatch(2);
+        HealthCheck first = awaiting(both, "first");
+        HealthCheck second = awaiting(both, "second");
+
+        HealthCheckRunner runner = new HealthCheckRunner(5000, 0, Executors.newCachedThreadPool());
+        try {
+            List<HealthCheckResponse> responses = runner.call(Arrays.asList(first, second));
+            Assert.assertEquals(HealthCheckResponse.State.UP, responses.get(0).getState());
+            Assert.assertEquals(HealthCheckResponse.State.UP, responses.get(1).getState());
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailingCheckReportsDown() {
+        HealthCheck failing = () -> {
+            throw new IllegalStateException("no database");
+        };
+        HealthCheckRunner runner = new HealthCheckRunner(1000, 0, Executors.newCachedThreadPool());
+        try {
+            HealthCheckResponse response = runner.call(Arrays.asList(failing)).get(0);
+            Assert.assertEquals(HealthCheckResponse.State.DOWN, response.getState());
+            Assert.assertTrue(response.getData().get().get("error").toString().contains("no database"));
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    @Test
+    public void testPendingCheckIsNotInvokedAgain() {
+        AtomicInteger calls = new AtomicInteger();
+        HealthCheck slow = () -> {
+            calls.incrementAndGet();
+            await(release);
+            return HealthCheckResponse.named("slow").up().build();
+        };
+        HealthCheckRunner runner = new HealthCheckRunner(50, 0, Executors.newCachedThreadPool());
+        try {
+            runner.call(Arrays.asList(slow));
+            runner.call(Arrays.asList(slow));
+            Assert.assertEquals(1, calls.get());
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    @Test
+    public void testResponsesAreCached() {
+        AtomicInteger calls = new AtomicInteger();
+        HealthCheck counting = () -> {
+            calls.incrementAndGet();
+            return HealthCheckResponse.named("counting").up().build();
+        };
+        HealthCheckRunner runner = new HealthCheckRunner(1000, 60000, Executors.newCachedThreadPool());
+        try {
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals(HealthCheckResponse.State.UP, runner.call(Arrays.asList(counting)).get(0).getState());
+            }
+            Assert.assertEquals(1, calls.get());
+        } finally {
+            runner.shutdown();
+        }
+    }
+
+    private static HealthCheck up(String name) {
+        return () -> HealthCheckResponse.named(name).up().build();
+    }
+
+    private HealthCheck blocking() {
+        return () -> {
+            await(release);
+            return HealthCheckResponse.named("blocking").up().build();
+        };
+    }
+
+    private static HealthCheck awaiting(CountDownLatch latch, String name) {
+        return () -> {
+            latch.countDown();
+            // only completes if the other check runs at the same time
+            boolean together = await(latch);
+            return HealthCheckResponse.named(name).state(together).build();
+        };
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.health.runtime;
+
+import org.jboss.dmr.ModelNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JvmProbeTest {
+
+    @Test
+    public void testHeapJson() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        JvmProbe.writeHeap(sb);
+
+        ModelNode heap = ModelNode.fromJSONString(sb.toString());
+        Assert.assertEquals(JvmProbe.heap().keys(), heap.keys());
+        Assert.assertTrue(heap.get(JvmProbe.HEAP_MEMORY_USAGE, "used").asLong() > 0);
+        Assert.assertTrue(heap.get(JvmProbe.NON_HEAP_MEMORY_USAGE).has("committed"));
+    }
+
+    @Test
+    public void testThreadsJson() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        JvmProbe.writeThreads(sb);
+
+        ModelNode threads = ModelNode.fromJSONString(sb.toString());
+        Assert.assertEquals(JvmProbe.threads().keys(), threads.keys());
+        Assert.assertTrue(threads.get(JvmProbe.THREAD_COUNT).asInt() > 0);
+        Assert.assertTrue(threads.get(JvmProbe.PEAK_THREAD_COUNT).asInt() >= threads.get(JvmProbe.THREAD_COUNT).asInt());
+    }
+}
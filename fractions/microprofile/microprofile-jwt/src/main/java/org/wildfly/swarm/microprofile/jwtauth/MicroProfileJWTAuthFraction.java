@@ -41,6 +41,14 @@ public class MicroProfileJWTAuthFraction implements Fraction<MicroProfileJWTAuth
     @Configurable("swarm.microprofile.jwtauth.token.signerPubKey")
     private String publicKey;
 
+    @AttributeDocumentation("The URI of the JSON Web Key Set of the JWT token signer, used instead of the public key")
+    @Configurable("swarm.microprofile.jwtauth.token.jwksUri")
+    private String jwksUri;
+
+    @AttributeDocumentation("The interval between two fetches of the JSON Web Key Set in minutes")
+    @Configurable("swarm.microprofile.jwtauth.token.jwksRefreshInterval")
+    private Defaultable<Integer> jwksRefreshInterval = integer(60);
+
     @AttributeDocumentation("The JWT token expiration grace period in seconds ")
     @Configurable("swarm.microprofile.jwtauth.token.expGracePeriod")
     private Defaultable<Integer> expGracePeriodSecs = integer(60);
@@ -62,6 +70,22 @@ public class MicroProfileJWTAuthFraction implements Fraction<MicroProfileJWTAuth
         this.publicKey = publicKey;
     }
 
+    public String getJwksUri() {
+        return jwksUri;
+    }
+
+    public void setJwksUri(String jwksUri) {
+        this.jwksUri = jwksUri;
+    }
+
+    public Defaultable<Integer> getJwksRefreshInterval() {
+        return jwksRefreshInterval;
+    }
+
+    public void setJwksRefreshInterval(Defaultable<Integer> jwksRefreshInterval) {
+        this.jwksRefreshInterval = jwksRefreshInterval;
+    }
+
     public Defaultable<Integer> getExpGracePeriodSecs() {
         return expGracePeriodSecs;
     }
@@ -21,7 +21,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
-import java.security.interfaces.RSAPublicKey;
+import java.security.PublicKey;
 import java.util.Map;
 import java.util.Optional;
 
@@ -57,7 +57,7 @@ public class JWTAuthMechanismFactory implements AuthenticationMechanismFactory {
      * @param mechanismName     - the login-config/auth-method, which will be MP-JWT for JWTAuthMechanism
      * @param formParserFactory - unused form type of authentication factory
      * @param properties        - the query parameters from the web.xml/login-config/auth-method value. We look for an issuedBy
-     *                          and signerPubKey property to use for token validation.
+     *                          and signerPubKey, or jwksUri and jwksRefreshInterval, property to use for token validation.
      * @return the JWTAuthMechanism
      * @see JWTAuthContextInfo
      *
@@ -92,29 +92,54 @@ public class JWTAuthMechanismFactory implements AuthenticationMechanismFactory {
                 }
                 issuedBy = issuedBy.trim();
             }
-            String publicKeyPemEnc = properties.get("signerPubKey");
-            if (publicKeyPemEnc == null) {
-                // Try the /META-INF/MP-JWT-SIGNER content
-                URL pkURL = loader.getResource("/META-INF/MP-JWT-SIGNER");
-                if (pkURL == null) {
-                    throw new IllegalStateException("No signerPubKey parameter was found");
+            contextInfo.setIssuedBy(issuedBy);
+            String jwksUri = properties.get("jwksUri");
+            if (jwksUri == null) {
+                // Try the /META-INF/MP-JWT-JWKS-URI content
+                URL jwksURL = loader.getResource("/META-INF/MP-JWT-JWKS-URI");
+                if (jwksURL != null) {
+                    jwksUri = readURLContent(jwksURL).trim();
                 }
-                publicKeyPemEnc = readURLContent(pkURL);
             }
+            if (jwksUri != null) {
+                String jwksRefreshInterval = properties.get("jwksRefreshInterval");
+                if (jwksRefreshInterval == null) {
+                    // Try the /META-INF/MP-JWT-JWKS-REFRESH-INTERVAL content
+                    URL intervalURL = loader.getResource("/META-INF/MP-JWT-JWKS-REFRESH-INTERVAL");
+                    if (intervalURL != null) {
+                        jwksRefreshInterval = readURLContent(intervalURL).trim();
+                    }
+                }
+                if (jwksRefreshInterval != null) {
+                    contextInfo.setJwksRefreshInterval(Integer.parseInt(jwksRefreshInterval));
+                }
+                contextInfo.setJwksUri(jwksUri);
+            } else {
+                String publicKeyPemEnc = properties.get("signerPubKey");
+                if (publicKeyPemEnc == null) {
+                    // Try the /META-INF/MP-JWT-SIGNER content
+                    URL pkURL = loader.getResource("/META-INF/MP-JWT-SIGNER");
+                    if (pkURL == null) {
+                        throw new IllegalStateException("No signerPubKey or jwksUri parameter was found");
+                    }
+                    publicKeyPemEnc = readURLContent(pkURL);
+                }
 
-            // Workaround the double decode issue; https://issues.jboss.org/browse/WFLY-9135
-            String publicKeyPem = publicKeyPemEnc.replace(' ', '+');
-            contextInfo.setIssuedBy(issuedBy);
-            try {
-                RSAPublicKey pk = (RSAPublicKey) KeyUtils.decodePublicKey(publicKeyPem);
-                contextInfo.setSignerKey(pk);
-            } catch (Exception e) {
-                throw new IllegalStateException(e);
+                // Workaround the double decode issue; https://issues.jboss.org/browse/WFLY-9135
+                String publicKeyPem = publicKeyPemEnc.replace(' ', '+');
+                try {
+                    PublicKey pk = KeyUtils.decodePublicKey(publicKeyPem);
+                    contextInfo.setSignerKey(pk);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
             }
         } else {
             contextInfo = optContextInfo.get();
         }
 
+        // The mechanism is created as the deployment starts, the keys are fetched before the first request
+        contextInfo.fetchKeys();
         return new JWTAuthMechanism(contextInfo);
     }
 
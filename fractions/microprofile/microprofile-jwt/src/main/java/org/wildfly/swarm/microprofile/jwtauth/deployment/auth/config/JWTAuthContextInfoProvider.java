@@ -18,7 +18,7 @@
 
 package org.wildfly.swarm.microprofile.jwtauth.deployment.auth.config;
 
-import java.security.interfaces.RSAPublicKey;
+import java.security.PublicKey;
 import java.util.Optional;
 
 import javax.annotation.PostConstruct;
@@ -40,6 +40,12 @@ public class JWTAuthContextInfoProvider {
     @ConfigProperty(name = "mpjwt.signerPublicKey")
     private Optional<String> publicKeyPemEnc;
     @Inject
+    @ConfigProperty(name = "mpjwt.jwksUri")
+    private Optional<String> jwksUri;
+    @Inject
+    @ConfigProperty(name = "mpjwt.jwksRefreshInterval", defaultValue = "60")
+    private Optional<Integer> jwksRefreshInterval;
+    @Inject
     @ConfigProperty(name = "mpjwt.issuedBy", defaultValue = "NONE")
     private String issuedBy;
     @Inject
@@ -52,15 +58,22 @@ public class JWTAuthContextInfoProvider {
 
     @Produces
     Optional<JWTAuthContextInfo> getOptionalContextInfo() {
-        if (!publicKeyPemEnc.isPresent()) {
+        if (!publicKeyPemEnc.isPresent() && !jwksUri.isPresent()) {
             return Optional.empty();
         }
         JWTAuthContextInfo contextInfo = new JWTAuthContextInfo();
-        try {
-            RSAPublicKey pk = (RSAPublicKey) KeyUtils.decodePublicKey(publicKeyPemEnc.get());
-            contextInfo.setSignerKey(pk);
-        } catch (Exception e) {
-            throw new DeploymentException(e);
+        if (jwksUri.isPresent()) {
+            if (jwksRefreshInterval.isPresent()) {
+                contextInfo.setJwksRefreshInterval(jwksRefreshInterval.get());
+            }
+            contextInfo.setJwksUri(jwksUri.get());
+        } else {
+            try {
+                PublicKey pk = KeyUtils.decodePublicKey(publicKeyPemEnc.get());
+                contextInfo.setSignerKey(pk);
+            } catch (Exception e) {
+                throw new DeploymentException(e);
+            }
         }
         if (issuedBy != null && !issuedBy.equals("NONE")) {
             contextInfo.setIssuedBy(issuedBy);
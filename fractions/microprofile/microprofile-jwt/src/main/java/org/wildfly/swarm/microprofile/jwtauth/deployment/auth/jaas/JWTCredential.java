@@ -29,6 +29,13 @@ import org.jose4j.jwt.consumer.JwtContext;
  * needed for validation of the token.
  */
 public class JWTCredential implements Credential {
+    // A JwtConsumer that doesn't check signatures or do any validation.
+    private static final JwtConsumer FIRST_PASS_JWT_CONSUMER = new JwtConsumerBuilder()
+            .setSkipAllValidators()
+            .setDisableRequireSignature()
+            .setSkipSignatureVerification()
+            .build();
+
     private JWTAuthContextInfo authContextInfo;
 
     private String bearerToken;
@@ -47,8 +54,8 @@ public class JWTCredential implements Credential {
     }
 
     /**
-     * This just parses the token without validation to extract one of the following in order to obtain
-     * the name to be used for the principal:
+     * The name of the principal the token was verified to already, if any, or else parses the token without validation to
+     * extract one of the following in order to obtain the name to be used for the principal:
      * upn
      * preferred_username
      * subject
@@ -59,18 +66,14 @@ public class JWTCredential implements Credential {
      * @return the name to use for the principal
      */
     public String getName() {
+        if (name == null && authContextInfo != null) {
+            name = authContextInfo.getVerifiedPrincipalName(bearerToken);
+        }
         if (name == null) {
             name = "INVALID_TOKEN_NAME";
             try {
-                // Build a JwtConsumer that doesn't check signatures or do any validation.
-                JwtConsumer firstPassJwtConsumer = new JwtConsumerBuilder()
-                        .setSkipAllValidators()
-                        .setDisableRequireSignature()
-                        .setSkipSignatureVerification()
-                        .build();
-
                 //The first JwtConsumer is basically just used to parse the JWT into a JwtContext object.
-                JwtContext jwtContext = firstPassJwtConsumer.process(bearerToken);
+                JwtContext jwtContext = FIRST_PASS_JWT_CONSUMER.process(bearerToken);
                 JwtClaims claimsSet = jwtContext.getJwtClaims();
                 // We have to determine the unique name to use as the principal name. It comes from upn, preferred_username, sub in that order
                 name = claimsSet.getClaimValue("upn", String.class);
@@ -0,0 +1,289 @@
+/**
+ *
+ *   Copyright 2017 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.principal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jboss.logging.Logger;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.keys.resolvers.VerificationKeyResolver;
+import org.jose4j.lang.JoseException;
+import org.jose4j.lang.UnresolvableKeyException;
+
+/**
+ * Resolves the verification key of a token from a JSON Web Key Set, indexed by the key id.
+ * <p>
+ * The key set is fetched in the background, right away and then every refresh interval, and the keys are swapped atomically. Tokens never wait for
+ * the network: until the first fetch is over they are rejected, and a token signed by a key that is not known yet is rejected too, and only triggers an
+ * early refresh so that a rotated key is picked up without waiting for the next scheduled one.
+ * </p>
+ */
+class JWKSKeyResolver implements VerificationKeyResolver {
+
+    private static final Logger log = Logger.getLogger(JWKSKeyResolver.class);
+
+    // The least time between two fetches triggered by unknown keys, and the delay before retrying a failed fetch
+    static final long MIN_REFRESH_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    static final int TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(10);
+
+    // Fetches are short and rare, a single thread serves all the key sets
+    private static final ScheduledExecutorService SCHEDULER;
+
+    static {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "mpjwt-jwks-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        SCHEDULER = executor;
+    }
+
+    JWKSKeyResolver(String jwksUri, long refreshIntervalMillis) {
+        this(jwksUri, refreshIntervalMillis, MIN_REFRESH_INTERVAL_MILLIS);
+    }
+
+    JWKSKeyResolver(String jwksUri, long refreshIntervalMillis, long minRefreshIntervalMillis) {
+        this.jwksUri = jwksUri;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.minRefreshIntervalMillis = minRefreshIntervalMillis;
+        // The task does not keep the resolver alive, it stops once the resolver is gone
+        Refresh refresh = new Refresh(new WeakReference<>(this));
+        this.task = SCHEDULER.scheduleWithFixedDelay(refresh, 0, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        refresh.task = this.task;
+    }
+
+    @Override
+    public Key resolveKey(JsonWebSignature jws, List<JsonWebStructure> nestingContext) throws UnresolvableKeyException {
+        Keys keys = this.keys;
+        if (keys == Keys.EMPTY) {
+            refreshEarly();
+            throw new UnresolvableKeyException("No keys fetched from " + jwksUri + " yet");
+        }
+        String kid = jws.getKeyIdHeaderValue();
+        if (kid != null) {
+            PublicKey key = keys.byKid.get(kid);
+            if (key == null) {
+                refreshEarly();
+                throw new UnresolvableKeyException("No key with kid " + kid + " in " + jwksUri);
+            }
+            return key;
+        }
+        // No kid, there must be a single candidate for the algorithm
+        Class<?> keyType = keyType(jws.getAlgorithmHeaderValue());
+        PublicKey match = null;
+        for (PublicKey key : keys.all) {
+            if (keyType == null || keyType.isInstance(key)) {
+                if (match != null) {
+                    throw new UnresolvableKeyException("No kid in the token and more than one candidate key in " + jwksUri);
+                }
+                match = key;
+            }
+        }
+        if (match == null) {
+            refreshEarly();
+            throw new UnresolvableKeyException("No key for " + jws.getAlgorithmHeaderValue() + " in " + jwksUri);
+        }
+        return match;
+    }
+
+    /**
+     * @return the keys currently in use, the same instance until the key set changes
+     */
+    Object currentKeys() {
+        return keys;
+    }
+
+    void close() {
+        task.cancel(false);
+    }
+
+    void refresh() {
+        lastFetch = System.currentTimeMillis();
+        try {
+            Keys fetched = Keys.parse(fetch());
+            if (!fetched.equals(keys)) {
+                log.debugf("Keys refreshed from %s: %s", jwksUri, fetched.byKid.keySet());
+                keys = fetched;
+            }
+        } catch (IOException | JoseException | RuntimeException e) {
+            log.warnf("Failed to refresh the keys from %s, error=%s", jwksUri, e.getMessage());
+            retryEarly();
+        }
+    }
+
+    private String fetch() throws IOException {
+        URLConnection connection = new URL(jwksUri).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void refreshEarly() {
+        if (System.currentTimeMillis() - lastFetch >= minRefreshIntervalMillis) {
+            retryEarly();
+        }
+    }
+
+    private void retryEarly() {
+        if (refreshIntervalMillis <= minRefreshIntervalMillis || !earlyRefreshPending.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = Math.max(0, lastFetch + minRefreshIntervalMillis - System.currentTimeMillis());
+        WeakReference<JWKSKeyResolver> ref = new WeakReference<>(this);
+        SCHEDULER.schedule(() -> {
+            JWKSKeyResolver resolver = ref.get();
+            if (resolver != null && !resolver.task.isCancelled()) {
+                resolver.earlyRefreshPending.set(false);
+                resolver.refresh();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static Class<?> keyType(String algorithm) {
+        if (algorithm == null) {
+            return null;
+        }
+        if (algorithm.startsWith("RS") || algorithm.startsWith("PS")) {
+            return RSAPublicKey.class;
+        }
+        if (algorithm.startsWith("ES")) {
+            return ECPublicKey.class;
+        }
+        return null;
+    }
+
+    private final String jwksUri;
+
+    private final long refreshIntervalMillis;
+
+    private final long minRefreshIntervalMillis;
+
+    private final ScheduledFuture<?> task;
+
+    private final AtomicBoolean earlyRefreshPending = new AtomicBoolean();
+
+    private volatile Keys keys = Keys.EMPTY;
+
+    private volatile long lastFetch;
+
+    private static class Refresh implements Runnable {
+
+        Refresh(WeakReference<JWKSKeyResolver> ref) {
+            this.ref = ref;
+        }
+
+        @Override
+        public void run() {
+            JWKSKeyResolver resolver = ref.get();
+            if (resolver == null) {
+                discard();
+                return;
+            }
+            resolver.refresh();
+        }
+
+        private void discard() {
+            // Set once scheduled, before the resolver can be collected
+            task.cancel(false);
+        }
+
+        private final WeakReference<JWKSKeyResolver> ref;
+
+        private volatile ScheduledFuture<?> task;
+    }
+
+    /**
+     * An immutable snapshot of the signature verification keys of a key set.
+     */
+    private static class Keys {
+
+        static final Keys EMPTY = new Keys(Collections.emptyMap(), Collections.emptyList());
+
+        static Keys parse(String json) throws JoseException {
+            Map<String, PublicKey> byKid = new HashMap<>();
+            List<PublicKey> all = new ArrayList<>();
+            for (JsonWebKey jwk : new JsonWebKeySet(json).getJsonWebKeys()) {
+                if (!(jwk instanceof PublicJsonWebKey) || (jwk.getUse() != null && !"sig".equals(jwk.getUse()))) {
+                    continue;
+                }
+                PublicKey key = ((PublicJsonWebKey) jwk).getPublicKey();
+                all.add(key);
+                if (jwk.getKeyId() != null) {
+                    byKid.put(jwk.getKeyId(), key);
+                }
+            }
+            return new Keys(Collections.unmodifiableMap(byKid), Collections.unmodifiableList(all));
+        }
+
+        private Keys(Map<String, PublicKey> byKid, List<PublicKey> all) {
+            this.byKid = byKid;
+            this.all = all;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Keys)) {
+                return false;
+            }
+            Keys other = (Keys) obj;
+            return byKid.equals(other.byKid) && all.equals(other.all);
+        }
+
+        @Override
+        public int hashCode() {
+            return byKid.hashCode();
+        }
+
+        final Map<String, PublicKey> byKid;
+
+        final List<PublicKey> all;
+    }
+}
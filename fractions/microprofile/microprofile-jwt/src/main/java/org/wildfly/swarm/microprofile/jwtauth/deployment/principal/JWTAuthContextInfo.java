@@ -16,38 +16,87 @@
  */
 package org.wildfly.swarm.microprofile.jwtauth.deployment.principal;
 
-import java.security.interfaces.RSAPublicKey;
+import java.security.PublicKey;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
- * The public key and expected issuer needed to validate a token.
+ * The public key, or the URI of the JSON Web Key Set, and expected issuer needed to validate a token.
  */
 public class JWTAuthContextInfo {
-    private RSAPublicKey signerKey;
+    private PublicKey signerKey;
+
+    private String jwksUri;
+
+    private int jwksRefreshInterval = 60;
 
     private String issuedBy;
 
     private int expGracePeriodSecs = 60;
 
+    // Built lazily, and again once the configuration changes
+    private volatile TokenVerifier tokenVerifier;
+
+    // Built with the first token verifier, and again only once the key set settings change
+    private JWKSKeyResolver keyResolver;
+
     public JWTAuthContextInfo() {
     }
 
-    public JWTAuthContextInfo(RSAPublicKey signerKey, String issuedBy) {
+    public JWTAuthContextInfo(PublicKey signerKey, String issuedBy) {
         this.signerKey = signerKey;
         this.issuedBy = issuedBy;
     }
 
+    public JWTAuthContextInfo(String jwksUri, String issuedBy) {
+        this.jwksUri = jwksUri;
+        this.issuedBy = issuedBy;
+    }
+
     public JWTAuthContextInfo(JWTAuthContextInfo orig) {
         this.signerKey = orig.signerKey;
+        this.jwksUri = orig.jwksUri;
+        this.jwksRefreshInterval = orig.jwksRefreshInterval;
         this.issuedBy = orig.issuedBy;
         this.expGracePeriodSecs = orig.expGracePeriodSecs;
     }
 
-    public RSAPublicKey getSignerKey() {
+    public PublicKey getSignerKey() {
         return signerKey;
     }
 
-    public void setSignerKey(RSAPublicKey signerKey) {
+    public void setSignerKey(PublicKey signerKey) {
         this.signerKey = signerKey;
+        reset(false);
+    }
+
+    public String getJwksUri() {
+        return jwksUri;
+    }
+
+    /**
+     * The keys of the JSON Web Key Set are fetched in the background, starting with {@link #fetchKeys()} or when the first token is verified, and take
+     * precedence over the signer key. The tokens are rejected until the first fetch is over.
+     *
+     * @param jwksUri the URI of the JSON Web Key Set
+     */
+    public void setJwksUri(String jwksUri) {
+        boolean changed = !Objects.equals(this.jwksUri, jwksUri);
+        this.jwksUri = jwksUri;
+        reset(changed);
+    }
+
+    /**
+     * @return the interval between two fetches of the JSON Web Key Set, in minutes
+     */
+    public int getJwksRefreshInterval() {
+        return jwksRefreshInterval;
+    }
+
+    public void setJwksRefreshInterval(int jwksRefreshInterval) {
+        boolean changed = this.jwksRefreshInterval != jwksRefreshInterval;
+        this.jwksRefreshInterval = jwksRefreshInterval;
+        reset(changed);
     }
 
     public String getIssuedBy() {
@@ -56,6 +105,7 @@ public class JWTAuthContextInfo {
 
     public void setIssuedBy(String issuedBy) {
         this.issuedBy = issuedBy;
+        reset(false);
     }
 
     public int getExpGracePeriodSecs() {
@@ -64,5 +114,51 @@ public class JWTAuthContextInfo {
 
     public void setExpGracePeriodSecs(int expGracePeriodSecs) {
         this.expGracePeriodSecs = expGracePeriodSecs;
+        reset(false);
+    }
+
+    /**
+     * Starts fetching the keys of the JSON Web Key Set, if one is set, so that they are ready by the time the first tokens come in.
+     */
+    public void fetchKeys() {
+        getTokenVerifier();
+    }
+
+    /**
+     * @param token the bearer token
+     * @return the name of the principal of the token if it was verified already and has not expired since, null otherwise
+     */
+    public String getVerifiedPrincipalName(String token) {
+        TokenVerifier verifier = this.tokenVerifier;
+        return verifier != null ? verifier.verifiedName(token) : null;
+    }
+
+    TokenVerifier getTokenVerifier() {
+        TokenVerifier verifier = this.tokenVerifier;
+        if (verifier == null) {
+            synchronized (this) {
+                verifier = this.tokenVerifier;
+                if (verifier == null) {
+                    verifier = new TokenVerifier(this, getKeyResolver());
+                    this.tokenVerifier = verifier;
+                }
+            }
+        }
+        return verifier;
+    }
+
+    private synchronized JWKSKeyResolver getKeyResolver() {
+        if (keyResolver == null && jwksUri != null) {
+            keyResolver = new JWKSKeyResolver(jwksUri, TimeUnit.MINUTES.toMillis(jwksRefreshInterval));
+        }
+        return keyResolver;
+    }
+
+    private synchronized void reset(boolean keySetChanged) {
+        tokenVerifier = null;
+        if (keySetChanged && keyResolver != null) {
+            keyResolver.close();
+            keyResolver = null;
+        }
     }
 }
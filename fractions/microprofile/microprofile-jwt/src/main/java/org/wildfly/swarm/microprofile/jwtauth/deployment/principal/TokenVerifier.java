@@ -0,0 +1,184 @@
+/**
+ *
+ *   Copyright 2017 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.principal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.eclipse.microprofile.jwt.Claims;
+import org.jose4j.jwa.AlgorithmConstraints;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+import org.jose4j.jwt.consumer.JwtContext;
+
+/**
+ * Verifies tokens against a {@link JWTAuthContextInfo}. The JwtConsumer is built once, and the principals of the tokens verified are remembered until
+ * the tokens expire, or the keys of the JSON Web Key Set change, so that a token presented again skips the signature verification and the parsing of its
+ * claims.
+ */
+class TokenVerifier {
+
+    static final int CACHE_SIZE = 1024;
+
+    TokenVerifier(JWTAuthContextInfo authContextInfo, JWKSKeyResolver keyResolver) {
+        this(authContextInfo, keyResolver, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock The time in milliseconds the cached principals expire against. The token claims themselves are always validated against the system
+     *              clock.
+     */
+    TokenVerifier(JWTAuthContextInfo authContextInfo, JWKSKeyResolver keyResolver, LongSupplier clock) {
+        JwtConsumerBuilder builder = new JwtConsumerBuilder()
+                .setRequireExpirationTime()
+                .setRequireSubject()
+                .setSkipDefaultAudienceValidation()
+                .setExpectedIssuer(authContextInfo.getIssuedBy())
+                .setJwsAlgorithmConstraints(
+                        new AlgorithmConstraints(AlgorithmConstraints.ConstraintType.WHITELIST,
+                                AlgorithmIdentifiers.RSA_USING_SHA256, AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256));
+        if (keyResolver != null) {
+            builder.setVerificationKeyResolver(keyResolver);
+        } else {
+            builder.setVerificationKey(authContextInfo.getSignerKey());
+        }
+        if (authContextInfo.getExpGracePeriodSecs() > 0) {
+            builder.setAllowedClockSkewInSeconds(authContextInfo.getExpGracePeriodSecs());
+            this.expGracePeriodMillis = TimeUnit.SECONDS.toMillis(authContextInfo.getExpGracePeriodSecs());
+        } else {
+            builder.setEvaluationTime(NumericDate.fromSeconds(0));
+            this.expGracePeriodMillis = 0;
+        }
+        this.jwtConsumer = builder.build();
+        this.keyResolver = keyResolver;
+        this.clock = clock;
+    }
+
+    JWTCallerPrincipal verify(String token) throws ParseException {
+        ByteBuffer key = hash(token);
+        long now = this.clock.getAsLong();
+        // Read before the verification, a token verified while the keys change is not trusted with the new ones
+        Object keys = keyResolver != null ? keyResolver.currentKeys() : null;
+        VerifiedToken verified;
+        synchronized (this.verified) {
+            verified = this.verified.get(key);
+        }
+        if (verified != null && verified.expiresAt > now && verified.keys == keys && token.equals(verified.principal.getRawToken())) {
+            return verified.principal;
+        }
+
+        JWTCallerPrincipal principal = parse(token);
+        long expiresAt = TimeUnit.SECONDS.toMillis(principal.getExpirationTime()) + this.expGracePeriodMillis;
+        synchronized (this.verified) {
+            if (expiresAt > now) {
+                this.verified.put(key, new VerifiedToken(principal, expiresAt, keys));
+            } else {
+                this.verified.remove(key);
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * @return the name of the principal of the token if it was verified and has not expired since, without verifying it, null otherwise
+     */
+    String verifiedName(String token) {
+        ByteBuffer key = hash(token);
+        VerifiedToken verified;
+        synchronized (this.verified) {
+            verified = this.verified.get(key);
+        }
+        if (verified != null && verified.expiresAt > this.clock.getAsLong() && token.equals(verified.principal.getRawToken())) {
+            return verified.principal.getName();
+        }
+        return null;
+    }
+
+    private JWTCallerPrincipal parse(String token) throws ParseException {
+        try {
+            // Validates the JWT and processes it to the claims
+            JwtContext jwtContext = this.jwtConsumer.process(token);
+            String type = jwtContext.getJoseObjects().get(0).getHeader("typ");
+            JwtClaims claimsSet = jwtContext.getJwtClaims();
+
+            // We have to determine the unique name to use as the principal name. It comes from upn, preferred_username, sub in that order
+            String principalName = claimsSet.getClaimValue("upn", String.class);
+            if (principalName == null) {
+                principalName = claimsSet.getClaimValue("preferred_username", String.class);
+                if (principalName == null) {
+                    principalName = claimsSet.getSubject();
+                }
+            }
+            claimsSet.setClaim(Claims.raw_token.name(), token);
+            return new DefaultJWTCallerPrincipal(token, type, claimsSet, principalName);
+        } catch (InvalidJwtException e) {
+            throw new ParseException("Failed to verify token", e);
+        } catch (MalformedClaimException e) {
+            throw new ParseException("Failed to verify token claims", e);
+        }
+    }
+
+    private static ByteBuffer hash(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final JwtConsumer jwtConsumer;
+
+    private final long expGracePeriodMillis;
+
+    private final JWKSKeyResolver keyResolver;
+
+    private final LongSupplier clock;
+
+    // Keyed by the SHA-256 hash of the token, least recently used first
+    private final Map<ByteBuffer, VerifiedToken> verified = new LinkedHashMap<ByteBuffer, VerifiedToken>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedToken> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private static class VerifiedToken {
+
+        VerifiedToken(JWTCallerPrincipal principal, long expiresAt, Object keys) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+            this.keys = keys;
+        }
+
+        final JWTCallerPrincipal principal;
+
+        final long expiresAt;
+
+        final Object keys;
+    }
+}
@@ -145,6 +145,11 @@ public class MPJWTAuthExtensionArchivePreparer implements DeploymentProcessor {
             log.debugf("PublicKey: %s", fraction.getPublicKey());
             war.addAsManifestResource(new StringAsset(fraction.getPublicKey()), "MP-JWT-SIGNER");
         }
+        if (fraction.getJwksUri() != null) {
+            log.debugf("JWKS URI: %s", fraction.getJwksUri());
+            war.addAsManifestResource(new StringAsset(fraction.getJwksUri()), "MP-JWT-JWKS-URI");
+            war.addAsManifestResource(new StringAsset(fraction.getJwksRefreshInterval().get().toString()), "MP-JWT-JWKS-REFRESH-INTERVAL");
+        }
         if (log.isTraceEnabled()) {
             log.trace("war: " + war.toString(true));
         }
@@ -0,0 +1,286 @@
+/**
+ *
+ *   Copyright 2017 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.principal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpServer;
+import org.jose4j.jwk.EcJwkGenerator;
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.PublicJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.keys.EllipticCurves;
+import org.jose4j.lang.UnresolvableKeyException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class JWKSKeyResolverTest {
+
+    private static final String ISSUER = "https://server.example.com";
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        rsaKey = RsaJwkGenerator.generateJwk(2048);
+        rsaKey.setKeyId("rsa-1");
+        ecKey = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+        ecKey.setKeyId("ec-1");
+        rotatedKey = EcJwkGenerator.generateJwk(EllipticCurves.P256);
+        rotatedKey.setKeyId("ec-2");
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/jwks", exchange -> {
+            fetches.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = jwks.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        jwksUri = "http://localhost:" + server.getAddress().getPort() + "/jwks";
+    }
+
+    @After
+    public void stopServer() {
+        release.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    public void testRS256AndES256() throws Exception {
+        serve(rsaKey, ecKey);
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo(jwksUri, ISSUER);
+        authContextInfo.fetchKeys();
+        awaitFetches(1);
+        DefaultJWTCallerPrincipalFactory factory = new DefaultJWTCallerPrincipalFactory();
+
+        assertThat(factory.parse(sign(rsaKey, AlgorithmIdentifiers.RSA_USING_SHA256, "jdoe"), authContextInfo).getName()).isEqualTo("jdoe");
+        assertThat(factory.parse(sign(ecKey, AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256, "jroe"), authContextInfo).getName()).isEqualTo("jroe");
+    }
+
+    @Test
+    public void testRotatedKeyIsFetchedEarly() throws Exception {
+        serve(ecKey);
+        JWKSKeyResolver resolver = new JWKSKeyResolver(jwksUri, TimeUnit.HOURS.toMillis(1), 100);
+        try {
+            awaitFetches(1);
+            JsonWebSignature rotated = signature(rotatedKey);
+            serve(ecKey, rotatedKey);
+            try {
+                resolver.resolveKey(rotated, null);
+                fail("The rotated key is not fetched yet");
+            } catch (UnresolvableKeyException expected) {
+            }
+            awaitFetches(2);
+            Key key = null;
+            for (int i = 0; i < 50 && key == null; i++) {
+                try {
+                    key = resolver.resolveKey(rotated, null);
+                } catch (UnresolvableKeyException e) {
+                    TimeUnit.MILLISECONDS.sleep(20);
+                }
+            }
+            assertThat(key).isEqualTo(rotatedKey.getPublicKey());
+        } finally {
+            resolver.close();
+        }
+    }
+
+    @Test
+    public void testRemovedKeyInvalidatesVerifiedTokens() throws Exception {
+        serve(ecKey, rotatedKey);
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo(jwksUri, ISSUER);
+        TokenVerifier verifier = authContextInfo.getTokenVerifier();
+        awaitFetches(1);
+        String token = sign(ecKey, AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256, "jdoe");
+        JWTCallerPrincipal principal = verifier.verify(token);
+        assertThat(verifier.verify(token)).isSameAs(principal);
+
+        serve(rotatedKey);
+        ((JWKSKeyResolver) resolver(authContextInfo)).refresh();
+        try {
+            verifier.verify(token);
+            fail("The key of the token was removed");
+        } catch (ParseException expected) {
+        }
+    }
+
+    @Test
+    public void testTokensAreRejectedUntilFirstFetch() throws Exception {
+        serve(ecKey);
+        release = new CountDownLatch(1);
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo(jwksUri, ISSUER);
+        authContextInfo.fetchKeys();
+        String token = sign(ecKey, AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256, "jdoe");
+
+        // The first fetch hangs
+        awaitFetches(1);
+        long start = System.nanoTime();
+        try {
+            authContextInfo.getTokenVerifier().verify(token);
+            fail("The keys are not fetched yet");
+        } catch (ParseException expected) {
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+
+        release.countDown();
+        JWTCallerPrincipal principal = null;
+        for (int i = 0; i < 50 && principal == null; i++) {
+            try {
+                principal = authContextInfo.getTokenVerifier().verify(token);
+            } catch (ParseException e) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+        }
+        assertThat(principal.getName()).isEqualTo("jdoe");
+    }
+
+    @Test
+    public void testLaterVerificationsDoNotWaitForFetch() throws Exception {
+        serve(ecKey);
+        JWKSKeyResolver resolver = new JWKSKeyResolver(jwksUri, TimeUnit.HOURS.toMillis(1), 0);
+        try {
+            awaitFetches(1);
+            assertThat(resolver.resolveKey(signature(ecKey), null)).isEqualTo(ecKey.getPublicKey());
+
+            // The early refresh triggered by the unknown key hangs
+            release = new CountDownLatch(1);
+            long start = System.nanoTime();
+            for (int i = 0; i < 2; i++) {
+                try {
+                    resolver.resolveKey(signature(rotatedKey), null);
+                    fail("The rotated key is not fetched yet");
+                } catch (UnresolvableKeyException expected) {
+                }
+            }
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        } finally {
+            resolver.close();
+        }
+    }
+
+    @Test
+    public void testKeySetIsFetchedAgainOnlyWhenItsSettingsChange() throws Exception {
+        serve(ecKey);
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo(jwksUri, ISSUER);
+        authContextInfo.setExpGracePeriodSecs(30);
+        authContextInfo.setJwksRefreshInterval(authContextInfo.getJwksRefreshInterval());
+        assertThat(new JWTAuthContextInfo(authContextInfo).getJwksUri()).isEqualTo(jwksUri);
+        assertThat(resolver(authContextInfo)).isNull();
+
+        String token = sign(ecKey, AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256, "jdoe");
+        authContextInfo.fetchKeys();
+        awaitFetches(1);
+        authContextInfo.getTokenVerifier().verify(token);
+        Object resolver = resolver(authContextInfo);
+        assertThat(fetches.get()).isEqualTo(1);
+
+        authContextInfo.setIssuedBy(ISSUER);
+        authContextInfo.setExpGracePeriodSecs(60);
+        authContextInfo.getTokenVerifier().verify(token);
+        assertThat(resolver(authContextInfo)).isSameAs(resolver);
+        assertThat(fetches.get()).isEqualTo(1);
+
+        authContextInfo.setJwksUri(jwksUri + "?rotated");
+        authContextInfo.fetchKeys();
+        awaitFetches(2);
+        authContextInfo.getTokenVerifier().verify(token);
+        assertThat(resolver(authContextInfo)).isNotSameAs(resolver);
+        assertThat(fetches.get()).isEqualTo(2);
+    }
+
+    private Object resolver(JWTAuthContextInfo authContextInfo) throws Exception {
+        java.lang.reflect.Field field = JWTAuthContextInfo.class.getDeclaredField("keyResolver");
+        field.setAccessible(true);
+        return field.get(authContextInfo);
+    }
+
+    private void serve(JsonWebKey... keys) {
+        jwks = new JsonWebKeySet(keys).toJson(JsonWebKey.OutputControlLevel.PUBLIC_ONLY);
+    }
+
+    private void awaitFetches(int count) throws InterruptedException {
+        for (int i = 0; i < 250 && fetches.get() < count; i++) {
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        assertThat(fetches.get()).isGreaterThanOrEqualTo(count);
+        // Let the response be parsed
+        TimeUnit.MILLISECONDS.sleep(100);
+    }
+
+    private static JsonWebSignature signature(PublicJsonWebKey key) throws Exception {
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setKeyIdHeaderValue(key.getKeyId());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.ECDSA_USING_P256_CURVE_AND_SHA256);
+        return jws;
+    }
+
+    private static String sign(PublicJsonWebKey key, String algorithm, String subject) throws Exception {
+        JwtClaims claims = new JwtClaims();
+        claims.setIssuer(ISSUER);
+        claims.setSubject(subject);
+        claims.setExpirationTime(NumericDate.fromSeconds(NumericDate.now().getValue() + 300));
+
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(key.getPrivateKey());
+        jws.setKeyIdHeaderValue(key.getKeyId());
+        jws.setAlgorithmHeaderValue(algorithm);
+        return jws.getCompactSerialization();
+    }
+
+    private static PublicJsonWebKey rsaKey;
+
+    private static PublicJsonWebKey ecKey;
+
+    private static PublicJsonWebKey rotatedKey;
+
+    private HttpServer server;
+
+    private String jwksUri;
+
+    private volatile String jwks;
+
+    private volatile CountDownLatch release = new CountDownLatch(0);
+
+    private final AtomicInteger fetches = new AtomicInteger();
+}
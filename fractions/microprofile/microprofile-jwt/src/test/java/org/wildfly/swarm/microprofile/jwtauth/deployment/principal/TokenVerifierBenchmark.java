@@ -0,0 +1,73 @@
+/**
+ *
+ *   Copyright 2017 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.principal;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+
+import org.wildfly.swarm.microprofile.jwtauth.deployment.auth.jaas.JWTCredential;
+
+/**
+ * Times the authentication of a bearer token, the way the JWT login module does it: the name is read from the credential, then the token is verified
+ * by the principal factory.
+ *
+ * <p>Not a unit test, run it with {@code main}. A 2048-bit RS256 token presented again is served from the cache of verified tokens. Cycling through
+ * more distinct tokens than the cache holds makes every call pay for the signature verification.</p>
+ */
+public class TokenVerifierBenchmark {
+
+    private static final int REPEATED_CALLS = 200000;
+
+    private static final int DISTINCT_CALLS = 5000;
+
+    private static final int DISTINCT_TOKENS = TokenVerifier.CACHE_SIZE * 2;
+
+    public static void main(String... args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo((RSAPublicKey) keyPair.getPublic(), "https://server.example.com");
+        DefaultJWTCallerPrincipalFactory factory = new DefaultJWTCallerPrincipalFactory();
+
+        String[] distinct = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < distinct.length; i++) {
+            distinct[i] = TokenVerifierTest.sign(keyPair, "user-" + i, 3600);
+        }
+        String[] repeated = {distinct[0]};
+
+        for (int i = 0; i < rounds; i++) {
+            report("repeated token", factory, authContextInfo, repeated, REPEATED_CALLS);
+            report("distinct tokens", factory, authContextInfo, distinct, DISTINCT_CALLS);
+        }
+    }
+
+    private static void report(String name, JWTCallerPrincipalFactory factory, JWTAuthContextInfo authContextInfo, String[] tokens, int calls)
+            throws ParseException {
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            String token = tokens[i % tokens.length];
+            JWTCredential credential = new JWTCredential(token, authContextInfo);
+            if (!credential.getName().equals(factory.parse(credential.getBearerToken(), authContextInfo).getName())) {
+                throw new IllegalStateException("Unexpected principal");
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-15s: %8.3f us/op%n", name, elapsed / 1e3 / calls);
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ *
+ *   Copyright 2017 Red Hat, Inc, and individual contributors.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.jwtauth.deployment.principal;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.NumericDate;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wildfly.swarm.microprofile.jwtauth.deployment.auth.jaas.JWTCredential;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class TokenVerifierTest {
+
+    private static final String ISSUER = "https://server.example.com";
+
+    @BeforeClass
+    public static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        otherKeyPair = generator.generateKeyPair();
+    }
+
+    @Test
+    public void testRepeatedTokenIsVerifiedOnce() throws Exception {
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo((RSAPublicKey) keyPair.getPublic(), ISSUER);
+        DefaultJWTCallerPrincipalFactory factory = new DefaultJWTCallerPrincipalFactory();
+        String token = sign(keyPair, "jdoe", 300);
+
+        JWTCallerPrincipal principal = factory.parse(token, authContextInfo);
+        assertThat(principal.getName()).isEqualTo("jdoe");
+        assertThat(principal.getRawToken()).isEqualTo(token);
+        assertThat(factory.parse(token, authContextInfo)).isSameAs(principal);
+
+        JWTCallerPrincipal other = factory.parse(sign(keyPair, "jroe", 300), authContextInfo);
+        assertThat(other.getName()).isEqualTo("jroe");
+    }
+
+    @Test
+    public void testInvalidSignatureIsRejected() throws Exception {
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo((RSAPublicKey) keyPair.getPublic(), ISSUER);
+        DefaultJWTCallerPrincipalFactory factory = new DefaultJWTCallerPrincipalFactory();
+        String token = sign(otherKeyPair, "jdoe", 300);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                factory.parse(token, authContextInfo);
+                fail("The token is not signed by the expected key");
+            } catch (ParseException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testConfigurationChangeIsHonoured() throws Exception {
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo((RSAPublicKey) keyPair.getPublic(), ISSUER);
+        DefaultJWTCallerPrincipalFactory factory = new DefaultJWTCallerPrincipalFactory();
+        String token = sign(keyPair, "jdoe", 300);
+        factory.parse(token, authContextInfo);
+
+        authContextInfo.setSignerKey((RSAPublicKey) otherKeyPair.getPublic());
+        try {
+            factory.parse(token, authContextInfo);
+            fail("The token is not signed by the configured key anymore");
+        } catch (ParseException expected) {
+        }
+    }
+
+    @Test
+    public void testExpiredTokenIsVerifiedAgain() throws Exception {
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo((RSAPublicKey) keyPair.getPublic(), ISSUER);
+        authContextInfo.setExpGracePeriodSecs(60);
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        TokenVerifier verifier = new TokenVerifier(authContextInfo, null, now::get);
+        // Expired, but within the grace period
+        String token = sign(keyPair, "jdoe", -30);
+
+        JWTCallerPrincipal principal = verifier.verify(token);
+        assertThat(verifier.verify(token)).isSameAs(principal);
+
+        now.addAndGet(TimeUnit.SECONDS.toMillis(28));
+        assertThat(verifier.verify(token)).isSameAs(principal);
+
+        // Past the grace period, the cached principal is not served anymore and the token is verified again
+        now.addAndGet(TimeUnit.SECONDS.toMillis(3));
+        JWTCallerPrincipal verifiedAgain = verifier.verify(token);
+        assertThat(verifiedAgain).isNotSameAs(principal);
+        assertThat(verifiedAgain.getName()).isEqualTo("jdoe");
+    }
+
+    @Test
+    public void testCredentialNameIsTakenFromTheVerifiedToken() throws Exception {
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo((RSAPublicKey) keyPair.getPublic(), ISSUER);
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        TokenVerifier verifier = new TokenVerifier(authContextInfo, null, now::get);
+        String token = sign(keyPair, "jdoe", 300);
+
+        assertThat(verifier.verifiedName(token)).isNull();
+        verifier.verify(token);
+        assertThat(verifier.verifiedName(token)).isEqualTo("jdoe");
+        assertThat(verifier.verifiedName(sign(keyPair, "jroe", 300))).isNull();
+
+        // Past the expiration and the default grace period
+        now.addAndGet(TimeUnit.SECONDS.toMillis(300 + 61));
+        assertThat(verifier.verifiedName(token)).isNull();
+
+        // The credential falls back to parsing the tokens that were not verified yet
+        authContextInfo.getTokenVerifier().verify(token);
+        assertThat(new JWTCredential(token, authContextInfo).getName()).isEqualTo("jdoe");
+        assertThat(new JWTCredential(sign(keyPair, "jroe", 300), authContextInfo).getName()).isEqualTo("jroe");
+        assertThat(new JWTCredential("not a token", authContextInfo).getName()).isEqualTo("INVALID_TOKEN_NAME");
+    }
+
+    @Test
+    public void testTokenExpiredPastTheGracePeriodIsRejected() throws Exception {
+        JWTAuthContextInfo authContextInfo = new JWTAuthContextInfo((RSAPublicKey) keyPair.getPublic(), ISSUER);
+        authContextInfo.setExpGracePeriodSecs(60);
+        TokenVerifier verifier = authContextInfo.getTokenVerifier();
+        String token = sign(keyPair, "jdoe", -120);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                verifier.verify(token);
+                fail("The token expired");
+            } catch (ParseException expected) {
+            }
+        }
+    }
+
+    static String sign(KeyPair keyPair, String subject, int expiresInSecs) throws Exception {
+        JwtClaims claims = new JwtClaims();
+        claims.setIssuer(ISSUER);
+        claims.setSubject(subject);
+        long now = NumericDate.now().getValue();
+        // A token cannot expire before it is issued
+        claims.setIssuedAt(NumericDate.fromSeconds(Math.min(now, now + expiresInSecs)));
+        claims.setExpirationTime(NumericDate.fromSeconds(now + expiresInSecs));
+        claims.setClaim("upn", subject);
+
+        JsonWebSignature jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(keyPair.getPrivate());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        jws.setHeader("typ", "JWT");
+        return jws.getCompactSerialization();
+    }
+
+    private static KeyPair keyPair;
+
+    private static KeyPair otherKeyPair;
+}
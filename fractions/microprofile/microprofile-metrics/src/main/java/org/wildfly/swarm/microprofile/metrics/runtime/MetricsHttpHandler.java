@@ -18,6 +18,9 @@ package org.wildfly.swarm.microprofile.metrics.runtime;
 
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.server.handlers.encoding.ContentEncodingRepository;
+import io.undertow.server.handlers.encoding.EncodingHandler;
+import io.undertow.server.handlers.encoding.GzipEncodingProvider;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import io.undertow.util.HttpString;
@@ -29,6 +32,9 @@ import org.wildfly.swarm.microprofile.metrics.runtime.exporters.JsonExporter;
 import org.wildfly.swarm.microprofile.metrics.runtime.exporters.PrometheusExporter;
 import org.wildfly.swarm.microprofile.metrics.runtime.exporters.JsonMetadataExporter;
 
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
@@ -43,6 +49,10 @@ public class MetricsHttpHandler implements HttpHandler {
 
     private HttpHandler next;
 
+    // compresses the response when the client accepts gzip
+    private final HttpHandler export = new EncodingHandler(this::handleMetricsRequest, new ContentEncodingRepository()
+            .addEncodingHandler("gzip", new GzipEncodingProvider(), 50));
+
     public MetricsHttpHandler(HttpHandler next) {
 
         this.next = next;
@@ -64,7 +74,18 @@ public class MetricsHttpHandler implements HttpHandler {
             return;
         }
 
-        // request is for us, so let's handle it
+        // request is for us, so let's handle it; exporting blocks while writing to the response
+        if (exchange.isInIoThread()) {
+            exchange.dispatch(this);
+            return;
+        }
+
+        export.handleRequest(exchange);
+    }
+
+    private void handleMetricsRequest(HttpServerExchange exchange) throws Exception {
+
+        String requestPath = exchange.getRequestPath();
 
         Exporter exporter = obtainExporter(exchange);
         if (exporter == null) {
@@ -81,19 +102,16 @@ public class MetricsHttpHandler implements HttpHandler {
             scopePath = scopePath.substring(0, scopePath.length() - 1);
         }
 
-        StringBuilder sb;
-
-        if (scopePath.isEmpty()) {
-            // All metrics
+        // All metrics, unless narrowed down below
+        MetricRegistry.Type scope = null;
+        String attribute = null;
 
-            sb = exporter.exportAllScopes();
-
-        } else if (scopePath.contains("/")) {
+        if (scopePath.contains("/")) {
             // One metric in a scope
 
-            String attribute = scopePath.substring(scopePath.indexOf('/') + 1);
+            attribute = scopePath.substring(scopePath.indexOf('/') + 1);
 
-            MetricRegistry.Type scope = getScopeFromPath(exchange, scopePath.substring(0, scopePath.indexOf('/')));
+            scope = getScopeFromPath(exchange, scopePath.substring(0, scopePath.indexOf('/')));
             if (scope == null) {
                 exchange.setStatusCode(404);
                 exchange.setReasonPhrase("Scope " + scopePath + " not found");
@@ -103,17 +121,15 @@ public class MetricsHttpHandler implements HttpHandler {
             MetricRegistry registry = MetricRegistryFactory.get(scope);
             Map<String, Metric> metricValuesMap = registry.getMetrics();
 
-            if (metricValuesMap.containsKey(attribute)) {
-                sb = exporter.exportOneMetric(scope, attribute);
-            } else {
+            if (!metricValuesMap.containsKey(attribute)) {
                 exchange.setStatusCode(404);
                 exchange.setReasonPhrase("Metric " + scopePath + " not found");
                 return;
             }
-        } else {
+        } else if (!scopePath.isEmpty()) {
             // A single scope
 
-            MetricRegistry.Type scope = getScopeFromPath(exchange, scopePath);
+            scope = getScopeFromPath(exchange, scopePath);
             if (scope == null) {
                 exchange.setStatusCode(404);
                 exchange.setReasonPhrase("Scope " + scopePath + " not found");
@@ -121,18 +137,26 @@ public class MetricsHttpHandler implements HttpHandler {
             }
 
             MetricRegistry reg = MetricRegistryFactory.get(scope);
-            if (reg.getMetadata().size() == 0) {
+            if (reg.getMetadata().isEmpty()) {
                 exchange.setStatusCode(204);
                 exchange.setReasonPhrase("No data in scope " + scopePath);
             }
-
-            sb = exporter.exportOneScope(scope);
         }
 
         exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, exporter.getContentType());
         provideCorsHeaders(exchange);
         exchange.getResponseHeaders().put(new HttpString("Access-Control-Max-Age"), "1209600");
-        exchange.getResponseSender().send(sb.toString());
+
+        exchange.startBlocking();
+        try (Writer out = new OutputStreamWriter(exchange.getOutputStream(), StandardCharsets.UTF_8)) {
+            if (scope == null) {
+                exporter.exportAllScopes(out);
+            } else if (attribute == null) {
+                exporter.exportOneScope(scope, out);
+            } else {
+                exporter.exportOneMetric(scope, attribute, out);
+            }
+        }
 
     }
 
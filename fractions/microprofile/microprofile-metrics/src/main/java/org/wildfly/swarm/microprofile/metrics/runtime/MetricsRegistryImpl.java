@@ -16,15 +16,26 @@
  */
 package org.wildfly.swarm.microprofile.metrics.runtime;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
 
 import javax.enterprise.inject.Vetoed;
 
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
 import org.eclipse.microprofile.metrics.Counter;
 import org.eclipse.microprofile.metrics.Gauge;
 import org.eclipse.microprofile.metrics.Histogram;
@@ -37,12 +48,19 @@ import org.eclipse.microprofile.metrics.MetricType;
 import org.eclipse.microprofile.metrics.Timer;
 import org.jboss.logging.Logger;
 import org.wildfly.swarm.microprofile.metrics.runtime.app.CounterImpl;
-import org.wildfly.swarm.microprofile.metrics.runtime.app.ExponentiallyDecayingReservoir;
 import org.wildfly.swarm.microprofile.metrics.runtime.app.HistogramImpl;
 import org.wildfly.swarm.microprofile.metrics.runtime.app.MeterImpl;
+import org.wildfly.swarm.microprofile.metrics.runtime.app.Reservoir;
+import org.wildfly.swarm.microprofile.metrics.runtime.app.ReservoirType;
 import org.wildfly.swarm.microprofile.metrics.runtime.app.TimerImpl;
 
 /**
+ * A thread-safe metric registry.
+ *
+ * <p>The metadata and metric of a name live together in a single entry, which is only ever
+ * replaced under the lock of its key, and sorted indexes of the names in each type are
+ * maintained under that same lock. The maps handed out are unmodifiable live views.</p>
+ *
  * @author hrupp
  */
 @Vetoed
@@ -50,15 +68,26 @@ public class MetricsRegistryImpl extends MetricRegistry {
 
     private static final Logger LOGGER = Logger.getLogger(MetricsRegistryImpl.class);
 
-    private Map<String, Metadata> metadataMap = new java.util.HashMap<>();
-    private Map<String, Metric> metricMap = new ConcurrentHashMap<>();
+    private static final String SWARM_MICROPROFILE_METRICS_RESERVOIR = "swarm.microprofile.metrics.reservoir";
 
-    @Override
-    public <T extends Metric> T register(String name, T metric) throws IllegalArgumentException {
+    private final ConcurrentMap<String, MetricEntry> entries = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<String, Metric> sorted = new ConcurrentSkipListMap<>();
+
+    private final Map<MetricType, ConcurrentSkipListMap<String, Metric>> sortedByType = new EnumMap<>(MetricType.class);
+
+    private final Map<String, Metric> metricView = new EntryView<>(e -> e.metric);
 
-        if (metricMap.keySet().contains(name)) {
-            throw new IllegalArgumentException("A metric with name " + name + " already exists");
+    private final Map<String, Metadata> metadataView = new EntryView<>(e -> e.metadata);
+
+    public MetricsRegistryImpl() {
+        for (MetricType type : MetricType.values()) {
+            sortedByType.put(type, new ConcurrentSkipListMap<>());
         }
+    }
+
+    @Override
+    public <T extends Metric> T register(String name, T metric) throws IllegalArgumentException {
 
         MetricType type;
         Class<?> metricCls = metric.getClass();
@@ -79,9 +108,13 @@ public class MetricsRegistryImpl extends MetricRegistry {
         }
 
         Metadata m = new Metadata(name, type);
-        metricMap.put(name, metric);
+        entries.compute(name, (n, existing) -> {
+            if (existing != null) {
+                throw new IllegalArgumentException("A metric with name " + name + " already exists");
+            }
+            return index(n, null, new MetricEntry(m, metric));
+        });
 
-        metadataMap.put(name, m);
         return metric;
     }
 
@@ -101,24 +134,24 @@ public class MetricsRegistryImpl extends MetricRegistry {
             throw new IllegalArgumentException("Metric name must not be null");
         }
 
-        Metadata existingMetadata = metadataMap.get(name);
-        boolean reusableFlag = (existingMetadata == null || existingMetadata.isReusable());
+        entries.compute(name, (n, existing) -> {
+            boolean reusableFlag = (existing == null || existing.metadata.isReusable());
 
-        //Gauges are not reusable
-        if (metadata.getTypeRaw().equals(MetricType.GAUGE)) {
-            reusableFlag = false;
-        }
+            //Gauges are not reusable
+            if (metadata.getTypeRaw().equals(MetricType.GAUGE)) {
+                reusableFlag = false;
+            }
 
-        if (metricMap.keySet().contains(metadata.getName()) && !reusableFlag) {
-            throw new IllegalArgumentException("A metric with name " + metadata.getName() + " already exists");
-        }
+            if (existing != null && !reusableFlag) {
+                throw new IllegalArgumentException("A metric with name " + metadata.getName() + " already exists");
+            }
 
-        if (existingMetadata != null && !existingMetadata.getTypeRaw().equals(metadata.getTypeRaw())) {
-            throw new IllegalArgumentException("Passed metric type does not match existing type");
-        }
+            if (existing != null && !existing.metadata.getTypeRaw().equals(metadata.getTypeRaw())) {
+                throw new IllegalArgumentException("Passed metric type does not match existing type");
+            }
 
-        metricMap.put(name, metric);
-        metadataMap.put(name, metadata);
+            return index(n, existing, new MetricEntry(metadata, metric));
+        });
 
         return metric;
     }
@@ -160,36 +193,62 @@ public class MetricsRegistryImpl extends MetricRegistry {
             throw new IllegalArgumentException("Name must not be null or empty");
         }
 
-        if (!metadataMap.containsKey(name)) {
-            Metric m;
-            switch (type) {
-
-                case COUNTER:
-                    m = new CounterImpl();
-                    break;
-                case GAUGE:
-                    throw new IllegalArgumentException("Gauge " + name + " was not registered, this should not happen");
-                case METERED:
-                    m = new MeterImpl();
-                    break;
-                case HISTOGRAM:
-                    m = new HistogramImpl(new ExponentiallyDecayingReservoir());
-                    break;
-                case TIMER:
-                    m = new TimerImpl(new ExponentiallyDecayingReservoir());
-                    break;
-                case INVALID:
-                default:
-                    throw new IllegalStateException("Must not happen");
-            }
-            LOGGER.infof("Register metric [name: %s, type: %s]", name, type);
-            register(metadata, m);
-        } else if (!metadataMap.get(name).getTypeRaw().equals(metadata.getTypeRaw())) {
+        MetricEntry entry = entries.get(name);
+        if (entry == null) {
+            entry = entries.computeIfAbsent(name, n -> {
+                Metric m;
+                switch (type) {
+
+                    case COUNTER:
+                        m = new CounterImpl();
+                        break;
+                    case GAUGE:
+                        throw new IllegalArgumentException("Gauge " + name + " was not registered, this should not happen");
+                    case METERED:
+                        m = new MeterImpl();
+                        break;
+                    case HISTOGRAM:
+                        m = new HistogramImpl(newReservoir(name));
+                        break;
+                    case TIMER:
+                        m = new TimerImpl(newReservoir(name));
+                        break;
+                    case INVALID:
+                    default:
+                        throw new IllegalStateException("Must not happen");
+                }
+                LOGGER.infof("Register metric [name: %s, type: %s]", name, type);
+                return index(n, null, new MetricEntry(metadata, m));
+            });
+        }
+
+        if (!entry.metadata.getTypeRaw().equals(metadata.getTypeRaw())) {
             throw new IllegalArgumentException("Type of existing previously registered metric " + name + " does not " +
                                                 "match passed type");
         }
 
-        return (T) metricMap.get(name);
+        return (T) entry.metric;
+    }
+
+    /**
+     * Create the reservoir backing a histogram or timer, as configured through
+     * {@code swarm.microprofile.metrics.reservoir.<name>}, falling back to
+     * {@code swarm.microprofile.metrics.reservoir} and then to an exponentially decaying one.
+     */
+    private Reservoir newReservoir(String name) {
+        Config config = ConfigProvider.getConfig();
+        Optional<String> type = config.getOptionalValue(SWARM_MICROPROFILE_METRICS_RESERVOIR + "." + name, String.class);
+        if (!type.isPresent()) {
+            type = config.getOptionalValue(SWARM_MICROPROFILE_METRICS_RESERVOIR, String.class);
+        }
+        if (type.isPresent()) {
+            try {
+                return ReservoirType.from(type.get()).newReservoir();
+            } catch (IllegalArgumentException e) {
+                LOGGER.warnf("%s for metric %s, using %s", e.getMessage(), name, ReservoirType.EXPONENTIALLY_DECAYING);
+            }
+        }
+        return ReservoirType.EXPONENTIALLY_DECAYING.newReservoir();
     }
 
     @Override
@@ -204,29 +263,29 @@ public class MetricsRegistryImpl extends MetricRegistry {
 
     @Override
     public boolean remove(String metricName) {
-        if (metricMap.containsKey(metricName)) {
+        boolean[] removed = new boolean[1];
+        entries.computeIfPresent(metricName, (n, existing) -> {
             LOGGER.infof("Remove metric [name: %s]", metricName);
-            metricMap.remove(metricName);
-            metadataMap.remove(metricName);
-            return true;
-        }
-        return false;
+            removed[0] = true;
+            return index(n, existing, null);
+        });
+        return removed[0];
     }
 
     @Override
     public void removeMatching(MetricFilter metricFilter) {
-        Iterator<Map.Entry<String, Metric>> iterator = metricMap.entrySet().iterator();
+        Iterator<Map.Entry<String, MetricEntry>> iterator = entries.entrySet().iterator();
         while (iterator.hasNext()) {
-            Map.Entry<String, Metric> entry = iterator.next();
-            if (metricFilter.matches(entry.getKey(), entry.getValue())) {
+            Map.Entry<String, MetricEntry> entry = iterator.next();
+            if (metricFilter.matches(entry.getKey(), entry.getValue().metric)) {
                 remove(entry.getKey());
             }
         }
     }
 
     @Override
-    public java.util.SortedSet<String> getNames() {
-        return new java.util.TreeSet<>(metricMap.keySet());
+    public SortedSet<String> getNames() {
+        return Collections.unmodifiableSortedSet(sorted.keySet());
     }
 
     @Override
@@ -282,13 +341,18 @@ public class MetricsRegistryImpl extends MetricRegistry {
     @Override
     public Map<String, Metric> getMetrics() {
 
-        return new HashMap<>(metricMap);
+        return metricView;
     }
 
     private <T extends Metric> SortedMap<String, T> getMetrics(MetricType type, MetricFilter filter) {
+        SortedMap<String, Metric> index = sortedByType.get(type);
+        if (filter == MetricFilter.ALL) {
+            return (SortedMap<String, T>) Collections.unmodifiableSortedMap(index);
+        }
+
         SortedMap<String, T> out = new TreeMap<String, T>();
 
-        Iterator<Map.Entry<String, Metric>> iterator = metricMap.entrySet().iterator();
+        Iterator<Map.Entry<String, Metric>> iterator = index.entrySet().iterator();
         while (iterator.hasNext()) {
             Map.Entry<String, Metric> entry = iterator.next();
             if (filter.matches(entry.getKey(), entry.getValue())) {
@@ -301,6 +365,91 @@ public class MetricsRegistryImpl extends MetricRegistry {
 
     @Override
     public Map<String, Metadata> getMetadata() {
-        return new HashMap<>(metadataMap);
+        return metadataView;
+    }
+
+    /**
+     * Bring the sorted indexes in line with a changing entry; only called under the lock of its name.
+     */
+    private MetricEntry index(String name, MetricEntry previous, MetricEntry next) {
+        if (previous != null) {
+            sortedByType.get(previous.metadata.getTypeRaw()).remove(name);
+        }
+        if (next != null) {
+            sortedByType.get(next.metadata.getTypeRaw()).put(name, next.metric);
+            sorted.put(name, next.metric);
+        } else {
+            sorted.remove(name);
+        }
+        return next;
+    }
+
+    private static final class MetricEntry {
+        private final Metadata metadata;
+        private final Metric metric;
+
+        MetricEntry(Metadata metadata, Metric metric) {
+            this.metadata = metadata;
+            this.metric = metric;
+        }
+    }
+
+    /**
+     * An unmodifiable view of one side of the registry entries.
+     */
+    private final class EntryView<V> extends AbstractMap<String, V> {
+        private final Function<MetricEntry, V> value;
+
+        EntryView(Function<MetricEntry, V> value) {
+            this.value = value;
+        }
+
+        @Override
+        public V get(Object key) {
+            MetricEntry entry = entries.get(key);
+            return entry == null ? null : value.apply(entry);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return entries.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<Entry<String, V>>() {
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    Iterator<Entry<String, MetricEntry>> delegate = entries.entrySet().iterator();
+                    return new Iterator<Entry<String, V>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return delegate.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, V> next() {
+                            Entry<String, MetricEntry> next = delegate.next();
+                            return new SimpleImmutableEntry<>(next.getKey(), value.apply(next.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
     }
 }
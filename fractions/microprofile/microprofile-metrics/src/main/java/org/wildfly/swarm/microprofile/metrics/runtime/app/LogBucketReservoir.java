@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime.app;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A histogram of every recorded value, counted in log-linear buckets in the manner of
+ * HdrHistogram.
+ *
+ * <p>Values below {@code 2^precision} are counted exactly; above that, each power of two is
+ * split into {@code 2^(precision - 1)} equally sized buckets, which bounds the relative error of
+ * any reported quantile by {@code 2^(1 - precision)}. Minimum, maximum and mean are exact.
+ * Recording is a single atomic increment and never allocates.</p>
+ *
+ * <p>Unlike the sampling reservoirs, this one does not forget: quantiles cover everything
+ * recorded since the metric was created. Negative values are counted as zero.</p>
+ */
+public class LogBucketReservoir implements Reservoir {
+    private static final int DEFAULT_PRECISION = 7;
+    private static final int MAX_SNAPSHOT_VALUES = 1028;
+
+    private final int precision;
+    private final AtomicLongArray counts;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Creates a new {@link LogBucketReservoir} reporting quantiles within 1.6% of the recorded
+     * values, which takes about 30KB per reservoir.
+     */
+    public LogBucketReservoir() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Creates a new {@link LogBucketReservoir}.
+     *
+     * @param precision the number of significant bits kept for each value, between 1 and 16
+     */
+    public LogBucketReservoir(int precision) {
+        if (precision < 1 || precision > 16) {
+            throw new IllegalArgumentException("Precision must be between 1 and 16: " + precision);
+        }
+        this.precision = precision;
+        this.counts = new AtomicLongArray(indexOf(Long.MAX_VALUE) + 1);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(count.sum(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        counts.incrementAndGet(indexOf(Math.max(0, value)));
+        count.increment();
+        sum.add(value);
+
+        long current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+        current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        final long[] copy = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        if (total == 0) {
+            return new UniformSnapshot(new long[0]);
+        }
+
+        // compact the non-empty buckets, in ascending order of value
+        int buckets = 0;
+        for (long c : copy) {
+            if (c != 0) {
+                buckets++;
+            }
+        }
+        final long[] values = new long[buckets];
+        final long[] bucketCounts = new long[buckets];
+        int next = 0;
+        for (int i = 0; i < copy.length; i++) {
+            if (copy[i] != 0) {
+                values[next] = valueOf(i);
+                bucketCounts[next] = copy[i];
+                next++;
+            }
+        }
+
+        // the exact statistics are published after the bucket counts, so fall back to the buckets
+        // for a value that is still being recorded
+        final long n = count.sum();
+        final long lo = min.get();
+        final long hi = max.get();
+        return new BucketSnapshot(values, bucketCounts, total,
+                                  n == 0 ? values[0] : (double) sum.sum() / n,
+                                  lo == Long.MAX_VALUE ? values[0] : lo,
+                                  hi == Long.MIN_VALUE ? values[buckets - 1] : hi);
+    }
+
+    int indexOf(long value) {
+        final int exact = 1 << precision;
+        if (value < exact) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (precision - 1);
+        return (shift << (precision - 1)) + (int) (value >>> shift);
+    }
+
+    long valueOf(int index) {
+        final int exact = 1 << precision;
+        if (index < exact) {
+            return index;
+        }
+        final int shift = (index >>> (precision - 1)) - 1;
+        final long lowest = (long) (index - (shift << (precision - 1))) << shift;
+        // the middle of the bucket halves the worst-case error
+        return lowest + (1L << (shift - 1));
+    }
+
+    private static final class BucketSnapshot extends Snapshot {
+        private final long[] values;
+        private final long[] counts;
+        private final long total;
+        private final double mean;
+        private final long min;
+        private final long max;
+
+        BucketSnapshot(long[] values, long[] counts, long total, double mean, long min, long max) {
+            this.values = values;
+            this.counts = counts;
+            this.total = total;
+            this.mean = mean;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < values.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return clamp(values[i]);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Returns the recorded values when there are few of them, or else a sample of
+         * evenly spaced quantiles standing in for them.
+         *
+         * @return the values in the distribution
+         */
+        @Override
+        public long[] getValues() {
+            if (total <= MAX_SNAPSHOT_VALUES) {
+                final long[] out = new long[(int) total];
+                int next = 0;
+                for (int i = 0; i < values.length; i++) {
+                    Arrays.fill(out, next, next + (int) counts[i], clamp(values[i]));
+                    next += counts[i];
+                }
+                return out;
+            }
+            final long[] out = new long[MAX_SNAPSHOT_VALUES];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = (long) getValue((i + 0.5) / out.length);
+            }
+            return out;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(total, MAX_SNAPSHOT_VALUES);
+        }
+
+        @Override
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public double getMean() {
+            return mean;
+        }
+
+        @Override
+        public long getMin() {
+            return min;
+        }
+
+        @Override
+        public double getStdDev() {
+            if (total <= 1) {
+                return 0;
+            }
+            double variance = 0;
+            for (int i = 0; i < values.length; i++) {
+                final double diff = clamp(values[i]) - mean;
+                variance += counts[i] * diff * diff;
+            }
+            return Math.sqrt(variance / (total - 1));
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+
+        private long clamp(long value) {
+            return Math.min(max, Math.max(min, value));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime.app;
+
+import java.util.function.Supplier;
+
+/**
+ * The {@link Reservoir} implementations histograms and timers can be backed by.
+ */
+public enum ReservoirType {
+
+    /**
+     * Samples biased towards the last five minutes; see {@link ExponentiallyDecayingReservoir}.
+     */
+    EXPONENTIALLY_DECAYING("exponentially-decaying", ExponentiallyDecayingReservoir::new),
+
+    /**
+     * Every value since creation, in log-linear buckets; see {@link LogBucketReservoir}.
+     */
+    LOG_BUCKET("log-bucket", LogBucketReservoir::new),
+
+    /**
+     * The most recent values; see {@link StripedSlidingWindowReservoir}.
+     */
+    SLIDING_WINDOW("sliding-window", StripedSlidingWindowReservoir::new),
+
+    /**
+     * A uniform sample of every value since creation; see {@link UniformReservoir}.
+     */
+    UNIFORM("uniform", UniformReservoir::new);
+
+    private final String name;
+    private final Supplier<Reservoir> factory;
+
+    ReservoirType(String name, Supplier<Reservoir> factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    public Reservoir newReservoir() {
+        return factory.get();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    public static ReservoirType from(String name) {
+        for (ReservoirType type : values()) {
+            if (type.name.equalsIgnoreCase(name.trim())) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown reservoir type: " + name);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime.app;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+
+/**
+ * A reservoir holding (approximately) the most recently recorded values.
+ *
+ * <p>The window is split into stripes, each with its own cursor. Every thread moves on to
+ * the next stripe with each value it records, starting from a different stripe than the
+ * thread before it, so that threads recording at the same time seldom share a cursor,
+ * and a single thread still fills the whole window. Recording does not allocate, and is
+ * lock-free once the window is full. A single thread finds its last {@code size} values
+ * in the window, within one value per stripe when the size is not a multiple of the
+ * number of stripes.</p>
+ */
+public class StripedSlidingWindowReservoir implements Reservoir {
+    private static final int DEFAULT_SIZE = 1028;
+
+    private static final AtomicInteger NEXT_PROBE = new AtomicInteger();
+
+    // the stripe the thread records to next, in every reservoir
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[]{NEXT_PROBE.getAndIncrement()});
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    /**
+     * Creates a new {@link StripedSlidingWindowReservoir} which stores the last 1028 measurements,
+     * striped by the number of available processors.
+     */
+    public StripedSlidingWindowReservoir() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a new {@link StripedSlidingWindowReservoir} striped by the number of available processors.
+     *
+     * @param size the number of measurements to store
+     */
+    public StripedSlidingWindowReservoir(int size) {
+        this(size, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new {@link StripedSlidingWindowReservoir}.
+     *
+     * @param size        the number of measurements to store
+     * @param concurrency the expected number of concurrently recording threads
+     */
+    public StripedSlidingWindowReservoir(int size, int concurrency) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        }
+        int count = 1;
+        while (count < concurrency && count * 2 <= size) {
+            count <<= 1;
+        }
+        this.stripes = new Stripe[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            // spread the remainder so the stripes add up to the requested size
+            this.stripes[i] = new Stripe(size / count + (i < size % count ? 1 : 0));
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    @Override
+    public void update(long value) {
+        final int[] probe = PROBE.get();
+        stripes[probe[0]++ & mask].update(value);
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        final long[] values = new long[size()];
+        int offset = 0;
+        for (Stripe stripe : stripes) {
+            offset = stripe.copyTo(values, offset);
+        }
+        if (offset < values.length) {
+            // more values were recorded while copying; they show up in the next snapshot
+            final long[] copy = new long[offset];
+            System.arraycopy(values, 0, copy, 0, offset);
+            return new UniformSnapshot(copy);
+        }
+        return new UniformSnapshot(values);
+    }
+
+    private static final class Stripe {
+        private final AtomicLong cursor = new AtomicLong();
+        // the slots written, in order, until the stripe is full
+        private final AtomicInteger filled = new AtomicInteger();
+        private final AtomicLongArray values;
+
+        Stripe(int size) {
+            this.values = new AtomicLongArray(size);
+        }
+
+        void update(long value) {
+            final long index = cursor.getAndIncrement();
+            if (index < values.length()) {
+                values.set((int) index, value);
+                // the slots before are being written by the threads which claimed them
+                while (!filled.compareAndSet((int) index, (int) index + 1)) {
+                    Thread.yield();
+                }
+            } else {
+                values.lazySet((int) (index % values.length()), value);
+            }
+        }
+
+        int size() {
+            return filled.get();
+        }
+
+        int copyTo(long[] target, int offset) {
+            final int count = Math.min(size(), target.length - offset);
+            for (int i = 0; i < count; i++) {
+                target[offset + i] = values.get(i);
+            }
+            return offset + count;
+        }
+    }
+}
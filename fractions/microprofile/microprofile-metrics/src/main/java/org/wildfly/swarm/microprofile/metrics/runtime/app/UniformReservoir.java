@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ * *******************************************************************************
+ * Copyright 2010-2013 Coda Hale and Yammer, Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime.app;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A random sampling reservoir of a stream of {@code long}s. Uses Vitter's Algorithm R to produce
+ * a statistically representative sample of everything recorded so far.
+ *
+ * <p>Recording does not allocate, and is lock-free once the reservoir is full.</p>
+ *
+ * @see <a href="http://www.cs.umd.edu/~samir/498/vitter.pdf">Random Sampling with a Reservoir</a>
+ */
+public class UniformReservoir implements Reservoir {
+    private static final int DEFAULT_SIZE = 1028;
+
+    private final AtomicLong count = new AtomicLong();
+    // the slots written, in order, until the reservoir is full
+    private final AtomicInteger filled = new AtomicInteger();
+    private final AtomicLongArray values;
+
+    /**
+     * Creates a new {@link UniformReservoir} of 1028 elements, which offers a 99.9% confidence level
+     * with a 5% margin of error assuming a normal distribution.
+     */
+    public UniformReservoir() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a new {@link UniformReservoir}.
+     *
+     * @param size the number of samples to keep in the sampling reservoir
+     */
+    public UniformReservoir(int size) {
+        this.values = new AtomicLongArray(size);
+    }
+
+    @Override
+    public int size() {
+        return filled.get();
+    }
+
+    @Override
+    public void update(long value) {
+        final long c = count.incrementAndGet();
+        if (c <= values.length()) {
+            values.set((int) c - 1, value);
+            // the slots before are being written by the threads which claimed them
+            while (!filled.compareAndSet((int) c - 1, (int) c)) {
+                Thread.yield();
+            }
+        } else {
+            final long r = ThreadLocalRandom.current().nextLong(c);
+            if (r < values.length()) {
+                values.set((int) r, value);
+            }
+        }
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        final int s = size();
+        final long[] copy = new long[s];
+        for (int i = 0; i < s; i++) {
+            copy[i] = values.get(i);
+        }
+        return new UniformSnapshot(copy);
+    }
+}
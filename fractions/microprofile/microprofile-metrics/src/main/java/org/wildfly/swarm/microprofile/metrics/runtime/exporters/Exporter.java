@@ -17,18 +17,24 @@
 
 package org.wildfly.swarm.microprofile.metrics.runtime.exporters;
 
+import java.io.IOException;
+import java.io.Writer;
+
 import org.eclipse.microprofile.metrics.MetricRegistry;
 
 /**
+ * Writes metrics in some format. Output is streamed to the writer as it is produced rather
+ * than assembled in memory first.
+ *
  * @author hrupp
  */
 public interface Exporter {
 
-    StringBuilder exportOneScope(MetricRegistry.Type scope);
+    void exportOneScope(MetricRegistry.Type scope, Writer out) throws IOException;
 
-    StringBuilder exportAllScopes();
+    void exportAllScopes(Writer out) throws IOException;
 
     String getContentType();
 
-    StringBuilder exportOneMetric(MetricRegistry.Type scope, String metricName);
+    void exportOneMetric(MetricRegistry.Type scope, String metricName, Writer out) throws IOException;
 }
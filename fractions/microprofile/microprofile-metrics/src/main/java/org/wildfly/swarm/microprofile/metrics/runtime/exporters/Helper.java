@@ -17,6 +17,9 @@
 
 package org.wildfly.swarm.microprofile.metrics.runtime.exporters;
 
+import java.io.IOException;
+import java.io.Writer;
+
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.wildfly.swarm.microprofile.metrics.runtime.MetricRegistryFactory;
 
@@ -25,15 +28,36 @@ import org.wildfly.swarm.microprofile.metrics.runtime.MetricRegistryFactory;
  */
 class Helper {
 
+    // exporters hand their output to the response in chunks of about this many chars
+    private static final int CHUNK_SIZE = 8192;
+
     private Helper() {
     }
 
+    static StringBuilder newChunk() {
+        return new StringBuilder(CHUNK_SIZE + CHUNK_SIZE / 2);
+    }
+
+    /**
+     * Hand the chunk over to the writer once it is full, and start a new one in its place.
+     */
+    static void drain(StringBuilder chunk, Writer out) throws IOException {
+        if (chunk.length() >= CHUNK_SIZE) {
+            flush(chunk, out);
+        }
+    }
+
+    static void flush(StringBuilder chunk, Writer out) throws IOException {
+        out.append(chunk);
+        chunk.setLength(0);
+    }
+
     static int countNonEmptyScopes() {
         MetricRegistry.Type[] values = MetricRegistry.Type.values();
         int totalNonEmptyScopes = 0;
         for (MetricRegistry.Type scope : values) {
             MetricRegistry registry = MetricRegistryFactory.get(scope);
-            if (registry.getNames().size() > 0) {
+            if (!registry.getNames().isEmpty()) {
                 totalNonEmptyScopes++;
             }
         }
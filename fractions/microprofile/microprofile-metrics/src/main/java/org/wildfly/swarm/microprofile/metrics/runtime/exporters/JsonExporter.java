@@ -30,6 +30,8 @@ import org.wildfly.swarm.microprofile.metrics.runtime.app.MeterImpl;
 import org.wildfly.swarm.microprofile.metrics.runtime.app.TimerImpl;
 import org.wildfly.swarm.microprofile.metrics.runtime.MetricRegistryFactory;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -45,16 +47,16 @@ public class JsonExporter implements Exporter {
     private static final String LF = "\n";
 
     @Override
-    public StringBuilder exportOneScope(MetricRegistry.Type scope) {
+    public void exportOneScope(MetricRegistry.Type scope, Writer out) throws IOException {
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = Helper.newChunk();
 
-        getMetricsForAScope(sb, scope);
+        getMetricsForAScope(sb, out, scope);
 
-        return sb;
+        Helper.flush(sb, out);
     }
 
-    private void getMetricsForAScope(StringBuilder sb, MetricRegistry.Type scope) {
+    private void getMetricsForAScope(StringBuilder sb, Writer out, MetricRegistry.Type scope) throws IOException {
 
         MetricRegistry registry = MetricRegistryFactory.get(scope);
         Map<String, Metric> metricMap = registry.getMetrics();
@@ -62,12 +64,12 @@ public class JsonExporter implements Exporter {
 
         sb.append("{\n");
 
-        writeMetricsForMap(sb, metricMap, metadataMap);
+        writeMetricsForMap(sb, out, metricMap, metadataMap);
 
         sb.append("}");
     }
 
-    private void writeMetricsForMap(StringBuilder sb, Map<String, Metric> metricMap, Map<String, Metadata> metadataMap) {
+    private void writeMetricsForMap(StringBuilder sb, Writer out, Map<String, Metric> metricMap, Map<String, Metadata> metadataMap) throws IOException {
 
         for (Iterator<Map.Entry<String, Metric>> iterator = metricMap.entrySet().iterator(); iterator.hasNext(); ) {
             Map.Entry<String, Metric> entry = iterator.next();
@@ -113,6 +115,7 @@ public class JsonExporter implements Exporter {
                 sb.append(',');
             }
             sb.append(LF);
+            Helper.drain(sb, out);
         }
     }
 
@@ -192,8 +195,8 @@ public class JsonExporter implements Exporter {
     }
 
     @Override
-    public StringBuilder exportAllScopes() {
-        StringBuilder sb = new StringBuilder();
+    public void exportAllScopes(Writer out) throws IOException {
+        StringBuilder sb = Helper.newChunk();
         sb.append("{");
 
         MetricRegistry.Type[] values = MetricRegistry.Type.values();
@@ -204,9 +207,9 @@ public class JsonExporter implements Exporter {
             MetricRegistry.Type scope = values[i];
             MetricRegistry registry = MetricRegistryFactory.get(scope);
 
-            if (registry.getNames().size() > 0) {
+            if (!registry.getNames().isEmpty()) {
                 sb.append('"').append(scope.getName().toLowerCase()).append('"').append(" :\n");
-                getMetricsForAScope(sb, scope);
+                getMetricsForAScope(sb, out, scope);
                 sb.append(JsonExporter.LF);
                 scopes++;
                 if (scopes < totalNonEmptyScopes) {
@@ -216,11 +219,11 @@ public class JsonExporter implements Exporter {
         }
 
         sb.append("}");
-        return sb;
+        Helper.flush(sb, out);
     }
 
     @Override
-    public StringBuilder exportOneMetric(MetricRegistry.Type scope, String metricName) {
+    public void exportOneMetric(MetricRegistry.Type scope, String metricName, Writer out) throws IOException {
         MetricRegistry registry = MetricRegistryFactory.get(scope);
         Map<String, Metric> metricMap = registry.getMetrics();
         Map<String, Metadata> metadataMap = registry.getMetadata();
@@ -231,13 +234,13 @@ public class JsonExporter implements Exporter {
         Map<String, Metric> outMap = new HashMap<>(1);
         outMap.put(metricName, m);
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = Helper.newChunk();
         sb.append("{");
-        writeMetricsForMap(sb, outMap, metadataMap);
+        writeMetricsForMap(sb, out, outMap, metadataMap);
         sb.append("}");
         sb.append(JsonExporter.LF);
 
-        return sb;
+        Helper.flush(sb, out);
     }
 
     @Override
@@ -21,6 +21,8 @@ import org.eclipse.microprofile.metrics.Metadata;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 import org.wildfly.swarm.microprofile.metrics.runtime.MetricRegistryFactory;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -34,25 +36,25 @@ public class JsonMetadataExporter implements Exporter {
     private static final String LF = "\n";
 
     @Override
-    public StringBuilder exportOneScope(MetricRegistry.Type scope) {
+    public void exportOneScope(MetricRegistry.Type scope, Writer out) throws IOException {
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = Helper.newChunk();
 
-        getDataForOneScope(scope, sb);
+        getDataForOneScope(scope, sb, out);
 
-        return sb;
+        Helper.flush(sb, out);
     }
 
-    private void getDataForOneScope(MetricRegistry.Type scope, StringBuilder sb) {
+    private void getDataForOneScope(MetricRegistry.Type scope, StringBuilder sb, Writer out) throws IOException {
         MetricRegistry registry = MetricRegistryFactory.get(scope);
         Map<String, Metadata> theMetadata = registry.getMetadata();
 
         sb.append("{");
-        writeMetadataForMap(sb, theMetadata);
+        writeMetadataForMap(sb, out, theMetadata);
         sb.append("}");
     }
 
-    private void writeMetadataForMap(StringBuilder sb, Map<String, Metadata> theMetadata) {
+    private void writeMetadataForMap(StringBuilder sb, Writer out, Map<String, Metadata> theMetadata) throws IOException {
         Iterator<Map.Entry<String, Metadata>> iter = theMetadata.entrySet().iterator();
         while (iter.hasNext()) {
             Metadata entry = iter.next().getValue();
@@ -73,6 +75,7 @@ public class JsonMetadataExporter implements Exporter {
             } else {
                 sb.append("  }\n");
             }
+            Helper.drain(sb, out);
         }
     }
 
@@ -91,8 +94,8 @@ public class JsonMetadataExporter implements Exporter {
 
 
     @Override
-    public StringBuilder exportAllScopes() {
-        StringBuilder sb = new StringBuilder();
+    public void exportAllScopes(Writer out) throws IOException {
+        StringBuilder sb = Helper.newChunk();
         sb.append("{");
 
         MetricRegistry.Type[] values = MetricRegistry.Type.values();
@@ -103,9 +106,9 @@ public class JsonMetadataExporter implements Exporter {
             MetricRegistry.Type scope = values[i];
             MetricRegistry registry = MetricRegistryFactory.get(scope);
 
-            if (registry.getNames().size() > 0) {
+            if (!registry.getNames().isEmpty()) {
                 sb.append('"').append(scope.getName().toLowerCase()).append('"').append(" :\n");
-                getDataForOneScope(scope, sb);
+                getDataForOneScope(scope, sb, out);
                 sb.append(LF);
                 scopes++;
                 if (scopes < totalNonEmptyScopes) {
@@ -115,12 +118,12 @@ public class JsonMetadataExporter implements Exporter {
         }
 
         sb.append("}");
-        return sb;
+        Helper.flush(sb, out);
 
     }
 
     @Override
-    public StringBuilder exportOneMetric(MetricRegistry.Type scope, String metricName) {
+    public void exportOneMetric(MetricRegistry.Type scope, String metricName, Writer out) throws IOException {
         MetricRegistry registry = MetricRegistryFactory.get(scope);
         Map<String, Metadata> metadataMap = registry.getMetadata();
 
@@ -129,13 +132,13 @@ public class JsonMetadataExporter implements Exporter {
         Map<String, Metadata> outMap = new HashMap<>(1);
         outMap.put(metricName, m);
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = Helper.newChunk();
         sb.append("{");
-        writeMetadataForMap(sb, outMap);
+        writeMetadataForMap(sb, out, outMap);
         sb.append("}");
         sb.append(LF);
 
-        return sb;
+        Helper.flush(sb, out);
     }
 
     @Override
@@ -17,10 +17,14 @@
 
 package org.wildfly.swarm.microprofile.metrics.runtime.exporters;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Optional;
+
 import org.eclipse.microprofile.config.Config;
 import org.eclipse.microprofile.config.ConfigProvider;
 import org.eclipse.microprofile.metrics.Counter;
@@ -59,35 +63,56 @@ public class PrometheusExporter implements Exporter {
     private static final String COUNTER = "counter";
     private static final String QUANTILE = "quantile";
 
+    private static final Tag QUANTILE_50 = new Tag(QUANTILE, "0.5");
+    private static final Tag QUANTILE_75 = new Tag(QUANTILE, "0.75");
+    private static final Tag QUANTILE_95 = new Tag(QUANTILE, "0.95");
+    private static final Tag QUANTILE_98 = new Tag(QUANTILE, "0.98");
+    private static final Tag QUANTILE_99 = new Tag(QUANTILE, "0.99");
+    private static final Tag QUANTILE_999 = new Tag(QUANTILE, "0.999");
+
+    private static final Map<MetricRegistry.Type, String> SCOPE_PREFIXES = new EnumMap<>(MetricRegistry.Type.class);
+
+    static {
+        for (MetricRegistry.Type scope : MetricRegistry.Type.values()) {
+            SCOPE_PREFIXES.put(scope, scope.getName().toLowerCase() + ":");
+        }
+    }
+
     private boolean writeHelpLine;
 
+    // the labels of each metric, computed once per scrape
+    private final Map<Metadata, String> labels = new IdentityHashMap<>();
+
+    // the names of each metric, converted once per scrape, it takes two regular expressions
+    private final Map<String, String> prometheusNames = new HashMap<>();
+
     public PrometheusExporter() {
         Config config = ConfigProvider.getConfig();
         Optional<Boolean> tmp = config.getOptionalValue(SWARM_MICROPROFILE_METRICS_OMIT_HELP_LINE, Boolean.class);
         writeHelpLine = !tmp.isPresent() || !tmp.get();
     }
 
-    public StringBuilder exportOneScope(MetricRegistry.Type scope) {
-
-        StringBuilder sb = new StringBuilder();
-        getEntriesForScope(scope, sb);
+    @Override
+    public void exportOneScope(MetricRegistry.Type scope, Writer out) throws IOException {
 
-        return sb;
+        StringBuilder sb = Helper.newChunk();
+        getEntriesForScope(scope, sb, out);
+        Helper.flush(sb, out);
     }
 
     @Override
-    public StringBuilder exportAllScopes() {
-        StringBuilder sb = new StringBuilder();
+    public void exportAllScopes(Writer out) throws IOException {
+        StringBuilder sb = Helper.newChunk();
 
         for (MetricRegistry.Type scope : MetricRegistry.Type.values()) {
-            getEntriesForScope(scope, sb);
+            getEntriesForScope(scope, sb, out);
         }
 
-        return sb;
+        Helper.flush(sb, out);
     }
 
     @Override
-    public StringBuilder exportOneMetric(MetricRegistry.Type scope, String metricName) {
+    public void exportOneMetric(MetricRegistry.Type scope, String metricName, Writer out) throws IOException {
         MetricRegistry registry = MetricRegistryFactory.get(scope);
         Map<String, Metric> metricMap = registry.getMetrics();
 
@@ -96,9 +121,9 @@ public class PrometheusExporter implements Exporter {
         Map<String, Metric> outMap = new HashMap<>(1);
         outMap.put(metricName, m);
 
-        StringBuilder sb = new StringBuilder();
-        exposeEntries(scope, sb, registry, outMap);
-        return sb;
+        StringBuilder sb = Helper.newChunk();
+        exposeEntries(scope, sb, out, registry.getMetadata(), outMap);
+        Helper.flush(sb, out);
     }
 
 
@@ -107,17 +132,17 @@ public class PrometheusExporter implements Exporter {
         return "text/plain";
     }
 
-    private void getEntriesForScope(MetricRegistry.Type scope, StringBuilder sb) {
+    private void getEntriesForScope(MetricRegistry.Type scope, StringBuilder sb, Writer out) throws IOException {
         MetricRegistry registry = MetricRegistryFactory.get(scope);
         Map<String, Metric> metricMap = registry.getMetrics();
 
-        exposeEntries(scope, sb, registry, metricMap);
+        exposeEntries(scope, sb, out, registry.getMetadata(), metricMap);
     }
 
-    private void exposeEntries(MetricRegistry.Type scope, StringBuilder sb, MetricRegistry registry, Map<String, Metric> metricMap) {
+    private void exposeEntries(MetricRegistry.Type scope, StringBuilder sb, Writer out, Map<String, Metadata> metadataMap, Map<String, Metric> metricMap) throws IOException {
         for (Map.Entry<String, Metric> entry : metricMap.entrySet()) {
             String key = entry.getKey();
-            Metadata md = registry.getMetadata().get(key);
+            Metadata md = metadataMap.get(key);
 
 
             Metric metric = entry.getValue();
@@ -150,6 +175,7 @@ public class PrometheusExporter implements Exporter {
                     throw new IllegalArgumentException("Not supported: " + key);
 
             }
+            Helper.drain(sb, out);
         }
     }
 
@@ -197,12 +223,12 @@ public class PrometheusExporter implements Exporter {
     }
 
     private void writeSnapshotQuantiles(StringBuilder sb, MetricRegistry.Type scope, Metadata md, Snapshot snapshot, String unit) {
-        writeValueLine(sb, scope, unit, snapshot.getMedian(), md, new Tag(QUANTILE, "0.5"));
-        writeValueLine(sb, scope, unit, snapshot.get75thPercentile(), md, new Tag(QUANTILE, "0.75"));
-        writeValueLine(sb, scope, unit, snapshot.get95thPercentile(), md, new Tag(QUANTILE, "0.95"));
-        writeValueLine(sb, scope, unit, snapshot.get98thPercentile(), md, new Tag(QUANTILE, "0.98"));
-        writeValueLine(sb, scope, unit, snapshot.get99thPercentile(), md, new Tag(QUANTILE, "0.99"));
-        writeValueLine(sb, scope, unit, snapshot.get999thPercentile(), md, new Tag(QUANTILE, "0.999"));
+        writeValueLine(sb, scope, unit, snapshot.getMedian(), md, QUANTILE_50);
+        writeValueLine(sb, scope, unit, snapshot.get75thPercentile(), md, QUANTILE_75);
+        writeValueLine(sb, scope, unit, snapshot.get95thPercentile(), md, QUANTILE_95);
+        writeValueLine(sb, scope, unit, snapshot.get98thPercentile(), md, QUANTILE_98);
+        writeValueLine(sb, scope, unit, snapshot.get99thPercentile(), md, QUANTILE_99);
+        writeValueLine(sb, scope, unit, snapshot.get999thPercentile(), md, QUANTILE_999);
     }
 
     private void writeMeterValues(StringBuilder sb, MetricRegistry.Type scope, Metered metric, Metadata md) {
@@ -247,12 +273,15 @@ public class PrometheusExporter implements Exporter {
         }
         // add tags
 
-        Map<String, String> tags = new HashMap<>(md.getTags());
+        String tags = getLabels(md);
         if (extraTag != null) {
-            tags.put(extraTag.getKey(), extraTag.getValue());
-        }
-        if (!tags.isEmpty()) {
-            addTags(sb, tags);
+            sb.append('{');
+            if (!tags.isEmpty()) {
+                sb.append(tags).append(',');
+            }
+            sb.append(extraTag.getKey()).append("=\"").append(extraTag.getValue()).append("\"}");
+        } else if (!tags.isEmpty()) {
+            sb.append('{').append(tags).append('}');
         }
 
         sb.append(SPACE);
@@ -261,29 +290,19 @@ public class PrometheusExporter implements Exporter {
 
     }
 
-    private void addTags(StringBuilder sb, Map<String, String> tags) {
-        Iterator<Map.Entry<String, String>> iter = tags.entrySet().iterator();
-        sb.append("{");
-        while (iter.hasNext()) {
-            Map.Entry<String, String> tag = iter.next();
-            sb.append(tag.getKey()).append("=\"").append(tag.getValue()).append("\"");
-            if (iter.hasNext()) {
-                sb.append(",");
-            }
-        }
-        sb.append("}");
+    private String getLabels(Metadata md) {
+        return labels.computeIfAbsent(md, Metadata::getTagsAsString);
     }
 
     private void fillBaseName(StringBuilder sb, MetricRegistry.Type scope, String key) {
-        sb.append(scope.getName().toLowerCase()).append(":").append(key);
+        sb.append(SCOPE_PREFIXES.get(scope)).append(key);
     }
 
     private void writeHelpLine(StringBuilder sb, MetricRegistry.Type scope, String key, Metadata md, String suffix) {
         // Only write this line if we actually have a description in metadata
         if (writeHelpLine && md.getDescription() != null) {
             sb.append("# HELP ");
-            sb.append(scope.getName().toLowerCase());
-            sb.append(':').append(getPrometheusMetricName(md, key));
+            fillBaseName(sb, scope, getPrometheusMetricName(md, key));
             if (suffix != null) {
                 sb.append(suffix);
             }
@@ -296,8 +315,7 @@ public class PrometheusExporter implements Exporter {
 
     private void writeTypeLine(StringBuilder sb, MetricRegistry.Type scope, String key, Metadata md, String suffix, String typeOverride) {
         sb.append("# TYPE ");
-        sb.append(scope.getName().toLowerCase());
-        sb.append(':').append(getPrometheusMetricName(md, key));
+        fillBaseName(sb, scope, getPrometheusMetricName(md, key));
         if (suffix != null) {
             sb.append(suffix);
         }
@@ -322,8 +340,8 @@ public class PrometheusExporter implements Exporter {
             String unit = PrometheusUnit.getBaseUnitAsPrometheusString(md.getUnit());
             sb.append("_").append(unit);
         }
-        String tags = md.getTagsAsString();
-        if (tags != null && !tags.isEmpty()) {
+        String tags = getLabels(md);
+        if (!tags.isEmpty()) {
             sb.append('{').append(tags).append('}');
         }
 
@@ -347,11 +365,15 @@ public class PrometheusExporter implements Exporter {
 
 
     private String getPrometheusMetricName(Metadata entry, String name) {
-        String out = name.replaceAll("[^\\w]+",USCORE);
-        out = decamelize(out);
         if (entry == null) {
             throw new IllegalStateException("No entry for " + name + " found");
         }
+        return prometheusNames.computeIfAbsent(name, this::toPrometheusName);
+    }
+
+    private String toPrometheusName(String name) {
+        String out = name.replaceAll("[^\\w]+",USCORE);
+        out = decamelize(out);
         out = out.replace("__", USCORE);
         out = out.replace(":_", ":");
 
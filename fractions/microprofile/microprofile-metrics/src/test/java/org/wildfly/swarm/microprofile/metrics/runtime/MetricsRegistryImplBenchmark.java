@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Meter;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+
+/**
+ * Times the registry lookups the metrics interceptors make on every intercepted call, from one and from several threads.
+ *
+ * <p>Not a unit test, run it with {@code main}. Each operation looks up a counter the way the counted interceptor does, a meter the way the metered
+ * and timed interceptors do, and the metadata of the counter, then updates both metrics.</p>
+ */
+public class MetricsRegistryImplBenchmark {
+
+    private static final int METRICS = 500;
+
+    private static final int OPERATIONS = 20000;
+
+    private static final int[] THREADS = {1, 8};
+
+    public static void main(String... args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        MetricRegistry registry = new MetricsRegistryImpl();
+        String[] counters = new String[METRICS];
+        String[] meters = new String[METRICS];
+        for (int i = 0; i < METRICS; i++) {
+            counters[i] = "counter-" + i;
+            meters[i] = "meter-" + i;
+            registry.counter(counters[i]);
+            registry.meter(meters[i]);
+        }
+
+        for (int i = 0; i < rounds; i++) {
+            for (int threads : THREADS) {
+                report(registry, threads, counters, meters);
+            }
+        }
+    }
+
+    private static void report(MetricRegistry registry, int threads, String[] counters, String[] meters) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 7;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < OPERATIONS; i++) {
+                    int index = (i + offset) % METRICS;
+                    Counter counter = registry.getCounters().get(counters[index]);
+                    Meter meter = (Meter) registry.getMetrics().get(meters[index]);
+                    if (registry.getMetadata().get(counters[index]) == null) {
+                        throw new IllegalStateException("No metadata for " + counters[index]);
+                    }
+                    counter.inc();
+                    meter.mark();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+        System.out.printf("%d thread(s) x %d operations: %8.1f ms%n", threads, OPERATIONS, elapsed / 1e6);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.microprofile.metrics.Counter;
+import org.eclipse.microprofile.metrics.Meter;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.Metric;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsRegistryImplTest {
+
+    @Test
+    public void testConcurrentGetReturnsSingleMetric() throws Exception {
+        MetricsRegistryImpl registry = new MetricsRegistryImpl();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Counter>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(() -> {
+                    Counter counter = registry.counter("shared");
+                    counter.inc();
+                    return counter;
+                });
+            }
+            List<Future<Counter>> results = executor.invokeAll(tasks);
+            Counter first = results.get(0).get();
+            for (Future<Counter> each : results) {
+                Assert.assertSame(first, each.get());
+            }
+            Assert.assertEquals(64, first.getCount());
+            Assert.assertEquals(1, registry.getNames().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testViewsAreIndexedByType() {
+        MetricsRegistryImpl registry = new MetricsRegistryImpl();
+        registry.counter("b");
+        registry.counter("a");
+        registry.meter("c");
+
+        SortedMap<String, Counter> counters = registry.getCounters();
+        SortedMap<String, Meter> meters = registry.getMeters();
+        Assert.assertArrayEquals(new String[]{"a", "b"}, counters.keySet().toArray());
+        Assert.assertArrayEquals(new String[]{"c"}, meters.keySet().toArray());
+        Assert.assertTrue(registry.getTimers().isEmpty());
+        Assert.assertArrayEquals(new String[]{"a", "b", "c"}, registry.getNames().toArray());
+
+        Assert.assertEquals(1, registry.getCounters((name, metric) -> name.equals("b")).size());
+
+        registry.remove("a");
+        Assert.assertArrayEquals(new String[]{"b"}, counters.keySet().toArray());
+        Assert.assertArrayEquals(new String[]{"b", "c"}, registry.getNames().toArray());
+    }
+
+    @Test
+    public void testMetricsAndMetadataStayConsistent() {
+        MetricsRegistryImpl registry = new MetricsRegistryImpl();
+        Counter counter = registry.counter("counted");
+
+        Map<String, Metric> metrics = registry.getMetrics();
+        Map<String, Metadata> metadata = registry.getMetadata();
+        Assert.assertSame(counter, metrics.get("counted"));
+        Assert.assertEquals(MetricType.COUNTER, metadata.get("counted").getTypeRaw());
+        Assert.assertEquals(1, metrics.size());
+
+        Assert.assertTrue(registry.remove("counted"));
+        Assert.assertFalse(registry.remove("counted"));
+        Assert.assertTrue(metrics.isEmpty());
+        Assert.assertNull(metadata.get("counted"));
+    }
+
+    @Test
+    public void testTypeMismatchIsRejected() {
+        MetricsRegistryImpl registry = new MetricsRegistryImpl();
+        registry.counter("mixed");
+        try {
+            registry.meter("mixed");
+            Assert.fail("Expected a type mismatch");
+        } catch (IllegalArgumentException expected) {
+            // the counter is left in place
+        }
+        Assert.assertTrue(registry.getMeters().isEmpty());
+        Assert.assertEquals(1, registry.getCounters().size());
+    }
+
+    @Test
+    public void testReusableMetadataReplacesMetric() {
+        MetricsRegistryImpl registry = new MetricsRegistryImpl();
+        Metadata metadata = new Metadata("reused", MetricType.COUNTER);
+        metadata.setReusable(true);
+        registry.register(metadata, registry.counter("other"));
+
+        Metadata again = new Metadata("reused", MetricType.COUNTER);
+        again.setReusable(true);
+        Counter replacement = registry.counter("another");
+        registry.register(again, replacement);
+
+        Assert.assertSame(replacement, registry.getCounters().get("reused"));
+
+        try {
+            registry.register(new Metadata("reused", MetricType.METERED), registry.meter("meter"));
+            Assert.fail("Expected a type mismatch");
+        } catch (IllegalArgumentException expected) {
+            // reusable metrics must keep their type
+        }
+    }
+}
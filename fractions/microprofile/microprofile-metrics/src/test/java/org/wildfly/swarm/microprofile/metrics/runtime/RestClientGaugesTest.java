@@ -0,0 +1,109 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RestClientGaugesTest {
+
+    private static final String OBJECT_NAME = "org.wildfly.swarm.microprofile.restclient:type=ConnectionPools,name=total";
+
+    @Test
+    public void testMapsConnectionPoolsMBean() throws Exception {
+        Assert.assertTrue(restClientEntries().isEmpty());
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        server.registerMBean(new ConnectionPools(), name);
+        try {
+            Map<String, Integer> values = new HashMap<>();
+            for (ExtendedMetadata each : restClientEntries()) {
+                values.put(each.getName(), JmxWorker.instance().getValue(each.getMbean()).intValue());
+            }
+
+            Assert.assertEquals(4, values.size());
+            Assert.assertEquals(Integer.valueOf(1), values.get("restClient.connectionPool.total.leased"));
+            Assert.assertEquals(Integer.valueOf(2), values.get("restClient.connectionPool.total.available"));
+            Assert.assertEquals(Integer.valueOf(3), values.get("restClient.connectionPool.total.pending"));
+            Assert.assertEquals(Integer.valueOf(4), values.get("restClient.connectionPool.total.max"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    private List<ExtendedMetadata> restClientEntries() {
+        List<ExtendedMetadata> vendor = new ConfigReader().readConfig(getClass().getResourceAsStream("mapping.yml")).getVendor()
+                .stream()
+                .filter(each -> each.getName().startsWith("restClient."))
+                .collect(Collectors.toList());
+        JmxWorker.instance().expandMultiValueEntries(vendor);
+        return vendor;
+    }
+
+    /**
+     * Stands in for the MXBean of the REST client fraction, which this fraction does not depend on.
+     */
+    public interface ConnectionPoolsMXBean {
+
+        int getPoolCount();
+
+        int getLeasedConnections();
+
+        int getAvailableConnections();
+
+        int getPendingRequests();
+
+        int getMaxConnections();
+    }
+
+    private static class ConnectionPools implements ConnectionPoolsMXBean {
+
+        @Override
+        public int getPoolCount() {
+            return 1;
+        }
+
+        @Override
+        public int getLeasedConnections() {
+            return 1;
+        }
+
+        @Override
+        public int getAvailableConnections() {
+            return 2;
+        }
+
+        @Override
+        public int getPendingRequests() {
+            return 3;
+        }
+
+        @Override
+        public int getMaxConnections() {
+            return 4;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Times the updates of each {@link ReservoirType} from one and from several threads, and the snapshot taken once they are done.
+ *
+ * <p>Not a unit test, run it with {@code main}. The exponentially decaying reservoir, the one histograms and timers used before and still the
+ * default, is the baseline the others are compared to. Each thread makes the same number of updates, and the time reported is the elapsed time
+ * divided by that number, so that contention shows as the time growing with the threads.</p>
+ */
+public class ReservoirBenchmark {
+
+    private static final int UPDATES = 2000000;
+
+    private static final int[] THREADS = {1, 8};
+
+    public static void main(String... args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        // Latencies in nanoseconds, from 10 us to about 100 ms
+        long[] values = new long[4096];
+        Random random = new Random(42);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (10_000 * Math.pow(10_000, random.nextDouble()));
+        }
+
+        for (int i = 0; i < rounds; i++) {
+            for (int threads : THREADS) {
+                for (ReservoirType type : ReservoirType.values()) {
+                    report(type, threads, values);
+                }
+            }
+        }
+    }
+
+    private static void report(ReservoirType type, int threads, long[] values) throws InterruptedException {
+        Reservoir reservoir = type.newReservoir();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 31;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < UPDATES; i++) {
+                    reservoir.update(values[(i + offset) & (values.length - 1)]);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long updates = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        double median = reservoir.getSnapshot().getMedian();
+        long snapshot = System.nanoTime() - begin;
+
+        System.out.printf("%-22s %d thread(s): update %8.1f ns/op, snapshot %8.1f us (median %.0f)%n",
+                          type, threads, (double) updates / UPDATES, snapshot / 1e3, median);
+    }
+}
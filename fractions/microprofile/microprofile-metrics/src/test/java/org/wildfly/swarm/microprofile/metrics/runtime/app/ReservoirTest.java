@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReservoirTest {
+
+    @Test
+    public void testLogBucketQuantilesWithinPrecision() {
+        LogBucketReservoir reservoir = new LogBucketReservoir();
+        for (long i = 1; i <= 100_000; i++) {
+            reservoir.update(i * 1000);
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        Assert.assertEquals(100_000, reservoir.size());
+        Assert.assertEquals(1000, snapshot.getMin());
+        Assert.assertEquals(100_000_000, snapshot.getMax());
+        Assert.assertEquals(50_000_500, snapshot.getMean(), 1);
+        Assert.assertEquals(50_000_000, snapshot.getMedian(), 50_000_000 / 64);
+        Assert.assertEquals(99_000_000, snapshot.get99thPercentile(), 99_000_000 / 64);
+        Assert.assertEquals(1028, snapshot.getValues().length);
+    }
+
+    @Test
+    public void testLogBucketIndexRoundTrips() {
+        LogBucketReservoir reservoir = new LogBucketReservoir();
+        for (long value : new long[]{0, 1, 127, 128, 129, 1000, 123_456_789, Long.MAX_VALUE}) {
+            long estimate = reservoir.valueOf(reservoir.indexOf(value));
+            Assert.assertEquals(reservoir.indexOf(value), reservoir.indexOf(estimate));
+            Assert.assertEquals(value, estimate, value / 64.0);
+        }
+    }
+
+    @Test
+    public void testLogBucketSmallSnapshotHasEveryValue() {
+        LogBucketReservoir reservoir = new LogBucketReservoir();
+        reservoir.update(5);
+        reservoir.update(3);
+        reservoir.update(5);
+
+        Assert.assertArrayEquals(new long[]{3, 5, 5}, reservoir.getSnapshot().getValues());
+    }
+
+    @Test
+    public void testSlidingWindowKeepsMostRecentValues() {
+        StripedSlidingWindowReservoir reservoir = new StripedSlidingWindowReservoir(10, 1);
+        for (long i = 0; i < 25; i++) {
+            reservoir.update(i);
+        }
+
+        Assert.assertEquals(10, reservoir.size());
+        Assert.assertArrayEquals(new long[]{15, 16, 17, 18, 19, 20, 21, 22, 23, 24}, reservoir.getSnapshot().getValues());
+    }
+
+    @Test
+    public void testStripedSlidingWindowKeepsMostRecentValuesOfASingleThread() {
+        StripedSlidingWindowReservoir reservoir = new StripedSlidingWindowReservoir(100, 4);
+        for (long i = 0; i < 1_000; i++) {
+            reservoir.update(i);
+        }
+
+        long[] expected = new long[100];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = 900 + i;
+        }
+        Assert.assertEquals(100, reservoir.size());
+        Assert.assertArrayEquals(expected, reservoir.getSnapshot().getValues());
+    }
+
+    @Test
+    public void testSlidingWindowAcrossThreads() throws Exception {
+        StripedSlidingWindowReservoir reservoir = new StripedSlidingWindowReservoir(100, 4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    reservoir.update(42);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        Assert.assertEquals(100, snapshot.size());
+        Assert.assertEquals(42, snapshot.getMin());
+        Assert.assertEquals(42, snapshot.getMax());
+    }
+
+    @Test
+    public void testUniformSamplesEveryValueUntilFull() {
+        UniformReservoir reservoir = new UniformReservoir(100);
+        for (long i = 0; i < 50; i++) {
+            reservoir.update(i);
+        }
+        Assert.assertEquals(50, reservoir.size());
+
+        for (long i = 50; i < 10_000; i++) {
+            reservoir.update(i);
+        }
+        Snapshot snapshot = reservoir.getSnapshot();
+        Assert.assertEquals(100, snapshot.size());
+        Assert.assertTrue(snapshot.getMin() >= 0);
+        Assert.assertTrue(snapshot.getMax() < 10_000);
+    }
+
+    @Test
+    public void testReservoirTypeFromName() {
+        Assert.assertEquals(ReservoirType.LOG_BUCKET, ReservoirType.from("log-bucket"));
+        Assert.assertEquals(ReservoirType.SLIDING_WINDOW, ReservoirType.from(" Sliding-Window "));
+        Assert.assertTrue(ReservoirType.UNIFORM.newReservoir() instanceof UniformReservoir);
+        Assert.assertTrue(ReservoirType.EXPONENTIALLY_DECAYING.newReservoir() instanceof ExponentiallyDecayingReservoir);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownReservoirType() {
+        ReservoirType.from("hdr");
+    }
+}
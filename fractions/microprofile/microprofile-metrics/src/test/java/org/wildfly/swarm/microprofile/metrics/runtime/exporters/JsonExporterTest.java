@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime.exporters;
+
+import java.io.StringWriter;
+
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.microprofile.metrics.runtime.MetricRegistryFactory;
+
+public class JsonExporterTest {
+
+    @Test
+    public void testStreamsScopeInChunks() throws Exception {
+        MetricRegistry registry = MetricRegistryFactory.get(MetricRegistry.Type.VENDOR);
+        for (int i = 0; i < 1000; i++) {
+            registry.counter("streamed-counter-" + i).inc(i);
+        }
+
+        CountingWriter out = new CountingWriter();
+        new JsonExporter().exportOneScope(MetricRegistry.Type.VENDOR, out);
+
+        String json = out.toString();
+        Assert.assertTrue(out.writes > 1);
+        Assert.assertTrue(json.startsWith("{\n"));
+        Assert.assertTrue(json.endsWith("}"));
+        Assert.assertTrue(json.contains("\"streamed-counter-0\" : 0,\n"));
+        Assert.assertTrue(json.contains("\"streamed-counter-999\" : 999"));
+
+        for (int i = 0; i < 1000; i++) {
+            registry.remove("streamed-counter-" + i);
+        }
+    }
+
+    private static class CountingWriter extends StringWriter {
+        int writes;
+
+        @Override
+        public void write(String str) {
+            writes++;
+            super.write(str);
+        }
+    }
+}
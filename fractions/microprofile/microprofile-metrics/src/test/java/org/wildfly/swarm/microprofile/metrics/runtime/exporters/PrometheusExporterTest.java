@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.microprofile.metrics.runtime.exporters;
+
+import java.io.StringWriter;
+
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Snapshot;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wildfly.swarm.microprofile.metrics.runtime.MetricRegistryFactory;
+import org.wildfly.swarm.microprofile.metrics.runtime.app.HistogramImpl;
+import org.wildfly.swarm.microprofile.metrics.runtime.app.Reservoir;
+import org.wildfly.swarm.microprofile.metrics.runtime.app.UniformSnapshot;
+
+public class PrometheusExporterTest {
+
+    private static final String[] NAMES = {"prometheusTest.requestCount", "prometheus-test.latency", "prometheus___test odd", "prometheus.test.sizes"};
+
+    // As formatted before the exports were streamed, quirks included
+    private static final String EXPECTED =
+            "# HELP application:prometheus_test_request_count Requests served\n" +
+            "# TYPE application:prometheus_test_request_count counter\n" +
+            "application:prometheus_test_request_count{app=\"test\",tier=\"web\"} 3.0\n" +
+            "# HELP application:prometheus_test_latency_seconds Latency\n" +
+            "# TYPE application:prometheus_test_latency_seconds gauge\n" +
+            "application:prometheus_test_latency_seconds 1.5E-6\n" +
+            "# HELP application:prometheus_test_odd Odd name\n" +
+            "# TYPE application:prometheus_test_odd gauge\n" +
+            "application:prometheus__test_odd 0.25\n" +
+            "# HELP application:prometheus_test_sizessummary Sizes\n" +
+            "# TYPE application:prometheus_test_sizes_min_bytes gauge\n" +
+            "application:prometheus_test_sizes_min_bytes 1.0\n" +
+            "# TYPE application:prometheus_test_sizes_max_bytes gauge\n" +
+            "application:prometheus_test_sizes_max_bytes 10.0\n" +
+            "# TYPE application:prometheus_test_sizes_mean_bytes gauge\n" +
+            "application:prometheus_test_sizes_mean_bytes 5.5\n" +
+            "# TYPE application:prometheus_test_sizes_stddev_bytes gauge\n" +
+            "application:prometheus_test_sizes_stddev_bytes 3.0276503540974917\n" +
+            "# TYPE application:prometheus_test_sizes_bytes summary\n" +
+            "application:prometheus_test_sizes_bytes_count 10.0\n" +
+            "application:prometheus_test_sizes_bytes{quantile=\"0.5\"} 5.5\n" +
+            "application:prometheus_test_sizes_bytes{quantile=\"0.75\"} 8.25\n" +
+            "application:prometheus_test_sizes_bytes{quantile=\"0.95\"} 10.0\n" +
+            "application:prometheus_test_sizes_bytes{quantile=\"0.98\"} 10.0\n" +
+            "application:prometheus_test_sizes_bytes{quantile=\"0.99\"} 10.0\n" +
+            "application:prometheus_test_sizes_bytes{quantile=\"0.999\"} 10.0\n";
+
+    @Test
+    public void testOutputIsUnchanged() throws Exception {
+        MetricRegistry registry = MetricRegistryFactory.get(MetricRegistry.Type.APPLICATION);
+        register(registry);
+        try {
+            PrometheusExporter exporter = new PrometheusExporter();
+            StringWriter out = new StringWriter();
+            for (String name : NAMES) {
+                exporter.exportOneMetric(MetricRegistry.Type.APPLICATION, name, out);
+            }
+            Assert.assertEquals(EXPECTED, out.toString());
+
+            // Again, with the names converted already
+            out = new StringWriter();
+            for (String name : NAMES) {
+                exporter.exportOneMetric(MetricRegistry.Type.APPLICATION, name, out);
+            }
+            Assert.assertEquals(EXPECTED, out.toString());
+        } finally {
+            for (String name : NAMES) {
+                registry.remove(name);
+            }
+        }
+    }
+
+    private static void register(MetricRegistry registry) {
+        Metadata requests = new Metadata(NAMES[0], MetricType.COUNTER);
+        requests.setDescription("Requests served");
+        requests.addTag("app=test");
+        requests.addTag("tier=web");
+        registry.counter(requests).inc(3);
+
+        Metadata latency = new Metadata(NAMES[1], MetricType.GAUGE, MetricUnits.MILLISECONDS);
+        latency.setDescription("Latency");
+        registry.register(latency, (Gauge<Long>) () -> 1500L);
+
+        Metadata odd = new Metadata(NAMES[2], MetricType.GAUGE);
+        odd.setDescription("Odd name");
+        registry.register(odd, (Gauge<Double>) () -> 0.25);
+
+        Metadata sizes = new Metadata(NAMES[3], MetricType.HISTOGRAM, MetricUnits.BYTES);
+        sizes.setDescription("Sizes");
+        // A fixed snapshot, the quantiles do not depend on the reservoir
+        HistogramImpl histogram = new HistogramImpl(new Reservoir() {
+            @Override
+            public int size() {
+                return 10;
+            }
+
+            @Override
+            public void update(long value) {
+            }
+
+            @Override
+            public Snapshot getSnapshot() {
+                return new UniformSnapshot(new long[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+            }
+        });
+        for (int i = 1; i <= 10; i++) {
+            histogram.update(i);
+        }
+        registry.register(sizes, histogram);
+    }
+}
@@ -17,14 +17,17 @@ package org.wildfly.swarm.microprofile.restclient.deployment;
 
 
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.wildfly.swarm.microprofile.restclient.ConnectionPools;
 
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.AfterBeanDiscovery;
 import javax.enterprise.inject.spi.AfterDeploymentValidation;
 import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.BeforeShutdown;
 import javax.enterprise.inject.spi.Extension;
 import javax.enterprise.inject.spi.ProcessAnnotatedType;
 import javax.enterprise.inject.spi.WithAnnotations;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -60,4 +63,18 @@ public class RestClientExtension implements Extension {
             afterDeploymentValidation.addDeploymentProblem(error);
         }
     }
+
+    public void closeConnectionPools(@Observes BeforeShutdown beforeShutdown) {
+        // the pools are owned by the class loader of the client interfaces
+        Set<ClassLoader> owners = new HashSet<>();
+        owners.add(Thread.currentThread().getContextClassLoader());
+        for (Class<?> proxyType : proxyTypes) {
+            owners.add(proxyType.getClassLoader());
+        }
+        for (ClassLoader owner : owners) {
+            if (owner != null) {
+                ConnectionPools.close(owner);
+            }
+        }
+    }
 }
@@ -13,35 +13,23 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.wildfly.swarm.bootstrap.performance;
+package org.wildfly.swarm.microprofile.restclient.runtime;
 
-/**
- * @author Bob McWhirter
- */
-class TimedEvent implements AutoCloseable {
-
-    private final long start;
+import javax.enterprise.context.ApplicationScoped;
 
-    private long stop = -1;
+import org.wildfly.swarm.microprofile.restclient.ConnectionPools;
+import org.wildfly.swarm.spi.api.Customizer;
+import org.wildfly.swarm.spi.runtime.annotations.Post;
 
-    TimedEvent() {
-        this.start = System.currentTimeMillis();
-    }
-
-    boolean isOpen() {
-        return this.stop < 0;
-    }
+/**
+ * Registers the MBean of the REST client connection pools before the server starts, so that the metrics fraction picks it up.
+ */
+@Post
+@ApplicationScoped
+public class ConnectionPoolsCustomizer implements Customizer {
 
     @Override
-    public void close() throws Exception {
-        this.stop = System.currentTimeMillis();
-    }
-
-    long durationMs() {
-        if (this.stop < 0) {
-            return System.currentTimeMillis() - this.start;
-        }
-
-        return this.stop - this.start;
+    public void customize() {
+        ConnectionPools.registerMBean();
     }
 }
@@ -46,4 +46,12 @@ public interface ConsulTopologyMessages extends BasicLogger {
     @Message(id = 3, value = "Error while querying service data from consul.")
     void errorOnCatalogUpdate(@Cause Throwable t);
 
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 4, value = "Error while querying %s from consul, retrying in %d ms.")
+    void retryingQuery(String query, long delay, @Cause Throwable t);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 5, value = "Service %s is not registered with the consul agent anymore, registering it again.")
+    void reregistering(String serviceId);
+
 }
@@ -15,9 +15,13 @@
  */
 package org.wildfly.swarm.topology.consul.runtime;
 
-import java.util.Collections;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 import com.orbitz.consul.AgentClient;
@@ -31,11 +35,16 @@ import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
 import org.jboss.msc.value.InjectedValue;
 import org.wildfly.swarm.topology.TopologyMessages;
+import org.wildfly.swarm.topology.consul.ConsulTopologyMessages;
 import org.wildfly.swarm.topology.runtime.Registration;
 
 /**
  * Service advertiser providing TTL checks for all registered deployments
  *
+ * The TTL checks of all advertisements are passed in a single batch. The
+ * interval between two batches is jittered, so that the nodes of a cluster
+ * started at the same time do not keep hitting consul at the same time.
+ *
  * @author John Hovell
  * @author Bob McWhirter
  */
@@ -43,12 +52,18 @@ public class Advertiser implements Service<Advertiser>, Runnable {
 
     public static final ServiceName SERVICE_NAME = ConsulService.SERVICE_NAME.append("advertiser");
 
+    static final long TTL = 3L;
+
+    static final long MAX_INTERVAL = TimeUnit.SECONDS.toMillis(2);
+
+    static final long MIN_INTERVAL = MAX_INTERVAL * 3 / 4;
+
     public Injector<AgentClient> getAgentClientInjector() {
         return this.agentClientInjector;
     }
 
     public void advertise(Registration registration) {
-        if (this.advertisements.contains(registration)) {
+        if (this.advertisements.containsKey(registration)) {
             return;
         }
 
@@ -60,11 +75,11 @@ public class Advertiser implements Service<Advertiser>, Runnable {
                 .id(serviceId(registration))
                 .name(registration.getName())
                 .addTags(registration.getTags().toArray(new String[]{}))
-                .check(com.orbitz.consul.model.agent.Registration.RegCheck.ttl(3L))
+                .check(com.orbitz.consul.model.agent.Registration.RegCheck.ttl(TTL))
                 .build();
         client.register(consulReg);
 
-        this.advertisements.add(registration);
+        this.advertisements.put(registration, consulReg);
 
         log.info("Registered service " + consulReg.getId());
     }
@@ -74,27 +89,26 @@ public class Advertiser implements Service<Advertiser>, Runnable {
         AgentClient client = this.agentClientInjector.getValue();
         Registration r = new Registration("consul", name, address, port, "");
 
-        this.advertisements
-                .stream()
-                .filter(e -> e.equals(r))
-                .forEach(e -> {
-                    String serviceId = serviceId(e);
-                    log.info("Deregister service " + serviceId);
-                    client.deregister(serviceId);
-                });
-        this.advertisements.removeIf(e -> e.equals(r));
+        if (this.advertisements.remove(r) != null) {
+            String serviceId = serviceId(r);
+            log.info("Deregister service " + serviceId);
+            client.deregister(serviceId);
+        }
     }
 
     @Override
     public void start(StartContext startContext) throws StartException {
-        this.thread = new Thread(this);
-
-        this.thread.start();
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "consul-advertiser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        schedule();
     }
 
     @Override
     public void stop(StopContext stopContext) {
-        this.thread.interrupt();
+        this.executor.shutdownNow();
     }
 
     @Override
@@ -102,29 +116,38 @@ public class Advertiser implements Service<Advertiser>, Runnable {
         return this;
     }
 
+    /**
+     * Pass the TTL checks of all advertisements.
+     */
     @Override
     public void run() {
         AgentClient client = this.agentClientInjector.getValue();
-        while (true) {
-            this.advertisements
-                    .stream()
-                    .forEach(e -> {
-                        try {
-                            client.pass(serviceId(e));
-                        } catch (NotRegisteredException ex) {
-                            TopologyMessages.MESSAGES.notRegistered(e.toString(), ex);
-                        } catch (Exception ex) {
-                            TopologyMessages.MESSAGES.errorOnCheck(e.toString(), ex);
-                        }
-                    });
+        this.advertisements.forEach((registration, consulReg) -> {
             try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                // ignore
-                break;
+                client.pass(consulReg.getId());
+            } catch (NotRegisteredException ex) {
+                // The agent lost the registration, e.g. when it was restarted
+                ConsulTopologyMessages.MESSAGES.reregistering(consulReg.getId());
+                try {
+                    client.register(consulReg);
+                } catch (Exception e) {
+                    e.addSuppressed(ex);
+                    TopologyMessages.MESSAGES.notRegistered(registration.toString(), e);
+                }
+            } catch (Exception ex) {
+                TopologyMessages.MESSAGES.errorOnCheck(registration.toString(), ex);
             }
-        }
+        });
+        schedule();
+    }
 
+    private void schedule() {
+        long interval = ThreadLocalRandom.current().nextLong(MIN_INTERVAL, MAX_INTERVAL + 1);
+        try {
+            this.executor.schedule(this, interval, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopping
+        }
     }
 
     private String serviceId(Registration registration) {
@@ -135,7 +158,7 @@ public class Advertiser implements Service<Advertiser>, Runnable {
 
     private InjectedValue<AgentClient> agentClientInjector = new InjectedValue<>();
 
-    private Set<Registration> advertisements = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private Map<Registration, com.orbitz.consul.model.agent.Registration> advertisements = new ConcurrentHashMap<>();
 
-    private Thread thread;
+    private ScheduledExecutorService executor;
 }
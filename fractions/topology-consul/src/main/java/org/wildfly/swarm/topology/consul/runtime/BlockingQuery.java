@@ -0,0 +1,152 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.consul.runtime;
+
+import java.math.BigInteger;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import com.orbitz.consul.model.ConsulResponse;
+import org.wildfly.swarm.topology.consul.ConsulTopologyMessages;
+
+/**
+ * A consul blocking query, re-issued on a shared executor for as long as it
+ * is not stopped.
+ *
+ * The listener is only notified when the index returned by consul changes.
+ * Failed queries, and changes the listener failed to apply, are retried with an exponential, jittered backoff so that a
+ * consul outage does not turn into a busy loop.
+ *
+ * @param <T> The type of the queried data.
+ */
+class BlockingQuery<T> implements Runnable {
+
+    static final String WAIT = "60s";
+
+    static final long MIN_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+    static final long MAX_DELAY = TimeUnit.SECONDS.toMillis(60);
+
+    BlockingQuery(String name, ScheduledExecutorService executor, BiFunction<BigInteger, String, ConsulResponse<T>> query, Consumer<T> listener) {
+        this.name = name;
+        this.executor = executor;
+        this.query = query;
+        this.listener = listener;
+    }
+
+    void start() {
+        this.executor.execute(this);
+    }
+
+    void stop() {
+        this.stopped = true;
+    }
+
+    @Override
+    public void run() {
+        if (this.stopped) {
+            return;
+        }
+        ConsulResponse<T> response;
+        try {
+            response = this.query.apply(this.index, WAIT);
+        } catch (RuntimeException e) {
+            if (this.stopped) {
+                // Interrupted while waiting
+                return;
+            }
+            long delay = backoff(++this.failures);
+            ConsulTopologyMessages.MESSAGES.retryingQuery(this.name, delay, e);
+            schedule(delay);
+            return;
+        }
+        BigInteger next = nextIndex(this.index, response.getIndex());
+        if (this.index == null || !this.index.equals(next)) {
+            try {
+                this.listener.accept(response.getResponse());
+            } catch (RuntimeException e) {
+                // Keep the previous index, so that the retry returns immediately with up-to-date data
+                long delay = backoff(++this.failures);
+                ConsulTopologyMessages.MESSAGES.retryingQuery(this.name, delay, e);
+                schedule(delay);
+                return;
+            }
+        }
+        this.failures = 0;
+        this.index = next;
+
+        if (this.index == null) {
+            // Do not spin when consul does not return a usable index
+            schedule(MIN_DELAY);
+        } else {
+            schedule(0);
+        }
+    }
+
+    /**
+     * An index that is missing, not positive, or that went backwards (e.g.
+     * after a consul restart) resets the query to a non-blocking one.
+     */
+    static BigInteger nextIndex(BigInteger previous, BigInteger next) {
+        if (next == null || next.signum() <= 0) {
+            return null;
+        }
+        if (previous != null && next.compareTo(previous) < 0) {
+            return null;
+        }
+        return next;
+    }
+
+    static long backoff(int failures) {
+        long delay = Math.min(MAX_DELAY, MIN_DELAY << Math.min(failures - 1, 16));
+        // Spread out the retries of all nodes watching the same consul cluster
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    private void schedule(long delay) {
+        if (this.stopped || this.executor.isShutdown()) {
+            return;
+        }
+        try {
+            if (delay == 0) {
+                this.executor.execute(this);
+            } else {
+                this.executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Stopping
+        }
+    }
+
+    private final String name;
+
+    private final ScheduledExecutorService executor;
+
+    private final BiFunction<BigInteger, String, ConsulResponse<T>> query;
+
+    private final Consumer<T> listener;
+
+    // Only accessed by the single task running this query at a time
+    private BigInteger index;
+
+    private int failures;
+
+    private volatile boolean stopped;
+}
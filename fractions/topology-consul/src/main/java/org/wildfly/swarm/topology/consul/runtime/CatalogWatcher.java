@@ -15,20 +15,20 @@
  */
 package org.wildfly.swarm.topology.consul.runtime;
 
-import java.math.BigInteger;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import com.orbitz.consul.CatalogClient;
 import com.orbitz.consul.HealthClient;
-import com.orbitz.consul.cache.ServiceHealthCache;
-import com.orbitz.consul.model.ConsulResponse;
-import com.orbitz.consul.option.CatalogOptions;
-import com.orbitz.consul.option.ImmutableCatalogOptions;
-import com.orbitz.consul.option.ImmutableQueryOptions;
-import com.orbitz.consul.option.QueryOptions;
+import com.orbitz.consul.model.health.HealthCheck;
+import com.orbitz.consul.model.health.ServiceHealth;
 import org.jboss.msc.inject.Injector;
 import org.jboss.msc.service.Service;
 import org.jboss.msc.service.ServiceName;
@@ -36,26 +36,39 @@ import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
 import org.jboss.msc.value.InjectedValue;
-import org.wildfly.swarm.topology.consul.ConsulTopologyMessages;
 import org.wildfly.swarm.topology.runtime.TopologyManager;
 
 /**
  * Catalog-watching service.
  *
- * This service regularly performs a blocking-wait poll of the catalog of all
- * services in order to avoid having to know a-priori which services are of
- * interest to the application.
+ * This service performs two blocking queries, one on the catalog of all
+ * services, in order to avoid having to know a-priori which services are of
+ * interest to the application, and one on the health checks of all services.
+ * Both are multiplexed on a small shared executor, no matter how many
+ * services there are.
  *
- * Any discovered service is setup with a related health-cache listener in
- * order to maintain the full topology.
+ * Only the services affected by a change are fetched again: a service that
+ * appears in the catalog or whose tags change, a service one of whose health
+ * checks changes, and the services with instances on a node whose node checks
+ * change.
  *
  * @author John Hovell
  * @author Bob McWhirter
  */
-public class CatalogWatcher implements Service<CatalogWatcher>, Runnable {
+public class CatalogWatcher implements Service<CatalogWatcher> {
 
     public static final ServiceName SERVICE_NAME = ConsulService.SERVICE_NAME.append("catalog-watcher");
 
+    static final String SOURCE_KEY = "consul";
+
+    public CatalogWatcher() {
+        this(null);
+    }
+
+    CatalogWatcher(ConsulCatalog catalog) {
+        this.catalog = catalog;
+    }
+
     public Injector<CatalogClient> getCatalogClientInjector() {
         return this.catalogClientInjector;
     }
@@ -70,21 +83,28 @@ public class CatalogWatcher implements Service<CatalogWatcher>, Runnable {
 
     @Override
     public void start(StartContext startContext) throws StartException {
-        this.thread = new Thread(this);
-        this.thread.start();
+        if (this.catalog == null) {
+            this.catalog = ConsulCatalog.of(this.catalogClientInjector.getValue(), this.healthClientInjector.getValue());
+        }
+        this.executor = Executors.newScheduledThreadPool(2, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "consul-catalog-watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.servicesQuery = new BlockingQuery<>("services", this.executor, this.catalog::getServices, this::servicesChanged);
+        this.checksQuery = new BlockingQuery<>("health checks", this.executor, this.catalog::getChecks, this::checksChanged);
+        this.servicesQuery.start();
+        this.checksQuery.start();
     }
 
     @Override
     public void stop(StopContext stopContext) {
-        this.thread.interrupt();
-
-        this.watchers.entrySet().forEach(e -> {
-            try {
-                e.getValue().stop();
-            } catch (Exception ex) {
-                ConsulTopologyMessages.MESSAGES.errorStoppingCatalogWatcher(e.getKey(), ex);
-            }
-        });
+        this.servicesQuery.stop();
+        this.checksQuery.stop();
+        this.executor.shutdownNow();
     }
 
     @Override
@@ -92,70 +112,118 @@ public class CatalogWatcher implements Service<CatalogWatcher>, Runnable {
         return null;
     }
 
-    @Override
-    public void run() {
-        CatalogClient client = this.catalogClientInjector.getValue();
-
-        BigInteger index = null;
+    synchronized void servicesChanged(Map<String, List<String>> services) {
+        TopologyManager topologyManager = this.topologyManagerInjector.getValue();
 
-        while (true) {
+        Set<String> removed = new HashSet<>(this.watchers.keySet());
+        removed.removeAll(services.keySet());
+        for (String serviceName : removed) {
+            this.watchers.remove(serviceName);
+            this.tagsByService.remove(serviceName);
+            this.nodesByService.remove(serviceName);
+            topologyManager.unregisterAll(SOURCE_KEY, serviceName);
+        }
 
+        RuntimeException failure = null;
+        for (Map.Entry<String, List<String>> service : services.entrySet()) {
+            String serviceName = service.getKey();
+            Set<String> tags = new HashSet<>(service.getValue());
+            this.watchers.computeIfAbsent(serviceName, e -> new ServiceCacheListener(e, topologyManager));
+            if (tags.equals(this.tagsByService.get(serviceName))) {
+                // Instances of a known service are followed through their health checks
+                continue;
+            }
             try {
-                QueryOptions options = QueryOptions.BLANK;
-
-                if (index != null) {
-                    options = ImmutableQueryOptions.builder()
-                            .wait("60s")
-                            .index(index)
-                            .build();
-                }
-
-                ConsulResponse<Map<String, List<String>>> services = client.getServices(options);
-
-                index = services.getIndex();
+                refresh(serviceName);
+                this.tagsByService.put(serviceName, tags);
+            } catch (RuntimeException e) {
+                failure = addFailure(failure, e);
+            }
+        }
+        if (failure != null) {
+            // Services not refreshed yet are refreshed when retrying
+            throw failure;
+        }
+    }
 
-                Map<String, List<String>> response = services.getResponse();
+    synchronized void checksChanged(List<HealthCheck> checks) {
+        Map<String, Set<String>> checksByService = new HashMap<>();
+        Map<String, Set<String>> checksByNode = new HashMap<>();
+        Map<String, Set<String>> servicesByNode = new HashMap<>();
+        for (HealthCheck check : checks) {
+            String state = check.getCheckId() + "/" + check.getStatus();
+            if (check.getServiceName().isPresent()) {
+                String serviceName = check.getServiceName().get();
+                checksByService.computeIfAbsent(serviceName, e -> new HashSet<>()).add(check.getNode() + "/" + state);
+                servicesByNode.computeIfAbsent(check.getNode(), e -> new HashSet<>()).add(serviceName);
+            } else {
+                // Node checks have no service name
+                checksByNode.computeIfAbsent(check.getNode(), e -> new HashSet<>()).add(state);
+            }
+        }
 
-                response.keySet().forEach(e -> {
-                    setupWatcher(e);
-                });
-            } catch (Exception ex) {
-                ConsulTopologyMessages.MESSAGES.errorOnCatalogUpdate(ex);
+        Set<String> changed = new HashSet<>();
+        addChanged(changed, checksByService, this.checksByService);
+        Set<String> changedNodes = new HashSet<>();
+        addChanged(changedNodes, checksByNode, this.checksByNode);
+        if (!changedNodes.isEmpty()) {
+            this.nodesByService.forEach((serviceName, nodes) -> {
+                if (!Collections.disjoint(nodes, changedNodes)) {
+                    changed.add(serviceName);
+                }
+            });
+            for (String node : changedNodes) {
+                changed.addAll(servicesByNode.getOrDefault(node, Collections.emptySet()));
             }
+        }
 
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                break;
+        RuntimeException failure = null;
+        for (String serviceName : changed) {
+            if (this.watchers.containsKey(serviceName)) {
+                try {
+                    refresh(serviceName);
+                } catch (RuntimeException e) {
+                    failure = addFailure(failure, e);
+                }
             }
         }
+        if (failure != null) {
+            // Refresh the same services again when retrying
+            throw failure;
+        }
+        this.checksByService = checksByService;
+        this.checksByNode = checksByNode;
+    }
+
+    private void refresh(String serviceName) {
+        List<ServiceHealth> instances = this.catalog.getHealthyServiceInstances(serviceName);
+        this.watchers.get(serviceName).update(instances);
+        // Remember the nodes of the service, even once unhealthy, to refresh it when their node checks change
+        Set<String> nodes = this.nodesByService.computeIfAbsent(serviceName, e -> new HashSet<>());
+        for (ServiceHealth instance : instances) {
+            nodes.add(instance.getNode().getNode());
+        }
     }
 
-    private void setupWatcher(String serviceName) {
-        if (watchers.containsKey(serviceName)) {
-            return;
+    private static void addChanged(Set<String> changed, Map<String, Set<String>> current, Map<String, Set<String>> previous) {
+        for (Map.Entry<String, Set<String>> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                changed.add(key);
+            }
         }
+    }
 
-        CatalogOptions options = ImmutableCatalogOptions.builder()
-                .build();
-
-        ServiceHealthCache healthCache = ServiceHealthCache.newCache(
-                this.healthClientInjector.getValue(),
-                serviceName,
-                true,
-                options,
-                5
-        );
-
-
-        try {
-            healthCache.addListener(new ServiceCacheListener(serviceName, this.topologyManagerInjector.getValue()));
-            healthCache.start();
-            healthCache.awaitInitialized(1, TimeUnit.SECONDS);
-            this.watchers.put(serviceName, healthCache);
-        } catch (Exception e) {
-            ConsulTopologyMessages.MESSAGES.errorSettingUpCatalogWatcher(serviceName, e);
+    private static RuntimeException addFailure(RuntimeException failure, RuntimeException e) {
+        if (failure == null) {
+            return e;
         }
+        failure.addSuppressed(e);
+        return failure;
     }
 
     private InjectedValue<CatalogClient> catalogClientInjector = new InjectedValue<>();
@@ -164,7 +232,21 @@ public class CatalogWatcher implements Service<CatalogWatcher>, Runnable {
 
     private InjectedValue<TopologyManager> topologyManagerInjector = new InjectedValue<>();
 
-    private Thread thread;
+    private ConsulCatalog catalog;
+
+    private ScheduledExecutorService executor;
+
+    private BlockingQuery<Map<String, List<String>>> servicesQuery;
+
+    private BlockingQuery<List<HealthCheck>> checksQuery;
+
+    private final Map<String, ServiceCacheListener> watchers = new HashMap<>();
+
+    private final Map<String, Set<String>> tagsByService = new HashMap<>();
+
+    private final Map<String, Set<String>> nodesByService = new HashMap<>();
+
+    private Map<String, Set<String>> checksByService = new HashMap<>();
 
-    private Map<String, ServiceHealthCache> watchers = new HashMap<>();
+    private Map<String, Set<String>> checksByNode = new HashMap<>();
 }
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.consul.runtime;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import com.orbitz.consul.CatalogClient;
+import com.orbitz.consul.HealthClient;
+import com.orbitz.consul.model.ConsulResponse;
+import com.orbitz.consul.model.State;
+import com.orbitz.consul.model.health.HealthCheck;
+import com.orbitz.consul.model.health.ServiceHealth;
+import com.orbitz.consul.option.ImmutableQueryOptions;
+import com.orbitz.consul.option.QueryOptions;
+
+/**
+ * The consul queries the {@link CatalogWatcher} relies on.
+ *
+ * Blocking queries return as soon as the index of the queried data moves past
+ * the given index, or once the given wait time elapses. A null index returns
+ * immediately.
+ *
+ * @see <a href="https://www.consul.io/api/index.html#blocking-queries">Blocking Queries</a>
+ */
+interface ConsulCatalog {
+
+    ConsulResponse<Map<String, List<String>>> getServices(BigInteger index, String wait);
+
+    ConsulResponse<List<HealthCheck>> getChecks(BigInteger index, String wait);
+
+    List<ServiceHealth> getHealthyServiceInstances(String serviceName);
+
+    static ConsulCatalog of(CatalogClient catalogClient, HealthClient healthClient) {
+        return new ConsulCatalog() {
+            @Override
+            public ConsulResponse<Map<String, List<String>>> getServices(BigInteger index, String wait) {
+                return catalogClient.getServices(options(index, wait));
+            }
+
+            @Override
+            public ConsulResponse<List<HealthCheck>> getChecks(BigInteger index, String wait) {
+                return healthClient.getChecksByState(State.ANY, options(index, wait));
+            }
+
+            @Override
+            public List<ServiceHealth> getHealthyServiceInstances(String serviceName) {
+                return healthClient.getHealthyServiceInstances(serviceName).getResponse();
+            }
+        };
+    }
+
+    static QueryOptions options(BigInteger index, String wait) {
+        if (index == null) {
+            return QueryOptions.BLANK;
+        }
+        return ImmutableQueryOptions.builder()
+                .wait(wait)
+                .index(index)
+                .build();
+    }
+}
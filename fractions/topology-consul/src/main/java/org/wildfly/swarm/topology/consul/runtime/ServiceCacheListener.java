@@ -15,12 +15,10 @@
  */
 package org.wildfly.swarm.topology.consul.runtime;
 
-import java.util.Map;
+import java.util.Collection;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import com.google.common.net.HostAndPort;
-import com.orbitz.consul.cache.ConsulCache.Listener;
 import com.orbitz.consul.model.health.ServiceHealth;
 import org.wildfly.swarm.topology.runtime.TopologyManager;
 import org.wildfly.swarm.topology.runtime.Registration;
@@ -28,26 +26,25 @@ import org.wildfly.swarm.topology.runtime.Registration;
 /**
  * Service-cache listener.
  *
- * This cache listener is responsible for receiving notifications
- * of cache changes and calculating the differences to apply to the
+ * This listener is responsible for receiving the healthy instances
+ * of a service and calculating the differences to apply to the
  * underlying TopologyManager.
  *
  * @author John Hovell
  * @author Bob McWhirter
  */
-public class ServiceCacheListener implements Listener<HostAndPort, ServiceHealth> {
+public class ServiceCacheListener {
 
     public ServiceCacheListener(String name, TopologyManager topologyManager) {
         this.name = name;
         this.topologyManager = topologyManager;
     }
 
-    @Override
-    public void notify(Map<HostAndPort, ServiceHealth> newValues) {
+    public void update(Collection<ServiceHealth> newValues) {
         Set<Registration> previousEntries = topologyManager.registrationsForService(this.name);
 
-        Set<Registration> newEntries = newValues.values().stream()
-                .map(e -> new Registration("consul",
+        Set<Registration> newEntries = newValues.stream()
+                .map(e -> new Registration(CatalogWatcher.SOURCE_KEY,
                                            this.name,
                                            e.getService().getAddress(),
                                            e.getService().getPort())
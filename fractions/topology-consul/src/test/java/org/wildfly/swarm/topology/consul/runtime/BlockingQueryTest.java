@@ -0,0 +1,47 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.consul.runtime;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BlockingQueryTest {
+
+    @Test
+    public void testNextIndex() {
+        assertThat(BlockingQuery.nextIndex(null, BigInteger.TEN)).isEqualTo(BigInteger.TEN);
+        assertThat(BlockingQuery.nextIndex(BigInteger.ONE, BigInteger.TEN)).isEqualTo(BigInteger.TEN);
+        assertThat(BlockingQuery.nextIndex(BigInteger.TEN, BigInteger.TEN)).isEqualTo(BigInteger.TEN);
+        // Reset
+        assertThat(BlockingQuery.nextIndex(BigInteger.TEN, BigInteger.ONE)).isNull();
+        assertThat(BlockingQuery.nextIndex(BigInteger.TEN, BigInteger.ZERO)).isNull();
+        assertThat(BlockingQuery.nextIndex(BigInteger.TEN, null)).isNull();
+    }
+
+    @Test
+    public void testBackoff() {
+        for (int failures = 1; failures < 100; failures++) {
+            long delay = BlockingQuery.backoff(failures);
+            assertThat(delay).isGreaterThanOrEqualTo(BlockingQuery.MIN_DELAY / 2);
+            assertThat(delay).isLessThanOrEqualTo(BlockingQuery.MAX_DELAY);
+        }
+        assertThat(BlockingQuery.backoff(3)).isGreaterThanOrEqualTo(2 * BlockingQuery.MIN_DELAY);
+        assertThat(BlockingQuery.backoff(100)).isGreaterThanOrEqualTo(BlockingQuery.MAX_DELAY / 2);
+    }
+}
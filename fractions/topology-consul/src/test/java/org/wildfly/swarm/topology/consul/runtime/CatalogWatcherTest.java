@@ -0,0 +1,152 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.consul.runtime;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.topology.runtime.Registration;
+import org.wildfly.swarm.topology.runtime.TopologyManager;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CatalogWatcherTest {
+
+    @Before
+    public void setUp() throws Exception {
+        this.consul = new InMemoryConsulCatalog();
+        this.topologyManager = new TopologyManager();
+        this.watcher = new CatalogWatcher(this.consul);
+        this.watcher.getTopologyManagerInjector().inject(this.topologyManager);
+    }
+
+    @After
+    public void tearDown() {
+        this.watcher.stop(null);
+    }
+
+    @Test
+    public void testDiscoversServicesAndInstances() throws Exception {
+        this.consul.register("foo", "10.0.0.1", 8080, "http");
+        this.watcher.start(null);
+
+        await(() -> instances("foo").size() == 1);
+        assertThat(instances("foo").iterator().next().getTags()).containsOnly("http");
+
+        this.consul.register("foo", "10.0.0.2", 8080);
+        await(() -> instances("foo").size() == 2);
+
+        this.consul.register("bar", "10.0.0.3", 8080);
+        await(() -> instances("bar").size() == 1);
+
+        this.consul.deregister("foo", "10.0.0.1", 8080);
+        this.consul.deregister("foo", "10.0.0.2", 8080);
+        await(() -> instances("foo").isEmpty());
+        assertThat(instances("bar")).hasSize(1);
+    }
+
+    @Test
+    public void testFollowsHealthChecks() throws Exception {
+        this.consul.register("foo", "10.0.0.1", 8080);
+        this.consul.register("foo", "10.0.0.2", 8080);
+        this.watcher.start(null);
+        await(() -> instances("foo").size() == 2);
+
+        this.consul.setPassing("foo", "10.0.0.1", 8080, false);
+        await(() -> instances("foo").size() == 1);
+        assertThat(instances("foo").iterator().next().getAddress()).isEqualTo("10.0.0.2");
+
+        this.consul.setPassing("foo", "10.0.0.1", 8080, true);
+        await(() -> instances("foo").size() == 2);
+    }
+
+    @Test
+    public void testOnlyFetchesTheChangedServices() throws Exception {
+        this.consul.register("foo", "10.0.0.1", 8080);
+        this.consul.register("bar", "10.0.0.2", 8080);
+        this.watcher.start(null);
+        await(() -> instances("foo").size() == 1 && instances("bar").size() == 1);
+        TimeUnit.MILLISECONDS.sleep(200);
+        int barQueries = this.consul.getInstanceQueryCount("bar");
+
+        this.consul.setPassing("foo", "10.0.0.1", 8080, false);
+        await(() -> instances("foo").isEmpty());
+        this.consul.register("foo", "10.0.0.3", 8080, "http");
+        await(() -> instances("foo").size() == 1);
+        TimeUnit.MILLISECONDS.sleep(200);
+
+        assertThat(this.consul.getInstanceQueryCount("bar")).isEqualTo(barQueries);
+    }
+
+    @Test
+    public void testFollowsNodeChecks() throws Exception {
+        this.consul.register("foo", "10.0.0.1", 8080);
+        this.consul.register("bar", "10.0.0.2", 8080);
+        this.watcher.start(null);
+        await(() -> instances("foo").size() == 1 && instances("bar").size() == 1);
+
+        this.consul.setNodePassing(false);
+        await(() -> instances("foo").isEmpty() && instances("bar").isEmpty());
+
+        this.consul.setNodePassing(true);
+        await(() -> instances("foo").size() == 1 && instances("bar").size() == 1);
+    }
+
+    @Test
+    public void testBlocksUntilTheIndexChanges() throws Exception {
+        this.consul.register("foo", "10.0.0.1", 8080);
+        this.watcher.start(null);
+        await(() -> instances("foo").size() == 1);
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        int queries = this.consul.getQueryCount();
+        TimeUnit.MILLISECONDS.sleep(200);
+        // Both blocking queries are parked in consul
+        assertThat(this.consul.getQueryCount()).isEqualTo(queries);
+    }
+
+    @Test
+    public void testRecoversFromFailures() throws Exception {
+        this.consul.failQueries(2);
+        this.consul.register("foo", "10.0.0.1", 8080);
+        this.watcher.start(null);
+
+        await(() -> instances("foo").size() == 1);
+    }
+
+    private Set<Registration> instances(String serviceName) {
+        return this.topologyManager.registrationsForService(serviceName);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+
+    private InMemoryConsulCatalog consul;
+
+    private TopologyManager topologyManager;
+
+    private CatalogWatcher watcher;
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright 2015-2016 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.consul.runtime;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.orbitz.consul.model.ConsulResponse;
+import com.orbitz.consul.model.health.HealthCheck;
+import com.orbitz.consul.model.health.ImmutableHealthCheck;
+import com.orbitz.consul.model.health.ImmutableNode;
+import com.orbitz.consul.model.health.ImmutableService;
+import com.orbitz.consul.model.health.ImmutableServiceHealth;
+import com.orbitz.consul.model.health.ServiceHealth;
+
+/**
+ * A single-node, in-memory stand-in for consul, honouring blocking queries.
+ */
+class InMemoryConsulCatalog implements ConsulCatalog {
+
+    static final String NODE = "node";
+
+    synchronized void register(String name, String address, int port, String... tags) {
+        Instance instance = new Instance(name, address, port, tags);
+        this.instances.put(instance.id, instance);
+        changed();
+    }
+
+    synchronized void deregister(String name, String address, int port) {
+        this.instances.remove(id(name, address, port));
+        changed();
+    }
+
+    synchronized void setPassing(String name, String address, int port, boolean passing) {
+        this.instances.get(id(name, address, port)).passing = passing;
+        changed();
+    }
+
+    synchronized void setNodePassing(boolean passing) {
+        this.nodePassing = passing;
+        changed();
+    }
+
+    /**
+     * Fail the given number of upcoming queries.
+     */
+    void failQueries(int count) {
+        this.failures.set(count);
+    }
+
+    int getQueryCount() {
+        return this.queries.get();
+    }
+
+    synchronized int getInstanceQueryCount(String serviceName) {
+        return this.instanceQueries.getOrDefault(serviceName, 0);
+    }
+
+    @Override
+    public ConsulResponse<Map<String, List<String>>> getServices(BigInteger index, String wait) {
+        synchronized (this) {
+            await(index, wait);
+            Map<String, Set<String>> tags = new LinkedHashMap<>();
+            for (Instance instance : this.instances.values()) {
+                tags.computeIfAbsent(instance.name, e -> new LinkedHashSet<>()).addAll(instance.tags);
+            }
+            Map<String, List<String>> services = new HashMap<>();
+            tags.forEach((name, e) -> services.put(name, new ArrayList<>(e)));
+            return new ConsulResponse<>(services, 0, true, BigInteger.valueOf(this.index));
+        }
+    }
+
+    @Override
+    public ConsulResponse<List<HealthCheck>> getChecks(BigInteger index, String wait) {
+        synchronized (this) {
+            await(index, wait);
+            List<HealthCheck> checks = new ArrayList<>();
+            checks.add(ImmutableHealthCheck.builder()
+                               .node(NODE)
+                               .checkId("serfHealth")
+                               .name("Serf Health Status")
+                               .status(this.nodePassing ? "passing" : "critical")
+                               .build());
+            for (Instance instance : this.instances.values()) {
+                checks.add(instance.check());
+            }
+            return new ConsulResponse<>(checks, 0, true, BigInteger.valueOf(this.index));
+        }
+    }
+
+    @Override
+    public synchronized List<ServiceHealth> getHealthyServiceInstances(String serviceName) {
+        checkFailure();
+        this.instanceQueries.merge(serviceName, 1, Integer::sum);
+        List<ServiceHealth> result = new ArrayList<>();
+        for (Instance instance : this.instances.values()) {
+            if (instance.name.equals(serviceName) && instance.passing && this.nodePassing) {
+                result.add(ImmutableServiceHealth.builder()
+                                   .node(ImmutableNode.builder().node(NODE).address("127.0.0.1").build())
+                                   .service(ImmutableService.builder()
+                                                    .id(instance.id)
+                                                    .service(instance.name)
+                                                    .address(instance.address)
+                                                    .port(instance.port)
+                                                    .addTags(instance.tags.toArray(new String[0]))
+                                                    .build())
+                                   .addChecks(instance.check())
+                                   .build());
+            }
+        }
+        return result;
+    }
+
+    private void await(BigInteger index, String wait) {
+        checkFailure();
+        if (index == null) {
+            return;
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.parseLong(wait.substring(0, wait.length() - 1)));
+        try {
+            while (this.index <= index.longValue()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void checkFailure() {
+        this.queries.incrementAndGet();
+        if (this.failures.getAndUpdate(e -> Math.max(0, e - 1)) > 0) {
+            throw new IllegalStateException("Consul is not available");
+        }
+    }
+
+    private void changed() {
+        this.index++;
+        notifyAll();
+    }
+
+    private static String id(String name, String address, int port) {
+        return name + ":" + address + ":" + port;
+    }
+
+    private static class Instance {
+
+        Instance(String name, String address, int port, String... tags) {
+            this.id = id(name, address, port);
+            this.name = name;
+            this.address = address;
+            this.port = port;
+            for (String tag : tags) {
+                this.tags.add(tag);
+            }
+        }
+
+        HealthCheck check() {
+            return ImmutableHealthCheck.builder()
+                    .node(NODE)
+                    .checkId("service:" + this.id)
+                    .name("Service '" + this.name + "' check")
+                    .status(this.passing ? "passing" : "critical")
+                    .serviceId(this.id)
+                    .serviceName(this.name)
+                    .build();
+        }
+
+        final String id;
+
+        final String name;
+
+        final String address;
+
+        final int port;
+
+        final List<String> tags = new ArrayList<>();
+
+        boolean passing = true;
+    }
+
+    private final Map<String, Instance> instances = new LinkedHashMap<>();
+
+    private final Map<String, Integer> instanceQueries = new HashMap<>();
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private boolean nodePassing = true;
+
+    private long index = 1;
+}
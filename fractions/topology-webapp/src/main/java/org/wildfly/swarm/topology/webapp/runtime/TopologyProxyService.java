@@ -20,6 +20,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -60,6 +61,8 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
     public void start(StartContext context) throws StartException {
         try {
             Topology topology = Topology.lookup();
+            // The hosts may have changed while stopped
+            this.synced = false;
             topology.addListener(this);
         } catch (NamingException ex) {
             throw new StartException(ex);
@@ -84,11 +87,35 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
     public void onChange(Topology topology) {
         Map<String, List<Topology.Entry>> topologyMap = topology.asMap();
         for (String serviceName : serviceNames) {
-            if (topologyMap.containsKey(serviceName)) {
-                updateProxyHosts(serviceName, topologyMap.get(serviceName));
-            } else {
-                // All instances of this service went away
-                updateProxyHosts(serviceName, Collections.emptyList());
+            LoadBalancingProxyClient proxyClient = proxyClient(serviceName);
+            if (proxyClient != null) {
+                syncProxyHosts(serviceName, proxyClient, topologyMap.getOrDefault(serviceName, Collections.emptyList()));
+            }
+        }
+    }
+
+    @Override
+    public void onChange(Topology topology, Topology.Change change) {
+        boolean resync = !this.synced;
+        this.synced = true;
+        Map<String, List<Topology.Entry>> topologyMap = null;
+        for (String serviceName : serviceNames) {
+            LoadBalancingProxyClient proxyClient = proxyClient(serviceName);
+            if (proxyClient == null) {
+                continue;
+            }
+            if (resync || proxyClients.get(serviceName) != proxyClient) {
+                // Started or attached since the last change, the changes missed are caught up with from the whole topology
+                if (topologyMap == null) {
+                    topologyMap = topology.asMap();
+                }
+                syncProxyHosts(serviceName, proxyClient, topologyMap.getOrDefault(serviceName, Collections.emptyList()));
+                continue;
+            }
+            List<Topology.Entry> added = change.getAdded().getOrDefault(serviceName, Collections.emptyList());
+            List<Topology.Entry> removed = change.getRemoved().getOrDefault(serviceName, Collections.emptyList());
+            if (!added.isEmpty() || !removed.isEmpty()) {
+                updateProxyHosts(serviceName, proxyClient, added, removed);
             }
         }
     }
@@ -102,45 +129,47 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
         return injector;
     }
 
-    private void updateProxyHosts(String serviceName, List<Topology.Entry> entries) {
+    private LoadBalancingProxyClient proxyClient(String serviceName) {
         HttpHandler proxyHandler = proxyHandlerMap.get(serviceName).getOptionalValue();
 
         if (proxyHandler == null) {
-            // Service has been shutdown
-            proxyHandlerMap.remove(serviceName);
-            return;
+            // Service has been shutdown, or is not attached yet
+            proxyClients.remove(serviceName);
+            proxyEntries.remove(serviceName);
+            return null;
         }
 
-        LoadBalancingProxyClient proxyClient = null;
-
         // with SWARM-189 the request controller subsystem does replace
         // all HttpHandler (including ProxyHandler) with GlobalRequestControllerHandler,
         // which then wraps the next handler in the chain
         if (proxyHandler instanceof GlobalRequestControllerHandler) {
             ProxyHandler proxy = (ProxyHandler) ((GlobalRequestControllerHandler) proxyHandler).getNext(); // next in the chain of handlers
-            proxyClient = (LoadBalancingProxyClient) proxy.getProxyClient();
-        } else {
-            proxyClient = (LoadBalancingProxyClient) ((ProxyHandler) proxyHandler).getProxyClient();
+            return (LoadBalancingProxyClient) proxy.getProxyClient();
         }
+        return (LoadBalancingProxyClient) ((ProxyHandler) proxyHandler).getProxyClient();
+    }
 
-        List<Topology.Entry> oldEntries = proxyEntries.get(serviceName);
+    private void syncProxyHosts(String serviceName, LoadBalancingProxyClient proxyClient, List<Topology.Entry> entries) {
+        if (proxyClients.put(serviceName, proxyClient) != proxyClient) {
+            proxyEntries.put(serviceName, new HashSet<>());
+        }
         List<Topology.Entry> entriesToRemove = new ArrayList<>();
-        List<Topology.Entry> entriesToAdd = new ArrayList<>();
-        if (oldEntries == null) {
-            entriesToAdd.addAll(entries);
-        } else {
-            for (Topology.Entry oldEntry : oldEntries) {
-                if (!entries.contains(oldEntry)) {
-                    entriesToRemove.add(oldEntry);
-                }
-            }
-            for (Topology.Entry entry : entries) {
-                if (!oldEntries.contains(entry)) {
-                    entriesToAdd.add(entry);
-                }
+        for (Topology.Entry oldEntry : proxyEntries.get(serviceName)) {
+            if (!entries.contains(oldEntry)) {
+                entriesToRemove.add(oldEntry);
             }
         }
+        updateProxyHosts(serviceName, proxyClient, entries, entriesToRemove);
+    }
+
+    private void updateProxyHosts(String serviceName, LoadBalancingProxyClient proxyClient, List<Topology.Entry> entriesToAdd,
+                                  List<Topology.Entry> entriesToRemove) {
+        // The entries already added are skipped, a change may have been caught up with already
+        Set<Topology.Entry> entries = proxyEntries.get(serviceName);
         for (Topology.Entry entry : entriesToRemove) {
+            if (!entries.remove(entry)) {
+                continue;
+            }
             try {
                 proxyClient.removeHost(entryToURI(entry));
             } catch (URISyntaxException ex) {
@@ -148,13 +177,15 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
             }
         }
         for (Topology.Entry entry : entriesToAdd) {
+            if (!entries.add(entry)) {
+                continue;
+            }
             try {
                 proxyClient.addHost(entryToURI(entry));
             } catch (URISyntaxException ex) {
                 log.log(Level.WARNING, "Error converting topology entry to URI", ex);
             }
         }
-        proxyEntries.put(serviceName, entries);
     }
 
     private URI entryToURI(Topology.Entry entry) throws URISyntaxException {
@@ -172,5 +203,10 @@ public class TopologyProxyService implements Service<TopologyProxyService>, Topo
 
     private Map<String, InjectedValue<HttpHandler>> proxyHandlerMap = new HashMap<>();
 
-    private Map<String, List<Topology.Entry>> proxyEntries = new HashMap<>();
+    // The proxy client the hosts of each service were added to, and those hosts. Only touched by the topology notifications, one at a time
+    private Map<String, LoadBalancingProxyClient> proxyClients = new HashMap<>();
+
+    private Map<String, Set<Topology.Entry>> proxyEntries = new HashMap<>();
+
+    private volatile boolean synced;
 }
@@ -16,18 +16,24 @@
 package org.wildfly.swarm.topology.webapp.runtime;
 
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.enterprise.inject.Vetoed;
 import javax.naming.NamingException;
@@ -36,6 +42,8 @@ import javax.servlet.AsyncEvent;
 import javax.servlet.AsyncListener;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -46,12 +54,27 @@ import org.wildfly.swarm.topology.TopologyListener;
 
 
 /**
+ * Streams the topology to all connected clients as server-sent events.
+ *
+ * <p>Topology changes are coalesced, then serialized once for secure and once for insecure connections, and the same bytes are written to all the
+ * connections using non-blocking I/O. A slow connection only ever holds on to the latest event. A single thread publishes the events and sends the
+ * keep-alive comments.</p>
+ *
+ * <p>Addresses are resolved on a separate thread, so that a slow DNS does not hold up the events. An address is reported as resolvable until its
+ * lookup fails, and the topology is published again once a lookup changes the outcome. Failed lookups are retried after a while.</p>
+ *
  * @author Bob McWhirter
  */
 @Vetoed
 @WebServlet(urlPatterns = {"/system/stream"}, asyncSupported = true)
 public class TopologySSEServlet extends HttpServlet {
 
+    static final long COALESCE_DELAY = 100;
+
+    static final long KEEP_ALIVE_INTERVAL = 15000;
+
+    static final long FAILED_LOOKUP_EXPIRY = 30000;
+
     @Override
     public void init(ServletConfig config) throws ServletException {
 
@@ -63,7 +86,27 @@ public class TopologySSEServlet extends HttpServlet {
             throw new ServletException(e);
         }
 
-        this.keepAliveExecutor = Executors.newScheduledThreadPool(2);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "topology-sse");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lookupExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "topology-sse-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::keepAlive, KEEP_ALIVE_INTERVAL, KEEP_ALIVE_INTERVAL, TimeUnit.MILLISECONDS);
+        this.topology.addListener(this.topologyListener);
+    }
+
+    @Override
+    public void destroy() {
+        this.topology.removeListener(this.topologyListener);
+        this.executor.shutdownNow();
+        this.lookupExecutor.shutdownNow();
+        this.connections.forEach(Connection::close);
+        super.destroy();
     }
 
     @Override
@@ -73,34 +116,119 @@ public class TopologySSEServlet extends HttpServlet {
         resp.setCharacterEncoding("UTF-8");
 
         AsyncContext asyncContext = req.startAsync();
-        PrintWriter writer = resp.getWriter();
+        asyncContext.setTimeout(0);
 
-        TopologyListener topologyListener = new SSETopologyListener(writer, req.isSecure());
+        Connection connection = new Connection(asyncContext, resp.getOutputStream(), req.isSecure());
+        asyncContext.addListener(connection);
+        // Writing before the listener is set fails, so the connection must not be published before
+        connection.out.setWriteListener(connection);
+        this.connections.add(connection);
 
-        ScheduledFuture keepAlive = this.keepAliveExecutor.scheduleAtFixedRate(
-                new KeepAliveRunnable(writer, topologyListener),
-                10,
-                15,
-                TimeUnit.SECONDS);
-        asyncContext.setTimeout(0);
-        asyncContext.addListener(new TopologyAsyncListener(topology, topologyListener, keepAlive));
+        // Ordered with the published changes
+        execute(() -> connection.send(event(connection.secure)));
+    }
 
+    private void topologyChanged() {
+        if (this.publishScheduled.compareAndSet(false, true)) {
+            try {
+                this.executor.schedule(this::publish, COALESCE_DELAY, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Destroyed
+            }
+        }
+    }
 
-        this.topology.addListener(topologyListener);
-        String json = topologyToJson(req.isSecure());
-        writer.write("event: topologyChange\n");
-        writer.write("data: " + json);
-        writer.flush();
+    private void publish() {
+        // Any change from now on is published again
+        this.publishScheduled.set(false);
+        this.events[0] = null;
+        this.events[1] = null;
+        for (Connection connection : this.connections) {
+            connection.send(event(connection.secure));
+        }
+    }
 
+    private void keepAlive() {
+        for (Connection connection : this.connections) {
+            connection.keepAlive();
+        }
     }
 
-    private String topologyToJson(boolean secure) {
+    private void execute(Runnable task) {
+        try {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Destroyed
+        }
+    }
+
+    /**
+     * Only called by the publishing thread.
+     */
+    private byte[] event(boolean secure) {
+        int variant = secure ? 1 : 0;
+        byte[] event = this.events[variant];
+        if (event == null) {
+            Map<String, List<Topology.Entry>> map = this.topology.asMap();
+            retainResolvedAddresses(map);
+            event = ("event: topologyChange\n" + "data: " + topologyToJson(map, secure)).getBytes(StandardCharsets.UTF_8);
+            this.events[variant] = event;
+        }
+        return event;
+    }
+
+    private void retainResolvedAddresses(Map<String, List<Topology.Entry>> map) {
+        Set<String> addresses = new HashSet<>();
+        for (List<Topology.Entry> entries : map.values()) {
+            for (Topology.Entry entry : entries) {
+                addresses.add(entry.getAddress());
+            }
+        }
+        this.resolvable.keySet().retainAll(addresses);
+    }
+
+    /**
+     * Only called by the publishing thread.
+     */
+    private boolean isResolvable(String address) {
+        Lookup lookup = this.resolvable.get(address);
+        if ((lookup == null || lookup.expires < System.currentTimeMillis()) && this.pendingLookups.add(address)) {
+            try {
+                this.lookupExecutor.execute(() -> {
+                    boolean resolved = resolve(address);
+                    execute(() -> lookedUp(address, resolved));
+                });
+            } catch (RejectedExecutionException e) {
+                // Destroyed
+            }
+        }
+        return lookup == null || lookup.resolvable;
+    }
+
+    private void lookedUp(String address, boolean resolved) {
+        this.pendingLookups.remove(address);
+        Lookup previous = this.resolvable.put(address, new Lookup(resolved, resolved ? Long.MAX_VALUE : System.currentTimeMillis() + FAILED_LOOKUP_EXPIRY));
+        // Publish again if the events reported another outcome
+        if (resolved != (previous == null || previous.resolvable)) {
+            topologyChanged();
+        }
+    }
+
+    private static boolean resolve(String address) {
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            InetAddress.getByName(address);
+            return true;
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    private String topologyToJson(Map<String, List<Topology.Entry>> map, boolean secure) {
         StringBuilder json = new StringBuilder();
 
         json.append("{");
 
-        Map<String, List<Topology.Entry>> map = this.topology.asMap();
-
         Set<String> keys = map.keySet();
         Iterator<String> keyIter = keys.iterator();
 
@@ -122,13 +250,7 @@ public class TopologySSEServlet extends HttpServlet {
                 while (listIter.hasNext()) {
                     Topology.Entry server = listIter.next();
 
-                    boolean invalidServerAddress = false;
-                    try {
-                        //noinspection ResultOfMethodCallIgnored
-                        InetAddress.getByName(server.getAddress());
-                    } catch (UnknownHostException e) {
-                        invalidServerAddress = true;
-                    }
+                    boolean invalidServerAddress = !isResolvable(server.getAddress());
 
                     String endpoint = (!invalidServerAddress ? (server.getTags().contains("https") ? "https" : "http") + "://" : "")
                             + formatMaybeIpv6(server.getAddress()) + ":" + server.getPort();
@@ -176,102 +298,133 @@ public class TopologySSEServlet extends HttpServlet {
         return address;
     }
 
+    private static final byte[] KEEP_ALIVE = ":\n\n".getBytes(StandardCharsets.UTF_8);
+
     private Topology topology;
 
-    private ScheduledExecutorService keepAliveExecutor;
+    private ScheduledExecutorService executor;
 
-    private class KeepAliveRunnable implements Runnable {
-        private final PrintWriter writer;
+    private ExecutorService lookupExecutor;
 
-        private final TopologyListener topologyListener;
+    private final TopologyListener topologyListener = e -> topologyChanged();
 
-        public KeepAliveRunnable(PrintWriter writer, TopologyListener topologyListener) {
-            this.writer = writer;
-            this.topologyListener = topologyListener;
-        }
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
 
-        @Override
-        public void run() {
-            try {
-                writer.write(":\n\n");
-                writer.flush();
-            } catch (Throwable t) {
-                TopologySSEServlet.this.topology.removeListener(topologyListener);
-                throw t;
-            }
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+
+    // The insecure and secure variants of the latest event, only accessed by the publishing thread
+    private final byte[][] events = new byte[2][];
+
+    // The outcome of the address lookups, only accessed by the publishing thread
+    private final Map<String, Lookup> resolvable = new HashMap<>();
 
+    // The addresses being looked up, only accessed by the publishing thread
+    private final Set<String> pendingLookups = new HashSet<>();
+
+    private static final class Lookup {
+
+        Lookup(boolean resolvable, long expires) {
+            this.resolvable = resolvable;
+            this.expires = expires;
         }
+
+        private final boolean resolvable;
+
+        private final long expires;
     }
 
-    public static class TopologyAsyncListener implements AsyncListener {
-        private final ScheduledFuture keepAlive;
+    private class Connection implements WriteListener, AsyncListener {
 
-        private final TopologyListener topologyListener;
+        Connection(AsyncContext asyncContext, ServletOutputStream out, boolean secure) {
+            this.asyncContext = asyncContext;
+            this.out = out;
+            this.secure = secure;
+        }
 
-        private final Topology topology;
+        /**
+         * Replaces any event not written yet, as it is outdated.
+         */
+        void send(byte[] event) {
+            this.pending.set(event);
+            write();
+        }
 
-        public TopologyAsyncListener() {
-            // Do Nothing
-            this.topology = null;
-            this.topologyListener = null;
-            this.keepAlive = null;
+        void keepAlive() {
+            if (this.pending.compareAndSet(null, KEEP_ALIVE)) {
+                write();
+            }
         }
 
-        public TopologyAsyncListener(Topology topology, TopologyListener topologyListener, ScheduledFuture scheduledFuture) {
-            this.topology = topology;
-            this.topologyListener = topologyListener;
-            this.keepAlive = scheduledFuture;
+        @Override
+        public void onWritePossible() throws IOException {
+            write();
         }
 
         @Override
-        public void onComplete(AsyncEvent asyncEvent) throws IOException {
-            if (topology != null) {
-                topology.removeListener(topologyListener);
-                keepAlive.cancel(true);
+        public void onError(Throwable t) {
+            close();
+        }
+
+        private void write() {
+            synchronized (this) {
+                try {
+                    while (this.out.isReady()) {
+                        if (this.unflushed) {
+                            this.out.flush();
+                            this.unflushed = false;
+                            continue;
+                        }
+                        byte[] data = this.pending.getAndSet(null);
+                        if (data == null) {
+                            return;
+                        }
+                        this.out.write(data);
+                        this.unflushed = true;
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    close();
+                }
+            }
+        }
+
+        void close() {
+            if (TopologySSEServlet.this.connections.remove(this)) {
+                try {
+                    this.asyncContext.complete();
+                } catch (IllegalStateException e) {
+                    // Already completed
+                }
             }
         }
 
+        @Override
+        public void onComplete(AsyncEvent asyncEvent) throws IOException {
+            TopologySSEServlet.this.connections.remove(this);
+        }
+
         @Override
         public void onTimeout(AsyncEvent asyncEvent) throws IOException {
-            if (topology != null) {
-                topology.removeListener(topologyListener);
-                keepAlive.cancel(true);
-            }
+            close();
         }
 
         @Override
         public void onError(AsyncEvent asyncEvent) throws IOException {
-            if (topology != null) {
-                topology.removeListener(topologyListener);
-                keepAlive.cancel(true);
-            }
+            close();
         }
 
         @Override
         public void onStartAsync(AsyncEvent asyncEvent) throws IOException {
         }
-    }
 
-    private class SSETopologyListener implements TopologyListener {
-        Object writeLock = new Object();
+        private final AsyncContext asyncContext;
 
-        final PrintWriter writer;
+        private final ServletOutputStream out;
 
-        final boolean secure;
+        private final boolean secure;
 
-        private SSETopologyListener(PrintWriter writer, boolean secure) {
-            this.writer = writer;
-            this.secure = secure;
-        }
+        private final AtomicReference<byte[]> pending = new AtomicReference<>();
 
-        @Override
-        public void onChange(Topology topology) {
-            String json = topologyToJson(secure);
-            synchronized (writeLock) {
-                writer.write("event: topologyChange\n");
-                writer.write("data: " + json);
-                writer.flush();
-            }
-        }
+        // Guarded by this
+        private boolean unflushed;
     }
 }
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.webapp.runtime;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import io.undertow.server.HttpHandler;
+import io.undertow.server.handlers.ResponseCodeHandler;
+import io.undertow.server.handlers.proxy.LoadBalancingProxyClient;
+import io.undertow.server.handlers.proxy.ProxyHandler;
+import org.jboss.msc.inject.Injector;
+import org.junit.Test;
+import org.wildfly.swarm.topology.Topology;
+import org.wildfly.swarm.topology.runtime.Registration;
+import org.wildfly.swarm.topology.runtime.TopologyManager;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TopologyProxyServiceTest {
+
+    @Test
+    public void testChangesBeforeTheHandlerIsAttachedAreCaughtUpWith() throws Exception {
+        TopologyManager topology = new TopologyManager();
+        TopologyProxyService service = new TopologyProxyService(Collections.singleton("foo"));
+        RecordingProxyClient proxyClient = new RecordingProxyClient();
+        Registration one = new Registration("consul", "foo", "10.0.0.1", 8080, "http");
+        Registration two = new Registration("consul", "foo", "10.0.0.2", 8080, "http");
+        Registration three = new Registration("consul", "foo", "10.0.0.3", 8080, "http");
+        Injector<HttpHandler> injector = service.getHandlerInjectorFor("foo");
+
+        // Not attached yet
+        topology.register(one);
+        service.onChange(topology, change(one, null));
+        topology.register(two);
+        service.onChange(topology, change(two, null));
+
+        injector.inject(new ProxyHandler(proxyClient, 30000, ResponseCodeHandler.HANDLE_404));
+        topology.register(three);
+        topology.unregister(one);
+        service.onChange(topology, change(three, null));
+        assertThat(proxyClient.hosts).containsOnly(uri(two), uri(three));
+
+        // Already caught up with
+        service.onChange(topology, change(null, one));
+        assertThat(proxyClient.hosts).containsOnly(uri(two), uri(three));
+
+        topology.unregister(two);
+        service.onChange(topology, change(null, two));
+        assertThat(proxyClient.hosts).containsOnly(uri(three));
+    }
+
+    @Test
+    public void testFullTopologyIsSynced() throws Exception {
+        TopologyManager topology = new TopologyManager();
+        TopologyProxyService service = new TopologyProxyService(Collections.singleton("foo"));
+        RecordingProxyClient proxyClient = new RecordingProxyClient();
+        service.getHandlerInjectorFor("foo").inject(new ProxyHandler(proxyClient, 30000, ResponseCodeHandler.HANDLE_404));
+        Registration one = new Registration("consul", "foo", "10.0.0.1", 8080, "http");
+        Registration two = new Registration("consul", "foo", "10.0.0.2", 8080, "http");
+
+        topology.register(one);
+        service.onChange(topology);
+        topology.register(two);
+        topology.unregister(one);
+        service.onChange(topology);
+        service.onChange(topology);
+
+        assertThat(proxyClient.hosts).containsOnly(uri(two));
+    }
+
+    private static Topology.Change change(Registration added, Registration removed) {
+        Map<String, List<Topology.Entry>> addedMap = added == null
+                ? Collections.emptyMap() : Collections.singletonMap(added.getName(), Collections.singletonList(added));
+        Map<String, List<Topology.Entry>> removedMap = removed == null
+                ? Collections.emptyMap() : Collections.singletonMap(removed.getName(), Collections.singletonList(removed));
+        return new Topology.Change() {
+            @Override
+            public Map<String, List<Topology.Entry>> getAdded() {
+                return addedMap;
+            }
+
+            @Override
+            public Map<String, List<Topology.Entry>> getRemoved() {
+                return removedMap;
+            }
+        };
+    }
+
+    private static URI uri(Registration registration) throws Exception {
+        return new URI("http", null, registration.getAddress(), registration.getPort(), null, null, null);
+    }
+
+    private static class RecordingProxyClient extends LoadBalancingProxyClient {
+
+        @Override
+        public synchronized LoadBalancingProxyClient addHost(URI host) {
+            hosts.add(host);
+            return this;
+        }
+
+        @Override
+        public synchronized LoadBalancingProxyClient removeHost(URI host) {
+            hosts.remove(host);
+            return this;
+        }
+
+        final List<URI> hosts = new ArrayList<>();
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.webapp.runtime;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.Context;
+import javax.naming.spi.InitialContextFactory;
+
+import io.undertow.Undertow;
+import io.undertow.servlet.Servlets;
+import io.undertow.servlet.api.DeploymentInfo;
+import io.undertow.servlet.api.DeploymentManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.wildfly.swarm.topology.runtime.Registration;
+import org.wildfly.swarm.topology.runtime.TopologyManager;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * The servlet deployed on an embedded Undertow, with clients reading the stream and one which never reads.
+ */
+public class TopologySSEServletTest {
+
+    private static final int CLIENTS = 10;
+
+    private static final int REGISTRATIONS = 200;
+
+    @Before
+    public void setUp() throws Exception {
+        TOPOLOGY = new CountingTopologyManager();
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, TopologyContextFactory.class.getName());
+
+        DeploymentInfo deployment = Servlets.deployment()
+                .setClassLoader(getClass().getClassLoader())
+                .setContextPath("/")
+                .setDeploymentName("topology-sse.war")
+                .addServlet(Servlets.servlet("sse", TopologySSEServlet.class)
+                                    .addMapping("/system/stream")
+                                    .setAsyncSupported(true)
+                                    .setLoadOnStartup(1));
+        this.deploymentManager = Servlets.newContainer().addDeployment(deployment);
+        this.deploymentManager.deploy();
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            this.port = socket.getLocalPort();
+        }
+        this.server = Undertow.builder()
+                .addHttpListener(this.port, "localhost")
+                .setHandler(this.deploymentManager.start())
+                .build();
+        this.server.start();
+
+        TOPOLOGY.register(new Registration("test", "initial", "10.0.0.1", 8080, "http"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        // Ends the streams, so that the clients are not closed while reading
+        this.deploymentManager.stop();
+        this.deploymentManager.undeploy();
+        this.server.stop();
+        this.clients.forEach(Client::close);
+        if (this.slowClient != null) {
+            this.slowClient.close();
+        }
+        System.clearProperty(Context.INITIAL_CONTEXT_FACTORY);
+    }
+
+    @Test
+    public void testCoalescesChangesAndSharesTheirSerialization() throws Exception {
+        for (int i = 0; i < CLIENTS; i++) {
+            this.clients.add(new Client(this.port));
+        }
+        connectSlowClient();
+        for (Client each : this.clients) {
+            assertThat(each.firstEvent.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        int serializationsBefore = TOPOLOGY.serializations.get();
+        int eventsBefore = this.clients.get(0).events.get();
+        for (int i = 0; i < REGISTRATIONS; i++) {
+            TOPOLOGY.register(new Registration("test", "service-" + (i % 20), "10.0.1." + i, 8080, "http"));
+        }
+
+        // Every client reading the stream gets the latest topology, despite the one which does not read
+        String latest = "10.0.1." + (REGISTRATIONS - 1);
+        for (Client each : this.clients) {
+            assertThat(each.awaitEventContaining(latest, 10, TimeUnit.SECONDS)).isTrue();
+        }
+        Thread.sleep(TopologySSEServlet.COALESCE_DELAY * 3);
+
+        int maxEvents = 0;
+        for (Client each : this.clients) {
+            maxEvents = Math.max(maxEvents, each.events.get() - eventsBefore);
+        }
+        int serializations = TOPOLOGY.serializations.get() - serializationsBefore;
+
+        // Coalesced
+        assertThat(maxEvents).isLessThan(REGISTRATIONS / 4);
+        // Serialized once per event, not once per client
+        assertThat(serializations).isGreaterThan(0);
+        assertThat(serializations).isLessThanOrEqualTo(maxEvents);
+    }
+
+    @Test
+    public void testConnectionReceivesCurrentTopology() throws Exception {
+        Client client = new Client(this.port);
+        this.clients.add(client);
+
+        assertThat(client.awaitEventContaining("10.0.0.1", 10, TimeUnit.SECONDS)).isTrue();
+        assertThat(client.last).contains("\"initial\"");
+    }
+
+    @Test
+    public void testPublishesFailedLookup() throws Exception {
+        Client client = new Client(this.port);
+        this.clients.add(client);
+        assertThat(client.firstEvent.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Reported with a scheme until the lookup fails, which happens off the publishing thread
+        TOPOLOGY.register(new Registration("test", "unresolvable", "unresolvable.invalid", 8080, "http"));
+
+        assertThat(client.awaitEventContaining("\"endpoint\": \"unresolvable.invalid:8080\"", 30, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void connectSlowClient() throws IOException {
+        this.slowClient = new Socket();
+        this.slowClient.setReceiveBufferSize(1024);
+        this.slowClient.connect(new java.net.InetSocketAddress("localhost", this.port));
+        this.slowClient.getOutputStream().write("GET /system/stream HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        this.slowClient.getOutputStream().flush();
+    }
+
+    static CountingTopologyManager TOPOLOGY;
+
+    private final List<Client> clients = new ArrayList<>();
+
+    private Socket slowClient;
+
+    private DeploymentManager deploymentManager;
+
+    private Undertow server;
+
+    private int port;
+
+    /**
+     * Counts the serializations of the topology.
+     */
+    static class CountingTopologyManager extends TopologyManager {
+
+        @Override
+        public Map<String, List<Entry>> asMap() {
+            this.serializations.incrementAndGet();
+            return super.asMap();
+        }
+
+        final AtomicInteger serializations = new AtomicInteger();
+    }
+
+    /**
+     * Serves the topology to {@code Topology.lookup()}.
+     */
+    public static class TopologyContextFactory implements InitialContextFactory {
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) {
+            return (Context) java.lang.reflect.Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Context.class},
+                (proxy, method, args) -> "lookup".equals(method.getName()) ? TOPOLOGY : null);
+        }
+    }
+
+    /**
+     * Reads the stream on its own thread.
+     */
+    static class Client {
+
+        Client(int port) throws IOException {
+            this.connection = (HttpURLConnection) new URL("http://localhost:" + port + "/system/stream").openConnection();
+            this.thread = new Thread(this::read, "topology-sse-client");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        boolean awaitEventContaining(String text, long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (this) {
+                while (this.last == null || !this.last.contains(text)) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(remaining);
+                }
+            }
+            return true;
+        }
+
+        void close() {
+            this.connection.disconnect();
+            this.thread.interrupt();
+        }
+
+        private void read() {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(this.connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("data: ")) {
+                        synchronized (this) {
+                            this.last = line;
+                            this.events.incrementAndGet();
+                            notifyAll();
+                        }
+                        this.firstEvent.countDown();
+                    }
+                }
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+
+        private final HttpURLConnection connection;
+
+        private final Thread thread;
+
+        final AtomicInteger events = new AtomicInteger();
+
+        final CountDownLatch firstEvent = new CountDownLatch(1);
+
+        volatile String last;
+    }
+}
@@ -38,6 +38,9 @@ public interface Topology {
 
     AdvertisementHandle advertise(String name, String... tags);
 
+    /**
+     * @return a point-in-time copy of the entries of each service, keyed by service name
+     */
     Map<String, List<Entry>> asMap();
 
     interface Entry {
@@ -49,4 +52,15 @@ public interface Topology {
         List<String> getTags();
 
     }
+
+    /**
+     * The entries added and removed by a change of the topology, keyed by service name.
+     */
+    interface Change {
+
+        Map<String, List<Entry>> getAdded();
+
+        Map<String, List<Entry>> getRemoved();
+
+    }
 }
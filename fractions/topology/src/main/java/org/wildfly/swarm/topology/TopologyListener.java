@@ -20,4 +20,17 @@ package org.wildfly.swarm.topology;
  */
 public interface TopologyListener {
     void onChange(Topology topology);
+
+    /**
+     * Notified with the entries added and removed by each change, in the order the changes were applied. The first notification after the listener is
+     * added carries the whole current topology as added.
+     *
+     * <p>By default, this delegates to {@link #onChange(Topology)}.</p>
+     *
+     * @param topology the topology
+     * @param change the entries added and removed by the change
+     */
+    default void onChange(Topology topology, Topology.Change change) {
+        onChange(topology);
+    }
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.wildfly.swarm.topology.Topology;
+
+/**
+ * The registrations added and removed by a single change of the {@link TopologyManager}.
+ */
+class TopologyChange implements Topology.Change {
+
+    TopologyChange(Map<String, Set<Registration>> added, Map<String, Set<Registration>> removed) {
+        this.added = toEntries(added);
+        this.removed = toEntries(removed);
+    }
+
+    @Override
+    public Map<String, List<Topology.Entry>> getAdded() {
+        return this.added;
+    }
+
+    @Override
+    public Map<String, List<Topology.Entry>> getRemoved() {
+        return this.removed;
+    }
+
+    @Override
+    public String toString() {
+        return "[TopologyChange: added=" + this.added + "; removed=" + this.removed + "]";
+    }
+
+    private static Map<String, List<Topology.Entry>> toEntries(Map<String, Set<Registration>> registrations) {
+        if (registrations.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, List<Topology.Entry>> entries = new HashMap<>();
+        for (Map.Entry<String, Set<Registration>> e : registrations.entrySet()) {
+            entries.put(e.getKey(), Collections.unmodifiableList(new ArrayList<>(e.getValue())));
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    private final Map<String, List<Topology.Entry>> added;
+
+    private final Map<String, List<Topology.Entry>> removed;
+
+}
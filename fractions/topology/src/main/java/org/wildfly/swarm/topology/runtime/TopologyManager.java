@@ -17,14 +17,21 @@ package org.wildfly.swarm.topology.runtime;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import org.jboss.msc.service.ServiceController;
 import org.jboss.msc.service.ServiceTarget;
@@ -35,6 +42,10 @@ import org.wildfly.swarm.topology.TopologyMessages;
 import org.wildfly.swarm.topology.deployment.RegistrationAdvertiser;
 
 /**
+ * Registrations are held per service in an immutable {@link Service} entry, indexed by tag, and per source key. Writers are serialized and replace the
+ * entries of the affected services and source keys only, so that a change costs as much as the registrations it touches and lookups never block.
+ * Listeners are notified of the added and removed registrations, in the order the changes were applied.
+ *
  * @author Bob McWhirter
  */
 public class TopologyManager implements Topology {
@@ -46,11 +57,17 @@ public class TopologyManager implements Topology {
     }
 
     public synchronized void addListener(TopologyListener listener) {
-        this.listeners.add(listener);
+        Dispatcher dispatcher = new Dispatcher(listener);
+        this.listeners.add(dispatcher);
+        if (!this.services.isEmpty()) {
+            Map<String, Set<Registration>> current = new HashMap<>();
+            this.services.forEach((name, service) -> current.put(name, service.registrations));
+            dispatcher.dispatch(new TopologyChange(current, Collections.emptyMap()));
+        }
     }
 
-    public synchronized void removeListener(TopologyListener listener) {
-        this.listeners.remove(listener);
+    public void removeListener(TopologyListener listener) {
+        this.listeners.removeIf(e -> e.listener == listener);
     }
 
     @Override
@@ -62,101 +79,222 @@ public class TopologyManager implements Topology {
         return new AdvertisementHandleImpl(httpAdvert, httpsAdvert);
     }
 
-    public synchronized Set<Registration> registrationsForSourceKey(String sourceKey) {
-        Set<Registration> result = Collections.unmodifiableSet(
-                this.registrations.stream()
-                        .filter(e -> e.getSourceKey().equals(sourceKey))
-                        .collect(Collectors.toSet())
-        );
-        return result;
+    public Set<Registration> registrationsForSourceKey(String sourceKey) {
+        return this.bySourceKey.getOrDefault(sourceKey, Collections.emptySet());
     }
 
-    public synchronized Set<Registration> registrationsForService(String name) {
-        Set<Registration> result = Collections.unmodifiableSet(
-                this.registrations.stream()
-                        .filter(e -> e.getName().equals(name))
-                        .collect(Collectors.toSet())
-        );
-
-        return result;
+    public Set<Registration> registrationsForService(String name) {
+        Service service = this.services.get(name);
+        return service == null ? Collections.emptySet() : service.registrations;
     }
 
-    public synchronized Set<Registration> registrationsForService(String name, String tag) {
-        Set<Registration> result = Collections.unmodifiableSet(
-                this.registrations.stream()
-                        .filter(e -> e.getName().equals(name) && e.hasTag(tag))
-                        .collect(Collectors.toSet())
-        );
-
-        return result;
+    public Set<Registration> registrationsForService(String name, String tag) {
+        Service service = this.services.get(name);
+        return service == null ? Collections.emptySet() : service.byTag.getOrDefault(tag, Collections.emptySet());
     }
 
     public synchronized void register(Registration registration) {
-        if (!this.registrations.contains(registration)) {
-            this.registrations.add(registration);
-            fireListeners();
+        if (find(registration) == null) {
+            apply(Collections.singleton(registration), Collections.emptySet());
         }
     }
 
     public synchronized void unregister(Registration registration) {
-        boolean removed = this.registrations.removeIf(e -> e.equals(registration));
-        if (removed) {
-            fireListeners();
+        // Report the registered instance, along with its tags
+        Registration registered = find(registration);
+        if (registered != null) {
+            apply(Collections.emptySet(), Collections.singleton(registered));
         }
     }
 
     public synchronized void unregisterAll(String sourceKey) {
-        boolean removed = this.registrations.removeIf(e -> e.getSourceKey().equals(sourceKey));
-        if (removed) {
-            fireListeners();
+        Set<Registration> removed = registrationsForSourceKey(sourceKey);
+        if (!removed.isEmpty()) {
+            apply(Collections.emptySet(), removed);
         }
     }
 
     public synchronized void unregisterAll(String sourceKey, String name) {
-        boolean removed = this.registrations.removeIf(e -> e.getSourceKey().equals(sourceKey) && e.getName().equals(name));
-        if (removed) {
-            fireListeners();
+        List<Registration> removed = new ArrayList<>();
+        for (Registration registration : registrationsForSourceKey(sourceKey)) {
+            if (registration.getName().equals(name)) {
+                removed.add(registration);
+            }
+        }
+        if (!removed.isEmpty()) {
+            apply(Collections.emptySet(), removed);
         }
     }
 
+    /**
+     * @return an unmodifiable snapshot of the registrations, taken when they last changed
+     */
     @Override
-    public synchronized Map<String, List<Entry>> asMap() {
-        Map<String, List<Entry>> map = new HashMap<>();
-
-        for (Registration registration : this.registrations) {
-            List<Entry> list = map.get(registration.getName());
-            if (list == null) {
-                list = new ArrayList<>();
-                map.put(registration.getName(), list);
+    public Map<String, List<Entry>> asMap() {
+        return this.entries;
+    }
+
+    private Registration find(Registration registration) {
+        for (Registration registered : registrationsForService(registration.getName())) {
+            if (registered.equals(registration)) {
+                return registered;
+            }
+        }
+        return null;
+    }
+
+    private void apply(Collection<Registration> added, Collection<Registration> removed) {
+        Map<String, Set<Registration>> addedByName = groupByName(added);
+        Map<String, Set<Registration>> removedByName = groupByName(removed);
+        Set<String> names = new LinkedHashSet<>(addedByName.keySet());
+        names.addAll(removedByName.keySet());
+        // The lists of the services left untouched are shared with the previous snapshot
+        Map<String, List<Entry>> entries = new HashMap<>(this.entries);
+        for (String name : names) {
+            Set<Registration> registrations = update(registrationsForService(name), addedByName.get(name), removedByName.get(name));
+            if (registrations.isEmpty()) {
+                this.services.remove(name);
+                entries.remove(name);
+            } else {
+                Service service = new Service(registrations);
+                this.services.put(name, service);
+                entries.put(name, service.entries);
+            }
+        }
+        this.entries = Collections.unmodifiableMap(entries);
+
+        Map<String, Set<Registration>> addedBySourceKey = group(added, Registration::getSourceKey);
+        Map<String, Set<Registration>> removedBySourceKey = group(removed, Registration::getSourceKey);
+        Set<String> sourceKeys = new LinkedHashSet<>(addedBySourceKey.keySet());
+        sourceKeys.addAll(removedBySourceKey.keySet());
+        for (String sourceKey : sourceKeys) {
+            Set<Registration> registrations = update(registrationsForSourceKey(sourceKey), addedBySourceKey.get(sourceKey),
+                                                     removedBySourceKey.get(sourceKey));
+            if (registrations.isEmpty()) {
+                this.bySourceKey.remove(sourceKey);
+            } else {
+                this.bySourceKey.put(sourceKey, registrations);
             }
-            list.add(registration);
         }
 
-        return map;
+        TopologyChange change = new TopologyChange(addedByName, removedByName);
+        for (Dispatcher dispatcher : this.listeners) {
+            dispatcher.dispatch(change);
+        }
     }
 
-    private void fireListeners() {
-        List<TopologyListener> currentListeners = new ArrayList<>();
-        currentListeners.addAll(this.listeners);
-        currentListeners.forEach((e) -> {
-            executor.execute(() -> {
-                try {
-                    e.onChange(this);
-                } catch (Throwable t) {
-                    TopologyMessages.MESSAGES.errorFiringEvent(e.getClass().getName(), t);
-                    removeListener(e);
-                }
-            });
-        });
+    private static Set<Registration> update(Set<Registration> current, Set<Registration> added, Set<Registration> removed) {
+        Set<Registration> registrations = new LinkedHashSet<>(current);
+        if (removed != null) {
+            registrations.removeAll(removed);
+        }
+        if (added != null) {
+            registrations.addAll(added);
+        }
+        return registrations.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(registrations);
     }
 
-    private List<TopologyListener> listeners = new ArrayList<>();
+    private static Map<String, Set<Registration>> groupByName(Collection<Registration> registrations) {
+        return group(registrations, Registration::getName);
+    }
 
-    private List<Registration> registrations = new ArrayList<>();
+    private static Map<String, Set<Registration>> group(Collection<Registration> registrations, Function<Registration, String> key) {
+        if (registrations.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Set<Registration>> groups = new HashMap<>();
+        for (Registration registration : registrations) {
+            groups.computeIfAbsent(key.apply(registration), k -> new LinkedHashSet<>()).add(registration);
+        }
+        return groups;
+    }
+
+    private final List<Dispatcher> listeners = new CopyOnWriteArrayList<>();
+
+    private final Map<String, Service> services = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<Registration>> bySourceKey = new ConcurrentHashMap<>();
+
+    private volatile Map<String, List<Entry>> entries = Collections.emptyMap();
 
     private Executor executor = Executors.newFixedThreadPool(2);
 
     private ServiceTarget serviceTarget;
 
+    /**
+     * The immutable registrations of a single service, indexed by tag.
+     */
+    private static final class Service {
 
+        Service(Set<Registration> registrations) {
+            this.registrations = registrations;
+            this.byTag = indexByTag(registrations);
+            this.entries = Collections.unmodifiableList(new ArrayList<>(registrations));
+        }
+
+        private static Map<String, Set<Registration>> indexByTag(Set<Registration> registrations) {
+            Map<String, Set<Registration>> byTag = new HashMap<>();
+            for (Registration registration : registrations) {
+                for (String tag : registration.getTags()) {
+                    byTag.computeIfAbsent(tag, k -> new LinkedHashSet<>()).add(registration);
+                }
+            }
+            byTag.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+            return byTag;
+        }
+
+        final Set<Registration> registrations;
+
+        final Map<String, Set<Registration>> byTag;
+
+        final List<Entry> entries;
+
+    }
+
+    /**
+     * Delivers the changes to a single listener, one at a time and in order, without holding a thread while there is nothing to deliver.
+     */
+    private final class Dispatcher {
+
+        Dispatcher(TopologyListener listener) {
+            this.listener = listener;
+        }
+
+        void dispatch(TopologyChange change) {
+            this.pending.add(change);
+            schedule();
+        }
+
+        private void schedule() {
+            if (this.scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            TopologyChange change;
+            while ((change = this.pending.poll()) != null) {
+                try {
+                    this.listener.onChange(TopologyManager.this, change);
+                } catch (Throwable t) {
+                    TopologyMessages.MESSAGES.errorFiringEvent(this.listener.getClass().getName(), t);
+                    removeListener(this.listener);
+                    this.pending.clear();
+                    return;
+                }
+            }
+            this.scheduled.set(false);
+            // A change may have been queued after the last poll
+            if (!this.pending.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private final TopologyListener listener;
+
+        private final Queue<TopologyChange> pending = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    }
 }
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2015-2017 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.topology.runtime;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.wildfly.swarm.topology.Topology;
+import org.wildfly.swarm.topology.TopologyListener;
+
+import static org.fest.assertions.Assertions.*;
+
+public class TopologyManagerTest {
+
+    @Test
+    public void testLookupsByServiceTagAndSourceKey() {
+        TopologyManager manager = new TopologyManager();
+        Registration one = new Registration("consul", "foo", "10.0.0.1", 8080, "http");
+        Registration two = new Registration("consul", "foo", "10.0.0.2", 8443, "https");
+        Registration three = new Registration("jgroups", "bar", "10.0.0.3", 8080, "http");
+        manager.register(one);
+        manager.register(two);
+        manager.register(three);
+
+        assertThat(manager.registrationsForService("foo")).containsOnly(one, two);
+        assertThat(manager.registrationsForService("foo", "https")).containsOnly(two);
+        assertThat(manager.registrationsForService("foo", "none")).isEmpty();
+        assertThat(manager.registrationsForService("baz")).isEmpty();
+        assertThat(manager.registrationsForSourceKey("consul")).containsOnly(one, two);
+        assertThat(manager.asMap().keySet()).containsOnly("foo", "bar");
+
+        manager.unregisterAll("consul", "foo");
+        assertThat(manager.registrationsForService("foo")).isEmpty();
+        assertThat(manager.registrationsForService("foo", "http")).isEmpty();
+        assertThat(manager.registrationsForSourceKey("consul")).isEmpty();
+        assertThat(manager.asMap().keySet()).containsOnly("bar");
+    }
+
+    @Test
+    public void testLookupsReturnStableSnapshots() {
+        TopologyManager manager = new TopologyManager();
+        Registration one = new Registration("consul", "foo", "10.0.0.1", 8080, "http");
+        manager.register(one);
+        Set<Registration> before = manager.registrationsForService("foo");
+
+        manager.register(new Registration("consul", "foo", "10.0.0.2", 8080, "http"));
+
+        assertThat(before).containsOnly(one);
+        assertThat(manager.registrationsForService("foo")).hasSize(2);
+    }
+
+    @Test
+    public void testChangesOnlyReplaceTheAffectedService() {
+        TopologyManager manager = new TopologyManager();
+        manager.register(new Registration("consul", "foo", "10.0.0.1", 8080, "http"));
+        manager.register(new Registration("jgroups", "bar", "10.0.0.3", 8080, "http"));
+        Map<String, List<Topology.Entry>> map = manager.asMap();
+        List<Topology.Entry> foo = map.get("foo");
+        Set<Registration> bar = manager.registrationsForService("bar");
+
+        manager.register(new Registration("consul", "foo", "10.0.0.2", 8080, "http"));
+        manager.unregisterAll("jgroups");
+
+        // The map is a point-in-time snapshot
+        assertThat(map.get("foo")).isSameAs(foo).hasSize(1);
+        assertThat(map.keySet()).containsOnly("foo", "bar");
+        assertThat(bar).hasSize(1);
+        Map<String, List<Topology.Entry>> changed = manager.asMap();
+        assertThat(changed.get("foo")).hasSize(2);
+        assertThat(changed.keySet()).containsOnly("foo");
+
+        manager.register(new Registration("jgroups", "baz", "10.0.0.4", 8080, "http"));
+        assertThat(manager.asMap().get("foo")).isSameAs(changed.get("foo"));
+        assertThat(changed.keySet()).containsOnly("foo");
+    }
+
+    @Test
+    public void testListenersReceiveDeltasInOrder() throws InterruptedException {
+        TopologyManager manager = new TopologyManager();
+        Registration one = new Registration("consul", "foo", "10.0.0.1", 8080, "http");
+        Registration two = new Registration("consul", "foo", "10.0.0.2", 8080, "http");
+        manager.register(one);
+
+        RecordingListener listener = new RecordingListener();
+        manager.addListener(listener);
+        manager.register(two);
+        // Already registered
+        manager.register(new Registration("consul", "foo", "10.0.0.2", 8080));
+        manager.unregister(new Registration("consul", "foo", "10.0.0.1", 8080));
+
+        // The current topology first
+        Topology.Change change = listener.next();
+        assertThat(change.getAdded().get("foo")).containsOnly(one);
+        assertThat(change.getRemoved()).isEmpty();
+
+        change = listener.next();
+        assertThat(change.getAdded().get("foo")).containsOnly(two);
+        assertThat(change.getRemoved()).isEmpty();
+
+        change = listener.next();
+        assertThat(change.getAdded()).isEmpty();
+        assertThat(change.getRemoved().get("foo")).containsOnly(one);
+        // The registered instance is reported, along with its tags
+        assertThat(change.getRemoved().get("foo").get(0).getTags()).containsOnly("http");
+
+        assertThat(listener.changes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void testFullTopologyListenersAreStillNotified() throws InterruptedException {
+        TopologyManager manager = new TopologyManager();
+        BlockingQueue<Topology> notified = new LinkedBlockingQueue<>();
+        manager.addListener(notified::add);
+
+        manager.register(new Registration("consul", "foo", "10.0.0.1", 8080));
+
+        assertThat(notified.poll(5, TimeUnit.SECONDS)).isSameAs(manager);
+    }
+
+    private static class RecordingListener implements TopologyListener {
+
+        @Override
+        public void onChange(Topology topology) {
+            throw new AssertionError("Deltas expected");
+        }
+
+        @Override
+        public void onChange(Topology topology, Topology.Change change) {
+            this.changes.add(change);
+        }
+
+        Topology.Change next() throws InterruptedException {
+            Topology.Change change = this.changes.poll(5, TimeUnit.SECONDS);
+            assertThat(change).isNotNull();
+            return change;
+        }
+
+        final BlockingQueue<Topology.Change> changes = new LinkedBlockingQueue<>();
+
+    }
+
+}
@@ -205,6 +205,14 @@ public class MavenArtifactResolvingHelper implements ArtifactResolvingHelper {
                 .collect(Collectors.toSet());
     }
 
+    /**
+     * The repository system and session of Aether can be shared between threads.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     /**
      * This is needed to speed up things.
      */
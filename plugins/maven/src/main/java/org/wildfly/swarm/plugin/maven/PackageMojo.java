@@ -66,9 +66,30 @@ public class PackageMojo extends AbstractSwarmMojo {
     @Parameter(alias = "executableScript")
     protected File executableScript;
 
+    /**
+     * Store bundled dependency jars uncompressed so they can be loaded at boot
+     * straight from the -swarm.jar instead of being extracted to temporary files.
+     */
+    @Parameter(alias = "uncompressedDependencies", defaultValue = "false", property = "swarm.uncompressedDependencies")
+    protected boolean uncompressedDependencies;
+
     @Parameter(alias = "hollow", defaultValue = "false", property = "swarm.hollow")
     protected boolean hollow;
 
+    /**
+     * Record the boot operations into the -swarm.jar, so that they are not marshalled again
+     * on each start as long as the fractions and configuration do not change.
+     */
+    @Parameter(alias = "bootSnapshot", defaultValue = "false", property = "swarm.bootSnapshot")
+    protected boolean bootSnapshot;
+
+    /**
+     * Copy the entries which did not change since the previous build from the existing
+     * -swarm.jar instead of compressing them again.
+     */
+    @Parameter(alias = "incremental", defaultValue = "false", property = "swarm.incremental")
+    protected boolean incremental;
+
     /**
      * Flag to skip packaging entirely.
      */
@@ -131,10 +152,13 @@ public class PackageMojo extends AbstractSwarmMojo {
                 .properties(this.properties)
                 .mainClass(this.mainClass)
                 .bundleDependencies(this.bundleDependencies)
+                .uncompressedDependencies(this.uncompressedDependencies)
                 .executable(executable)
                 .executableScript(executableScript)
                 .fractionDetectionMode(fractionDetectMode)
                 .hollow(hollow)
+                .bootSnapshot(bootSnapshot)
+                .incremental(incremental)
                 .logger(new SimpleLogger() {
                     @Override
                     public void debug(String msg) {
@@ -29,4 +29,13 @@ public interface ArtifactResolver {
     Collection<ArtifactSpec> resolveAllArtifactsTransitively(Collection<ArtifactSpec> specs, boolean excludes) throws Exception;
 
     Collection<ArtifactSpec> resolveAllArtifactsNonTransitively(Collection<ArtifactSpec> specs) throws Exception;
+
+    /**
+     * Whether this resolver can be called from several threads at once.
+     *
+     * @return {@code true} if concurrent resolutions are safe, {@code false} by default
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
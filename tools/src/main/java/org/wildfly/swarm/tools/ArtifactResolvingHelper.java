@@ -37,4 +37,13 @@ public interface ArtifactResolvingHelper {
     }
 
     Set<ArtifactSpec> resolveAll(Collection<ArtifactSpec> specs, boolean transitive, boolean defaultExcludes) throws Exception;
+
+    /**
+     * Whether this helper can be called from several threads at once.
+     *
+     * @return {@code true} if concurrent resolutions are safe, {@code false} by default
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
 }
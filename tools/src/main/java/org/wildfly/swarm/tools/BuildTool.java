@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -59,6 +60,8 @@ import org.wildfly.swarm.fractions.FractionDescriptor;
 import org.wildfly.swarm.fractions.FractionList;
 import org.wildfly.swarm.fractions.FractionUsageAnalyzer;
 import org.wildfly.swarm.spi.meta.SimpleLogger;
+import org.wildfly.swarm.tools.exec.SwarmExecutor;
+import org.wildfly.swarm.tools.exec.SwarmProcess;
 
 /**
  * @author Bob McWhirter
@@ -153,6 +156,12 @@ public class BuildTool {
         return this;
     }
 
+    public BuildTool uncompressedDependencies(boolean uncompressedDependencies) {
+        this.uncompressedDependencies = uncompressedDependencies;
+
+        return this;
+    }
+
     public BuildTool executable(boolean executable) {
         this.executable = executable;
 
@@ -181,9 +190,59 @@ public class BuildTool {
         return this;
     }
 
+    public BuildTool bootSnapshot(boolean bootSnapshot) {
+        this.bootSnapshot = bootSnapshot;
+        return this;
+    }
+
+    /**
+     * Reuse the unchanged entries of the existing -swarm.jar instead of compressing them again.
+     */
+    public BuildTool incremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
     public File build(String baseName, Path dir) throws Exception {
         build();
-        return createJar(baseName, dir);
+        File out = createJar(baseName, dir);
+        if (this.bootSnapshot && addBootSnapshot(out)) {
+            out = createJar(baseName, dir);
+        }
+        return out;
+    }
+
+    /**
+     * Boots the uberjar far enough to marshal its boot operations and adds them to the archive,
+     * so that they do not have to be marshalled again on each start.
+     *
+     * @param uberjar The uberjar to record the boot operations of.
+     * @return {@code true} if the snapshot was added to the archive.
+     */
+    private boolean addBootSnapshot(File uberjar) throws Exception {
+        this.log.info("Recording boot operations of " + uberjar);
+        Path snapshot = Files.createTempFile("swarm-boot-operations", ".dmr");
+        try {
+            SwarmProcess process = new SwarmExecutor()
+                    .withExecutableJar(uberjar.toPath())
+                    .withWorkingDirectory(uberjar.getParentFile().toPath())
+                    .withProperty(BootstrapProperties.BOOT_SNAPSHOT, Boolean.FALSE.toString())
+                    .withProperty(BootstrapProperties.BOOT_SNAPSHOT_RECORD, snapshot.toAbsolutePath().toString())
+                    .execute();
+            if (!process.waitFor(BOOT_SNAPSHOT_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                this.log.error("Timed out recording boot operations, the uberjar does not contain a boot snapshot");
+                return false;
+            }
+            if (process.exitValue() != 0 || Files.size(snapshot) == 0) {
+                this.log.error("Failed to record boot operations (exit code " + process.exitValue() + "), the uberjar does not contain a boot snapshot");
+                return false;
+            }
+            this.archive.add(new ByteArrayAsset(Files.readAllBytes(snapshot)), BootstrapProperties.BOOT_SNAPSHOT_LOCATION);
+            return true;
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
     }
 
 
@@ -446,14 +505,36 @@ public class BuildTool {
         if (!out.getParentFile().exists() && !out.getParentFile().mkdirs()) {
             this.log.error("Failed to create parent directory for: " + out.getAbsolutePath());
         }
-        ZipExporter exporter = this.archive.as(ZipExporter.class);
-        try (FileOutputStream fos = new FileOutputStream(out)) {
-            if (executable) {
-                try (InputStream is = getLaunchScript()) {
-                    IOUtil.copy(is, fos);
+        // the previous jar is read while the new one is written next to it
+        File previous = this.incremental && out.exists() ? out : null;
+        File target = previous != null ? new File(out.getParentFile(), out.getName() + ".tmp") : out;
+        try {
+            try (FileOutputStream fos = new FileOutputStream(target)) {
+                if (executable) {
+                    try (InputStream is = getLaunchScript()) {
+                        IOUtil.copy(is, fos);
+                    }
+                }
+                if (this.incremental) {
+                    UberJarExporter exporter = new UberJarExporter(this.archive, this.uncompressedDependencies).reuse(previous);
+                    exporter.exportTo(fos);
+                    if (previous != null) {
+                        this.log.info("Reused " + exporter.getReusedEntries() + " unchanged entries of " + out.getName());
+                    }
+                } else if (this.uncompressedDependencies) {
+                    new UberJarExporter(this.archive, true).exportTo(fos);
+                } else {
+                    this.archive.as(ZipExporter.class).exportTo(fos);
                 }
             }
-            exporter.exportTo(fos);
+            if (previous != null) {
+                Files.move(target.toPath(), out.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (previous != null) {
+                // only left behind when the export failed
+                Files.deleteIfExists(target.toPath());
+            }
         }
         if (executable) {
             if (!out.setExecutable(true)) {
@@ -579,6 +660,8 @@ public class BuildTool {
 
     private boolean bundleDependencies = true;
 
+    private boolean uncompressedDependencies;
+
     private boolean executable;
 
     private File executableScript;
@@ -597,10 +680,16 @@ public class BuildTool {
 
     private boolean hollow;
 
+    private boolean bootSnapshot;
+
+    private boolean incremental;
+
     private DeclaredDependencies declaredDependencies;
 
     private final DefaultArtifactResolver resolver;
 
+    private static final long BOOT_SNAPSHOT_TIMEOUT_MINUTES = 5;
+
     private static final SimpleLogger STD_LOGGER = new SimpleLogger() {
         @Override
         public void info(String msg) {
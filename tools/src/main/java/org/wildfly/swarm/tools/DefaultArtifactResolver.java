@@ -50,5 +50,10 @@ public class DefaultArtifactResolver implements ArtifactResolver {
         return this.resolver.resolveAll(specs, false, false);
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return this.resolver.isThreadSafe();
+    }
+
     private ArtifactResolvingHelper resolver;
 }
@@ -30,6 +30,12 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
@@ -134,69 +140,98 @@ public class DependencyManager implements ResolvedDependencies {
     /**
      * Resolve declared dependencies to local files, aka turning them into @{@link ResolvedDependencies)
      *
+     * <p>If the resolver is thread-safe, the explicit and the transitive dependencies are resolved
+     * concurrently, on a small pool which also bounds the number of concurrent downloads. Otherwise
+     * they are resolved one after the other on the calling thread.</p>
+     *
      * @param declaredDependencies
      * @throws Exception
      */
     private void resolveDependencies(DeclaredDependencies declaredDependencies, boolean autodetect) throws Exception {
         this.dependencies.clear();
 
-        // resolve the explicit deps to local files
-        // expand to transitive if these are not pre-solved
-        boolean resolveExplicitsTransitively = !declaredDependencies.isPresolved() || autodetect;
-        Collection<ArtifactSpec> resolvedExplicitDependencies = resolveExplicitsTransitively ?
-                resolver.resolveAllArtifactsTransitively(declaredDependencies.getExplicitDependencies(), false) :
-                resolver.resolveAllArtifactsNonTransitively(declaredDependencies.getExplicitDependencies());
-
-        this.dependencies.addAll(resolvedExplicitDependencies);
-
-        // resolve transitives if not pre-computed (i.e. from maven/gradle plugin)
-        if (declaredDependencies.getTransientDependencies().isEmpty()) {
-
-            Collection<ArtifactSpec> inputSet = declaredDependencies.getExplicitDependencies();
-            Collection<ArtifactSpec> filtered = inputSet
-                    .stream()
-                    .filter(dep -> dep.type().equals(JAR)) // filter out composite types, like ear, war, etc
-                    .collect(Collectors.toList());
+        ExecutorService pool = resolver.isThreadSafe() ? Executors.newFixedThreadPool(RESOLVER_THREADS, task -> {
+            Thread thread = new Thread(task, "swarm-dependency-resolver");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        Executor executor = pool != null ? pool : Runnable::run;
 
-            Collection<ArtifactSpec> resolvedTransientDependencies = resolver.resolveAllArtifactsTransitively(
-                    filtered, false
-            );
-
-            this.dependencies.addAll(resolvedTransientDependencies);
+        try {
+            // resolve the explicit deps to local files
+            // expand to transitive if these are not pre-solved
+            boolean resolveExplicitsTransitively = !declaredDependencies.isPresolved() || autodetect;
+            CompletableFuture<Collection<ArtifactSpec>> resolvedExplicitDependencies = resolveAsync(executor, () ->
+                    resolveExplicitsTransitively ?
+                            resolver.resolveAllArtifactsTransitively(declaredDependencies.getExplicitDependencies(), false) :
+                            resolver.resolveAllArtifactsNonTransitively(declaredDependencies.getExplicitDependencies()));
+
+            CompletableFuture<Collection<ArtifactSpec>> resolvedTransientDependencies;
+            Collection<ArtifactSpec> inputSet;
+
+            // resolve transitives if not pre-computed (i.e. from maven/gradle plugin)
+            if (declaredDependencies.getTransientDependencies().isEmpty()) {
+
+                inputSet = declaredDependencies.getExplicitDependencies();
+                Collection<ArtifactSpec> filtered = inputSet
+                        .stream()
+                        .filter(dep -> dep.type().equals(JAR)) // filter out composite types, like ear, war, etc
+                        .collect(Collectors.toList());
+
+                resolvedTransientDependencies = resolveAsync(executor, () -> resolver.resolveAllArtifactsTransitively(
+                        filtered, false
+                ));
+            } else {
+                // if transitive deps are pre-computed, resolve them to local files if needed
+                inputSet = declaredDependencies.getTransientDependencies();
+                Collection<ArtifactSpec> filtered = inputSet
+                        .stream()
+                        .filter(dep -> dep.type().equals(JAR))
+                        .collect(Collectors.toList());
+
+                resolvedTransientDependencies = filtered.isEmpty() ?
+                        CompletableFuture.completedFuture(Collections.emptySet()) :
+                        resolveAsync(executor, () -> resolver.resolveAllArtifactsNonTransitively(filtered));
+            }
 
             // add the remaining transitive ones that have not been filtered
-            Collection<ArtifactSpec> remainder = new ArrayList<>();
-            inputSet.forEach(remainder::add);
-            remainder.removeAll(resolvedTransientDependencies);
-
-            this.dependencies.addAll(
-                    resolver.resolveAllArtifactsNonTransitively(remainder)
-            );
-        } else {
-            // if transitive deps are pre-computed, resolve them to local files if needed
-            Collection<ArtifactSpec> inputSet = declaredDependencies.getTransientDependencies();
-            Collection<ArtifactSpec> filtered = inputSet
-                    .stream()
-                    .filter(dep -> dep.type().equals(JAR))
-                    .collect(Collectors.toList());
-
-            Collection<ArtifactSpec> resolvedTransientDependencies = Collections.emptySet();
-            if (filtered.size() > 0) {
-
-                resolvedTransientDependencies = resolver.resolveAllArtifactsNonTransitively(filtered);
-                this.dependencies.addAll(resolvedTransientDependencies);
+            CompletableFuture<Collection<ArtifactSpec>> resolvedRemainder = resolvedTransientDependencies.thenComposeAsync(resolved -> {
+                Collection<ArtifactSpec> remainder = new ArrayList<>();
+                inputSet.forEach(remainder::add);
+                remainder.removeAll(resolved);
+
+                return resolveAsync(executor, () -> resolver.resolveAllArtifactsNonTransitively(remainder));
+            }, executor);
+
+            this.dependencies.addAll(join(resolvedExplicitDependencies));
+            this.dependencies.addAll(join(resolvedTransientDependencies));
+            this.dependencies.addAll(join(resolvedRemainder));
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
             }
+        }
+    }
 
-            // add the remaining transitive ones that have not been filtered
-            Collection<ArtifactSpec> remainder = new ArrayList<>();
-            inputSet.forEach(remainder::add);
-            remainder.removeAll(resolvedTransientDependencies);
+    private static CompletableFuture<Collection<ArtifactSpec>> resolveAsync(Executor executor, Callable<Collection<ArtifactSpec>> resolution) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return resolution.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
 
-            this.dependencies.addAll(
-                    resolver.resolveAllArtifactsNonTransitively(remainder)
-            );
+    private static Collection<ArtifactSpec> join(CompletableFuture<Collection<ArtifactSpec>> resolution) throws Exception {
+        try {
+            return resolution.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
         }
-
     }
 
     private void analyzeModuleDependencies(DeclaredDependencies declaredDependencies) {
@@ -366,6 +401,8 @@ public class DependencyManager implements ResolvedDependencies {
 
     private static final String JAR = "jar";
 
+    private static final int RESOLVER_THREADS = 4;
+
     private final WildFlySwarmManifest applicationManifest = new WildFlySwarmManifest();
 
     private final Set<ArtifactSpec> dependencies = new HashSet<>();
@@ -0,0 +1,261 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+
+/**
+ * Exports the uberjar archive, optionally storing the nested dependency jars
+ * of the {@code m2repo/} directory without compression.
+ *
+ * <p>Stored nested jars can be served at boot straight from a memory-mapped
+ * view of the uberjar instead of being copied to temporary files first.</p>
+ *
+ * <p>Given the uberjar of a previous build, entries whose CRC-32 and size did not
+ * change are copied from it as they are, without being compressed again. An uberjar
+ * too large for the plain zip format is exported in full instead.</p>
+ */
+public class UberJarExporter {
+
+    private static final String M2REPO = "m2repo/";
+
+    private static final String JAR_SUFFIX = ".jar";
+
+    private static final String MANIFEST_DIR = "META-INF/";
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public UberJarExporter(Archive<?> archive, boolean storeDependencies) {
+        this.archive = archive;
+        this.storeDependencies = storeDependencies;
+    }
+
+    /**
+     * Reuse the unchanged entries of a previous export.
+     *
+     * @param previous The previously exported uberjar, which must not be the file being exported to.
+     * @return This exporter.
+     */
+    public UberJarExporter reuse(File previous) {
+        this.previous = previous;
+        return this;
+    }
+
+    /**
+     * @return The number of entries copied from the previous export.
+     */
+    public int getReusedEntries() {
+        return this.reusedEntries;
+    }
+
+    public void exportTo(OutputStream out) throws IOException {
+        Map<String, Asset> entries = new TreeMap<>();
+        for (Map.Entry<ArchivePath, Node> each : this.archive.getContent().entrySet()) {
+            String name = each.getKey().get().substring(1);
+            if (name.isEmpty()) {
+                continue;
+            }
+            Asset asset = each.getValue().getAsset();
+            entries.put(asset == null ? name + "/" : name, asset);
+        }
+
+        // jar readers expect the manifest to come first
+        Map<String, Asset> ordered = new LinkedHashMap<>();
+        if (entries.containsKey(MANIFEST)) {
+            ordered.put(MANIFEST_DIR, null);
+            ordered.put(MANIFEST, entries.remove(MANIFEST));
+            entries.remove(MANIFEST_DIR);
+        }
+        ordered.putAll(entries);
+
+        this.reusedEntries = 0;
+        if (this.previous != null && this.previous.exists()) {
+            try (ZipIndex index = ZipIndex.open(this.previous.toPath())) {
+                if (index != null && exportIncrementally(out, ordered, index)) {
+                    return;
+                }
+            }
+        }
+
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (Map.Entry<String, Asset> each : ordered.entrySet()) {
+            writeEntry(zip, each.getKey(), each.getValue());
+        }
+
+        zip.finish();
+    }
+
+    /**
+     * @return {@code false}, with nothing written, if the entries do not fit the plain zip format.
+     */
+    private boolean exportIncrementally(OutputStream out, Map<String, Asset> entries, ZipIndex index) throws IOException {
+        // Every entry is checksummed before anything is written, to know whether they all fit
+        List<PlannedEntry> planned = new ArrayList<>(entries.size());
+        long nameBytes = 0;
+        long dataBytes = 0;
+        for (Map.Entry<String, Asset> each : entries.entrySet()) {
+            String name = each.getKey();
+            Asset asset = each.getValue();
+            nameBytes += name.getBytes(StandardCharsets.UTF_8).length;
+            if (asset == null) {
+                planned.add(new PlannedEntry(name, null, 0, 0, false, null));
+                continue;
+            }
+
+            CRC32 crc = new CRC32();
+            long size = checksum(asset, crc);
+            boolean stored = isStoredDependency(name);
+
+            ZipIndex.Entry previousEntry = index.get(name);
+            if (previousEntry != null
+                    && previousEntry.crc == crc.getValue()
+                    && previousEntry.size == size
+                    && previousEntry.method == (stored ? ZipEntry.STORED : ZipEntry.DEFLATED)) {
+                dataBytes += previousEntry.compressedSize;
+            } else {
+                previousEntry = null;
+                dataBytes += stored ? size : ZipWriter.maxDeflatedSize(size);
+            }
+            planned.add(new PlannedEntry(name, asset, crc.getValue(), size, stored, previousEntry));
+        }
+        if (!ZipWriter.fits(planned.size(), nameBytes, dataBytes)) {
+            return false;
+        }
+
+        ZipWriter zip = new ZipWriter(out, System.currentTimeMillis());
+        for (PlannedEntry each : planned) {
+            if (each.asset == null) {
+                zip.writeDirectory(each.name);
+            } else if (each.previous != null) {
+                zip.writeRaw(each.name, index, each.previous);
+                ++this.reusedEntries;
+            } else {
+                try (InputStream in = each.asset.openStream()) {
+                    if (each.stored) {
+                        zip.writeStored(each.name, in, each.crc, each.size);
+                    } else {
+                        zip.writeDeflated(each.name, in, each.crc, each.size);
+                    }
+                }
+            }
+        }
+        zip.finish();
+        return true;
+    }
+
+    private void writeEntry(ZipOutputStream zip, String name, Asset asset) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (asset == null) {
+            zip.putNextEntry(entry);
+            zip.closeEntry();
+            return;
+        }
+
+        if (isStoredDependency(name)) {
+            CRC32 crc = new CRC32();
+            long size = checksum(asset, crc);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        }
+
+        zip.putNextEntry(entry);
+        try (InputStream in = asset.openStream()) {
+            copy(in, zip);
+        }
+        zip.closeEntry();
+    }
+
+    private boolean isStoredDependency(String name) {
+        return this.storeDependencies && name.startsWith(M2REPO) && name.endsWith(JAR_SUFFIX);
+    }
+
+    private static long checksum(Asset asset, CRC32 crc) throws IOException {
+        long size = 0;
+        byte[] buf = new byte[BUFFER_SIZE];
+        try (InputStream in = asset.openStream()) {
+            int len;
+            while ((len = in.read(buf)) >= 0) {
+                crc.update(buf, 0, len);
+                size += len;
+            }
+        }
+        return size;
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            out.write(buf, 0, len);
+        }
+    }
+
+    private final Archive<?> archive;
+
+    private final boolean storeDependencies;
+
+    private File previous;
+
+    private int reusedEntries;
+
+    /**
+     * An entry of the incremental export, checksummed and matched against the previous export.
+     */
+    private static final class PlannedEntry {
+
+        PlannedEntry(String name, Asset asset, long crc, long size, boolean stored, ZipIndex.Entry previous) {
+            this.name = name;
+            this.asset = asset;
+            this.crc = crc;
+            this.size = size;
+            this.stored = stored;
+            this.previous = previous;
+        }
+
+        private final String name;
+
+        private final Asset asset;
+
+        private final long crc;
+
+        private final long size;
+
+        private final boolean stored;
+
+        private final ZipIndex.Entry previous;
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * The central directory of an existing zip file, from which the compressed data of
+ * the entries can be copied as is.
+ *
+ * <p>Zip64 files are not supported. Data prepended to the zip file, such as the launch
+ * script of an executable uberjar, is accounted for.</p>
+ */
+final class ZipIndex implements Closeable {
+
+    static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+    static final int END_HEADER_SIGNATURE = 0x06054b50;
+
+    static final int LOCAL_HEADER_SIZE = 30;
+
+    static final int CENTRAL_HEADER_SIZE = 46;
+
+    static final int END_HEADER_SIZE = 22;
+
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private ZipIndex(FileChannel channel, Map<String, Entry> entries) {
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    /**
+     * Read the central directory of a zip file.
+     *
+     * @param file The zip file.
+     * @return The index, or {@code null} if the file is not a zip file this index supports.
+     * @throws IOException If the file cannot be read.
+     */
+    static ZipIndex open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            Map<String, Entry> entries = readCentralDirectory(channel);
+            if (entries != null) {
+                return new ZipIndex(channel, entries);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        return null;
+    }
+
+    Entry get(String name) {
+        return this.entries.get(name);
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Copy the compressed data of an entry.
+     *
+     * @param entry The entry.
+     * @param out   The stream to copy the data to.
+     * @throws IOException If the data cannot be read or written.
+     */
+    void copyData(Entry entry, OutputStream out) throws IOException {
+        ByteBuffer header = read(this.channel, entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header for " + entry.name);
+        }
+        long position = entry.localHeaderOffset + LOCAL_HEADER_SIZE + unsignedShort(header, 26) + unsignedShort(header, 28);
+        long remaining = entry.compressedSize;
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (remaining > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, remaining));
+            int len = this.channel.read(buffer, position);
+            if (len < 0) {
+                throw new ZipException("Truncated data for " + entry.name);
+            }
+            out.write(buffer.array(), 0, len);
+            position += len;
+            remaining -= len;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private static Map<String, Entry> readCentralDirectory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < END_HEADER_SIZE) {
+            return null;
+        }
+        int tailSize = (int) Math.min(size, END_HEADER_SIZE + MAX_COMMENT_SIZE);
+        long tailPosition = size - tailSize;
+        ByteBuffer tail = read(channel, tailPosition, tailSize);
+
+        int end = -1;
+        for (int i = tailSize - END_HEADER_SIZE; i >= 0; --i) {
+            if (tail.getInt(i) == END_HEADER_SIGNATURE) {
+                end = i;
+                break;
+            }
+        }
+        if (end < 0) {
+            return null;
+        }
+
+        int count = unsignedShort(tail, end + 10);
+        long directorySize = unsignedInt(tail, end + 12);
+        long directoryOffset = unsignedInt(tail, end + 16);
+        if (count == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) {
+            // Zip64
+            return null;
+        }
+
+        long directoryPosition = tailPosition + end - directorySize;
+        // Offsets are relative to the start of the zip data, which may follow a launch script
+        long base = directoryPosition - directoryOffset;
+        if (directoryPosition < 0 || base < 0) {
+            return null;
+        }
+
+        ByteBuffer directory = read(channel, directoryPosition, (int) directorySize);
+        Map<String, Entry> entries = new HashMap<>(count * 2);
+        int pos = 0;
+        for (int i = 0; i < count; ++i) {
+            if (pos + CENTRAL_HEADER_SIZE > directorySize || directory.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+                return null;
+            }
+            int nameLength = unsignedShort(directory, pos + 28);
+            byte[] name = new byte[nameLength];
+            directory.position(pos + CENTRAL_HEADER_SIZE);
+            directory.get(name);
+
+            long compressedSize = unsignedInt(directory, pos + 20);
+            long uncompressedSize = unsignedInt(directory, pos + 24);
+            long localHeaderOffset = unsignedInt(directory, pos + 42);
+            if (compressedSize == 0xFFFFFFFFL || uncompressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                // Zip64
+                return null;
+            }
+
+            Entry entry = new Entry(new String(name, StandardCharsets.UTF_8),
+                                    unsignedShort(directory, pos + 10),
+                                    directory.getInt(pos + 12),
+                                    unsignedInt(directory, pos + 16),
+                                    compressedSize,
+                                    uncompressedSize,
+                                    base + localHeaderOffset);
+            entries.put(entry.name, entry);
+
+            pos += CENTRAL_HEADER_SIZE + nameLength + unsignedShort(directory, pos + 30) + unsignedShort(directory, pos + 32);
+        }
+        return entries;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new ZipException("Unexpected end of zip file");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    private final FileChannel channel;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * An entry of the central directory.
+     */
+    static final class Entry {
+
+        Entry(String name, int method, int dosTime, long crc, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        final String name;
+
+        final int method;
+
+        final int dosTime;
+
+        final long crc;
+
+        final long compressedSize;
+
+        final long size;
+
+        final long localHeaderOffset;
+    }
+}
@@ -0,0 +1,333 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tools;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a zip file whose entries are either compressed as they are written, or copied
+ * as is from a {@link ZipIndex} without being decompressed and compressed again.
+ *
+ * <p>Zip64 is not supported. Callers check with {@link #fits(int, long, long)} that the
+ * output will not outgrow the plain zip format, a {@link ZipException} is thrown if it
+ * does anyway.</p>
+ */
+final class ZipWriter {
+
+    private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+
+    private static final int DATA_DESCRIPTOR_SIZE = 16;
+
+    private static final int VERSION = 20;
+
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private static final long MAX_VALUE = 0xFFFFFFFFL;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Whether a zip file fits the plain zip format.
+     *
+     * @param entries   The number of entries.
+     * @param nameBytes The length of all the entry names, in UTF-8.
+     * @param dataBytes The most bytes of entry data, compressed as it will be written.
+     * @return {@code true} if such a zip file can be written.
+     */
+    static boolean fits(int entries, long nameBytes, long dataBytes) {
+        long headers = (long) entries * (ZipIndex.LOCAL_HEADER_SIZE + DATA_DESCRIPTOR_SIZE + ZipIndex.CENTRAL_HEADER_SIZE)
+                + 2 * nameBytes + ZipIndex.END_HEADER_SIZE;
+        return entries <= MAX_ENTRIES && headers + dataBytes < MAX_VALUE;
+    }
+
+    /**
+     * @param size The size of some content.
+     * @return The most bytes {@link #writeDeflated} writes for it, as bounded by zlib.
+     */
+    static long maxDeflatedSize(long size) {
+        return size + (size >>> 12) + (size >>> 14) + (size >>> 25) + 13;
+    }
+
+    ZipWriter(OutputStream out, long time) {
+        this.counter = new CountingOutputStream(out);
+        this.dosTime = dosTime(time);
+    }
+
+    void writeDirectory(String name) throws IOException {
+        writeLocalHeader(new Entry(name, FLAG_UTF8, ZipEntry.STORED, this.dosTime, 0, 0, 0));
+    }
+
+    /**
+     * Write an entry without compressing it.
+     *
+     * @param name The name of the entry.
+     * @param in   The content, of exactly {@code size} bytes.
+     * @param crc  The CRC-32 of the content.
+     * @param size The size of the content.
+     */
+    void writeStored(String name, InputStream in, long crc, long size) throws IOException {
+        writeLocalHeader(new Entry(name, FLAG_UTF8, ZipEntry.STORED, this.dosTime, crc, size, size));
+        long written = copy(in, this.counter);
+        if (written != size) {
+            throw new ZipException("Size of " + name + " changed while writing it");
+        }
+    }
+
+    /**
+     * Write an entry compressed, followed by a data descriptor.
+     *
+     * @param name The name of the entry.
+     * @param in   The content, of exactly {@code size} bytes.
+     * @param crc  The CRC-32 of the content.
+     * @param size The size of the content.
+     */
+    void writeDeflated(String name, InputStream in, long crc, long size) throws IOException {
+        Entry entry = new Entry(name, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, ZipEntry.DEFLATED, this.dosTime, crc, 0, size);
+        writeLocalHeader(entry);
+
+        long start = this.counter.count;
+        this.deflater.reset();
+        DeflaterOutputStream deflating = new DeflaterOutputStream(this.counter, this.deflater, BUFFER_SIZE);
+        long written = copy(in, deflating);
+        deflating.finish();
+        if (written != size) {
+            throw new ZipException("Size of " + name + " changed while writing it");
+        }
+        entry.compressedSize = this.counter.count - start;
+
+        ByteBuffer descriptor = buffer(DATA_DESCRIPTOR_SIZE);
+        descriptor.putInt(DATA_DESCRIPTOR_SIGNATURE);
+        descriptor.putInt((int) entry.crc);
+        descriptor.putInt((int) checkSize(entry.compressedSize));
+        descriptor.putInt((int) entry.size);
+        write(descriptor);
+    }
+
+    /**
+     * Copy an entry of another zip file without decompressing it.
+     *
+     * @param name     The name of the entry.
+     * @param index    The other zip file.
+     * @param previous The entry of the other zip file.
+     */
+    void writeRaw(String name, ZipIndex index, ZipIndex.Entry previous) throws IOException {
+        writeLocalHeader(new Entry(name, FLAG_UTF8, previous.method, previous.dosTime, previous.crc, previous.compressedSize, previous.size));
+        index.copyData(previous, this.counter);
+    }
+
+    /**
+     * Write the central directory. The underlying stream is flushed but not closed.
+     */
+    void finish() throws IOException {
+        if (this.entries.size() > MAX_ENTRIES) {
+            throw new ZipException("Too many entries: " + this.entries.size());
+        }
+        long directoryOffset = this.counter.count;
+        for (Entry each : this.entries) {
+            ByteBuffer header = buffer(ZipIndex.CENTRAL_HEADER_SIZE + each.name.length);
+            header.putInt(ZipIndex.CENTRAL_HEADER_SIGNATURE);
+            header.putShort((short) VERSION);
+            header.putShort((short) VERSION);
+            header.putShort((short) each.flags);
+            header.putShort((short) each.method);
+            header.putInt(each.dosTime);
+            header.putInt((int) each.crc);
+            header.putInt((int) each.compressedSize);
+            header.putInt((int) each.size);
+            header.putShort((short) each.name.length);
+            // extra field, comment, disk number, internal and external attributes
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putShort((short) 0);
+            header.putInt(0);
+            header.putInt((int) each.localHeaderOffset);
+            header.put(each.name);
+            write(header);
+        }
+        long directorySize = this.counter.count - directoryOffset;
+
+        ByteBuffer end = buffer(ZipIndex.END_HEADER_SIZE);
+        end.putInt(ZipIndex.END_HEADER_SIGNATURE);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) this.entries.size());
+        end.putShort((short) this.entries.size());
+        end.putInt((int) checkSize(directorySize));
+        end.putInt((int) checkSize(directoryOffset));
+        end.putShort((short) 0);
+        write(end);
+
+        this.deflater.end();
+        this.counter.flush();
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        entry.localHeaderOffset = checkSize(this.counter.count);
+        checkSize(entry.compressedSize);
+        checkSize(entry.size);
+        this.entries.add(entry);
+
+        ByteBuffer header = buffer(ZipIndex.LOCAL_HEADER_SIZE + entry.name.length);
+        header.putInt(ZipIndex.LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) VERSION);
+        header.putShort((short) entry.flags);
+        header.putShort((short) entry.method);
+        header.putInt(entry.dosTime);
+        if ((entry.flags & FLAG_DATA_DESCRIPTOR) != 0) {
+            // in the data descriptor
+            header.putInt(0);
+            header.putInt(0);
+            header.putInt(0);
+        } else {
+            header.putInt((int) entry.crc);
+            header.putInt((int) entry.compressedSize);
+            header.putInt((int) entry.size);
+        }
+        header.putShort((short) entry.name.length);
+        header.putShort((short) 0);
+        header.put(entry.name);
+        write(header);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        this.counter.write(buffer.array(), 0, buffer.position());
+    }
+
+    private static ByteBuffer buffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long checkSize(long value) throws ZipException {
+        if (value >= MAX_VALUE) {
+            throw new ZipException("Zip64 is not supported");
+        }
+        return value;
+    }
+
+    private static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        long total = 0;
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            out.write(buf, 0, len);
+            total += len;
+        }
+        return total;
+    }
+
+    private static int dosTime(long time) {
+        LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+        if (date.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (date.getYear() - 1980) << 25
+                | date.getMonthValue() << 21
+                | date.getDayOfMonth() << 16
+                | date.getHour() << 11
+                | date.getMinute() << 5
+                | date.getSecond() >> 1;
+    }
+
+    private final CountingOutputStream counter;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private final int dosTime;
+
+    /**
+     * Counts the bytes written, to compute the offsets of the entries.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            ++this.count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The writer does not own the underlying stream
+            flush();
+        }
+
+        private long count;
+    }
+
+    /**
+     * An entry written, for the central directory.
+     */
+    private static final class Entry {
+
+        Entry(String name, int flags, int method, int dosTime, long crc, long compressedSize, long size) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.flags = flags;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+        }
+
+        private final byte[] name;
+
+        private final int flags;
+
+        private final int method;
+
+        private final int dosTime;
+
+        private final long crc;
+
+        private long compressedSize;
+
+        private final long size;
+
+        private long localHeaderOffset;
+    }
+}
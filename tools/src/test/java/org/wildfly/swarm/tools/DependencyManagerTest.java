@@ -15,8 +15,11 @@
  */
 package org.wildfly.swarm.tools;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import org.jboss.shrinkwrap.api.ShrinkWrap;
@@ -200,6 +203,36 @@ public class DependencyManagerTest {
 
     }
 
+    @Test
+    public void testResolvesSequentiallyWithThreadUnsafeResolver() throws Exception {
+        OverlapDetectingResolver resolver = new OverlapDetectingResolver(false);
+
+        new DependencyManager(resolver).analyzeDependencies(true, autodetectedFractions());
+
+        assertThat(resolver.maxActive.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void testResolvesConcurrentlyWithThreadSafeResolver() throws Exception {
+        OverlapDetectingResolver resolver = new OverlapDetectingResolver(true);
+
+        DependencyManager manager = new DependencyManager(resolver);
+        manager.analyzeDependencies(true, autodetectedFractions());
+
+        assertThat(resolver.maxActive.get()).isGreaterThan(1);
+        assertThat(manager.getDependencies()).containsOnly(JAXRS_FRACTION, UNDERTOW_FRACTION, JAXRS_SPEC, SERVLET_SPEC, COMMON_DEP);
+    }
+
+    private static DeclaredDependencies autodetectedFractions() {
+        DeclaredDependencies declaredDependencies = new DeclaredDependencies();
+        declaredDependencies.add(COMMON_DEP);
+        declaredDependencies.add(JAXRS_FRACTION, JAXRS_SPEC);
+        declaredDependencies.add(JAXRS_FRACTION, COMMON_DEP);
+        declaredDependencies.add(JAXRS_FRACTION, UNDERTOW_FRACTION);
+        declaredDependencies.add(JAXRS_SPEC, SERVLET_SPEC);
+        return declaredDependencies;
+    }
+
     private static ArtifactSpec simple(String gav) {
         ArtifactSpec spec = ArtifactSpec.fromMscGav(gav);
         RESOLVER.add(spec);
@@ -230,4 +263,57 @@ public class DependencyManagerTest {
         return spec;
     }
 
+    /**
+     * Fails on overlapping calls unless it declares itself thread-safe, in which case it
+     * records how many calls overlapped.
+     */
+    private static class OverlapDetectingResolver implements ArtifactResolver {
+
+        OverlapDetectingResolver(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return this.threadSafe;
+        }
+
+        @Override
+        public ArtifactSpec resolveArtifact(ArtifactSpec spec) throws Exception {
+            return call(() -> RESOLVER.resolveArtifact(spec));
+        }
+
+        @Override
+        public Collection<ArtifactSpec> resolveAllArtifactsTransitively(Collection<ArtifactSpec> specs, boolean excludes) throws Exception {
+            return call(() -> RESOLVER.resolveAllArtifactsTransitively(specs, excludes));
+        }
+
+        @Override
+        public Collection<ArtifactSpec> resolveAllArtifactsNonTransitively(Collection<ArtifactSpec> specs) throws Exception {
+            return call(() -> RESOLVER.resolveAllArtifactsNonTransitively(specs));
+        }
+
+        private <T> T call(Callable<T> resolution) throws Exception {
+            int active = this.active.incrementAndGet();
+            try {
+                this.maxActive.accumulateAndGet(active, Math::max);
+                if (active > 1 && !this.threadSafe) {
+                    throw new IllegalStateException("Overlapping calls to a resolver which is not thread-safe");
+                }
+                // leave time for another resolution to overlap
+                Thread.sleep(200);
+                synchronized (RESOLVER) {
+                    return resolution.call();
+                }
+            } finally {
+                this.active.decrementAndGet();
+            }
+        }
+
+        private final boolean threadSafe;
+
+        private final AtomicInteger active = new AtomicInteger();
+
+        private final AtomicInteger maxActive = new AtomicInteger();
+    }
 }
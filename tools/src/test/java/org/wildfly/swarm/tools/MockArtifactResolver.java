@@ -87,6 +87,11 @@ public class MockArtifactResolver implements ArtifactResolver, ArtifactResolving
         return resolveAll(specs, false, false);
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return false;
+    }
+
     @Override
     public ArtifactSpec resolve(ArtifactSpec spec) throws Exception {
         File resolved = resolvedArtifacts.get(spec);
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tools;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.asset.FileAsset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+
+/**
+ * Times the export of an uberjar after a single class changed, with and without reusing the previous export.
+ *
+ * <p>Not a unit test, run it with {@code main}. The archive bundles the jars found under the given directory,
+ * the local Maven repository by default, the way {@code BuildTool} populates {@code m2repo/}.</p>
+ */
+public class UberJarExporterBenchmark {
+
+    private static final int MAX_JARS = 400;
+
+    public static void main(String... args) throws Exception {
+        Path repository = args.length > 0 ? Paths.get(args[0]) : Paths.get(System.getProperty("user.home"), ".m2", "repository");
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+        List<Path> jars;
+        try (Stream<Path> files = Files.walk(repository)) {
+            jars = files.filter(e -> e.toString().endsWith(".jar")).limit(MAX_JARS).collect(Collectors.toList());
+        }
+        long bytes = 0;
+        for (Path each : jars) {
+            archive.add(new FileAsset(each.toFile()), "m2repo/" + repository.relativize(each).toString().replace(File.separatorChar, '/'));
+            bytes += Files.size(each);
+        }
+
+        File full = File.createTempFile("benchmark", "-swarm.jar");
+        File previous = File.createTempFile("benchmark", "-swarm.jar");
+        File next = File.createTempFile("benchmark", "-swarm.jar");
+        try {
+            try (OutputStream out = new FileOutputStream(previous)) {
+                archive.as(ZipExporter.class).exportTo(out);
+            }
+            for (int i = 0; i < rounds; i++) {
+                archive.add(new ByteArrayAsset(("round " + i).getBytes(StandardCharsets.UTF_8)), "org/example/Changed.class");
+
+                long start = System.nanoTime();
+                try (OutputStream out = new FileOutputStream(full)) {
+                    archive.as(ZipExporter.class).exportTo(out);
+                }
+                long fullTime = System.nanoTime() - start;
+
+                // diff against the export of the previous round
+                start = System.nanoTime();
+                UberJarExporter exporter = new UberJarExporter(archive, false).reuse(previous);
+                try (OutputStream out = new FileOutputStream(next)) {
+                    exporter.exportTo(out);
+                }
+                long incrementalTime = System.nanoTime() - start;
+
+                System.out.printf("round %d: %d jars (%d MB), full %8.2f ms, incremental %8.2f ms (%d entries reused)%n",
+                                  i, jars.size(), bytes >> 20, fullTime / 1e6, incrementalTime / 1e6, exporter.getReusedEntries());
+
+                File swap = previous;
+                previous = next;
+                next = swap;
+            }
+        } finally {
+            delete(full);
+            delete(previous);
+            delete(next);
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright 2015-2018 Red Hat, Inc, and individual contributors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wildfly.swarm.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarFile;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.ByteArrayAsset;
+import org.jboss.shrinkwrap.api.exporter.ZipExporter;
+import org.jboss.shrinkwrap.api.spec.JavaArchive;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class UberJarExporterTest {
+
+    @Rule
+    public TemporaryFolder tmpdir = new TemporaryFolder();
+
+    @Test
+    public void testStoresDependencyJars() throws Exception {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+        archive.add(new ByteArrayAsset("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8)), "META-INF/MANIFEST.MF");
+        archive.add(new ByteArrayAsset(new byte[4096]), "org/wildfly/swarm/bootstrap/Main.class");
+        archive.add(new ByteArrayAsset(new byte[4096]), "m2repo/org/example/thing/1.0/thing-1.0.jar");
+        archive.add(new ByteArrayAsset(new byte[4096]), "m2repo/org/example/thing/1.0/thing-1.0.pom");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new UberJarExporter(archive, true).exportTo(out);
+
+        Map<String, ZipEntry> entries = new HashMap<>();
+        String first = null;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry each;
+            while ((each = in.getNextEntry()) != null) {
+                if (first == null && !each.isDirectory()) {
+                    first = each.getName();
+                }
+                entries.put(each.getName(), each);
+            }
+        }
+
+        assertThat(first).isEqualTo("META-INF/MANIFEST.MF");
+        assertThat(entries.get("m2repo/org/example/thing/1.0/thing-1.0.jar").getMethod()).isEqualTo(ZipEntry.STORED);
+        assertThat(entries.get("m2repo/org/example/thing/1.0/thing-1.0.pom").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(entries.get("org/wildfly/swarm/bootstrap/Main.class").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(entries.keySet()).contains("org/wildfly/swarm/bootstrap/");
+    }
+
+    @Test
+    public void testReusesUnchangedEntries() throws Exception {
+        JavaArchive archive = archive("v1");
+        File previous = tmpdir.newFile("previous.jar");
+        try (OutputStream out = new FileOutputStream(previous)) {
+            new UberJarExporter(archive, true).exportTo(out);
+        }
+
+        archive.add(new ByteArrayAsset("v2".getBytes(StandardCharsets.UTF_8)), "org/example/Changed.class");
+        archive.add(new ByteArrayAsset("new".getBytes(StandardCharsets.UTF_8)), "org/example/Added.class");
+
+        File next = tmpdir.newFile("next.jar");
+        UberJarExporter exporter = new UberJarExporter(archive, true).reuse(previous);
+        try (OutputStream out = new FileOutputStream(next)) {
+            exporter.exportTo(out);
+        }
+
+        // manifest, Main.class, the stored jar and the pom
+        assertThat(exporter.getReusedEntries()).isEqualTo(4);
+        assertContent(next, archive);
+
+        try (JarFile jar = new JarFile(next)) {
+            assertThat(jar.getManifest()).isNotNull();
+            assertThat(jar.getEntry("m2repo/org/example/thing/1.0/thing-1.0.jar").getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(jar.getEntry("org/example/Changed.class").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        }
+    }
+
+    @Test
+    public void testReusesEntriesAfterLaunchScript() throws Exception {
+        JavaArchive archive = archive("v1");
+        File previous = tmpdir.newFile("previous.jar");
+        try (OutputStream out = new FileOutputStream(previous)) {
+            out.write("#!/bin/sh\nexec java -jar $0 \"$@\"\n".getBytes(StandardCharsets.UTF_8));
+            archive.as(ZipExporter.class).exportTo(out);
+        }
+
+        File next = tmpdir.newFile("next.jar");
+        UberJarExporter exporter = new UberJarExporter(archive, false).reuse(previous);
+        try (OutputStream out = new FileOutputStream(next)) {
+            exporter.exportTo(out);
+        }
+
+        assertThat(exporter.getReusedEntries()).isEqualTo(5);
+        assertContent(next, archive);
+    }
+
+    @Test
+    public void testIgnoresInvalidPrevious() throws Exception {
+        JavaArchive archive = archive("v1");
+        File previous = tmpdir.newFile("previous.jar");
+        Files.write(previous.toPath(), "not a jar".getBytes(StandardCharsets.UTF_8));
+
+        File next = tmpdir.newFile("next.jar");
+        UberJarExporter exporter = new UberJarExporter(archive, true).reuse(previous);
+        try (OutputStream out = new FileOutputStream(next)) {
+            exporter.exportTo(out);
+        }
+
+        assertThat(exporter.getReusedEntries()).isEqualTo(0);
+        assertContent(next, archive);
+    }
+
+    @Test
+    public void testExportsTooManyEntriesInFull() throws Exception {
+        JavaArchive archive = archive("v1");
+        File previous = tmpdir.newFile("previous.jar");
+        try (OutputStream out = new FileOutputStream(previous)) {
+            new UberJarExporter(archive, true).exportTo(out);
+        }
+
+        for (int i = 0; i <= 0xFFFF; i++) {
+            archive.add(new ByteArrayAsset(new byte[]{(byte) i}), "org/example/many/Entry" + i + ".class");
+        }
+
+        File next = tmpdir.newFile("next.jar");
+        UberJarExporter exporter = new UberJarExporter(archive, true).reuse(previous);
+        try (OutputStream out = new FileOutputStream(next)) {
+            exporter.exportTo(out);
+        }
+
+        // more than a plain zip file holds, nothing is reused and Zip64 is written instead
+        assertThat(exporter.getReusedEntries()).isEqualTo(0);
+        try (ZipFile zip = new ZipFile(next)) {
+            assertThat(zip.getEntry("org/example/many/Entry65535.class")).isNotNull();
+            assertThat(zip.getEntry("m2repo/org/example/thing/1.0/thing-1.0.jar").getMethod()).isEqualTo(ZipEntry.STORED);
+            try (InputStream in = zip.getInputStream(zip.getEntry("org/example/Changed.class"))) {
+                assertThat(read(in)).isEqualTo("v1".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    public void testPlainZipLimits() {
+        assertThat(ZipWriter.fits(0xFFFF, 0, 0)).isTrue();
+        assertThat(ZipWriter.fits(0x10000, 0, 0)).isFalse();
+        assertThat(ZipWriter.fits(1, 10, 1L << 31)).isTrue();
+        assertThat(ZipWriter.fits(1, 10, 0xFFFFFFFFL - 100)).isFalse();
+
+        byte[] random = new byte[1 << 16];
+        new Random(42).nextBytes(random);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(deflated, deflater)) {
+            out.write(random);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        deflater.end();
+        assertThat((long) deflated.size()).isGreaterThan((long) random.length);
+        assertThat(ZipWriter.maxDeflatedSize(random.length)).isGreaterThanOrEqualTo(deflated.size());
+    }
+
+    private static JavaArchive archive(String version) {
+        JavaArchive archive = ShrinkWrap.create(JavaArchive.class);
+        archive.add(new ByteArrayAsset("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8)), "META-INF/MANIFEST.MF");
+        archive.add(new ByteArrayAsset(new byte[4096]), "org/wildfly/swarm/bootstrap/Main.class");
+        archive.add(new ByteArrayAsset(version.getBytes(StandardCharsets.UTF_8)), "org/example/Changed.class");
+        archive.add(new ByteArrayAsset(new byte[4096]), "m2repo/org/example/thing/1.0/thing-1.0.jar");
+        archive.add(new ByteArrayAsset(new byte[4096]), "m2repo/org/example/thing/1.0/thing-1.0.pom");
+        return archive;
+    }
+
+    private static void assertContent(File file, JavaArchive archive) throws Exception {
+        Map<String, byte[]> expected = new HashMap<>();
+        archive.getContent().forEach((path, node) -> {
+            if (node.getAsset() != null) {
+                try (InputStream in = node.getAsset().openStream()) {
+                    expected.put(path.get().substring(1), read(in));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        // read sequentially, as the launcher does, and through the central directory
+        Map<String, byte[]> actual = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new FileInputStream(file))) {
+            ZipEntry each;
+            while ((each = in.getNextEntry()) != null) {
+                if (!each.isDirectory()) {
+                    actual.put(each.getName(), read(in));
+                }
+            }
+        }
+        try (ZipFile zip = new ZipFile(file)) {
+            for (String name : expected.keySet()) {
+                try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+                    assertThat(read(in)).isEqualTo(expected.get(name));
+                }
+            }
+        }
+
+        assertThat(actual.keySet()).isEqualTo(expected.keySet());
+        for (String name : expected.keySet()) {
+            assertThat(actual.get(name)).isEqualTo(expected.get(name));
+        }
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int len;
+        while ((len = in.read(buf)) >= 0) {
+            out.write(buf, 0, len);
+        }
+        return out.toByteArray();
+    }
+}